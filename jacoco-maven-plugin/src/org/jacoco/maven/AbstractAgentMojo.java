@@ -19,6 +19,7 @@ import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.codehaus.plexus.util.StringUtils;
 import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.ClassShard;
 
 /**
  * Base class for preparing a property pointing to the JaCoCo runtime agent that
@@ -133,6 +134,51 @@ public abstract class AbstractAgentMojo extends AbstractJacocoMojo {
 	 */
 	@Parameter(property = "jacoco.jmx")
 	Boolean jmx;
+	/**
+	 * If a directory is specified for this parameter the JaCoCo agent caches
+	 * the instrumented class files in this location and reuses them in
+	 * subsequent runs. The directory can be shared by parallel forked JVMs.
+	 */
+	@Parameter(property = "jacoco.cacheDir")
+	File cacheDir;
+	/**
+	 * Maximum size of the cache directory in megabytes. If the size is
+	 * exceeded the least recently used entries are removed.
+	 */
+	@Parameter(property = "jacoco.cacheSize")
+	Integer cacheSize;
+	/**
+	 * If set to true small methods are instrumented with compact probes which
+	 * keep them below the inlining threshold of the JIT compiler.
+	 */
+	@Parameter(property = "jacoco.compactProbes")
+	Boolean compactProbes;
+	/**
+	 * If a file is specified for this parameter the JaCoCo agent reports all
+	 * methods which exceed an inlining threshold of the JIT compiler because
+	 * of their instrumentation to this file.
+	 */
+	@Parameter(property = "jacoco.inliningReport")
+	File inliningReport;
+	/**
+	 * If set to true the JaCoCo agent replaces fully covered classes by
+	 * versions without probes at runtime.
+	 */
+	@Parameter(property = "jacoco.deinstrument")
+	Boolean deinstrument;
+	/**
+	 * Number of minutes after which classes with unchanged coverage are also
+	 * replaced by versions without probes if de-instrumentation is enabled.
+	 */
+	@Parameter(property = "jacoco.deinstrumentStable")
+	Integer deinstrumentStable;
+	/**
+	 * Shard of classes instrumented by the JaCoCo agent in the form
+	 * <code>k/n</code>, e.g. <code>0/4</code>. Every class belongs to exactly
+	 * one of the <code>n</code> shards.
+	 */
+	@Parameter(property = "jacoco.shard")
+	String shard;
 
 	@Override
 	public void executeMojo() {
@@ -210,6 +256,27 @@ public abstract class AbstractAgentMojo extends AbstractJacocoMojo {
 		if (jmx != null) {
 			agentOptions.setJmx(jmx.booleanValue());
 		}
+		if (cacheDir != null) {
+			agentOptions.setCacheDir(cacheDir.getAbsolutePath());
+		}
+		if (cacheSize != null) {
+			agentOptions.setCacheSize(cacheSize.intValue());
+		}
+		if (compactProbes != null) {
+			agentOptions.setCompactProbes(compactProbes.booleanValue());
+		}
+		if (inliningReport != null) {
+			agentOptions.setInliningReport(inliningReport.getAbsolutePath());
+		}
+		if (deinstrument != null) {
+			agentOptions.setDeinstrument(deinstrument.booleanValue());
+		}
+		if (deinstrumentStable != null) {
+			agentOptions.setDeinstrumentStable(deinstrumentStable.intValue());
+		}
+		if (shard != null) {
+			agentOptions.setShard(ClassShard.parse(shard));
+		}
 		return agentOptions;
 	}
 
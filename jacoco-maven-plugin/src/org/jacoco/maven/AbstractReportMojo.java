@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.jacoco.maven;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.List;
 import java.util.Locale;
@@ -73,6 +74,28 @@ public abstract class AbstractReportMojo extends AbstractMavenReport {
 	@Parameter
 	List<String> excludes;
 
+	/**
+	 * Directory to cache the structure of analyzed classes in. Classes which
+	 * have not changed since a previous report are not analyzed again. The
+	 * directory can be shared between projects and builds.
+	 *
+	 * @since 0.7.10
+	 */
+	@Parameter(property = "jacoco.analysisCache")
+	File analysisCache;
+
+	/**
+	 * Analyze and report the class files directory by directory instead of
+	 * keeping the coverage data of a complete project in memory. This allows
+	 * reports for projects whose coverage data does not fit into memory. Class
+	 * files of the same package have to be located in the same directory,
+	 * otherwise the goal fails.
+	 *
+	 * @since 0.7.10
+	 */
+	@Parameter(property = "jacoco.streamPackages", defaultValue = "false")
+	boolean streamPackages;
+
 	/**
 	 * Flag used to suppress execution.
 	 */
@@ -174,6 +197,8 @@ public abstract class AbstractReportMojo extends AbstractMavenReport {
 			throws MavenReportException {
 		try {
 			final ReportSupport support = new ReportSupport(getLog());
+			support.setAnalysisCache(analysisCache);
+			support.setStreamPackages(streamPackages);
 			loadExecutionData(support);
 			addFormatters(support, locale);
 			final IReportVisitor visitor = support.initRootVisitor();
@@ -133,6 +133,27 @@ public class CheckMojo extends AbstractJacocoMojo implements IViolationsOutput {
 	@Parameter(defaultValue = "${project.build.directory}/jacoco.exec")
 	private File dataFile;
 
+	/**
+	 * Directory to cache the structure of analyzed classes in. Classes which
+	 * have not changed since a previous check are not analyzed again. The
+	 * directory can be shared between projects and builds.
+	 *
+	 * @since 0.7.10
+	 */
+	@Parameter(property = "jacoco.analysisCache")
+	private File analysisCache;
+
+	/**
+	 * Analyze and check the class files directory by directory instead of
+	 * keeping the coverage data of the complete project in memory. Class files
+	 * of the same package have to be located in the same directory, otherwise
+	 * the goal fails.
+	 *
+	 * @since 0.7.10
+	 */
+	@Parameter(property = "jacoco.streamPackages", defaultValue = "false")
+	private boolean streamPackages;
+
 	private boolean violations;
 
 	private boolean canCheckCoverage() {
@@ -164,12 +185,16 @@ public class CheckMojo extends AbstractJacocoMojo implements IViolationsOutput {
 		violations = false;
 
 		final ReportSupport support = new ReportSupport(getLog());
+		support.setAnalysisCache(analysisCache);
+		support.setStreamPackages(streamPackages);
 
 		final List<Rule> checkerrules = new ArrayList<Rule>();
 		for (final RuleConfiguration r : rules) {
 			checkerrules.add(r.rule);
 		}
 		support.addRulesChecker(checkerrules, this);
+		// Only the counters checked by the rules are calculated:
+		support.setSummaryOnly(true);
 
 		try {
 			final IReportVisitor visitor = support.initRootVisitor();
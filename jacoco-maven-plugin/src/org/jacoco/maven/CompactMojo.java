@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.maven;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.jacoco.core.tools.ExecFileCompactor;
+
+/**
+ * Mojo for compacting an execution data file (*.exec) that has been appended
+ * multiple times. Records of the same class are merged and duplicate sessions
+ * are removed. The file is locked while being rewritten.
+ * 
+ * @since 0.7.10
+ */
+@Mojo(name = "compact", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class CompactMojo extends AbstractJacocoMojo {
+
+	private static final String MSG_SKIPPING = "Skipping JaCoCo compact execution due to missing execution data file:";
+
+	/**
+	 * File with execution data to compact in place.
+	 */
+	@Parameter(property = "jacoco.dataFile", defaultValue = "${project.build.directory}/jacoco.exec")
+	private File dataFile;
+
+	/**
+	 * If set all sessions are collapsed into a single session with this
+	 * identifier. Otherwise distinct sessions are preserved.
+	 */
+	@Parameter(property = "jacoco.compact.sessionId")
+	private String sessionId;
+
+	@Override
+	protected void executeMojo() throws MojoExecutionException {
+		if (!dataFile.exists()) {
+			getLog().info(MSG_SKIPPING + dataFile);
+			return;
+		}
+		final ExecFileCompactor compactor = new ExecFileCompactor();
+		compactor.setSessionId(sessionId);
+		final long size = dataFile.length();
+		try {
+			compactor.compact(dataFile);
+		} catch (final IOException e) {
+			throw new MojoExecutionException("Unable to compact "
+					+ dataFile.getAbsolutePath(), e);
+		}
+		getLog().info(
+				String.format("Compacted execution data file %s (%s to %s bytes)",
+						dataFile.getAbsolutePath(), Long.valueOf(size),
+						Long.valueOf(dataFile.length())));
+	}
+
+}
@@ -17,16 +17,27 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
 import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.instr.ProbeMapWriter;
 import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
+import org.jacoco.core.tools.InstrumentationManifest;
 
 /**
  * Performs offline instrumentation. Note that after execution of test you must
@@ -44,11 +55,43 @@ import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
 @Mojo(name = "instrument", defaultPhase = LifecyclePhase.PROCESS_CLASSES, threadSafe = true)
 public class InstrumentMojo extends AbstractJacocoMojo {
 
+	/**
+	 * Optional directory where a probe map is written for every instrumented
+	 * class. A probe map describes the method, source line and branch of
+	 * every probe and the lines covered by it.
+	 * 
+	 * @since 0.7.10
+	 */
+	@Parameter(property = "jacoco.probeMapDirectory")
+	private File probeMapDirectory;
+
+	/**
+	 * Number of threads used to instrument the class files. With the default
+	 * of 1 all class files are instrumented sequentially.
+	 * 
+	 * @since 0.7.10
+	 */
+	@Parameter(property = "jacoco.threads", defaultValue = "1")
+	private int threads;
+
+	/**
+	 * Instruments only class files which changed since the last execution.
+	 * The CRC64 hashes of the original and the instrumented version of every
+	 * class are recorded in a manifest and the instrumented versions are kept
+	 * in <code>target/generated-classes/jacoco-instrumented</code>. Unchanged
+	 * classes are copied from there instead of being instrumented again. The
+	 * backups and instrumented versions of deleted classes are removed, so
+	 * that they are not restored by the "restore-instrumented-classes" goal.
+	 * 
+	 * @since 0.7.10
+	 */
+	@Parameter(property = "jacoco.incremental", defaultValue = "false")
+	private boolean incremental;
+
 	@Override
 	public void executeMojo() throws MojoExecutionException,
 			MojoFailureException {
-		final File originalClassesDir = new File(getProject().getBuild()
-				.getDirectory(), "generated-classes/jacoco");
+		final File originalClassesDir = getGeneratedClassesDir("jacoco");
 		originalClassesDir.mkdirs();
 		final File classesDir = new File(
 				getProject().getBuild().getOutputDirectory());
@@ -70,25 +113,199 @@ public class InstrumentMojo extends AbstractJacocoMojo {
 
 		final Instrumenter instrumenter = new Instrumenter(
 				new OfflineInstrumentationAccessGenerator());
+		if (probeMapDirectory != null) {
+			instrumenter.setProbeMapVisitor(new ProbeMapWriter(
+					probeMapDirectory));
+		}
+		if (threads < 1) {
+			throw new MojoExecutionException(
+					"Number of threads must be positive.");
+		}
+		final List<String> classFiles = new ArrayList<String>();
 		for (final String fileName : fileNames) {
 			if (fileName.endsWith(".class")) {
-				final File source = new File(classesDir, fileName);
-				final File backup = new File(originalClassesDir, fileName);
-				InputStream input = null;
-				OutputStream output = null;
-				try {
-					FileUtils.copyFile(source, backup);
-					input = new FileInputStream(backup);
-					output = new FileOutputStream(source);
-					instrumenter.instrument(input, output, source.getPath());
-				} catch (final IOException e2) {
-					throw new MojoExecutionException(
-							"Unable to instrument file.", e2);
-				} finally {
-					IOUtil.close(input);
-					IOUtil.close(output);
-				}
+				classFiles.add(fileName);
+			}
+		}
+		final InstrumentationManifest manifest;
+		final File manifestFile = getGeneratedClassesDir("jacoco.manifest");
+		if (incremental) {
+			manifest = new InstrumentationManifest("probeMapDirectory="
+					+ probeMapDirectory);
+			try {
+				manifest.load(manifestFile);
+				removeDeletedClasses(manifest, classFiles);
+			} catch (final IOException e) {
+				throw new MojoExecutionException(
+						"Unable to update instrumentation manifest.", e);
+			}
+		} else {
+			manifest = null;
+			manifestFile.delete();
+		}
+		if (threads == 1) {
+			for (final String fileName : classFiles) {
+				instrument(instrumenter, manifest, fileName);
+			}
+		} else {
+			instrumentParallel(instrumenter, manifest, classFiles);
+		}
+		if (manifest != null) {
+			try {
+				manifest.save(manifestFile);
+			} catch (final IOException e) {
+				throw new MojoExecutionException(
+						"Unable to write instrumentation manifest.", e);
+			}
+		}
+	}
+
+	private void instrumentParallel(final Instrumenter instrumenter,
+			final InstrumentationManifest manifest,
+			final List<String> classFiles) throws MojoExecutionException {
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			final List<Future<Void>> pending = new ArrayList<Future<Void>>();
+			for (final String fileName : classFiles) {
+				pending.add(executor.submit(new Callable<Void>() {
+					public Void call() throws MojoExecutionException {
+						instrument(instrumenter, manifest, fileName);
+						return null;
+					}
+				}));
+			}
+			for (final Future<Void> f : pending) {
+				get(f);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private void instrument(final Instrumenter instrumenter,
+			final InstrumentationManifest manifest, final String fileName)
+			throws MojoExecutionException {
+		final File source = new File(getProject().getBuild()
+				.getOutputDirectory(), fileName);
+		final File backup = new File(getGeneratedClassesDir("jacoco"),
+				fileName);
+		if (manifest != null) {
+			instrumentIncremental(instrumenter, manifest, fileName, source,
+					backup);
+			return;
+		}
+		InputStream input = null;
+		OutputStream output = null;
+		try {
+			FileUtils.copyFile(source, backup);
+			input = new FileInputStream(backup);
+			output = new FileOutputStream(source);
+			instrumenter.instrument(input, output, source.getPath());
+		} catch (final IOException e2) {
+			throw new MojoExecutionException("Unable to instrument file.", e2);
+		} finally {
+			IOUtil.close(input);
+			IOUtil.close(output);
+		}
+	}
+
+	private void instrumentIncremental(final Instrumenter instrumenter,
+			final InstrumentationManifest manifest, final String fileName,
+			final File source, final File backup)
+			throws MojoExecutionException {
+		final File cached = new File(
+				getGeneratedClassesDir("jacoco-instrumented"), fileName);
+		try {
+			final byte[] original = read(source);
+			final long hash = InstrumentationManifest.hash(original);
+			if (backup.isFile() && manifest.isInstrumented(fileName, hash)) {
+				// Still instrumented as classes have not been restored
+				return;
+			}
+			if (backup.isFile() && cached.isFile()
+					&& manifest.isUnchanged(fileName, hash)) {
+				FileUtils.copyFile(cached, source);
+				return;
+			}
+			final byte[] instrumented = instrumenter.instrument(original,
+					source.getPath());
+			write(backup, original);
+			write(cached, instrumented);
+			write(source, instrumented);
+			manifest.put(fileName, hash,
+					InstrumentationManifest.hash(instrumented));
+		} catch (final IOException e) {
+			throw new MojoExecutionException("Unable to instrument file.", e);
+		}
+	}
+
+	private void removeDeletedClasses(final InstrumentationManifest manifest,
+			final List<String> classFiles) throws IOException {
+		final File classesDir = new File(getProject().getBuild()
+				.getOutputDirectory());
+		final Set<String> current = new HashSet<String>(classFiles);
+		for (final String fileName : manifest.getNames()) {
+			if (current.contains(fileName)) {
+				continue;
+			}
+			final File source = new File(classesDir, fileName);
+			final File backup = new File(getGeneratedClassesDir("jacoco"),
+					fileName);
+			// The class is still instrumented but excluded now:
+			if (source.isFile()
+					&& backup.isFile()
+					&& manifest.isInstrumented(fileName, InstrumentationManifest
+							.hash(read(source)))) {
+				FileUtils.copyFile(backup, source);
+			}
+			backup.delete();
+			new File(getGeneratedClassesDir("jacoco-instrumented"), fileName)
+					.delete();
+		}
+		manifest.retain(classFiles);
+	}
+
+	private File getGeneratedClassesDir(final String name) {
+		return new File(getProject().getBuild().getDirectory(),
+				"generated-classes/" + name);
+	}
+
+	private static byte[] read(final File file) throws IOException {
+		final InputStream input = new FileInputStream(file);
+		try {
+			return IOUtil.toByteArray(input);
+		} finally {
+			input.close();
+		}
+	}
+
+	private static void write(final File file, final byte[] content)
+			throws IOException {
+		file.getParentFile().mkdirs();
+		final OutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content);
+		} finally {
+			output.close();
+		}
+	}
+
+	private static void get(final Future<Void> future)
+			throws MojoExecutionException {
+		try {
+			future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new MojoExecutionException("Instrumentation interrupted.", e);
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof MojoExecutionException) {
+				throw (MojoExecutionException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
 			}
+			throw (Error) cause;
 		}
 	}
 
@@ -22,20 +22,33 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
+import org.jacoco.core.analysis.AnalysisCache;
 import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.StringPool;
 import org.jacoco.core.tools.ExecFileLoader;
 import org.jacoco.report.FileMultiReportOutput;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.IStreamingReportGroupVisitor;
 import org.jacoco.report.MultiReportVisitor;
 import org.jacoco.report.check.IViolationsOutput;
 import org.jacoco.report.check.Rule;
@@ -61,6 +74,12 @@ final class ReportSupport {
 	private final Log log;
 	private final ExecFileLoader loader;
 	private final List<IReportVisitor> formatters;
+	private final StringPool stringPool;
+	private AnalysisCache analysisCache;
+	private boolean summaryOnly;
+	private boolean streamPackages;
+	private boolean lineCoverageRequired;
+	private boolean sourceFileCoverageRequired;
 
 	/**
 	 * Construct a new instance with the given log output.
@@ -72,6 +91,8 @@ final class ReportSupport {
 		this.log = log;
 		this.loader = new ExecFileLoader();
 		this.formatters = new ArrayList<IReportVisitor>();
+		// Shared by all projects, e.g. for aggregated reports:
+		this.stringPool = new StringPool();
 	}
 
 	/**
@@ -87,6 +108,46 @@ final class ReportSupport {
 		loader.load(execFile);
 	}
 
+	/**
+	 * Sets the directory of an analysis cache which is used for all projects
+	 * processed afterwards.
+	 * 
+	 * @param directory
+	 *            cache directory or <code>null</code> to disable the cache
+	 */
+	public void setAnalysisCache(final File directory) {
+		analysisCache = directory == null ? null : new AnalysisCache(directory);
+	}
+
+	/**
+	 * Sets whether only the counters required by the added rules checkers are
+	 * calculated for all projects processed afterwards. This must only be
+	 * enabled if no other formatters are added.
+	 * 
+	 * @param summaryOnly
+	 *            <code>true</code> to skip line coverage and source files if
+	 *            not required by the rules
+	 */
+	public void setSummaryOnly(final boolean summaryOnly) {
+		this.summaryOnly = summaryOnly;
+	}
+
+	/**
+	 * Sets whether the class files of all projects processed afterwards are
+	 * analyzed and emitted to the report directory by directory. In this mode
+	 * only the coverage data of a single package is kept in memory, which
+	 * allows reports for projects whose coverage data does not fit into
+	 * memory as a whole. Report creation fails if the class files of a package
+	 * are located in multiple directories.
+	 * 
+	 * @param streamPackages
+	 *            <code>true</code> to emit the packages of every directory
+	 *            immediately
+	 */
+	public void setStreamPackages(final boolean streamPackages) {
+		this.streamPackages = streamPackages;
+	}
+
 	public void addXmlFormatter(final File targetfile, final String encoding)
 			throws IOException {
 		final XMLFormatter xml = new XMLFormatter();
@@ -125,6 +186,8 @@ final class ReportSupport {
 			final IViolationsOutput output) {
 		final RulesChecker checker = new RulesChecker();
 		checker.setRules(rules);
+		lineCoverageRequired |= checker.isLineCoverageRequired();
+		sourceFileCoverageRequired |= checker.isSourceFileCoverageRequired();
 		formatters.add(checker.createVisitor(output));
 	}
 
@@ -188,26 +251,89 @@ final class ReportSupport {
 			final String bundeName, final MavenProject project,
 			final List<String> includes, final List<String> excludes,
 			final ISourceFileLocator locator) throws IOException {
-		final CoverageBuilder builder = new CoverageBuilder();
 		final File classesDir = new File(project.getBuild()
 				.getOutputDirectory());
-
+		final List<File> files;
 		if (classesDir.isDirectory()) {
-			final Analyzer analyzer = new Analyzer(
-					loader.getExecutionDataStore(), builder);
-			final FileFilter filter = new FileFilter(includes, excludes);
-			for (final File file : filter.getFiles(classesDir)) {
-				analyzer.analyzeAll(file);
+			files = new FileFilter(includes, excludes).getFiles(classesDir);
+		} else {
+			files = Collections.emptyList();
+		}
+
+		if (streamPackages && visitor instanceof IStreamingReportGroupVisitor) {
+			processPackages((IStreamingReportGroupVisitor) visitor, bundeName,
+					files, locator);
+		} else {
+			final CoverageBuilder builder = analyze(files);
+			final IBundleCoverage bundle = builder.getBundle(bundeName);
+			logBundleInfo(bundle, builder.getNoMatchClasses());
+			visitor.visitBundle(bundle, locator);
+		}
+	}
+
+	private void processPackages(final IStreamingReportGroupVisitor visitor,
+			final String bundeName, final List<File> files,
+			final ISourceFileLocator locator) throws IOException {
+		final IReportBundleVisitor bundleVisitor = visitor.visitBundle(
+				bundeName, locator);
+		final CoverageNodeImpl total = new CoverageNodeImpl(
+				ElementType.BUNDLE, bundeName);
+		final Collection<IClassCoverage> nomatch = new ArrayList<IClassCoverage>();
+		final Set<String> packages = new HashSet<String>();
+		for (final List<File> directory : groupByDirectory(files)) {
+			final CoverageBuilder builder = analyze(directory);
+			for (final IPackageCoverage p : builder.getBundle(bundeName)
+					.getPackages()) {
+				if (!packages.add(p.getName())) {
+					throw new IOException(format(
+							"Package %s of bundle %s is located in multiple "
+									+ "directories, streamPackages "
+									+ "can not be used.", p.getName(),
+							bundeName));
+				}
+				total.increment(p);
+				bundleVisitor.visitPackage(p);
+			}
+			nomatch.addAll(builder.getNoMatchClasses());
+		}
+		logBundleInfo(total, nomatch);
+	}
+
+	private static Collection<List<File>> groupByDirectory(
+			final List<File> files) {
+		final Map<File, List<File>> directories = new LinkedHashMap<File, List<File>>();
+		for (final File file : files) {
+			final File directory = file.getParentFile();
+			List<File> list = directories.get(directory);
+			if (list == null) {
+				list = new ArrayList<File>();
+				directories.put(directory, list);
 			}
+			list.add(file);
 		}
+		return directories.values();
+	}
 
-		final IBundleCoverage bundle = builder.getBundle(bundeName);
-		logBundleInfo(bundle, builder.getNoMatchClasses());
+	private CoverageBuilder analyze(final List<File> files)
+			throws IOException {
+		final CoverageBuilder builder = new CoverageBuilder();
+		builder.setSourceFileCoverage(!summaryOnly
+				|| sourceFileCoverageRequired);
+		final Analyzer analyzer = new Analyzer(loader.getExecutionDataStore(),
+				builder, stringPool);
+		analyzer.setAnalysisCache(analysisCache);
+		analyzer.setLineCoverage(isLineCoverage());
+		for (final File file : files) {
+			analyzer.analyzeAll(file);
+		}
+		return builder;
+	}
 
-		visitor.visitBundle(bundle, locator);
+	private boolean isLineCoverage() {
+		return !summaryOnly || lineCoverageRequired;
 	}
 
-	private void logBundleInfo(final IBundleCoverage bundle,
+	private void logBundleInfo(final ICoverageNode bundle,
 			final Collection<IClassCoverage> nomatch) {
 		log.info(format("Analyzed bundle '%s' with %s classes",
 				bundle.getName(),
@@ -222,7 +348,7 @@ final class ReportSupport {
 						c.getName()));
 			}
 		}
-		if (bundle.getClassCounter().getTotalCount() > 0
+		if (isLineCoverage() && bundle.getClassCounter().getTotalCount() > 0
 				&& bundle.getLineCounter().getTotalCount() == 0) {
 			log.warn("To enable source code annotation class files have to be compiled with debug information.");
 		}
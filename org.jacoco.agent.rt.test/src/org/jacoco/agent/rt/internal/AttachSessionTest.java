@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jacoco.agent.rt.IAgent;
+import org.jacoco.core.JaCoCo;
+import org.jacoco.core.runtime.AgentOptions;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link AttachSession}.
+ */
+public class AttachSessionTest {
+
+	private ExceptionRecorder recorder;
+
+	private List<String> calls;
+
+	private Instrumentation inst;
+
+	private IAgent agent;
+
+	@Before
+	public void setup() {
+		recorder = new ExceptionRecorder();
+		calls = new ArrayList<String>();
+		inst = (Instrumentation) Proxy.newProxyInstance(getClass()
+				.getClassLoader(), new Class<?>[] { Instrumentation.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						final String name = method.getName();
+						if ("getAllLoadedClasses".equals(name)) {
+							return new Class<?>[] { String.class,
+									JaCoCo.class, int[].class,
+									AttachSessionTest.class };
+						}
+						if ("isModifiableClass".equals(name)) {
+							return Boolean.TRUE;
+						}
+						calls.add(name);
+						if ("retransformClasses".equals(name)) {
+							calls.set(calls.size() - 1, name
+									+ Arrays.asList((Object[]) args[0]));
+						}
+						if ("removeTransformer".equals(name)) {
+							return Boolean.TRUE;
+						}
+						return null;
+					}
+				});
+		agent = (IAgent) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { IAgent.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						calls.add(method.getName());
+						return null;
+					}
+				});
+	}
+
+	@After
+	public void teardown() {
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void testOpen() throws Exception {
+		final AttachSession session = createSession(false);
+
+		session.open(0);
+
+		// bootstrap classes, arrays and agent classes are not instrumented:
+		assertEquals(Arrays.asList("reset", "addTransformer",
+				"retransformClasses[class org.jacoco.core.JaCoCo]"), calls);
+		assertFalse(session.isClosed());
+	}
+
+	@Test
+	public void testClose() throws Exception {
+		final AttachSession session = createSession(false);
+		session.open(0);
+		calls.clear();
+
+		session.close();
+
+		assertEquals(Arrays.asList("removeTransformer", "dump"), calls);
+		assertTrue(session.isClosed());
+	}
+
+	@Test
+	public void testCloseRestore() throws Exception {
+		final AttachSession session = createSession(true);
+		session.open(0);
+		calls.clear();
+
+		session.close();
+		session.close();
+
+		assertEquals(Arrays.asList("removeTransformer", "dump",
+				"retransformClasses[class org.jacoco.core.JaCoCo]"), calls);
+	}
+
+	@Test
+	public void testDuration() throws Exception {
+		final AttachSession session = createSession(false);
+
+		session.open(1);
+
+		final long timeout = System.currentTimeMillis() + 10000;
+		while (!session.isClosed() && System.currentTimeMillis() < timeout) {
+			Thread.sleep(50);
+		}
+		assertTrue(session.isClosed());
+		assertTrue(calls.contains("dump"));
+	}
+
+	private AttachSession createSession(final boolean restore) {
+		return new AttachSession(inst, agent, new CoverageTransformer(null,
+				new AgentOptions(), recorder, true), restore, recorder);
+	}
+
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link ClassFileCache}.
+ */
+public class ClassFileCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File location;
+
+	private byte[] contents;
+
+	@Before
+	public void setup() throws IOException {
+		location = new File(folder.getRoot(), "cache");
+		contents = "just some bytes".getBytes("UTF-8");
+	}
+
+	@Test
+	public void testGetWithoutEntry() {
+		final ClassFileCache cache = createCache("key", 1000);
+		assertNull(cache.get(42, "Foo"));
+	}
+
+	@Test
+	public void testPutAndGet() {
+		createCache("key", 1000).put(42, "Foo", contents);
+
+		assertArrayEquals(contents, createCache("key", 1000).get(42, "Foo"));
+		assertEquals(1, location.listFiles().length);
+	}
+
+	@Test
+	public void testDifferentKey() {
+		createCache("key", 1000).put(42, "Foo", contents);
+
+		final ClassFileCache cache = createCache("otherkey", 1000);
+		assertNull(cache.get(42, "Foo"));
+		cache.put(42, "Foo", contents);
+		assertEquals(2, location.listFiles().length);
+	}
+
+	@Test
+	public void testDifferentName() {
+		final ClassFileCache cache = createCache("key", 1000);
+		cache.put(42, "Foo", contents);
+
+		assertNull(cache.get(42, "Bar"));
+	}
+
+	@Test
+	public void testCorruptEntry() throws IOException {
+		final ClassFileCache cache = createCache("key", 1000);
+		cache.put(42, "Foo", contents);
+		final File entry = location.listFiles()[0];
+		final OutputStream out = new FileOutputStream(entry);
+		out.write(new byte[] { (byte) 0xC0, (byte) 0xC0, 0x00 });
+		out.close();
+
+		assertNull(cache.get(42, "Foo"));
+		cache.put(42, "Foo", contents);
+		assertArrayEquals(contents, cache.get(42, "Foo"));
+	}
+
+	@Test
+	public void testEvictLeastRecentlyUsed() {
+		final ClassFileCache cache = createCache("key", 1000);
+		cache.put(1, "Foo", contents);
+		cache.put(2, "Foo", contents);
+		final long entrySize = location.listFiles()[0].length();
+		final long now = System.currentTimeMillis();
+		setLastModified(1, now - 20000);
+		setLastModified(2, now - 30000);
+		// Access updates the time stamp:
+		assertNotNull(cache.get(2, "Foo"));
+
+		final ClassFileCache small = createCache("key", entrySize * 3 - 1);
+		small.put(3, "Foo", contents);
+
+		assertNull(small.get(1, "Foo"));
+		assertNotNull(small.get(2, "Foo"));
+		assertNotNull(small.get(3, "Foo"));
+	}
+
+	@Test
+	public void testNoDirectory() {
+		createCache("key", 1000).evict();
+	}
+
+	private ClassFileCache createCache(final String key, final long maxSize) {
+		return new ClassFileCache(location.getPath(), key, maxSize);
+	}
+
+	private void setLastModified(final long id, final long time) {
+		for (final File f : location.listFiles()) {
+			if (f.getName().startsWith(String.format("%016x", Long.valueOf(id)))) {
+				f.setLastModified(time);
+			}
+		}
+	}
+
+}
@@ -11,13 +11,19 @@
  *******************************************************************************/
 package org.jacoco.agent.rt.internal;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.instrument.IllegalClassFormatException;
@@ -26,18 +32,33 @@ import java.security.ProtectionDomain;
 import java.security.cert.Certificate;
 
 import org.jacoco.core.JaCoCo;
+import org.jacoco.core.data.ExecutionData.ProbesType;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.instr.ProbeMapWriter;
+import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.runtime.AbstractRuntime;
 import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.ClassShard;
+import org.jacoco.core.runtime.RuntimeData;
+import org.jacoco.core.runtime.SystemPropertiesRuntime;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 
 /**
  * Unit tests for {@link CoverageTransformer}.
  */
 public class CoverageTransformerTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	private ExceptionRecorder recorder;
 
 	private AgentOptions options;
@@ -70,6 +91,22 @@ public class CoverageTransformerTest {
 				protectionDomain));
 	}
 
+	@Test
+	public void testFilterShard() {
+		options.setShard(new ClassShard(1, 3));
+		CoverageTransformer t = createTransformer();
+		int count = 0;
+		for (int i = 0; i < 30; i++) {
+			final String name = "org/example/Foo" + i;
+			assertEquals(ClassShard.getIndex(name, 3) == 1,
+					t.filter(classLoader, name, protectionDomain));
+			if (t.filter(classLoader, name, protectionDomain)) {
+				count++;
+			}
+		}
+		assertTrue(count > 0 && count < 30);
+	}
+
 	@Test
 	public void testFilterInclBootstrapClassesPositive() {
 		options.setInclBootstrapClasses(true);
@@ -111,6 +148,19 @@ public class CoverageTransformerTest {
 				.filter(myClassLoader, "org/example/Foo", protectionDomain));
 	}
 
+	@Test
+	public void testFilterClassLoaderNegativeCached() {
+		options.setExclClassloader("org.jacoco.agent.rt.internal.CoverageTransformerTest$*");
+		CoverageTransformer t = createTransformer();
+		ClassLoader myClassLoader = new ClassLoader(null) {
+		};
+		assertFalse(t.filter(myClassLoader, "org/example/Foo",
+				protectionDomain));
+		assertFalse(t.filter(myClassLoader, "org/example/Bar",
+				protectionDomain));
+		assertTrue(t.filter(classLoader, "org/example/Foo", protectionDomain));
+	}
+
 	@Test
 	public void testFilterClassLoaderNegative2() {
 		options.setInclBootstrapClasses(true);
@@ -230,6 +280,249 @@ public class CoverageTransformerTest {
 				protectionDomain, getClassData(target)));
 	}
 
+	@Test
+	public void testRedefinedClassDeinstrument() throws Exception {
+		options.setDeinstrument(true);
+		CoverageTransformer t = createTransformer();
+		assertTrue(t.isRetransformationSupported());
+		final Class<?> target = JaCoCo.class;
+		final byte[] original = getClassData(target);
+
+		final byte[] instrumented = t.transform(classLoader, target.getName(),
+				null, protectionDomain, original);
+		assertArrayEquals(instrumented, t.transform(classLoader,
+				target.getName(), target, protectionDomain, original));
+
+		t.setDeinstrumented(CRC64.checksum(original), true);
+		final byte[] deinstrumented = t.transform(classLoader,
+				target.getName(), target, protectionDomain, original);
+		assertTrue(deinstrumented.length < instrumented.length);
+
+		t.setDeinstrumented(CRC64.checksum(original), false);
+		assertArrayEquals(instrumented, t.transform(classLoader,
+				target.getName(), target, protectionDomain, original));
+	}
+
+	@Test
+	public void testDeinstrumentNotSupportedForIntegerProbes() {
+		options.setDeinstrument(true);
+		options.setProbesType(ProbesType.INTEGER);
+		assertFalse(createTransformer().isRetransformationSupported());
+	}
+
+	@Test
+	public void testRedefinedClassRetransformable() throws Exception {
+		options.setProbesType(ProbesType.INTEGER);
+		CoverageTransformer t = new CoverageTransformer(runtime, options,
+				recorder, true);
+		assertTrue(t.isRetransformationSupported());
+		final Class<?> target = JaCoCo.class;
+		final String name = target.getName().replace('.', '/');
+		final byte[] original = getClassData(target);
+
+		final byte[] instrumented = t.transform(classLoader, name, target,
+				protectionDomain, original);
+		assertArrayEquals(instrumented, t.transform(classLoader, name, null,
+				protectionDomain, original));
+	}
+
+	@Test
+	public void testRedefinedClassRetransformableUsesClassFile()
+			throws Exception {
+		options.setClassDumpDir(folder.getRoot().getAbsolutePath());
+		final String name = "org/jacoco/test/Target";
+		final byte[] original = createRunnable(name, null);
+		// The JVM provides reconstituted class files for retransformation:
+		final byte[] reconstituted = createRunnable(name, "Target.java");
+		final long[] classid = new long[1];
+		runtime = new StubRuntime() {
+			@Override
+			public int generateDataAccessor(long id, String classname,
+					int probecount, MethodVisitor mv) {
+				classid[0] = id;
+				return 0;
+			}
+		};
+		final ClassLoader loader = new ClassLoader(classLoader) {
+			@Override
+			public InputStream getResourceAsStream(String resource) {
+				if ((name + ".class").equals(resource)) {
+					return new ByteArrayInputStream(original);
+				}
+				return super.getResourceAsStream(resource);
+			}
+		};
+
+		assertNotNull(new CoverageTransformer(runtime, options, recorder,
+				true).transform(loader, name, Runnable.class,
+				protectionDomain, reconstituted));
+
+		assertEquals(CRC64.checksum(original), classid[0]);
+		final File dump = new File(folder.getRoot(), String.format(
+				"org/jacoco/test/Target.%016x.class",
+				Long.valueOf(classid[0])));
+		assertArrayEquals(original, readFile(dump));
+	}
+
+	@Test
+	public void testRedefinedClassRetransformableWithoutClassFile()
+			throws Exception {
+		options.setClassDumpDir(folder.getRoot().getAbsolutePath());
+		final String name = "org/jacoco/test/Target";
+		final byte[] reconstituted = createRunnable(name, "Target.java");
+
+		assertNotNull(new CoverageTransformer(runtime, options, recorder,
+				true).transform(classLoader, name, Runnable.class,
+				protectionDomain, reconstituted));
+
+		recorder.assertException(IOException.class,
+				"Class file of class org/jacoco/test/Target not found, "
+						+ "coverage data is recorded for the class file "
+						+ "provided by the JVM.");
+		recorder.clear();
+		final File dump = new File(folder.getRoot(), String.format(
+				"org/jacoco/test/Target.%016x.class",
+				Long.valueOf(CRC64.checksum(reconstituted))));
+		assertArrayEquals(reconstituted, readFile(dump));
+	}
+
+	@Test
+	public void testProbeMap() throws Exception {
+		options.setClassDumpDir(folder.getRoot().getAbsolutePath());
+		options.setProbeMap(true);
+		CoverageTransformer t = createTransformer();
+		final Class<?> target = JaCoCo.class;
+		final String name = target.getName().replace('.', '/');
+
+		t.transform(classLoader, name, null, protectionDomain,
+				getClassData(target));
+
+		final File[] files = new File(folder.getRoot(), "org/jacoco/core")
+				.listFiles();
+		assertEquals(2, files.length);
+		int maps = 0;
+		for (final File f : files) {
+			if (f.getName().endsWith(".probes")) {
+				maps++;
+			}
+		}
+		assertEquals(1, maps);
+	}
+
+	@Test
+	public void testProbeMapWriteFailure() throws Exception {
+		options.setClassDumpDir(folder.getRoot().getAbsolutePath());
+		options.setProbeMap(true);
+		CoverageTransformer t = createTransformer();
+		final Class<?> target = JaCoCo.class;
+		final String name = target.getName().replace('.', '/');
+		final byte[] original = getClassData(target);
+		// a directory prevents writing the probe map file:
+		assertTrue(new ProbeMapWriter(folder.getRoot()).getFile(
+				CRC64.checksum(original), name).mkdirs());
+
+		assertNotNull(t.transform(classLoader, name, null, protectionDomain,
+				original));
+
+		recorder.assertException(IOException.class,
+				"Error while writing probe map of class org/jacoco/core/JaCoCo.",
+				FileNotFoundException.class);
+		recorder.clear();
+	}
+
+	@Test
+	public void testClassFileCache() throws Exception {
+		options.setCacheDir(folder.getRoot().getAbsolutePath());
+		final Class<?> target = JaCoCo.class;
+		final String name = target.getName().replace('.', '/');
+
+		final byte[] instrumented = createTransformer().transform(classLoader,
+				name, null, protectionDomain, getClassData(target));
+		assertEquals(1, folder.getRoot().listFiles().length);
+
+		runtime = new StubRuntime() {
+			@Override
+			public int generateDataAccessor(long classid, String classname,
+					int probecount, MethodVisitor mv) {
+				throw new AssertionError("Class must not be instrumented");
+			}
+		};
+		final byte[] cached = createTransformer().transform(classLoader, name,
+				null, protectionDomain, getClassData(target));
+		assertArrayEquals(instrumented, cached);
+	}
+
+	@Test
+	public void testClassFileCacheNotUsedForAttach() throws Exception {
+		options.setCacheDir(folder.getRoot().getAbsolutePath());
+		final String name = "org.jacoco.test.Target";
+		final byte[] original = createRunnable(name.replace('.', '/'), null);
+
+		// Two attach sessions in different JVMs, each with its own runtime:
+		final RuntimeData data1 = new RuntimeData();
+		final SystemPropertiesRuntime runtime1 = new SystemPropertiesRuntime();
+		runtime1.startup(data1);
+		final RuntimeData data2 = new RuntimeData();
+		final SystemPropertiesRuntime runtime2 = new SystemPropertiesRuntime();
+		runtime2.startup(data2);
+		try {
+			new CoverageTransformer(runtime1, options, recorder, true)
+					.transform(classLoader, name.replace('.', '/'), null,
+							protectionDomain, original);
+			runtime1.shutdown();
+			final byte[] instrumented = new CoverageTransformer(runtime2,
+					options, recorder, true).transform(classLoader,
+					name.replace('.', '/'), null, protectionDomain, original);
+
+			final Class<?> targetClass = new ClassLoader(classLoader) {
+				@Override
+				protected Class<?> loadClass(String n, boolean resolve)
+						throws ClassNotFoundException {
+					if (name.equals(n)) {
+						return defineClass(n, instrumented, 0,
+								instrumented.length);
+					}
+					return super.loadClass(n, resolve);
+				}
+			}.loadClass(name);
+			((Runnable) targetClass.newInstance()).run();
+
+			final ExecutionDataStore store = new ExecutionDataStore();
+			data2.collect(store, new SessionInfoStore(), false);
+			assertNotNull(store.get(CRC64.checksum(original)));
+			assertEquals(0, folder.getRoot().listFiles().length);
+		} finally {
+			runtime1.shutdown();
+			runtime2.shutdown();
+		}
+	}
+
+	private static byte[] createRunnable(final String name,
+			final String source) {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC, name, null,
+				"java/lang/Object", new String[] { "java/lang/Runnable" });
+		if (source != null) {
+			writer.visitSource(source, null);
+		}
+		MethodVisitor mv = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>",
+				"()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object",
+				"<init>", "()V", false);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(1, 1);
+		mv.visitEnd();
+		mv = writer.visitMethod(Opcodes.ACC_PUBLIC, "run", "()V", null, null);
+		mv.visitCode();
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 1);
+		mv.visitEnd();
+		writer.visitEnd();
+		return writer.toByteArray();
+	}
+
 	private CoverageTransformer createTransformer() {
 		return new CoverageTransformer(runtime, options, recorder);
 	}
@@ -237,7 +530,14 @@ public class CoverageTransformerTest {
 	private static byte[] getClassData(Class<?> clazz) throws IOException {
 		final String resource = "/" + clazz.getName().replace('.', '/')
 				+ ".class";
-		final InputStream in = clazz.getResourceAsStream(resource);
+		return read(clazz.getResourceAsStream(resource));
+	}
+
+	private static byte[] readFile(File file) throws IOException {
+		return read(new FileInputStream(file));
+	}
+
+	private static byte[] read(InputStream in) throws IOException {
 		final ByteArrayOutputStream out = new ByteArrayOutputStream();
 		byte[] buffer = new byte[0x100];
 		int len;
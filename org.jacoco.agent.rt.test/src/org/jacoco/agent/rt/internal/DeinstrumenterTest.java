@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jacoco.core.JaCoCo;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.RuntimeData;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link Deinstrumenter}.
+ */
+public class DeinstrumenterTest {
+
+	private static final long MINUTE = 60 * 1000;
+
+	private ExceptionRecorder recorder;
+
+	private AgentOptions options;
+
+	private RuntimeData data;
+
+	private List<String> calls;
+
+	private Instrumentation inst;
+
+	@Before
+	public void setup() {
+		recorder = new ExceptionRecorder();
+		options = new AgentOptions();
+		options.setDeinstrument(true);
+		data = new RuntimeData();
+		calls = new ArrayList<String>();
+		inst = (Instrumentation) Proxy.newProxyInstance(getClass()
+				.getClassLoader(), new Class<?>[] { Instrumentation.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method,
+							Object[] args) {
+						final String name = method.getName();
+						if ("getAllLoadedClasses".equals(name)) {
+							return new Class<?>[] { String.class,
+									JaCoCo.class };
+						}
+						if ("isModifiableClass".equals(name)) {
+							return Boolean.TRUE;
+						}
+						calls.add(name);
+						if ("isRetransformClassesSupported".equals(name)) {
+							return Boolean.TRUE;
+						}
+						if ("retransformClasses".equals(name)) {
+							calls.set(calls.size() - 1, name
+									+ Arrays.asList((Object[]) args[0]));
+						}
+						return null;
+					}
+				});
+	}
+
+	@After
+	public void teardown() {
+		recorder.assertNoException();
+	}
+
+	@Test
+	public void testFullyCovered() {
+		final Deinstrumenter d = createDeinstrumenter(0);
+		final ExecutionData e = data.getExecutionData(Long.valueOf(42),
+				"org/jacoco/core/JaCoCo", 2);
+		e.getProbes()[0] = true;
+
+		d.check(0);
+		assertEquals(0, calls.size());
+
+		e.getProbes()[1] = true;
+		d.check(1);
+		assertEquals(
+				Arrays.asList("retransformClasses[class org.jacoco.core.JaCoCo]"),
+				calls);
+		calls.clear();
+
+		d.check(2);
+		assertEquals(0, calls.size());
+	}
+
+	@Test
+	public void testReset() {
+		final Deinstrumenter d = createDeinstrumenter(0);
+		final ExecutionData e = data.getExecutionData(Long.valueOf(42),
+				"org/jacoco/core/JaCoCo", 1);
+		e.getProbes()[0] = true;
+		d.check(0);
+		calls.clear();
+
+		data.reset();
+		d.check(1);
+
+		// probes are inserted again:
+		assertEquals(
+				Arrays.asList("retransformClasses[class org.jacoco.core.JaCoCo]"),
+				calls);
+	}
+
+	@Test
+	public void testStable() {
+		final Deinstrumenter d = createDeinstrumenter(5);
+		final ExecutionData e = data.getExecutionData(Long.valueOf(42),
+				"org/jacoco/core/JaCoCo", 2);
+		// classes without coverage are never de-instrumented:
+		data.getExecutionData(Long.valueOf(43), "java/lang/String", 2);
+		e.getProbes()[0] = true;
+
+		d.check(0);
+		d.check(5 * MINUTE - 1);
+		assertEquals(0, calls.size());
+
+		d.check(5 * MINUTE);
+		assertEquals(
+				Arrays.asList("retransformClasses[class org.jacoco.core.JaCoCo]"),
+				calls);
+	}
+
+	@Test
+	public void testRegister() throws Exception {
+		Deinstrumenter.register(inst, data, new CoverageTransformer(null,
+				options, recorder), options, recorder);
+
+		assertEquals(Arrays.asList("isRetransformClassesSupported",
+				"addTransformer"), calls);
+	}
+
+	@Test
+	public void testRegisterDisabled() throws Exception {
+		options.setDeinstrument(false);
+		Deinstrumenter.register(inst, data, new CoverageTransformer(null,
+				options, recorder), options, recorder);
+
+		assertEquals(Arrays.asList("addTransformer"), calls);
+	}
+
+	private Deinstrumenter createDeinstrumenter(final int stableMinutes) {
+		return new Deinstrumenter(inst, data, new CoverageTransformer(null,
+				options, recorder), stableMinutes, recorder);
+	}
+
+}
@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import java.io.IOException;
+import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.jacoco.agent.rt.IAgent;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.IRuntime;
+import org.jacoco.core.runtime.SystemPropertiesRuntime;
+
+/**
+ * Coverage session of an agent which has been attached to a running JVM.
+ * Classes which have already been loaded are instrumented by retransforming
+ * them, classes loaded later are instrumented when they are defined. As
+ * retransformation must not add members the instrumented classes obtain the
+ * probe array from the runtime on every method invocation.
+ * 
+ * At the end of the optional time window the execution data is dumped and the
+ * session is closed. The classes are optionally restored to their original
+ * definitions. Only one session is active at a time, attaching again closes
+ * the current session.
+ */
+class AttachSession {
+
+	private static IRuntime runtime;
+
+	private static AttachSession current;
+
+	private final Instrumentation inst;
+
+	private final IAgent agent;
+
+	private final CoverageTransformer transformer;
+
+	private final boolean restore;
+
+	private final IExceptionLogger logger;
+
+	private Timer timer;
+
+	private boolean closed;
+
+	/**
+	 * Creates a new session.
+	 * 
+	 * @param inst
+	 *            instrumentation callback provided by the JVM
+	 * @param agent
+	 *            agent which records the execution data
+	 * @param transformer
+	 *            transformer which instruments classes without adding members
+	 * @param restore
+	 *            <code>true</code> if the original classes should be restored
+	 *            when the session is closed
+	 * @param logger
+	 *            logger for failed retransformations
+	 */
+	AttachSession(final Instrumentation inst, final IAgent agent,
+			final CoverageTransformer transformer, final boolean restore,
+			final IExceptionLogger logger) {
+		this.inst = inst;
+		this.agent = agent;
+		this.transformer = transformer;
+		this.restore = restore;
+		this.logger = logger;
+	}
+
+	/**
+	 * Starts a new session with the given options. The probes type and the
+	 * output of the agent are defined by the first session.
+	 * 
+	 * @param inst
+	 *            instrumentation callback provided by the JVM
+	 * @param options
+	 *            options of the agent
+	 * @param logger
+	 *            logger for exceptions during instrumentation
+	 * @return the started session
+	 * @throws Exception
+	 *             if the session can't be started
+	 */
+	static synchronized AttachSession start(final Instrumentation inst,
+			final AgentOptions options, final IExceptionLogger logger)
+			throws Exception {
+		if (!Retransformation.isSupported(inst)) {
+			throw new IllegalStateException(
+					"Retransformation of classes is not supported by the JVM.");
+		}
+		if (current != null) {
+			current.close();
+		}
+		if (runtime == null) {
+			if (isAgentRunning()) {
+				throw new IllegalStateException(
+						"Agent has already been started with the JVM.");
+			}
+			ExecutionData.setProbesType(options.getProbesType());
+			final Agent agent = Agent.getInstance(options);
+			runtime = new SystemPropertiesRuntime();
+			runtime.startup(agent.getData());
+		}
+		current = new AttachSession(inst, Agent.getInstance(),
+				new CoverageTransformer(runtime, options, logger, true),
+				options.getAttachRestore(), logger);
+		current.open(options.getAttachDuration());
+		return current;
+	}
+
+	private static boolean isAgentRunning() {
+		try {
+			Agent.getInstance();
+			return true;
+		} catch (final IllegalStateException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Resets the execution data and instruments all loaded classes which
+	 * match the filters of the transformer.
+	 * 
+	 * @param duration
+	 *            seconds until the session is closed or <code>0</code> if the
+	 *            session is not closed automatically
+	 * @throws Exception
+	 *             if the transformer can't be registered
+	 */
+	void open(final int duration) throws Exception {
+		agent.reset();
+		Retransformation.addTransformer(inst, transformer);
+		Retransformation.retransform(inst, getClasses(), logger);
+		if (duration > 0) {
+			timer = new Timer("JaCoCo Attach Session", true);
+			timer.schedule(new TimerTask() {
+				@Override
+				public void run() {
+					close();
+				}
+			}, duration * 1000L);
+		}
+	}
+
+	/**
+	 * Dumps the execution data and stops instrumenting classes. Optionally
+	 * the original definitions of the instrumented classes are restored.
+	 * Closing a session again has no effect.
+	 */
+	void close() {
+		synchronized (AttachSession.class) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (current == this) {
+				current = null;
+			}
+			if (timer != null) {
+				timer.cancel();
+			}
+			inst.removeTransformer(transformer);
+			try {
+				agent.dump(false);
+			} catch (final IOException e) {
+				logger.logExeption(e);
+			}
+			if (restore) {
+				// Without our transformer the original class files are
+				// installed again:
+				Retransformation.retransform(inst, getClasses(), logger);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether this session has been closed.
+	 * 
+	 * @return <code>true</code> if the session is closed
+	 */
+	boolean isClosed() {
+		synchronized (AttachSession.class) {
+			return closed;
+		}
+	}
+
+	private List<Class<?>> getClasses() {
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		for (final Class<?> c : inst.getAllLoadedClasses()) {
+			if (c.isArray() || c.isPrimitive()) {
+				continue;
+			}
+			if (transformer.filter(c.getClassLoader(),
+					c.getName().replace('.', '/'), c.getProtectionDomain())) {
+				classes.add(c);
+			}
+		}
+		return classes;
+	}
+
+}
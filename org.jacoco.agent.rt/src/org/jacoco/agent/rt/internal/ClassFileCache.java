@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jacoco.core.internal.data.CRC64;
+
+/**
+ * Internal cache for instrumented class files which is kept on disk across JVM
+ * runs. Entries are keyed by the id of the original class file and a key for
+ * everything else which influences the instrumented bytes, like the agent
+ * version and the probe type. Entries are written to a temporary file and
+ * renamed afterwards, so several JVMs can use the same directory concurrently
+ * and only see complete entries. If the directory exceeds its maximum size the
+ * least recently used entries are removed.
+ */
+class ClassFileCache {
+
+	private static final char MAGIC_NUMBER = 0xC0C0;
+
+	private static final char FORMAT_VERSION = 0x0001;
+
+	private static final String SUFFIX = ".jacococlass";
+
+	private final File directory;
+
+	private final String key;
+
+	private final long keyId;
+
+	private final long maxSize;
+
+	private final AtomicLong size = new AtomicLong(-1);
+
+	/**
+	 * Creates a cache in the given directory.
+	 *
+	 * @param location
+	 *            path to the cache directory
+	 * @param key
+	 *            identifies the agent version and configuration which created
+	 *            the entries
+	 * @param maxSize
+	 *            maximum size of the directory in bytes
+	 */
+	ClassFileCache(final String location, final String key, final long maxSize) {
+		this.directory = new File(location);
+		this.key = key;
+		this.keyId = CRC64.checksum(toBytes(key));
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the instrumented version of the given class from the cache.
+	 *
+	 * @param id
+	 *            id of the original class file calculated with {@link CRC64}
+	 * @param name
+	 *            VM name of the class
+	 * @return instrumented class file or <code>null</code> if there is no
+	 *         valid entry
+	 */
+	byte[] get(final long id, final String name) {
+		final File file = getFile(id);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			final DataInputStream in = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(file)));
+			try {
+				if (in.readChar() != MAGIC_NUMBER
+						|| in.readChar() != FORMAT_VERSION
+						|| in.readLong() != id || !key.equals(in.readUTF())
+						|| !name.equals(in.readUTF())) {
+					return null;
+				}
+				final byte[] contents = new byte[in.readInt()];
+				in.readFully(contents);
+				if (in.readLong() != CRC64.checksum(contents)) {
+					return null;
+				}
+				file.setLastModified(System.currentTimeMillis());
+				return contents;
+			} finally {
+				in.close();
+			}
+		} catch (final IOException e) {
+			// Incomplete or corrupt entries are created again
+			return null;
+		}
+	}
+
+	/**
+	 * Adds the instrumented version of the given class to the cache.
+	 *
+	 * @param id
+	 *            id of the original class file calculated with {@link CRC64}
+	 * @param name
+	 *            VM name of the class
+	 * @param contents
+	 *            instrumented class file
+	 */
+	void put(final long id, final String name, final byte[] contents) {
+		File temp = null;
+		try {
+			directory.mkdirs();
+			temp = File.createTempFile(String.format("%016x", Long.valueOf(id)),
+					".tmp", directory);
+			final DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(temp)));
+			try {
+				out.writeChar(MAGIC_NUMBER);
+				out.writeChar(FORMAT_VERSION);
+				out.writeLong(id);
+				out.writeUTF(key);
+				out.writeUTF(name);
+				out.writeInt(contents.length);
+				out.write(contents);
+				out.writeLong(CRC64.checksum(contents));
+			} finally {
+				out.close();
+			}
+			final long length = temp.length();
+			if (temp.renameTo(getFile(id))) {
+				temp = null;
+				if (addSize(length) > maxSize) {
+					evict();
+				}
+			}
+		} catch (final IOException e) {
+			// The entry will be created again next time
+		} finally {
+			if (temp != null) {
+				temp.delete();
+			}
+		}
+	}
+
+	private long addSize(final long length) {
+		if (size.get() < 0) {
+			size.compareAndSet(-1, sumLength(listEntries()));
+		}
+		return size.addAndGet(length);
+	}
+
+	/**
+	 * Removes the least recently used entries until the directory is reduced
+	 * to three quarters of its maximum size. Entries of all JVMs using the
+	 * same directory are considered.
+	 */
+	synchronized void evict() {
+		final File[] entries = listEntries();
+		final long[] modified = new long[entries.length];
+		for (int i = 0; i < entries.length; i++) {
+			modified[i] = entries[i].lastModified();
+		}
+		final Integer[] order = new Integer[entries.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = Integer.valueOf(i);
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(final Integer i1, final Integer i2) {
+				final long m1 = modified[i1.intValue()];
+				final long m2 = modified[i2.intValue()];
+				return m1 < m2 ? -1 : (m1 == m2 ? 0 : 1);
+			}
+		});
+		long total = sumLength(entries);
+		final long limit = maxSize / 4 * 3;
+		for (int i = 0; i < order.length && total > limit; i++) {
+			final File entry = entries[order[i].intValue()];
+			final long length = entry.length();
+			if (entry.delete()) {
+				total -= length;
+			}
+		}
+		size.set(total);
+	}
+
+	private File[] listEntries() {
+		final File[] entries = directory.listFiles();
+		if (entries == null) {
+			return new File[0];
+		}
+		int count = 0;
+		for (final File f : entries) {
+			if (f.getName().endsWith(SUFFIX)) {
+				entries[count++] = f;
+			}
+		}
+		final File[] result = new File[count];
+		System.arraycopy(entries, 0, result, 0, count);
+		return result;
+	}
+
+	private static long sumLength(final File[] entries) {
+		long total = 0;
+		for (final File f : entries) {
+			total += f.length();
+		}
+		return total;
+	}
+
+	private File getFile(final long id) {
+		return new File(directory, String.format("%016x-%016x%s",
+				Long.valueOf(id), Long.valueOf(keyId), SUFFIX));
+	}
+
+	private static byte[] toBytes(final String s) {
+		try {
+			return s.getBytes("UTF-8");
+		} catch (final IOException e) {
+			throw new AssertionError(e);
+		}
+	}
+
+}
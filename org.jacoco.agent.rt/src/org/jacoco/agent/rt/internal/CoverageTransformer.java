@@ -11,13 +11,30 @@
  *******************************************************************************/
 package org.jacoco.agent.rt.internal;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.IllegalClassFormatException;
 import java.security.CodeSource;
 import java.security.ProtectionDomain;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
+import org.jacoco.core.JaCoCo;
+import org.jacoco.core.data.ExecutionData.ProbesType;
+import org.jacoco.core.instr.IProbeMapVisitor;
 import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.instr.InliningReportWriter;
+import org.jacoco.core.instr.ProbeMap;
+import org.jacoco.core.instr.ProbeMapWriter;
+import org.jacoco.core.internal.Java9Support;
+import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.ClassShard;
 import org.jacoco.core.runtime.IRuntime;
 import org.jacoco.core.runtime.WildcardMatcher;
 
@@ -43,12 +60,26 @@ public class CoverageTransformer implements ClassFileTransformer {
 
 	private final WildcardMatcher exclClassloader;
 
+	private final Map<ClassLoader, Boolean> excludedLoaders = Collections
+			.synchronizedMap(new WeakHashMap<ClassLoader, Boolean>());
+
+	private final ClassShard shard;
+
 	private final ClassFileDumper classFileDumper;
 
+	private final ClassFileCache classFileCache;
+
 	private final boolean inclBootstrapClasses;
 
 	private final boolean inclNoLocationClasses;
 
+	private final boolean retransformable;
+
+	private final boolean retransformation;
+
+	private final Set<Long> deinstrumented = Collections
+			.synchronizedSet(new HashSet<Long>());
+
 	/**
 	 * New transformer with the given delegates.
 	 * 
@@ -61,15 +92,95 @@ public class CoverageTransformer implements ClassFileTransformer {
 	 */
 	public CoverageTransformer(final IRuntime runtime,
 			final AgentOptions options, final IExceptionLogger logger) {
+		this(runtime, options, logger, false);
+	}
+
+	/**
+	 * New transformer with the given delegates which optionally instruments
+	 * classes without adding members. Such a transformer can instrument
+	 * classes which have already been loaded by retransforming them.
+	 * 
+	 * @param runtime
+	 *            coverage runtime
+	 * @param options
+	 *            configuration options for the generator
+	 * @param logger
+	 *            logger for exceptions during instrumentation
+	 * @param retransformable
+	 *            <code>true</code> if instrumented classes must keep the
+	 *            members of the original classes
+	 */
+	public CoverageTransformer(final IRuntime runtime,
+			final AgentOptions options, final IExceptionLogger logger,
+			final boolean retransformable) {
 		this.instrumenter = new Instrumenter(runtime);
+		instrumenter.setRetransformable(retransformable);
 		this.logger = logger;
 		// Class names will be reported in VM notation:
 		includes = new WildcardMatcher(toVMName(options.getIncludes()));
 		excludes = new WildcardMatcher(toVMName(options.getExcludes()));
 		exclClassloader = new WildcardMatcher(options.getExclClassloader());
+		shard = options.getShard();
 		classFileDumper = new ClassFileDumper(options.getClassDumpDir());
+		instrumenter.setCompactProbes(options.getCompactProbes());
+		final boolean probeMap = options.getProbeMap()
+				&& options.getClassDumpDir() != null;
+		if (probeMap) {
+			instrumenter.setProbeMapVisitor(new LoggingProbeMapVisitor(
+					new ProbeMapWriter(new File(options.getClassDumpDir())),
+					logger));
+		}
+		if (options.getInliningReport() != null) {
+			instrumenter.setInliningVisitor(new InliningReportWriter(new File(
+					options.getInliningReport())));
+		}
+		// Probe maps and reports are only written for classes actually
+		// instrumented. Retransformable classes access the runtime of an
+		// attach session through a key which is specific to the JVM, so they
+		// must not be shared with other JVMs:
+		if (options.getCacheDir() != null && !probeMap
+				&& options.getInliningReport() == null && !retransformable) {
+			classFileCache = new ClassFileCache(options.getCacheDir(),
+					JaCoCo.VERSION + "/" + JaCoCo.RUNTIMEPACKAGE + "/"
+							+ options.getProbesType()
+							+ (options.getCompactProbes() ? "/compact" : ""),
+					options.getCacheSize() * 1024L * 1024L);
+		} else {
+			classFileCache = null;
+		}
 		inclBootstrapClasses = options.getInclBootstrapClasses();
 		inclNoLocationClasses = options.getInclNoLocationClasses();
+		this.retransformable = retransformable;
+		retransformation = retransformable || (options.getDeinstrument()
+				&& options.getProbesType() == ProbesType.BOOLEAN);
+	}
+
+	/**
+	 * Returns whether this transformer supports retransformation of classes.
+	 * This is required to replace instrumented classes by versions without
+	 * probes or to instrument classes which have already been loaded.
+	 * 
+	 * @return <code>true</code> if retransformation is supported
+	 */
+	public boolean isRetransformationSupported() {
+		return retransformation;
+	}
+
+	/**
+	 * Determines whether the class with the given id is instrumented without
+	 * probes when it is retransformed.
+	 * 
+	 * @param classid
+	 *            id of the class
+	 * @param flag
+	 *            <code>true</code> if probes should be removed
+	 */
+	public void setDeinstrumented(final long classid, final boolean flag) {
+		if (flag) {
+			deinstrumented.add(Long.valueOf(classid));
+		} else {
+			deinstrumented.remove(Long.valueOf(classid));
+		}
 	}
 
 	public byte[] transform(final ClassLoader loader, final String classname,
@@ -77,8 +188,9 @@ public class CoverageTransformer implements ClassFileTransformer {
 			final ProtectionDomain protectionDomain,
 			final byte[] classfileBuffer) throws IllegalClassFormatException {
 
-		// We do not support class retransformation:
-		if (classBeingRedefined != null) {
+		// Without de-instrumentation or retransformable instrumentation we do
+		// not support retransformation:
+		if (classBeingRedefined != null && !retransformation) {
 			return null;
 		}
 
@@ -87,8 +199,21 @@ public class CoverageTransformer implements ClassFileTransformer {
 		}
 
 		try {
+			if (classBeingRedefined != null) {
+				return retransform(loader, classname, classfileBuffer);
+			}
 			classFileDumper.dump(classname, classfileBuffer);
-			return instrumenter.instrument(classfileBuffer, classname);
+			if (classFileCache == null) {
+				return instrumenter.instrument(classfileBuffer, classname);
+			}
+			final long classid = CRC64.checksum(classfileBuffer);
+			byte[] instrumented = classFileCache.get(classid, classname);
+			if (instrumented == null) {
+				instrumented = instrumenter.instrument(classfileBuffer,
+						classname);
+				classFileCache.put(classid, classname, instrumented);
+			}
+			return instrumented;
 		} catch (final Exception ex) {
 			final IllegalClassFormatException wrapper = new IllegalClassFormatException(
 					ex.getMessage());
@@ -99,6 +224,45 @@ public class CoverageTransformer implements ClassFileTransformer {
 		}
 	}
 
+	private byte[] retransform(final ClassLoader loader,
+			final String classname, final byte[] classfileBuffer)
+			throws IOException {
+		// For classes loaded while this transformer was registered the JVM
+		// provides the class file seen at class load, so the class id is the
+		// same as for the initial instrumentation. Classes loaded before an
+		// attach session are reconstituted by the JVM and differ from their
+		// class files, so their original class file is read from the loader:
+		final byte[] classfile = retransformable ? getOriginalClassFile(
+				loader, classname, classfileBuffer) : classfileBuffer;
+		classFileDumper.dump(classname, classfile);
+		final Long classid = Long.valueOf(CRC64.checksum(classfile));
+		if (deinstrumented.contains(classid)) {
+			return instrumenter.removeProbes(classfile, classname);
+		}
+		return instrumenter.instrument(classfile, classname);
+	}
+
+	private byte[] getOriginalClassFile(final ClassLoader loader,
+			final String classname, final byte[] classfileBuffer)
+			throws IOException {
+		final String resource = classname + ".class";
+		final InputStream in = loader == null ? ClassLoader
+				.getSystemResourceAsStream(resource) : loader
+				.getResourceAsStream(resource);
+		if (in == null) {
+			logger.logExeption(new IOException(String.format(
+					"Class file of class %s not found, coverage data is "
+							+ "recorded for the class file provided by the "
+							+ "JVM.", classname)));
+			return classfileBuffer;
+		}
+		try {
+			return Java9Support.readFully(in);
+		} finally {
+			in.close();
+		}
+	}
+
 	/**
 	 * Checks whether this class should be instrumented.
 	 * 
@@ -120,7 +284,7 @@ public class CoverageTransformer implements ClassFileTransformer {
 			if (!inclNoLocationClasses && !hasSourceLocation(protectionDomain)) {
 				return false;
 			}
-			if (exclClassloader.matches(loader.getClass().getName())) {
+			if (isExcluded(loader)) {
 				return false;
 			}
 		}
@@ -129,7 +293,27 @@ public class CoverageTransformer implements ClassFileTransformer {
 
 		includes.matches(classname) &&
 
-		!excludes.matches(classname);
+		!excludes.matches(classname) &&
+
+		shard.contains(classname);
+	}
+
+	/**
+	 * Checks whether the given class loader is excluded. The decision is the
+	 * same for all classes of a loader and is therefore cached.
+	 * 
+	 * @param loader
+	 *            loader to check
+	 * @return <code>true</code> if classes of this loader are excluded
+	 */
+	private boolean isExcluded(final ClassLoader loader) {
+		Boolean excluded = excludedLoaders.get(loader);
+		if (excluded == null) {
+			excluded = Boolean.valueOf(exclClassloader.matches(loader
+					.getClass().getName()));
+			excludedLoaders.put(loader, excluded);
+		}
+		return excluded.booleanValue();
 	}
 
 	/**
@@ -155,4 +339,34 @@ public class CoverageTransformer implements ClassFileTransformer {
 		return srcName.replace('.', '/');
 	}
 
+	/**
+	 * Probe maps are only written as additional information. Failures are
+	 * logged but must not prevent the instrumentation of the class.
+	 */
+	private static class LoggingProbeMapVisitor implements IProbeMapVisitor {
+
+		private final IProbeMapVisitor delegate;
+
+		private final IExceptionLogger logger;
+
+		LoggingProbeMapVisitor(final IProbeMapVisitor delegate,
+				final IExceptionLogger logger) {
+			this.delegate = delegate;
+			this.logger = logger;
+		}
+
+		public void visitProbeMap(final ProbeMap map) {
+			try {
+				delegate.visitProbeMap(map);
+			} catch (final IOException e) {
+				final IOException wrapper = new IOException(String.format(
+						"Error while writing probe map of class %s.",
+						map.getName()));
+				wrapper.initCause(e);
+				logger.logExeption(wrapper);
+			}
+		}
+
+	}
+
 }
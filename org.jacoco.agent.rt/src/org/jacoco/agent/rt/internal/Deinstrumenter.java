@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import java.lang.instrument.Instrumentation;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.RuntimeData;
+
+/**
+ * Task which periodically replaces instrumented classes by versions without
+ * probes once their probes are not required any more, i.e. when all probes
+ * have been executed or optionally when the coverage of a class did not change
+ * for a given period. The collected execution data of such classes is kept.
+ * If the execution data is reset later the probes are inserted again.
+ */
+class Deinstrumenter extends TimerTask {
+
+	/** Interval in milliseconds between checks of the execution data. */
+	static final long INTERVAL = 10000;
+
+	private final Instrumentation inst;
+
+	private final RuntimeData data;
+
+	private final CoverageTransformer transformer;
+
+	private final long stablePeriod;
+
+	private final IExceptionLogger logger;
+
+	private final Map<Long, ClassState> states = new HashMap<Long, ClassState>();
+
+	private static class ClassState {
+		int hits;
+		long since;
+		int deinstrumentedHits = -1;
+	}
+
+	/**
+	 * Creates a new task.
+	 * 
+	 * @param inst
+	 *            instrumentation callback provided by the JVM
+	 * @param data
+	 *            execution data of the agent
+	 * @param transformer
+	 *            transformer which instruments the classes
+	 * @param stableMinutes
+	 *            minutes after which classes with unchanged coverage are
+	 *            de-instrumented or <code>0</code> for fully covered classes
+	 *            only
+	 * @param logger
+	 *            logger for failed retransformations
+	 */
+	Deinstrumenter(final Instrumentation inst, final RuntimeData data,
+			final CoverageTransformer transformer, final int stableMinutes,
+			final IExceptionLogger logger) {
+		this.inst = inst;
+		this.data = data;
+		this.transformer = transformer;
+		this.stablePeriod = stableMinutes * 60L * 1000L;
+		this.logger = logger;
+	}
+
+	/**
+	 * Registers the given transformer and starts de-instrumentation if
+	 * enabled by the agent options and supported by the JVM. Otherwise the
+	 * transformer is registered without retransformation capabilities.
+	 * 
+	 * @param inst
+	 *            instrumentation callback provided by the JVM
+	 * @param data
+	 *            execution data of the agent
+	 * @param transformer
+	 *            transformer which instruments the classes
+	 * @param options
+	 *            options of the agent
+	 * @param logger
+	 *            logger for failed retransformations
+	 * @throws Exception
+	 *             if the transformer can't be registered
+	 */
+	static void register(final Instrumentation inst, final RuntimeData data,
+			final CoverageTransformer transformer, final AgentOptions options,
+			final IExceptionLogger logger) throws Exception {
+		if (!transformer.isRetransformationSupported()
+				|| !Retransformation.isSupported(inst)) {
+			inst.addTransformer(transformer);
+			return;
+		}
+		Retransformation.addTransformer(inst, transformer);
+		final Timer timer = new Timer("JaCoCo De-instrumentation", true);
+		timer.schedule(new Deinstrumenter(inst, data, transformer,
+				options.getDeinstrumentStable(), logger), INTERVAL, INTERVAL);
+	}
+
+	@Override
+	public void run() {
+		check(System.currentTimeMillis());
+	}
+
+	/**
+	 * Checks the execution data of all classes and retransforms the classes
+	 * whose probes have to be removed or inserted again.
+	 * 
+	 * @param now
+	 *            current time in milliseconds
+	 */
+	void check(final long now) {
+		final Set<String> names = new HashSet<String>();
+		data.collect(new IExecutionDataVisitor() {
+			public void visitClassExecution(final ExecutionData executionData) {
+				if (update(executionData, now)) {
+					names.add(executionData.getName());
+				}
+			}
+		}, new ISessionInfoVisitor() {
+			public void visitSessionInfo(final SessionInfo info) {
+				// nothing to do
+			}
+		}, false);
+		if (!names.isEmpty()) {
+			retransform(names);
+		}
+	}
+
+	private boolean update(final ExecutionData data, final long now) {
+		final Long id = Long.valueOf(data.getId());
+		final boolean[] probes = data.getProbes();
+		int hits = 0;
+		for (final boolean p : probes) {
+			if (p) {
+				hits++;
+			}
+		}
+		ClassState state = states.get(id);
+		if (state == null) {
+			state = new ClassState();
+			state.hits = hits;
+			state.since = now;
+			states.put(id, state);
+		} else if (state.hits != hits) {
+			state.hits = hits;
+			state.since = now;
+		}
+		if (state.deinstrumentedHits == -1) {
+			final boolean stable = stablePeriod > 0 && hits > 0
+					&& now - state.since >= stablePeriod;
+			if (hits == probes.length || stable) {
+				state.deinstrumentedHits = hits;
+				transformer.setDeinstrumented(data.getId(), true);
+				return true;
+			}
+		} else if (hits < state.deinstrumentedHits) {
+			// The execution data has been reset:
+			state.deinstrumentedHits = -1;
+			transformer.setDeinstrumented(data.getId(), false);
+			return true;
+		}
+		return false;
+	}
+
+	private void retransform(final Set<String> names) {
+		final List<Class<?>> classes = new ArrayList<Class<?>>();
+		for (final Class<?> c : inst.getAllLoadedClasses()) {
+			if (names.contains(c.getName().replace('.', '/'))) {
+				classes.add(c);
+			}
+		}
+		Retransformation.retransform(inst, classes, logger);
+	}
+
+}
@@ -20,8 +20,9 @@ import org.jacoco.core.runtime.ModifiedSystemClassRuntime;
 import org.jacoco.core.runtime.SavMock;
 
 /**
- * The agent which is referred as the <code>Premain-Class</code>. The agent
- * configuration is provided with the agent parameters in the command line.
+ * The agent which is referred as the <code>Premain-Class</code> and as the
+ * <code>Agent-Class</code>. The agent configuration is provided with the agent
+ * parameters in the command line or when attaching to a running JVM.
  */
 public final class PreMain {
 
@@ -50,8 +51,27 @@ public final class PreMain {
 		final IRuntime runtime = createRuntime(inst);
 		runtime.startup(agent.getData());
 		SavMock.startup(agentOptions, inst, agent.getData());
-		inst.addTransformer(new CoverageTransformer(runtime, agentOptions,
-				IExceptionLogger.SYSTEM_ERR));
+		Deinstrumenter.register(inst, agent.getData(),
+				new CoverageTransformer(runtime, agentOptions,
+						IExceptionLogger.SYSTEM_ERR), agentOptions,
+				IExceptionLogger.SYSTEM_ERR);
+	}
+
+	/**
+	 * This method is called by the JVM when the agent is attached to a running
+	 * JVM. Already loaded classes are instrumented through retransformation.
+	 * 
+	 * @param options
+	 *            agent options
+	 * @param inst
+	 *            instrumentation callback provided by the JVM
+	 * @throws Exception
+	 *             in case initialization fails
+	 */
+	public static void agentmain(final String options,
+			final Instrumentation inst) throws Exception {
+		AttachSession.start(inst, new AgentOptions(options),
+				IExceptionLogger.SYSTEM_ERR);
 	}
 
 	private static IRuntime createRuntime(final Instrumentation inst)
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.agent.rt.internal;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Collection;
+
+/**
+ * Utility to retransform classes. The retransformation API of
+ * {@link Instrumentation} is only available since Java 6 and is therefore
+ * called reflectively.
+ */
+final class Retransformation {
+
+	private Retransformation() {
+		// no instances
+	}
+
+	/**
+	 * Checks whether the JVM supports retransformation of classes.
+	 * 
+	 * @param inst
+	 *            instrumentation callback provided by the JVM
+	 * @return <code>true</code> if retransformation is supported
+	 */
+	static boolean isSupported(final Instrumentation inst) {
+		try {
+			return Boolean.TRUE.equals(invoke(inst,
+					"isRetransformClassesSupported", new Class<?>[0]));
+		} catch (final Exception e) {
+			// Java 5
+			return false;
+		}
+	}
+
+	/**
+	 * Registers the given transformer with retransformation capabilities.
+	 * 
+	 * @param inst
+	 *            instrumentation callback provided by the JVM
+	 * @param transformer
+	 *            transformer to register
+	 * @throws Exception
+	 *             if the transformer can't be registered
+	 */
+	static void addTransformer(final Instrumentation inst,
+			final ClassFileTransformer transformer) throws Exception {
+		invoke(inst, "addTransformer", new Class<?>[] {
+				ClassFileTransformer.class, Boolean.TYPE }, transformer,
+				Boolean.TRUE);
+	}
+
+	/**
+	 * Retransforms the given classes one by one so that a failure does not
+	 * affect the other classes. Classes which can't be modified are skipped.
+	 * 
+	 * @param inst
+	 *            instrumentation callback provided by the JVM
+	 * @param classes
+	 *            classes to retransform
+	 * @param logger
+	 *            logger for failed retransformations
+	 */
+	static void retransform(final Instrumentation inst,
+			final Collection<Class<?>> classes, final IExceptionLogger logger) {
+		for (final Class<?> c : classes) {
+			try {
+				if (Boolean.TRUE.equals(invoke(inst, "isModifiableClass",
+						new Class<?>[] { Class.class }, c))) {
+					invoke(inst, "retransformClasses",
+							new Class<?>[] { Class[].class },
+							new Object[] { new Class<?>[] { c } });
+				}
+			} catch (final Exception e) {
+				logger.logExeption(e);
+			}
+		}
+	}
+
+	private static Object invoke(final Instrumentation inst,
+			final String name, final Class<?>[] types, final Object... args)
+			throws Exception {
+		try {
+			return Instrumentation.class.getMethod(name, types).invoke(inst,
+					args);
+		} catch (final InvocationTargetException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw e;
+		}
+	}
+
+}
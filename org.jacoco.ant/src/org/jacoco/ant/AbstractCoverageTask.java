@@ -19,6 +19,7 @@ import org.apache.tools.ant.Task;
 import org.jacoco.agent.AgentJar;
 import org.jacoco.core.runtime.AgentOptions;
 import org.jacoco.core.runtime.AgentOptions.OutputMode;
+import org.jacoco.core.runtime.ClassShard;
 
 /**
  * Base class for all coverage tasks that require agent options
@@ -210,6 +211,79 @@ public class AbstractCoverageTask extends Task {
 		agentOptions.setJmx(jmx);
 	}
 
+	/**
+	 * Sets the directory where the agent caches instrumented class files.
+	 * 
+	 * @param dir
+	 *            cache location
+	 */
+	public void setCachedir(final File dir) {
+		agentOptions.setCacheDir(dir.getAbsolutePath());
+	}
+
+	/**
+	 * Sets the maximum size of the cache directory in megabytes.
+	 * 
+	 * @param size
+	 *            maximum cache size in megabytes
+	 */
+	public void setCachesize(final int size) {
+		agentOptions.setCacheSize(size);
+	}
+
+	/**
+	 * Sets whether small methods should be instrumented with compact probes.
+	 * 
+	 * @param compactProbes
+	 *            <code>true</code> if compact probes should be used
+	 */
+	public void setCompactprobes(final boolean compactProbes) {
+		agentOptions.setCompactProbes(compactProbes);
+	}
+
+	/**
+	 * Sets the file where methods exceeding an inlining threshold are
+	 * reported.
+	 * 
+	 * @param file
+	 *            report location
+	 */
+	public void setInliningreport(final File file) {
+		agentOptions.setInliningReport(file.getAbsolutePath());
+	}
+
+	/**
+	 * Sets whether fully covered classes should be replaced by versions
+	 * without probes.
+	 * 
+	 * @param deinstrument
+	 *            <code>true</code> if classes should be de-instrumented
+	 */
+	public void setDeinstrument(final boolean deinstrument) {
+		agentOptions.setDeinstrument(deinstrument);
+	}
+
+	/**
+	 * Sets the number of minutes after which classes with unchanged coverage
+	 * are de-instrumented.
+	 * 
+	 * @param minutes
+	 *            minutes or <code>0</code> for fully covered classes only
+	 */
+	public void setDeinstrumentstable(final int minutes) {
+		agentOptions.setDeinstrumentStable(minutes);
+	}
+
+	/**
+	 * Sets the shard of classes which should be instrumented.
+	 * 
+	 * @param shard
+	 *            shard in the form <code>k/n</code>
+	 */
+	public void setShard(final String shard) {
+		agentOptions.setShard(ClassShard.parse(shard));
+	}
+
 	/**
 	 * Creates JVM argument to launch with the specified JaCoCo agent jar and
 	 * the current options
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.ant;
+
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.tools.ant.BuildException;
+import org.apache.tools.ant.Task;
+import org.jacoco.core.tools.ExecFileCompactor;
+
+/**
+ * Task for compacting an execution data file (*.exec) that has been appended
+ * multiple times.
+ */
+public class CompactTask extends Task {
+
+	private File file;
+
+	private String sessionid;
+
+	/**
+	 * Sets the execution data file to compact in place
+	 * 
+	 * @param file
+	 *            execution data file
+	 */
+	public void setFile(final File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Sets the identifier of a single session all sessions get collapsed into.
+	 * If not set distinct sessions are preserved.
+	 * 
+	 * @param sessionid
+	 *            identifier of the merged session
+	 */
+	public void setSessionid(final String sessionid) {
+		this.sessionid = sessionid;
+	}
+
+	@Override
+	public void execute() throws BuildException {
+		if (file == null) {
+			throw new BuildException("Execution data file must be supplied",
+					getLocation());
+		}
+		final ExecFileCompactor compactor = new ExecFileCompactor();
+		compactor.setSessionId(sessionid);
+		log(format("Compacting execution data file %s",
+				file.getAbsolutePath()));
+		try {
+			compactor.compact(file);
+		} catch (final IOException e) {
+			throw new BuildException(format("Unable to compact %s",
+					file.getAbsolutePath()), e, getLocation());
+		}
+	}
+
+}
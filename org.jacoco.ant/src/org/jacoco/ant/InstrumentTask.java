@@ -13,11 +13,24 @@ package org.jacoco.ant;
 
 import static java.lang.String.format;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.Task;
@@ -26,7 +39,9 @@ import org.apache.tools.ant.types.ResourceCollection;
 import org.apache.tools.ant.types.resources.Union;
 import org.apache.tools.ant.util.FileUtils;
 import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.instr.ProbeMapWriter;
 import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
+import org.jacoco.core.tools.InstrumentationManifest;
 
 /**
  * Task for offline instrumentation of class files.
@@ -39,6 +54,12 @@ public class InstrumentTask extends Task {
 
 	private boolean removesignatures = true;
 
+	private File probemapdir;
+
+	private int threads = 1;
+
+	private File manifest;
+
 	/**
 	 * Sets the location of the instrumented classes.
 	 * 
@@ -59,6 +80,43 @@ public class InstrumentTask extends Task {
 		this.removesignatures = removesignatures;
 	}
 
+	/**
+	 * Sets the directory where probe maps of the instrumented classes are
+	 * written to.
+	 * 
+	 * @param probemapdir
+	 *            directory for probe maps or <code>null</code> (no maps)
+	 */
+	public void setProbemapdir(final File probemapdir) {
+		this.probemapdir = probemapdir;
+	}
+
+	/**
+	 * Sets the number of threads used for instrumentation. Class files are
+	 * instrumented concurrently, archives one after another with their entries
+	 * instrumented concurrently. Default is 1.
+	 * 
+	 * @param threads
+	 *            number of threads
+	 */
+	public void setThreads(final int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets a manifest file which records the hashes of all instrumented
+	 * resources. Resources which did not change since the last execution are
+	 * not instrumented again if their instrumented version in the destination
+	 * directory is unchanged as well. Instrumented versions of resources which
+	 * are not part of the task any more are deleted.
+	 * 
+	 * @param manifest
+	 *            manifest file or <code>null</code> (instrument everything)
+	 */
+	public void setManifest(final File manifest) {
+		this.manifest = manifest;
+	}
+
 	/**
 	 * This task accepts any number of class file resources.
 	 * 
@@ -75,20 +133,142 @@ public class InstrumentTask extends Task {
 			throw new BuildException("Destination directory must be supplied",
 					getLocation());
 		}
+		if (threads < 1) {
+			throw new BuildException("Number of threads must be positive",
+					getLocation());
+		}
 		int total = 0;
 		final Instrumenter instrumenter = new Instrumenter(
 				new OfflineInstrumentationAccessGenerator());
 		instrumenter.setRemoveSignatures(removesignatures);
-		final Iterator<?> resourceIterator = files.iterator();
-		while (resourceIterator.hasNext()) {
-			final Resource resource = (Resource) resourceIterator.next();
-			if (resource.isDirectory()) {
-				continue;
+		instrumenter.setThreads(threads);
+		if (probemapdir != null) {
+			instrumenter.setProbeMapVisitor(new ProbeMapWriter(probemapdir));
+		}
+		final InstrumentationManifest hashes = loadManifest();
+		final List<String> names = new ArrayList<String>();
+		final AtomicInteger skipped = new AtomicInteger();
+		final ExecutorService executor = threads == 1 ? null : Executors
+				.newFixedThreadPool(threads);
+		try {
+			final List<Future<Integer>> pending = new ArrayList<Future<Integer>>();
+			final Iterator<?> resourceIterator = files.iterator();
+			while (resourceIterator.hasNext()) {
+				final Resource resource = (Resource) resourceIterator.next();
+				if (resource.isDirectory()) {
+					continue;
+				}
+				names.add(resource.getName());
+				if (executor == null || !resource.getName().endsWith(".class")) {
+					total += instrument(instrumenter, resource, hashes,
+							skipped);
+				} else {
+					pending.add(executor.submit(new Callable<Integer>() {
+						public Integer call() {
+							return Integer.valueOf(instrument(instrumenter,
+									resource, hashes, skipped));
+						}
+					}));
+				}
+			}
+			for (final Future<Integer> f : pending) {
+				total += get(f);
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
 			}
-			total += instrument(instrumenter, resource);
 		}
 		log(format("Instrumented %s classes to %s", Integer.valueOf(total),
 				destdir.getAbsolutePath()));
+		if (hashes != null) {
+			saveManifest(hashes, names, skipped.get());
+		}
+	}
+
+	private InstrumentationManifest loadManifest() {
+		if (manifest == null) {
+			return null;
+		}
+		final InstrumentationManifest hashes = new InstrumentationManifest(
+				"removesignatures=" + removesignatures + ",probemapdir="
+						+ probemapdir);
+		try {
+			hashes.load(manifest);
+		} catch (final IOException e) {
+			throw new BuildException(format("Unable to read manifest %s",
+					manifest), e, getLocation());
+		}
+		return hashes;
+	}
+
+	private void saveManifest(final InstrumentationManifest hashes,
+			final List<String> names, final int skipped) {
+		final Set<String> removed = hashes.retain(names);
+		for (final String name : removed) {
+			new File(destdir, name).delete();
+		}
+		try {
+			hashes.save(manifest);
+		} catch (final IOException e) {
+			throw new BuildException(format("Unable to write manifest %s",
+					manifest), e, getLocation());
+		}
+		log(format("Skipped %s unchanged and removed %s deleted resources",
+				Integer.valueOf(skipped), Integer.valueOf(removed.size())));
+	}
+
+	private int instrument(final Instrumenter instrumenter,
+			final Resource resource, final InstrumentationManifest hashes,
+			final AtomicInteger skipped) {
+		if (hashes == null) {
+			return instrument(instrumenter, resource);
+		}
+		final File file = new File(destdir, resource.getName());
+		file.getParentFile().mkdirs();
+		try {
+			final byte[] input = read(resource.getInputStream());
+			final long hash = InstrumentationManifest.hash(input);
+			if (file.isFile()
+					&& hashes.isUnchanged(resource.getName(), hash)
+					&& hashes.isInstrumented(resource.getName(),
+							InstrumentationManifest.hash(read(new FileInputStream(
+									file))))) {
+				skipped.incrementAndGet();
+				return 0;
+			}
+			final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			final int count = instrumenter.instrumentAll(
+					new ByteArrayInputStream(input), buffer, resource.getName());
+			final byte[] output = buffer.toByteArray();
+			final OutputStream out = new FileOutputStream(file);
+			try {
+				out.write(output);
+			} finally {
+				out.close();
+			}
+			hashes.put(resource.getName(), hash,
+					InstrumentationManifest.hash(output));
+			return count;
+		} catch (final Exception e) {
+			file.delete();
+			throw new BuildException(format("Error while instrumenting %s",
+					resource), e, getLocation());
+		}
+	}
+
+	private static byte[] read(final InputStream input) throws IOException {
+		try {
+			final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			final byte[] b = new byte[8192];
+			int len;
+			while ((len = input.read(b)) != -1) {
+				buffer.write(b, 0, len);
+			}
+			return buffer.toByteArray();
+		} finally {
+			input.close();
+		}
 	}
 
 	private int instrument(final Instrumenter instrumenter,
@@ -113,4 +293,21 @@ public class InstrumentTask extends Task {
 					resource), e, getLocation());
 		}
 	}
+
+	private int get(final Future<Integer> future) {
+		try {
+			return future.get().intValue();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new BuildException("Instrumentation interrupted", e,
+					getLocation());
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw (Error) cause;
+		}
+	}
+
 }
@@ -19,9 +19,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.apache.tools.ant.BuildException;
@@ -31,18 +33,25 @@ import org.apache.tools.ant.types.Resource;
 import org.apache.tools.ant.types.resources.FileResource;
 import org.apache.tools.ant.types.resources.Union;
 import org.apache.tools.ant.util.FileUtils;
+import org.jacoco.core.analysis.AnalysisCache;
 import org.jacoco.core.analysis.Analyzer;
 import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.StringPool;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.SessionInfoStore;
 import org.jacoco.core.tools.ExecFileLoader;
 import org.jacoco.report.FileMultiReportOutput;
 import org.jacoco.report.IMultiReportOutput;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
+import org.jacoco.report.IStreamingReportGroupVisitor;
 import org.jacoco.report.MultiReportVisitor;
 import org.jacoco.report.ZipMultiReportOutput;
 import org.jacoco.report.check.IViolationsOutput;
@@ -155,6 +164,14 @@ public class ReportTask extends Task {
 
 		abstract IReportVisitor createVisitor() throws IOException;
 
+		boolean isLineCoverageRequired() {
+			return true;
+		}
+
+		boolean isSourceFileCoverageRequired() {
+			return true;
+		}
+
 		void finish() {
 		}
 	}
@@ -386,9 +403,23 @@ public class ReportTask extends Task {
 
 		@Override
 		public IReportVisitor createVisitor() throws IOException {
+			return createChecker().createVisitor(this);
+		}
+
+		@Override
+		boolean isLineCoverageRequired() {
+			return createChecker().isLineCoverageRequired();
+		}
+
+		@Override
+		boolean isSourceFileCoverageRequired() {
+			return createChecker().isSourceFileCoverageRequired();
+		}
+
+		private RulesChecker createChecker() {
 			final RulesChecker formatter = new RulesChecker();
 			formatter.setRules(rules);
-			return formatter.createVisitor(this);
+			return formatter;
 		}
 
 		public void onViolation(final ICoverageNode node, final Rule rule,
@@ -423,6 +454,39 @@ public class ReportTask extends Task {
 
 	private final List<FormatterElement> formatters = new ArrayList<FormatterElement>();
 
+	private AnalysisCache analysisCache;
+
+	private boolean streamPackages;
+
+	/** Pool shared by the analyzers of all groups */
+	private StringPool stringPool;
+
+	/**
+	 * Sets the directory to cache the structure of analyzed classes in.
+	 * Classes which have not changed since a previous report are not analyzed
+	 * again.
+	 * 
+	 * @param directory
+	 *            cache directory
+	 */
+	public void setAnalysiscache(final File directory) {
+		this.analysisCache = new AnalysisCache(directory);
+	}
+
+	/**
+	 * Sets whether the class files of every group are analyzed and reported
+	 * directory by directory. In this mode only the coverage data of a single
+	 * package is kept in memory. The task fails if a package is contained in
+	 * multiple directories or archives of a group.
+	 * 
+	 * @param streamPackages
+	 *            <code>true</code> to report the packages of every directory
+	 *            immediately
+	 */
+	public void setStreampackages(final boolean streamPackages) {
+		this.streamPackages = streamPackages;
+	}
+
 	/**
 	 * Returns the nested resource collection for execution data files.
 	 * 
@@ -488,6 +552,7 @@ public class ReportTask extends Task {
 	@Override
 	public void execute() throws BuildException {
 		loadExecutionData();
+		stringPool = new StringPool();
 		try {
 			final IReportVisitor visitor = createVisitor();
 			visitor.visitInfo(sessionInfoStore.getInfos(),
@@ -539,15 +604,25 @@ public class ReportTask extends Task {
 					getLocation());
 		}
 		if (group.children.isEmpty()) {
-			final IBundleCoverage bundle = createBundle(group);
 			final SourceFilesElement sourcefiles = group.sourcefiles;
 			final AntResourcesLocator locator = new AntResourcesLocator(
 					sourcefiles.encoding, sourcefiles.tabWidth);
 			locator.addAll(sourcefiles.iterator());
-			if (!locator.isEmpty()) {
-				checkForMissingDebugInformation(bundle);
+			if (streamPackages
+					&& visitor instanceof IStreamingReportGroupVisitor) {
+				final ICoverageNode bundle = createPackages(group,
+						((IStreamingReportGroupVisitor) visitor).visitBundle(
+								group.name, locator));
+				if (!locator.isEmpty() && isLineCoverageRequired()) {
+					checkForMissingDebugInformation(bundle);
+				}
+			} else {
+				final IBundleCoverage bundle = createBundle(group);
+				if (!locator.isEmpty() && isLineCoverageRequired()) {
+					checkForMissingDebugInformation(bundle);
+				}
+				visitor.visitBundle(bundle, locator);
 			}
-			visitor.visitBundle(bundle, locator);
 		} else {
 			final IReportGroupVisitor groupVisitor = visitor
 					.visitGroup(group.name);
@@ -560,7 +635,7 @@ public class ReportTask extends Task {
 	private IBundleCoverage createBundle(final GroupElement group)
 			throws IOException {
 		final CoverageBuilder builder = new CoverageBuilder();
-		final Analyzer analyzer = new Analyzer(executionDataStore, builder);
+		final Analyzer analyzer = createAnalyzer(builder);
 		for (final Iterator<?> i = group.classfiles.iterator(); i.hasNext();) {
 			final Resource resource = (Resource) i.next();
 			if (resource.isDirectory() && resource instanceof FileResource) {
@@ -576,7 +651,148 @@ public class ReportTask extends Task {
 		return bundle;
 	}
 
-	private void logBundleInfo(final IBundleCoverage bundle,
+	/**
+	 * Line coverage is only calculated if a formatter requires it, e.g. not
+	 * for reports which only contain coverage checks.
+	 */
+	private boolean isLineCoverageRequired() {
+		if (formatters.isEmpty()) {
+			return true;
+		}
+		for (final FormatterElement f : formatters) {
+			if (f.isLineCoverageRequired()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean isSourceFileCoverageRequired() {
+		if (formatters.isEmpty()) {
+			return true;
+		}
+		for (final FormatterElement f : formatters) {
+			if (f.isSourceFileCoverageRequired()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private ICoverageNode createPackages(final GroupElement group,
+			final IReportBundleVisitor visitor) throws IOException {
+		final PackageEmitter emitter = new PackageEmitter(group.name, visitor);
+		for (final Iterator<?> i = group.classfiles.iterator(); i.hasNext();) {
+			final Resource resource = (Resource) i.next();
+			if (resource.isDirectory() && resource instanceof FileResource) {
+				emitter.addDirectory(((FileResource) resource).getFile());
+			} else {
+				emitter.addResource(resource);
+			}
+		}
+		emitter.flush();
+		logBundleInfo(emitter.total, emitter.nomatch);
+		return emitter.total;
+	}
+
+	private Analyzer createAnalyzer(final CoverageBuilder builder) {
+		builder.setSourceFileCoverage(isSourceFileCoverageRequired());
+		final Analyzer analyzer = new Analyzer(executionDataStore, builder,
+				stringPool);
+		analyzer.setAnalysisCache(analysisCache);
+		analyzer.setLineCoverage(isLineCoverageRequired());
+		return analyzer;
+	}
+
+	/**
+	 * Analyzes class files directory by directory and emits the packages of
+	 * every directory before the next directory is analyzed.
+	 */
+	private class PackageEmitter {
+
+		private final String name;
+
+		private final IReportBundleVisitor visitor;
+
+		final CoverageNodeImpl total;
+
+		final Collection<IClassCoverage> nomatch = new ArrayList<IClassCoverage>();
+
+		private final Set<String> packages = new HashSet<String>();
+
+		private String directory;
+
+		private CoverageBuilder builder;
+
+		private Analyzer analyzer;
+
+		PackageEmitter(final String name, final IReportBundleVisitor visitor) {
+			this.name = name;
+			this.visitor = visitor;
+			this.total = new CoverageNodeImpl(ElementType.BUNDLE, name);
+		}
+
+		void addDirectory(final File dir) throws IOException {
+			final File[] files = dir.listFiles();
+			if (files == null) {
+				throw new BuildException(format(
+						"Unable to read directory %s", dir), getLocation());
+			}
+			final List<File> subdirs = new ArrayList<File>();
+			for (final File file : files) {
+				if (file.isDirectory()) {
+					subdirs.add(file);
+				} else {
+					setDirectory(dir.getPath());
+					analyzer.analyzeAll(file);
+				}
+			}
+			for (final File subdir : subdirs) {
+				addDirectory(subdir);
+			}
+		}
+
+		void addResource(final Resource resource) throws IOException {
+			final String resourceName = resource.getName();
+			setDirectory(resourceName.substring(0,
+					Math.max(0, resourceName.lastIndexOf('/'))));
+			final InputStream in = resource.getInputStream();
+			analyzer.analyzeAll(in, resourceName);
+			in.close();
+		}
+
+		private void setDirectory(final String dir) throws IOException {
+			if (!dir.equals(directory)) {
+				flush();
+				directory = dir;
+				builder = new CoverageBuilder();
+				analyzer = createAnalyzer(builder);
+			}
+		}
+
+		void flush() throws IOException {
+			if (builder != null) {
+				for (final IPackageCoverage p : builder.getBundle(name)
+						.getPackages()) {
+					if (!packages.add(p.getName())) {
+						throw new BuildException(format(
+								"Package %s of group %s is contained in multiple "
+										+ "class file locations, "
+										+ "streampackages can not be used.",
+								p.getName(), name), getLocation());
+					}
+					total.increment(p);
+					visitor.visitPackage(p);
+				}
+				nomatch.addAll(builder.getNoMatchClasses());
+				directory = null;
+				builder = null;
+				analyzer = null;
+			}
+		}
+	}
+
+	private void logBundleInfo(final ICoverageNode bundle,
 			final Collection<IClassCoverage> nomatch) {
 		log(format("Writing bundle '%s' with %s classes", bundle.getName(),
 				Integer.valueOf(bundle.getClassCounter().getTotalCount())));
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.Java9Support;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.test.TargetLoader;
+import org.jacoco.core.test.validation.targets.Target01;
+import org.jacoco.core.test.validation.targets.Target03;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassVisitor;
+
+/**
+ * Unit tests for {@link AnalysisCache}.
+ */
+public class AnalysisCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+
+	private ExecutionDataStore executionData;
+
+	private int parsed;
+
+	private boolean lineCoverage;
+
+	@Before
+	public void setup() throws IOException {
+		directory = new File(folder.getRoot(), "cache");
+		lineCoverage = true;
+		executionData = new ExecutionDataStore();
+		addExecutionData(Target01.class);
+		addExecutionData(Target03.class);
+	}
+
+	@Test
+	public void testSameResultAsAnalysis() throws IOException {
+		final List<IClassCoverage> expected = analyze(null);
+
+		final List<IClassCoverage> created = analyze(new AnalysisCache(
+				directory));
+		assertEquals(2, parsed);
+		final List<IClassCoverage> cached = analyze(new AnalysisCache(
+				directory));
+		assertEquals(0, parsed);
+
+		assertSameCoverage(expected, created);
+		assertSameCoverage(expected, cached);
+	}
+
+	@Test
+	public void testEntries() throws IOException {
+		analyze(new AnalysisCache(directory));
+
+		assertEquals(2, directory.listFiles().length);
+		final File entry = new File(directory, String.format(
+				"%016x.jacococache", Long.valueOf(getId(Target01.class))));
+		assertTrue(entry.isFile());
+	}
+
+	@Test
+	public void testCorruptEntry() throws IOException {
+		final List<IClassCoverage> expected = analyze(null);
+		analyze(new AnalysisCache(directory));
+		for (final File f : directory.listFiles()) {
+			final OutputStream out = new FileOutputStream(f);
+			out.write(new byte[] { (byte) 0xC0, (byte) 0xC0, 0x00 });
+			out.close();
+		}
+
+		final List<IClassCoverage> actual = analyze(new AnalysisCache(
+				directory));
+
+		assertEquals(2, parsed);
+		assertSameCoverage(expected, actual);
+		analyze(new AnalysisCache(directory));
+		assertEquals(0, parsed);
+	}
+
+	@Test
+	public void testNoExecutionData() throws IOException {
+		executionData = new ExecutionDataStore();
+		final List<IClassCoverage> expected = analyze(null);
+		analyze(new AnalysisCache(directory));
+
+		final List<IClassCoverage> actual = analyze(new AnalysisCache(
+				directory));
+
+		assertEquals(0, parsed);
+		assertSameCoverage(expected, actual);
+	}
+
+	@Test
+	public void testNoMatch() throws IOException {
+		analyze(new AnalysisCache(directory));
+		executionData = new ExecutionDataStore();
+		executionData.put(new ExecutionData(0, "org/jacoco/core/test/"
+				+ "validation/targets/Target01", new boolean[0]));
+
+		final List<IClassCoverage> actual = analyze(new AnalysisCache(
+				directory));
+
+		assertEquals(0, parsed);
+		assertTrue(find(actual, Target01.class).isNoMatch());
+	}
+
+	@Test
+	public void testNoLineCoverage() throws IOException {
+		lineCoverage = false;
+		final List<IClassCoverage> expected = analyze(null);
+		analyze(new AnalysisCache(directory));
+		assertFalse(directory.exists());
+
+		lineCoverage = true;
+		analyze(new AnalysisCache(directory));
+		lineCoverage = false;
+		final List<IClassCoverage> actual = analyze(new AnalysisCache(
+				directory));
+
+		assertEquals(0, parsed);
+		assertEquals(0, actual.get(0).getLineCounter().getTotalCount());
+		assertSameCoverage(expected, actual);
+	}
+
+	private void addExecutionData(final Class<?> target) throws IOException {
+		final boolean[] probes = new boolean[200];
+		for (int i = 0; i < probes.length; i++) {
+			probes[i] = (i % 3) != 0;
+		}
+		executionData.put(new ExecutionData(getId(target), target.getName()
+				.replace('.', '/'), probes));
+	}
+
+	private static long getId(final Class<?> target) throws IOException {
+		return CRC64.checksum(Java9Support.downgradeIfRequired(TargetLoader
+				.getClassDataAsBytes(target)));
+	}
+
+	private List<IClassCoverage> analyze(final AnalysisCache cache)
+			throws IOException {
+		parsed = 0;
+		final List<IClassCoverage> result = new ArrayList<IClassCoverage>();
+		final Analyzer analyzer = new Analyzer(executionData,
+				new ICoverageVisitor() {
+					public void visitCoverage(final IClassCoverage coverage) {
+						result.add(coverage);
+					}
+				}) {
+			@Override
+			protected ClassVisitor createAnalyzingVisitor(final long classid,
+					final String className) {
+				parsed++;
+				return super.createAnalyzingVisitor(classid, className);
+			}
+		};
+		analyzer.setAnalysisCache(cache);
+		analyzer.setLineCoverage(lineCoverage);
+		analyzer.analyzeClass(TargetLoader.getClassDataAsBytes(Target01.class),
+				"Target01");
+		analyzer.analyzeClass(TargetLoader.getClassDataAsBytes(Target03.class),
+				"Target03");
+		return result;
+	}
+
+	private static IClassCoverage find(final List<IClassCoverage> classes,
+			final Class<?> target) {
+		for (final IClassCoverage c : classes) {
+			if (c.getName().equals(target.getName().replace('.', '/'))) {
+				return c;
+			}
+		}
+		return null;
+	}
+
+	private static void assertSameCoverage(final List<IClassCoverage> expected,
+			final List<IClassCoverage> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			final IClassCoverage e = expected.get(i);
+			final IClassCoverage a = actual.get(i);
+			assertNotNull(a);
+			assertEquals(e.getName(), a.getName());
+			assertEquals(e.getId(), a.getId());
+			assertEquals(e.isNoMatch(), a.isNoMatch());
+			assertEquals(e.getSignature(), a.getSignature());
+			assertEquals(e.getSuperName(), a.getSuperName());
+			assertEquals(e.getSourceFileName(), a.getSourceFileName());
+			assertEquals(e.getInterfaceNames().length,
+					a.getInterfaceNames().length);
+			assertSameNode(e, a);
+			assertEquals(e.getMethods().size(), a.getMethods().size());
+			final Iterator<IMethodCoverage> ei = e.getMethods().iterator();
+			final Iterator<IMethodCoverage> ai = a.getMethods().iterator();
+			while (ei.hasNext()) {
+				final IMethodCoverage em = ei.next();
+				final IMethodCoverage am = ai.next();
+				assertEquals(em.getName(), am.getName());
+				assertEquals(em.getDesc(), am.getDesc());
+				assertEquals(em.getSignature(), am.getSignature());
+				assertSameNode(em, am);
+			}
+		}
+	}
+
+	private static void assertSameNode(final ISourceNode expected,
+			final ISourceNode actual) {
+		for (final ICoverageNode.CounterEntity entity : ICoverageNode.CounterEntity
+				.values()) {
+			assertEquals(expected.getCounter(entity), actual.getCounter(entity));
+		}
+		assertEquals(expected.getFirstLine(), actual.getFirstLine());
+		assertEquals(expected.getLastLine(), actual.getLastLine());
+		for (int nr = expected.getFirstLine(); nr <= expected.getLastLine(); nr++) {
+			final ILine e = expected.getLine(nr);
+			final ILine a = actual.getLine(nr);
+			assertEquals(e.getInstructionCounter(), a.getInstructionCounter());
+			assertEquals(e.getBranchCounter(), a.getBranchCounter());
+		}
+	}
+
+}
@@ -14,6 +14,7 @@ package org.jacoco.core.analysis;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -24,10 +25,12 @@ import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.jar.JarInputStream;
 import java.util.jar.Pack200;
@@ -35,14 +38,19 @@ import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionData.ProbesType;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.internal.Java9Support;
+import org.jacoco.core.internal.analysis.CounterImpl;
 import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.test.TargetLoader;
+import org.jacoco.core.test.perf.targets.Target02;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.objectweb.asm.ClassReader;
 
 /**
  * Unit tests for {@link Analyzer}.
@@ -90,22 +98,109 @@ public class AnalyzerTest {
 				.isNoMatch());
 	}
 
+	@Test
+	public void testAnalyzeClassWithoutLineCoverage() throws IOException {
+		analyzer.analyzeClass(
+				TargetLoader.getClassDataAsBytes(AnalyzerTest.class), "Test");
+		final IClassCoverage expected = classes
+				.remove("org/jacoco/core/analysis/AnalyzerTest");
+
+		analyzer.setLineCoverage(false);
+		analyzer.analyzeClass(
+				TargetLoader.getClassDataAsBytes(AnalyzerTest.class), "Test");
+
+		final IClassCoverage actual = classes
+				.get("org/jacoco/core/analysis/AnalyzerTest");
+		assertTrue(expected.getLineCounter().getTotalCount() > 0);
+		assertEquals(0, actual.getLineCounter().getTotalCount());
+		assertEquals(ISourceNode.UNKNOWN_LINE, actual.getFirstLine());
+		assertEquals(ISourceNode.UNKNOWN_LINE, actual.getLastLine());
+		assertEquals(expected.getInstructionCounter(),
+				actual.getInstructionCounter());
+		assertEquals(expected.getBranchCounter(), actual.getBranchCounter());
+		assertEquals(expected.getComplexityCounter(),
+				actual.getComplexityCounter());
+		assertEquals(expected.getMethodCounter(), actual.getMethodCounter());
+		assertEquals(expected.getSourceFileName(), actual.getSourceFileName());
+	}
+
+	@Test
+	public void testSharedStringPool() throws IOException {
+		final StringPool pool = new StringPool();
+		final IClassCoverage[] result = new IClassCoverage[2];
+		for (int i = 0; i < 2; i++) {
+			final int index = i;
+			new Analyzer(executionData, new ICoverageVisitor() {
+				public void visitCoverage(final IClassCoverage coverage) {
+					result[index] = coverage;
+				}
+			}, pool).analyzeClass(
+					TargetLoader.getClassDataAsBytes(AnalyzerTest.class),
+					"Test");
+		}
+
+		assertSame(result[0].getName(), result[1].getName());
+		assertSame(result[0].getSourceFileName(),
+				result[1].getSourceFileName());
+		final IMethodCoverage m0 = result[0].getMethods().iterator().next();
+		final IMethodCoverage m1 = result[1].getMethods().iterator().next();
+		assertSame(m0.getName(), m1.getName());
+		assertSame(m0.getDesc(), m1.getDesc());
+		assertTrue(pool.size() > 0);
+	}
+
 	@Test
 	public void testAnalyzeClassIdMatch() throws IOException {
 		// class IDs are always calculated after downgrade of the version
 		final byte[] bytes = Java9Support.downgradeIfRequired(
 				TargetLoader.getClassDataAsBytes(AnalyzerTest.class));
 		executionData.get(Long.valueOf(CRC64.checksum(bytes)),
-				"org/jacoco/core/analysis/AnalyzerTest", 200);
+				"org/jacoco/core/analysis/AnalyzerTest", 400);
 		analyzer.analyzeClass(bytes, "Test");
 		assertFalse(classes.get("org/jacoco/core/analysis/AnalyzerTest")
 				.isNoMatch());
 	}
 
+	@Test
+	public void testAnalyzeClassCounting() throws IOException {
+		final byte[] bytes = TargetLoader.getClassDataAsBytes(Target02.class);
+		ExecutionData.setProbesType(ProbesType.COUNTING);
+		try {
+			final ExecutionData data = executionData.get(
+					Long.valueOf(CRC64.checksum(bytes)),
+					"org/jacoco/core/test/perf/targets/Target02", 4);
+			// Loop and exit of call(), the loop entry is derived
+			final int[] counters = (int[]) data.getRawProbes();
+			counters[1] = 10;
+			counters[2] = 1;
+			analyzer.analyzeClass(bytes, "Test");
+		} finally {
+			ExecutionData.setProbesType(ProbesType.BOOLEAN);
+		}
+		final IClassCoverage coverage = classes
+				.get("org/jacoco/core/test/perf/targets/Target02");
+		assertEquals(CounterImpl.getInstance(1, 1),
+				coverage.getMethodCounter());
+		assertEquals(CounterImpl.getInstance(1, 4), coverage.getLineCounter());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testAnalyzeClassCountingIncompatible() throws IOException {
+		final byte[] bytes = TargetLoader.getClassDataAsBytes(Target02.class);
+		ExecutionData.setProbesType(ProbesType.COUNTING);
+		try {
+			executionData.get(Long.valueOf(CRC64.checksum(bytes)),
+					"org/jacoco/core/test/perf/targets/Target02", 5);
+			analyzer.analyzeClass(new ClassReader(bytes));
+		} finally {
+			ExecutionData.setProbesType(ProbesType.BOOLEAN);
+		}
+	}
+
 	@Test
 	public void testAnalyzeClassNoIdMatch() throws IOException {
 		executionData.get(Long.valueOf(0),
-				"org/jacoco/core/analysis/AnalyzerTest", 200);
+				"org/jacoco/core/analysis/AnalyzerTest", 400);
 		analyzer.analyzeClass(
 				TargetLoader.getClassDataAsBytes(AnalyzerTest.class), "Test");
 		assertTrue(classes.get("org/jacoco/core/analysis/AnalyzerTest")
@@ -331,6 +426,82 @@ public class AnalyzerTest {
 		}
 	}
 
+	@Test
+	public void testAnalyzeAll_ZipFile() throws IOException {
+		final File file = new File(folder.getRoot(), "test.jar");
+		final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(
+				file));
+		zip.putNextEntry(new ZipEntry("readme.txt"));
+		zip.write(new byte[] { 0x23 });
+		zip.putNextEntry(new ZipEntry(
+				"org/jacoco/core/analysis/AnalyzerTest.class"));
+		zip.write(TargetLoader.getClassDataAsBytes(AnalyzerTest.class));
+		zip.putNextEntry(new ZipEntry("lib/nested.jar"));
+		zip.write(createZip(Analyzer.class));
+		zip.close();
+
+		analyzer.setArchiveThreads(4);
+		final int count = analyzer.analyzeAll(file);
+
+		assertEquals(2, count);
+		assertClasses("org/jacoco/core/analysis/Analyzer",
+				"org/jacoco/core/analysis/AnalyzerTest");
+	}
+
+	@Test
+	public void testAnalyzeAll_ZipFileEntryOrder() throws IOException {
+		final Class<?>[] sources = new Class<?>[] { AnalyzerTest.class,
+				Analyzer.class, AbstractAnalyzer.class, StringPool.class,
+				AnalysisCache.class };
+		final File file = new File(folder.getRoot(), "test.jar");
+		final OutputStream out = new FileOutputStream(file);
+		out.write(createZip(sources));
+		out.close();
+		final List<String> names = new ArrayList<String>();
+		analyzer = new Analyzer(executionData, new ICoverageVisitor() {
+			public void visitCoverage(final IClassCoverage coverage) {
+				names.add(coverage.getName());
+			}
+		});
+
+		analyzer.setArchiveThreads(3);
+		analyzer.analyzeAll(file);
+
+		assertEquals(sources.length, names.size());
+		for (int i = 0; i < sources.length; i++) {
+			assertEquals(sources[i].getName().replace('.', '/'), names.get(i));
+		}
+	}
+
+	@Test
+	public void testAnalyzeAll_BrokenClassFileInZipFile() throws IOException {
+		final File file = new File(folder.getRoot(), "test.jar");
+		final ZipOutputStream zip = new ZipOutputStream(new FileOutputStream(
+				file));
+		zip.putNextEntry(new ZipEntry(
+				"org/jacoco/core/analysis/AnalyzerTest.class"));
+		final byte[] brokenclass = TargetLoader
+				.getClassDataAsBytes(AnalyzerTest.class);
+		brokenclass[10] = 0x23;
+		zip.write(brokenclass);
+		zip.close();
+
+		analyzer.setArchiveThreads(2);
+		try {
+			analyzer.analyzeAll(file);
+			fail("expected exception");
+		} catch (IOException e) {
+			assertEquals("Error while analyzing " + file.getPath()
+					+ "@org/jacoco/core/analysis/AnalyzerTest.class.",
+					e.getMessage());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetArchiveThreadsNegative() {
+		analyzer.setArchiveThreads(-1);
+	}
+
 	private void createClassfile(final String dir, final Class<?> source)
 			throws IOException {
 		File file = new File(folder.getRoot(), dir);
@@ -341,6 +512,19 @@ public class AnalyzerTest {
 		out.close();
 	}
 
+	private static byte[] createZip(final Class<?>... sources)
+			throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zip = new ZipOutputStream(buffer);
+		for (final Class<?> source : sources) {
+			zip.putNextEntry(new ZipEntry(source.getName().replace('.', '/')
+					+ ".class"));
+			zip.write(TargetLoader.getClassDataAsBytes(source));
+		}
+		zip.close();
+		return buffer.toByteArray();
+	}
+
 	private void assertClasses(String... classNames) {
 		assertEquals(new HashSet<String>(Arrays.asList(classNames)),
 				classes.keySet());
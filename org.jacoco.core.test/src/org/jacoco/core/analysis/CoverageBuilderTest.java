@@ -164,6 +164,18 @@ public class CoverageBuilderTest {
 		assertEquals(0, s.getClassCounter().getCoveredCount());
 	}
 
+	@Test
+	public void testNoSourceFileCoverage() {
+		coverageBuilder.setSourceFileCoverage(false);
+		final MethodCoverageImpl method = new MethodCoverageImpl("doit",
+				"()V", null);
+		method.increment(CounterImpl.COUNTER_1_0, CounterImpl.COUNTER_0_0, 3);
+		addClass(123L, false, "Sample", "Sample.java", method);
+
+		assertEquals(1, coverageBuilder.getClasses().size());
+		assertEquals(0, coverageBuilder.getSourceFiles().size());
+	}
+
 	@Test
 	public void testCreateSourceFileDuplicateClassNameIdentical() {
 		final MethodCoverageImpl method1 = new MethodCoverageImpl("doit",
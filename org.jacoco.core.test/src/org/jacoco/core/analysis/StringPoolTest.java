@@ -9,12 +9,19 @@
  *    Marc R. Hoffmann - initial API and implementation
  *    
  *******************************************************************************/
-package org.jacoco.core.internal.analysis;
+package org.jacoco.core.analysis;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -69,4 +76,39 @@ public class StringPoolTest {
 		assertSame(arr1[0], arr2[0]);
 	}
 
+	@Test
+	public void testSize() {
+		pool.get(new String("a"));
+		pool.get(new String("b"));
+		pool.get(new String("a"));
+
+		assertEquals(2, pool.size());
+	}
+
+	@Test
+	public void testConcurrentGet() throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		final List<Future<String[]>> results = new ArrayList<Future<String[]>>();
+		for (int t = 0; t < 4; t++) {
+			results.add(executor.submit(new Callable<String[]>() {
+				public String[] call() {
+					final String[] result = new String[1000];
+					for (int i = 0; i < result.length; i++) {
+						result[i] = pool.get(new String("s" + i));
+					}
+					return result;
+				}
+			}));
+		}
+		final String[] expected = results.get(0).get();
+		for (final Future<String[]> f : results) {
+			final String[] actual = f.get();
+			for (int i = 0; i < expected.length; i++) {
+				assertSame(expected[i], actual[i]);
+			}
+		}
+		executor.shutdown();
+		assertEquals(1000, pool.size());
+	}
+
 }
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Runs the {@link ExecutionDataReaderWriterTest} with readers that decode
+ * from a direct {@link ByteBuffer}.
+ */
+public class ExecutionDataReaderByteBufferTest extends
+		ExecutionDataReaderWriterTest {
+
+	@Test
+	public void testWriteToByteBuffer() throws IOException {
+		final ExecutionDataWriter writer = new ExecutionDataWriter(
+				ByteBuffer.allocate(1));
+		writer.visitSessionInfo(new SessionInfo("id", 1, 2));
+		writer.visitClassExecution(new ExecutionData(3, "Sample",
+				new boolean[] { true, false, true }));
+
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		final ExecutionDataWriter streamWriter = new ExecutionDataWriter(
+				expected);
+		streamWriter.visitSessionInfo(new SessionInfo("id", 1, 2));
+		streamWriter.visitClassExecution(new ExecutionData(3, "Sample",
+				new boolean[] { true, false, true }));
+
+		final ByteBuffer actual = writer.getBuffer();
+		actual.flip();
+		final byte[] bytes = new byte[actual.remaining()];
+		actual.get(bytes);
+		assertArrayEquals(expected.toByteArray(), bytes);
+	}
+
+	@Override
+	protected ExecutionDataReader createReader() throws IOException {
+		final byte[] bytes = buffer.toByteArray();
+		final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes).flip();
+		return new ExecutionDataReader(direct);
+	}
+
+}
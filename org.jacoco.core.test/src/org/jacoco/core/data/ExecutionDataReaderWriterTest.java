@@ -14,6 +14,7 @@ package org.jacoco.core.data;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -22,9 +23,13 @@ import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
+import org.jacoco.core.data.ExecutionData.ProbesType;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -45,6 +50,11 @@ public class ExecutionDataReaderWriterTest {
 
 	private Random random;
 
+	@After
+	public void teardown() {
+		ExecutionData.setProbesType(ProbesType.BOOLEAN);
+	}
+
 	@Before
 	public void setup() throws IOException {
 		buffer = new ByteArrayOutputStream();
@@ -282,6 +292,75 @@ public class ExecutionDataReaderWriterTest {
 		assertArrayEquals(data, store.get(123).getProbes());
 	}
 
+	@Test
+	public void testMergeIntoExistingEntry() throws IOException {
+		final boolean[] existing = new boolean[] { true, false, false };
+		store.put(new ExecutionData(3, "Sample", existing));
+		writer.visitClassExecution(new ExecutionData(3, "Sample",
+				new boolean[] { false, false, true }));
+		writer.visitClassExecution(new ExecutionData(3, "Sample",
+				new boolean[] { false, true, false }));
+		final ExecutionDataReader reader = createReader();
+		reader.setExecutionDataStore(store);
+		assertFalse(reader.read());
+		assertSame(existing, store.get(3).getProbes());
+		assertArrayEquals(new boolean[] { true, true, true }, existing);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMergeIncompatibleEntry() throws IOException {
+		store.put(new ExecutionData(3, "Sample", new boolean[] { true }));
+		writer.visitClassExecution(new ExecutionData(3, "Sample",
+				new boolean[] { true, false }));
+		final ExecutionDataReader reader = createReader();
+		reader.setExecutionDataStore(store);
+		reader.read();
+	}
+
+	@Test
+	public void testReadIntegerProbesIntoStore() throws IOException {
+		ExecutionData.setProbesType(ProbesType.INTEGER);
+		writer.visitClassExecution(new ExecutionData(new ExtExecutionData(3,
+				"Sample", new int[] { -1, 0, 2 })));
+		writer.visitClassExecution(new ExecutionData(new ExtExecutionData(3,
+				"Sample", new int[] { 1, 1, -5 })));
+
+		// Same result as adding every record to the store:
+		final ExecutionDataReader reader = createReader();
+		reader.setExecutionDataStore(store);
+		assertFalse(reader.read());
+		assertEquals("[0, 1, 2]",
+				Arrays.toString((int[]) store.get(3).getRawProbes()));
+		final ExecutionDataStore expected = new ExecutionDataStore();
+		final ExecutionDataReader reference = createReader();
+		reference.setExecutionDataVisitor(new IExecutionDataVisitor() {
+			public void visitClassExecution(final ExecutionData data) {
+				expected.put(data);
+			}
+		});
+		assertFalse(reference.read());
+		assertEquals(Arrays.toString((int[]) expected.get(3).getRawProbes()),
+				Arrays.toString((int[]) store.get(3).getRawProbes()));
+	}
+
+	@Test
+	public void testPooledClassNames() throws IOException {
+		writer.visitClassExecution(new ExecutionData(1, "Sample",
+				createData(8)));
+		writer.visitClassExecution(new ExecutionData(2, "Sample",
+				createData(8)));
+		final List<ExecutionData> records = new ArrayList<ExecutionData>();
+		final ExecutionDataReader reader = createReader();
+		reader.setExecutionDataVisitor(new IExecutionDataVisitor() {
+			public void visitClassExecution(final ExecutionData data) {
+				records.add(data);
+			}
+		});
+		assertFalse(reader.read());
+		assertEquals(2, records.size());
+		assertSame(records.get(0).getName(), records.get(1).getName());
+	}
+
 	@Test(expected = RuntimeException.class)
 	public void testExecutionDataIOException() throws IOException {
 		final boolean[] broken = new boolean[1];
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.jacoco.core.data.ExecutionData.ProbesType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ExecutionDataSets}.
+ */
+public class ExecutionDataSetsTest {
+
+	private ExecutionDataStore a;
+
+	private ExecutionDataStore b;
+
+	@Before
+	public void setup() {
+		a = new ExecutionDataStore();
+		b = new ExecutionDataStore();
+		a.put(new ExecutionData(1, "Both", new boolean[] { true, true, false,
+				false }));
+		b.put(new ExecutionData(1, "Both", new boolean[] { true, false, true,
+				false }));
+		a.put(new ExecutionData(2, "OnlyA", new boolean[] { true, false }));
+		b.put(new ExecutionData(3, "OnlyB", new boolean[] { false, true, true }));
+	}
+
+	@After
+	public void teardown() {
+		ExecutionData.setProbesType(ProbesType.BOOLEAN);
+	}
+
+	@Test
+	public void testUnion() {
+		final ExecutionDataStore result = ExecutionDataSets.union(a, b);
+
+		assertProbes(result, 1, true, true, true, false);
+		assertProbes(result, 2, true, false);
+		assertProbes(result, 3, false, true, true);
+		assertEquals(6, ExecutionDataSets.cardinality(result));
+		assertEquals(6, ExecutionDataSets.unionCardinality(a, b));
+	}
+
+	@Test
+	public void testIntersection() {
+		final ExecutionDataStore result = ExecutionDataSets.intersection(a, b);
+
+		assertProbes(result, 1, true, false, false, false);
+		assertNull(result.get(2));
+		assertNull(result.get(3));
+		assertEquals(1, ExecutionDataSets.intersectionCardinality(a, b));
+	}
+
+	@Test
+	public void testDifference() {
+		final ExecutionDataStore result = ExecutionDataSets.difference(a, b);
+
+		assertProbes(result, 1, false, true, false, false);
+		assertProbes(result, 2, true, false);
+		assertNull(result.get(3));
+		assertEquals(2, ExecutionDataSets.differenceCardinality(a, b));
+	}
+
+	@Test
+	public void testSymmetricDifference() {
+		final ExecutionDataStore result = ExecutionDataSets
+				.symmetricDifference(a, b);
+
+		assertProbes(result, 1, false, true, true, false);
+		assertProbes(result, 2, true, false);
+		assertProbes(result, 3, false, true, true);
+		assertEquals(5, ExecutionDataSets.symmetricDifferenceCardinality(a, b));
+	}
+
+	@Test
+	public void testNewCoverage() {
+		b.put(new ExecutionData(2, "OnlyA", new boolean[] { true, false }));
+
+		final ExecutionDataStore result = ExecutionDataSets.newCoverage(a, b);
+
+		assertProbes(result, 1, false, true, false, false);
+		assertNull(result.get(2));
+		assertNull(result.get(3));
+	}
+
+	@Test
+	public void testOperandsNotModified() {
+		ExecutionDataSets.union(a, b);
+		ExecutionDataSets.difference(a, b);
+
+		assertProbes(a, 1, true, true, false, false);
+		assertProbes(b, 1, true, false, true, false);
+	}
+
+	@Test
+	public void testIntegerProbes() {
+		final ExecutionDataStore ext = new ExecutionDataStore();
+		ext.put(new ExecutionData(new ExtExecutionData(1, "Both", new int[] {
+				0, 5, 3, -2 })));
+
+		assertProbes(ExecutionDataSets.difference(ext, a), 1, false, false,
+				true, false);
+		assertEquals(2, ExecutionDataSets.cardinality(ext));
+		assertEquals(5, ExecutionDataSets.unionCardinality(ext, b));
+	}
+
+	@Test
+	public void testIntegerProbesSaveAndReload() throws IOException {
+		ExecutionData.setProbesType(ProbesType.INTEGER);
+		final ExecutionDataStore x = new ExecutionDataStore();
+		x.put(new ExecutionData(new ExtExecutionData(1, "Both", new int[] {
+				0, 5, 3, -2 })));
+		x.put(new ExecutionData(new ExtExecutionData(2, "OnlyX",
+				new int[] { 7 })));
+		final ExecutionDataStore y = new ExecutionDataStore();
+		y.put(new ExecutionData(new ExtExecutionData(1, "Both", new int[] {
+				4, 2, 0, 1 })));
+
+		final ExecutionDataStore union = reload(ExecutionDataSets.union(x, y));
+		assertCounts(union, 1, 4, 7, 3, 1);
+		assertCounts(union, 2, 7);
+
+		final ExecutionDataStore difference = reload(ExecutionDataSets
+				.difference(x, y));
+		assertCounts(difference, 1, 0, 0, 3, 0);
+		assertCounts(difference, 2, 7);
+	}
+
+	@Test
+	public void testPackedProbes() {
+		final boolean[] probes = new boolean[130];
+		probes[0] = probes[64] = probes[129] = true;
+		final ExecutionDataStore packed = new ExecutionDataStore();
+		packed.put(new ExecutionData(new PackedExecutionData(5, "Large",
+				probes)));
+		final boolean[] other = new boolean[130];
+		other[64] = other[128] = true;
+		final ExecutionDataStore boolStore = new ExecutionDataStore();
+		boolStore.put(new ExecutionData(5, "Large", other));
+
+		assertEquals(4, ExecutionDataSets.unionCardinality(packed, boolStore));
+		assertEquals(1,
+				ExecutionDataSets.intersectionCardinality(packed, boolStore));
+		final boolean[] expected = new boolean[130];
+		expected[0] = expected[128] = expected[129] = true;
+		assertTrue(Arrays.equals(expected, ExecutionDataSets
+				.symmetricDifference(packed, boolStore).get(5).getProbes()));
+	}
+
+	@Test
+	public void testEmpty() {
+		final ExecutionDataStore empty = new ExecutionDataStore();
+
+		assertEquals(0, ExecutionDataSets.cardinality(empty));
+		assertEquals(3, ExecutionDataSets.unionCardinality(a, empty));
+		assertEquals(0, ExecutionDataSets.intersection(a, empty).getContents()
+				.size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIncompatibleProbeCount() {
+		b.put(new ExecutionData(2, "OnlyA", new boolean[] { true }));
+
+		ExecutionDataSets.union(a, b);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIncompatibleName() {
+		b.put(new ExecutionData(2, "Other", new boolean[] { true, false }));
+
+		ExecutionDataSets.intersectionCardinality(a, b);
+	}
+
+	private static ExecutionDataStore reload(final ExecutionDataStore store)
+			throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		store.accept(new ExecutionDataWriter(buffer));
+		final ExecutionDataReader reader = new ExecutionDataReader(
+				new ByteArrayInputStream(buffer.toByteArray()));
+		final ExecutionDataStore result = new ExecutionDataStore();
+		reader.setExecutionDataVisitor(result);
+		reader.read();
+		return result;
+	}
+
+	private static void assertCounts(final ExecutionDataStore store,
+			final long id, final int... expected) {
+		assertArrayEquals(expected, (int[]) store.get(id).getRawProbes());
+	}
+
+	private static void assertProbes(final ExecutionDataStore store,
+			final long id, final boolean... expected) {
+		assertTrue(Arrays.equals(expected, store.get(id).getProbes()));
+	}
+
+}
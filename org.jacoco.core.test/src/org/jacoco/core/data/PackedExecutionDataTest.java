@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.jacoco.core.data.ExecutionData.ProbesType;
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link PackedExecutionData}.
+ */
+public class PackedExecutionDataTest {
+
+	@After
+	public void teardown() {
+		ExecutionData.setProbesType(ProbesType.BOOLEAN);
+	}
+
+	@Test
+	public void testCreateEmpty() {
+		final PackedExecutionData e = new PackedExecutionData(5, "Example",
+				130);
+		assertEquals(5, e.getId());
+		assertEquals("Example", e.getName());
+		assertEquals(130, e.getProbeCount());
+		assertEquals(3, e.getWords().length);
+		assertSame(e.getWords(), e.getRawProbes());
+		assertFalse(e.hasHits());
+		assertTrue(Arrays.equals(new boolean[130], e.getProbes()));
+	}
+
+	@Test
+	public void testGetProbes() {
+		final boolean[] probes = createProbes(200);
+		final PackedExecutionData e = new PackedExecutionData(5, "Example",
+				probes);
+		assertTrue(Arrays.equals(probes, e.getProbes()));
+		assertTrue(e.hasHits());
+	}
+
+	@Test
+	public void testReset() {
+		final PackedExecutionData e = new PackedExecutionData(5, "Example",
+				createProbes(100));
+		e.reset();
+		assertFalse(e.hasHits());
+	}
+
+	@Test
+	public void testHasHitsInLastWord() {
+		final boolean[] probes = new boolean[129];
+		probes[128] = true;
+		assertTrue(new PackedExecutionData(5, "Example", probes).hasHits());
+	}
+
+	@Test
+	public void testMerge() {
+		final boolean[] a = createProbes(150);
+		final boolean[] b = createProbes(150);
+		final PackedExecutionData e = new PackedExecutionData(5, "Example", a);
+		e.merge(new PackedExecutionData(5, "Example", b));
+		for (int i = 0; i < a.length; i++) {
+			assertEquals(Boolean.valueOf(a[i] || b[i]),
+					Boolean.valueOf(e.getProbes()[i]));
+		}
+	}
+
+	@Test
+	public void testMergeSubtract() {
+		final boolean[] a = createProbes(150);
+		final boolean[] b = createProbes(150);
+		final PackedExecutionData e = new PackedExecutionData(5, "Example", a);
+		e.merge(new PackedExecutionData(5, "Example", b), false);
+		for (int i = 0; i < a.length; i++) {
+			assertEquals(Boolean.valueOf(a[i] && !b[i]),
+					Boolean.valueOf(e.getProbes()[i]));
+		}
+	}
+
+	@Test
+	public void testMergeBooleanData() {
+		final PackedExecutionData e = new PackedExecutionData(5, "Example",
+				new boolean[] { true, false, false });
+		e.merge(new OrgExecutionData(5, "Example", new boolean[] { false,
+				true, false }));
+		assertTrue(Arrays.equals(new boolean[] { true, true, false },
+				e.getProbes()));
+		e.merge(new OrgExecutionData(5, "Example", new boolean[] { true,
+				false, false }), false);
+		assertTrue(Arrays.equals(new boolean[] { false, true, false },
+				e.getProbes()));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMergeIncompatible() {
+		new PackedExecutionData(5, "Example", 3)
+				.merge(new PackedExecutionData(5, "Example", 4));
+	}
+
+	@Test
+	public void testSerialization() throws IOException {
+		final boolean[] probes = createProbes(77);
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		new PackedExecutionData(5, "Example", probes)
+				.write(new CompactDataOutput(buffer));
+
+		final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		new OrgExecutionData(5, "Example", probes)
+				.write(new CompactDataOutput(expected));
+		assertTrue(Arrays.equals(expected.toByteArray(), buffer.toByteArray()));
+
+		final PackedExecutionData e = PackedExecutionData
+				.read(new CompactDataInput(new ByteArrayInputStream(buffer
+						.toByteArray())));
+		assertEquals(5, e.getId());
+		assertEquals("Example", e.getName());
+		assertTrue(Arrays.equals(probes, e.getProbes()));
+	}
+
+	@Test
+	public void testReadIgnoresPaddingBits() throws IOException {
+		final byte[] bytes = new byte[] { 0, 0, 0, 0, 0, 0, 0, 5, 0, 1, 'X',
+				3, (byte) 0xF8 };
+		final PackedExecutionData e = PackedExecutionData
+				.read(new CompactDataInput(new ByteArrayInputStream(bytes)));
+		assertFalse(e.hasHits());
+	}
+
+	@Test
+	public void testLoadStore() throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ExecutionDataWriter writer = new ExecutionDataWriter(buffer);
+		writer.visitClassExecution(new ExecutionData(5, "Example",
+				new boolean[] { true, false, false }));
+		writer.visitClassExecution(new ExecutionData(5, "Example",
+				new boolean[] { false, false, true }));
+		ExecutionData.setProbesType(ProbesType.PACKED);
+
+		final ExecutionDataStore store = new ExecutionDataStore();
+		final ExecutionDataReader reader = new ExecutionDataReader(
+				new ByteArrayInputStream(buffer.toByteArray()));
+		reader.setExecutionDataVisitor(store);
+		reader.read();
+
+		final ExecutionData data = store.get(5);
+		assertTrue(data.getRawProbes() instanceof long[]);
+		assertTrue(Arrays.equals(new boolean[] { true, false, true },
+				data.getProbes()));
+	}
+
+	private boolean[] createProbes(final int count) {
+		final Random random = new Random(count);
+		final boolean[] probes = new boolean[count];
+		for (int i = 0; i < count; i++) {
+			probes[i] = random.nextBoolean();
+		}
+		return probes;
+	}
+
+}
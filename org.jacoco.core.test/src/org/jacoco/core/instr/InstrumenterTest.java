@@ -11,8 +11,10 @@
  *******************************************************************************/
 package org.jacoco.core.instr;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.ByteArrayInputStream;
@@ -23,6 +25,11 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 import java.util.jar.JarInputStream;
 import java.util.jar.JarOutputStream;
 import java.util.jar.Pack200;
@@ -33,12 +40,25 @@ import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
 import org.jacoco.core.analysis.AnalyzerTest;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionData.ProbesType;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.internal.data.CRC64;
+import org.jacoco.core.internal.instr.MethodSizes;
 import org.jacoco.core.runtime.RuntimeData;
 import org.jacoco.core.runtime.SystemPropertiesRuntime;
 import org.jacoco.core.test.TargetLoader;
+import org.jacoco.core.test.perf.targets.Target01;
+import org.jacoco.core.test.perf.targets.Target04;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 
 /**
  * Unit tests for {@link Instrumenter}.
@@ -67,18 +87,22 @@ public class InstrumenterTest {
 
 	private SystemPropertiesRuntime runtime;
 
+	private RuntimeData data;
+
 	private Instrumenter instrumenter;
 
 	@Before
 	public void setup() throws Exception {
 		runtime = new SystemPropertiesRuntime();
 		instrumenter = new Instrumenter(runtime);
-		runtime.startup(new RuntimeData());
+		data = new RuntimeData();
+		runtime.startup(data);
 	}
 
 	@After
 	public void teardown() {
 		runtime.shutdown();
+		ExecutionData.setProbesType(ProbesType.BOOLEAN);
 	}
 
 	@Test
@@ -272,4 +296,243 @@ public class InstrumenterTest {
 		assertNull(zipin.getNextEntry());
 	}
 
+	@Test
+	public void testInstrumentAll_Threads() throws IOException {
+		ByteArrayOutputStream nested = new ByteArrayOutputStream();
+		ZipOutputStream nestedout = new ZipOutputStream(nested);
+		nestedout.putNextEntry(new ZipEntry("Nested.class"));
+		nestedout.write(TargetLoader.getClassDataAsBytes(Target04.class));
+		nestedout.finish();
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		ZipOutputStream zipout = new ZipOutputStream(buffer);
+		zipout.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+		zipout.write("Manifest-Version: 1.0\r\n\r\n".getBytes());
+		zipout.putNextEntry(new ZipEntry("META-INF/ALIAS.SF"));
+		for (int i = 0; i < 50; i++) {
+			zipout.putNextEntry(new ZipEntry("Test" + i + ".class"));
+			zipout.write(TargetLoader.getClassDataAsBytes(getClass()));
+			zipout.putNextEntry(new ZipEntry("resource" + i + ".txt"));
+			zipout.write(("text" + i).getBytes());
+		}
+		zipout.putNextEntry(new ZipEntry("nested.jar"));
+		zipout.write(nested.toByteArray());
+		zipout.finish();
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		int expectedCount = instrumenter.instrumentAll(
+				new ByteArrayInputStream(buffer.toByteArray()), expected,
+				"Test");
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		instrumenter.setThreads(4);
+		int count = instrumenter.instrumentAll(
+				new ByteArrayInputStream(buffer.toByteArray()), actual, "Test");
+
+		assertEquals(51, expectedCount);
+		assertEquals(51, count);
+		final List<String> expectedEntries = readEntries(expected);
+		final List<String> actualEntries = readEntries(actual);
+		assertEquals(expectedEntries, actualEntries);
+		assertEquals(102, actualEntries.size());
+		assertTrue(actualEntries.get(0).startsWith("META-INF/MANIFEST.MF:"));
+		assertTrue(actualEntries.get(1).startsWith("Test0.class:"));
+		assertTrue(actualEntries.get(2).startsWith("resource0.txt:"));
+		assertTrue(actualEntries.get(101).startsWith("nested.jar:"));
+	}
+
+	/**
+	 * Entry names with their contents as the timestamps of the entries differ
+	 * between two runs.
+	 */
+	private static List<String> readEntries(final ByteArrayOutputStream zip)
+			throws IOException {
+		final List<String> entries = new ArrayList<String>();
+		final ZipInputStream zipin = new ZipInputStream(
+				new ByteArrayInputStream(zip.toByteArray()));
+		ZipEntry entry;
+		while ((entry = zipin.getNextEntry()) != null) {
+			final ByteArrayOutputStream content = new ByteArrayOutputStream();
+			final byte[] buffer = new byte[1024];
+			int len;
+			while ((len = zipin.read(buffer)) != -1) {
+				content.write(buffer, 0, len);
+			}
+			final byte[] bytes = content.toByteArray();
+			entries.add(entry.getName()
+					+ ":"
+					+ (entry.getName().endsWith(".jar") ? readEntries(content)
+							: Arrays.toString(bytes)));
+		}
+		return entries;
+	}
+
+	@Test
+	public void testInstrumentAll_ThreadsBrokenClassFileInZip()
+			throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		ZipOutputStream zipout = new ZipOutputStream(buffer);
+		zipout.putNextEntry(new ZipEntry("Test.class"));
+		final byte[] brokenclass = TargetLoader.getClassDataAsBytes(getClass());
+		brokenclass[10] = 0x23;
+		zipout.write(brokenclass);
+		zipout.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		instrumenter.setThreads(2);
+		try {
+			instrumenter.instrumentAll(
+					new ByteArrayInputStream(buffer.toByteArray()), out,
+					"test.zip");
+			fail();
+		} catch (IOException e) {
+			assertEquals(
+					"Error while instrumenting class test.zip@Test.class.",
+					e.getMessage());
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetThreadsInvalid() {
+		instrumenter.setThreads(0);
+	}
+
+	@Test
+	public void testInliningVisitor() throws Exception {
+		final List<String> methods = recordInlining();
+
+		instrumenter.instrument(TargetLoader.getClassData(Target01.class),
+				"Target01");
+
+		assertEquals(Arrays.asList("call()Ljava/lang/Void;", "m1()V", "m2()V",
+				"m3()V", "m4()V", "m5()V", "m6()V", "m7()V", "m8()V", "m9()V",
+				"m10()V"), methods);
+	}
+
+	@Test
+	public void testCompactProbes() throws Exception {
+		final List<String> methods = recordInlining();
+		instrumenter.instrument(TargetLoader.getClassData(Target04.class),
+				"Target04");
+		assertEquals(
+				Arrays.asList("call()Ljava/lang/Void;", "combine(I)I"),
+				methods);
+		methods.clear();
+
+		instrumenter.setCompactProbes(true);
+		execute(Target04.class);
+
+		// the loop requires too many probes for call() to stay small enough
+		assertEquals(Arrays.asList("call()Ljava/lang/Void;"), methods);
+		final boolean[] probes = getData(Target04.class).getProbes();
+		for (int i = 0; i < probes.length; i++) {
+			assertTrue(probes[i]);
+		}
+	}
+
+	@Test
+	public void testCompactProbesInteger() throws Exception {
+		ExecutionData.setProbesType(ProbesType.INTEGER);
+		execute(Target01.class);
+		final int[] expected = ((int[]) getData(Target01.class)
+				.getRawProbes()).clone();
+		data.reset();
+
+		instrumenter.setCompactProbes(true);
+		execute(Target01.class);
+
+		assertArrayEquals(expected,
+				(int[]) getData(Target01.class).getRawProbes());
+	}
+
+	@Test
+	public void testRemoveProbes() throws Exception {
+		final byte[] original = TargetLoader.getClassDataAsBytes(Target01.class);
+		final byte[] instrumented = instrumenter.instrument(original,
+				"Target01");
+
+		final byte[] removed = instrumenter.removeProbes(original,
+				"Target01");
+
+		// same members as the instrumented class:
+		final List<String> expected = getMembers(instrumented);
+		assertEquals(expected, getMembers(removed));
+		// but original code:
+		final Map<String, Integer> sizes = MethodSizes.read(new ClassReader(
+				removed));
+		for (final Map.Entry<String, Integer> e : MethodSizes.read(
+				new ClassReader(original)).entrySet()) {
+			assertEquals(e.getValue(), sizes.get(e.getKey()));
+		}
+		final TargetLoader loader = new TargetLoader();
+		((Callable<?>) loader.add(Target01.class, removed).newInstance())
+				.call();
+		assertNull(getData(Target01.class));
+	}
+
+	@Test
+	public void testRetransformable() throws Exception {
+		instrumenter.setRetransformable(true);
+		instrumenter.setCompactProbes(true);
+		final byte[] original = TargetLoader.getClassDataAsBytes(Target01.class);
+		final byte[] instrumented = instrumenter.instrument(original,
+				"Target01");
+
+		assertEquals(getMembers(original), getMembers(instrumented));
+		execute(Target01.class);
+		final boolean[] probes = getData(Target01.class).getProbes();
+		for (int i = 0; i < probes.length; i++) {
+			assertTrue(probes[i]);
+		}
+	}
+
+	private static List<String> getMembers(final byte[] bytes) {
+		final List<String> members = new ArrayList<String>();
+		new ClassReader(bytes).accept(new ClassVisitor(Opcodes.ASM5) {
+			@Override
+			public FieldVisitor visitField(int access, String name,
+					String desc, String signature, Object value) {
+				members.add(name + desc);
+				return null;
+			}
+
+			@Override
+			public MethodVisitor visitMethod(int access, String name,
+					String desc, String signature, String[] exceptions) {
+				members.add(name + desc);
+				return null;
+			}
+		}, 0);
+		return members;
+	}
+
+	private List<String> recordInlining() {
+		final List<String> methods = new ArrayList<String>();
+		instrumenter.setInliningVisitor(new IInliningVisitor() {
+			public void visitThresholdExceeded(final String className,
+					final String methodName, final String methodDesc,
+					final int originalSize, final int instrumentedSize,
+					final int threshold) {
+				assertEquals(MAX_INLINE_SIZE, threshold);
+				assertTrue(originalSize <= threshold);
+				assertTrue(instrumentedSize > threshold);
+				methods.add(methodName + methodDesc);
+			}
+		});
+		return methods;
+	}
+
+	private void execute(final Class<?> target) throws Exception {
+		final byte[] bytes = instrumenter.instrument(
+				TargetLoader.getClassData(target), target.getName());
+		final TargetLoader loader = new TargetLoader();
+		((Callable<?>) loader.add(target, bytes).newInstance()).call();
+	}
+
+	private ExecutionData getData(final Class<?> target) throws IOException {
+		final ExecutionDataStore store = new ExecutionDataStore();
+		data.collect(store, new SessionInfoStore(), false);
+		return store.get(CRC64.checksum(TargetLoader
+				.getClassDataAsBytes(target)));
+	}
+
 }
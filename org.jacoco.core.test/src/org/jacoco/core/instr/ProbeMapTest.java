@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.instr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.analysis.ILine;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.runtime.SystemPropertiesRuntime;
+import org.jacoco.core.test.TargetLoader;
+import org.jacoco.core.test.validation.targets.Target01;
+import org.jacoco.core.test.validation.targets.Target02;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link ProbeMap} created by the {@link Instrumenter}.
+ */
+public class ProbeMapTest implements IProbeMapVisitor {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Instrumenter instrumenter;
+
+	private List<ProbeMap> maps;
+
+	@Before
+	public void setup() {
+		instrumenter = new Instrumenter(new SystemPropertiesRuntime());
+		instrumenter.setProbeMapVisitor(this);
+		maps = new ArrayList<ProbeMap>();
+	}
+
+	public void visitProbeMap(final ProbeMap map) {
+		maps.add(map);
+	}
+
+	@Test
+	public void testNoVisitor() throws IOException {
+		instrumenter.setProbeMapVisitor(null);
+
+		instrumenter.instrument(TargetLoader.getClassDataAsBytes(Target01.class),
+				"Target01");
+
+		assertEquals(0, maps.size());
+	}
+
+	@Test
+	public void testMethodsAndLines() throws IOException {
+		final ProbeMap map = instrument(Target02.class);
+
+		assertEquals("org/jacoco/core/test/validation/targets/Target02",
+				map.getName());
+		assertTrue(map.getProbeCount() > 0);
+		for (int p = 0; p < map.getProbeCount(); p++) {
+			final int method = map.getMethod(p);
+			assertTrue(method >= 0 && method < map.getMethodCount());
+			assertTrue(map.getLine(p) > 0);
+			final int[] lines = map.getCoveredLines(p);
+			assertTrue(Arrays.binarySearch(lines, map.getLine(p)) >= 0);
+		}
+	}
+
+	@Test
+	public void testBranches() throws IOException {
+		final ProbeMap map = instrument(Target01.class);
+
+		int maxBranch = 0;
+		for (int p = 0; p < map.getProbeCount(); p++) {
+			maxBranch = Math.max(maxBranch, map.getBranch(p));
+		}
+		// Target01 contains switch statements
+		assertTrue(maxBranch >= 2);
+	}
+
+	@Test
+	public void testCoveredLinesSameAsAnalysis() throws IOException {
+		final Random random = new Random(5);
+		for (final Class<?> target : new Class<?>[] { Target01.class,
+				Target02.class }) {
+			final ProbeMap map = instrument(target);
+			for (int run = 0; run < 20; run++) {
+				final boolean[] probes = new boolean[map.getProbeCount()];
+				for (int p = 0; p < probes.length; p++) {
+					probes[p] = random.nextInt(4) == 0;
+				}
+				assertTrue(Arrays.equals(analyze(target, map, probes),
+						map.getCoveredLines(probes)));
+			}
+		}
+	}
+
+	@Test
+	public void testReadWrite() throws IOException {
+		final ProbeMap map = instrument(Target01.class);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		map.write(out);
+
+		final ProbeMap copy = ProbeMap.read(new ByteArrayInputStream(out
+				.toByteArray()));
+
+		assertEquals(map.getId(), copy.getId());
+		assertEquals(map.getName(), copy.getName());
+		assertEquals(map.getMethodCount(), copy.getMethodCount());
+		for (int m = 0; m < map.getMethodCount(); m++) {
+			assertEquals(map.getMethodName(m), copy.getMethodName(m));
+			assertEquals(map.getMethodDesc(m), copy.getMethodDesc(m));
+		}
+		assertEquals(map.getProbeCount(), copy.getProbeCount());
+		for (int p = 0; p < map.getProbeCount(); p++) {
+			assertEquals(map.getMethod(p), copy.getMethod(p));
+			assertEquals(map.getLine(p), copy.getLine(p));
+			assertEquals(map.getBranch(p), copy.getBranch(p));
+			assertTrue(Arrays.equals(map.getCoveredLines(p),
+					copy.getCoveredLines(p)));
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testReadInvalid() throws IOException {
+		ProbeMap.read(new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 }));
+	}
+
+	@Test
+	public void testUnknownProbes() {
+		final ProbeMap map = new ProbeMap(1, "Foo", new String[0],
+				new String[0], new int[] { ProbeMap.UNKNOWN }, new int[] {
+						ProbeMap.UNKNOWN }, new int[] { 0 }, new int[1][]);
+
+		assertEquals(0, map.getCoveredLines(0).length);
+		assertEquals(0, map.getCoveredLines(new boolean[] { true }).length);
+	}
+
+	@Test
+	public void testProbeMapWriter() throws IOException {
+		final ProbeMapWriter writer = new ProbeMapWriter(folder.getRoot());
+		instrumenter.setProbeMapVisitor(writer);
+
+		instrumenter.instrument(TargetLoader.getClassDataAsBytes(Target01.class),
+				"Target01");
+
+		final File[] files = new File(folder.getRoot(),
+				"org/jacoco/core/test/validation/targets").listFiles();
+		assertEquals(1, files.length);
+		assertTrue(files[0].getName().startsWith("Target01."));
+		assertTrue(files[0].getName().endsWith(ProbeMapWriter.SUFFIX));
+		final InputStream in = new FileInputStream(files[0]);
+		final ProbeMap map = ProbeMap.read(in);
+		in.close();
+		assertEquals(writer.getFile(map.getId(), map.getName()), files[0]);
+	}
+
+	private ProbeMap instrument(final Class<?> target) throws IOException {
+		instrumenter.instrument(TargetLoader.getClassDataAsBytes(target),
+				target.getName());
+		assertEquals(1, maps.size());
+		return maps.remove(0);
+	}
+
+	private int[] analyze(final Class<?> target, final ProbeMap map,
+			final boolean[] probes) throws IOException {
+		final ExecutionDataStore store = new ExecutionDataStore();
+		store.put(new ExecutionData(map.getId(), map.getName(), probes));
+		final List<Integer> lines = new ArrayList<Integer>();
+		final Analyzer analyzer = new Analyzer(store, new ICoverageVisitor() {
+			public void visitCoverage(final IClassCoverage coverage) {
+				for (int nr = coverage.getFirstLine(); nr <= coverage
+						.getLastLine(); nr++) {
+					final ILine line = coverage.getLine(nr);
+					if (line.getInstructionCounter().getCoveredCount() > 0) {
+						lines.add(Integer.valueOf(nr));
+					}
+				}
+			}
+		});
+		analyzer.analyzeClass(TargetLoader.getClassDataAsBytes(target),
+				target.getName());
+		final int[] result = new int[lines.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = lines.get(i).intValue();
+		}
+		return result;
+	}
+
+}
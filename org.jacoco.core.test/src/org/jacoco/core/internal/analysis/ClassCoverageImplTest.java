@@ -16,6 +16,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
 import java.util.Collections;
 
 import org.jacoco.core.analysis.ICoverageNode;
@@ -112,6 +113,34 @@ public class ClassCoverageImplTest {
 		assertEquals(CounterImpl.COUNTER_0_1, node.getClassCounter());
 	}
 
+	@Test
+	public void testAddMethods() {
+		final MethodCoverageImpl m1 = createMethod(false);
+		m1.increment(CounterImpl.COUNTER_1_0, CounterImpl.COUNTER_0_0, 7);
+		final MethodCoverageImpl m2 = createMethod(true);
+		m2.increment(CounterImpl.COUNTER_0_1, CounterImpl.COUNTER_0_0, 3);
+		final MethodCoverageImpl m3 = createMethod(false);
+
+		node.addMethods(Arrays.asList(m1, m2, m3));
+
+		assertEquals(Arrays.asList(m1, m2, m3), node.getMethods());
+		assertEquals(CounterImpl.getInstance(3, 2),
+				node.getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(2, 1), node.getMethodCounter());
+		assertEquals(CounterImpl.COUNTER_0_1, node.getClassCounter());
+		assertEquals(3, node.getFirstLine());
+		assertEquals(7, node.getLastLine());
+		assertEquals(CounterImpl.getInstance(1, 1), node.getLineCounter());
+	}
+
+	@Test
+	public void testAddMethodsWithoutLines() {
+		node.addMethods(Arrays.asList(createMethod(false)));
+
+		assertEquals(ISourceNode.UNKNOWN_LINE, node.getFirstLine());
+		assertEquals(CounterImpl.COUNTER_1_0, node.getMethodCounter());
+	}
+
 	private MethodCoverageImpl createMethod(boolean covered) {
 		final MethodCoverageImpl m = new MethodCoverageImpl("sample", "()V",
 				null);
@@ -13,6 +13,7 @@ package org.jacoco.core.internal.analysis;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 
 import org.jacoco.core.analysis.ICounter;
 import org.junit.Before;
@@ -85,6 +86,21 @@ public class LineImplTest {
 				line.getBranchCounter());
 	}
 
+	@Test
+	public void testGetInstance1() {
+		assertSame(LineImpl.EMPTY, LineImpl.getInstance(0, 0, 0, 0));
+		assertSame(LineImpl.getInstance(8, 8, 4, 4),
+				LineImpl.getInstance(8, 8, 4, 4));
+	}
+
+	@Test
+	public void testGetInstance2() {
+		line = LineImpl.getInstance(1, 2000, 3, 4);
+		assertEquals(CounterImpl.getInstance(1, 2000),
+				line.getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(3, 4), line.getBranchCounter());
+	}
+
 	@Test
 	public void testGetStatus1() {
 		line = line.increment(CounterImpl.getInstance(1, 0),
@@ -578,6 +578,63 @@ public class MethodAnalyzerTest implements IProbeIdGenerator {
 		assertLine(1004, 0, 1, 0, 0);
 	}
 
+	// === Scenario: synchronized block filtered by the analyzer ===
+
+	private void createSynchronizedBlock() {
+		final Label start = new Label();
+		final Label end = new Label();
+		final Label handler = new Label();
+		final Label handlerEnd = new Label();
+		final Label exit = new Label();
+		method.visitTryCatchBlock(start, end, handler, null);
+		method.visitTryCatchBlock(handler, handlerEnd, handler, null);
+		final Label l0 = new Label();
+		method.visitLabel(l0);
+		method.visitLineNumber(1001, l0);
+		method.visitVarInsn(Opcodes.ALOAD, 0);
+		method.visitInsn(Opcodes.DUP);
+		method.visitVarInsn(Opcodes.ASTORE, 1);
+		method.visitInsn(Opcodes.MONITORENTER);
+		method.visitLabel(start);
+		method.visitLineNumber(1002, start);
+		method.visitInsn(Opcodes.NOP);
+		method.visitVarInsn(Opcodes.ALOAD, 1);
+		method.visitInsn(Opcodes.MONITOREXIT);
+		method.visitLabel(end);
+		method.visitJumpInsn(Opcodes.GOTO, exit);
+		method.visitLabel(handler);
+		method.visitLineNumber(1003, handler);
+		method.visitVarInsn(Opcodes.ASTORE, 2);
+		method.visitVarInsn(Opcodes.ALOAD, 1);
+		method.visitInsn(Opcodes.MONITOREXIT);
+		method.visitLabel(handlerEnd);
+		method.visitVarInsn(Opcodes.ALOAD, 2);
+		method.visitInsn(Opcodes.ATHROW);
+		method.visitLabel(exit);
+		method.visitLineNumber(1004, exit);
+		method.visitInsn(Opcodes.RETURN);
+	}
+
+	@Test
+	public void testSynchronizedBlockFiltered() {
+		createSynchronizedBlock();
+		for (int i = 0; i < probes.length; i++) {
+			probes[i] = true;
+		}
+		LabelFlowAnalyzer.markLabels(method);
+		final MethodAnalyzer analyzer = new MethodAnalyzer("Foo",
+				"java/lang/Object", "doit", "()V", null, probes);
+		analyzer.accept(method, new MethodProbesAdapter(analyzer, this));
+		result = analyzer.getCoverage();
+
+		assertEquals(CounterImpl.getInstance(0, 9),
+				result.getInstructionCounter());
+		assertLine(1001, 0, 4, 0, 0);
+		assertLine(1002, 0, 4, 0, 0);
+		assertLine(1003, 0, 0, 0, 0);
+		assertLine(1004, 0, 1, 0, 0);
+	}
+
 	private void runMethodAnalzer() {
 		LabelFlowAnalyzer.markLabels(method);
 		final MethodAnalyzer analyzer = new MethodAnalyzer("Foo",
@@ -99,4 +99,29 @@ public class PackageCoverageTest {
 		assertEquals(CounterImpl.getInstance(0, 0), data.getLineCounter());
 	}
 
+	@Test
+	public void testCountersWithoutSourceFileNodes() {
+		// Classes with source reference are considered if source files are
+		// omitted:
+		final ClassCoverageImpl classnode = new ClassCoverageImpl(
+				"org/jacoco/test/Sample", 0, false) {
+			{
+				classCounter = CounterImpl.getInstance(1, 0);
+				methodCounter = CounterImpl.getInstance(2, 0);
+				branchCounter = CounterImpl.getInstance(3, 0);
+				instructionCounter = CounterImpl.getInstance(4, 0);
+			}
+		};
+		classnode.setSourceFileName("Sample.java");
+		final Collection<ISourceFileCoverage> sourceFiles = Collections
+				.emptySet();
+		PackageCoverageImpl data = new PackageCoverageImpl("org/jacoco/test",
+				Collections.singleton((IClassCoverage) classnode), sourceFiles);
+		assertEquals(CounterImpl.getInstance(1, 0), data.getClassCounter());
+		assertEquals(CounterImpl.getInstance(2, 0), data.getMethodCounter());
+		assertEquals(CounterImpl.getInstance(3, 0), data.getBranchCounter());
+		assertEquals(CounterImpl.getInstance(4, 0),
+				data.getInstructionCounter());
+	}
+
 }
@@ -213,4 +213,53 @@ public class SourceNodeImplTest {
 		assertEquals(CounterImpl.getInstance(0, 1), node.getLineCounter());
 	}
 
+	@Test
+	public void testIncrementLinesWithLargeCounters() {
+		final SourceNodeImpl node = new SourceNodeImpl(ElementType.CLASS, "Foo");
+		node.increment(CounterImpl.getInstance(1, 2),
+				CounterImpl.getInstance(3, 4), 10);
+		node.increment(CounterImpl.getInstance(0, 16),
+				CounterImpl.COUNTER_0_0, 11);
+		assertEquals(CounterImpl.getInstance(1, 2), node.getLine(10)
+				.getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(3, 4), node.getLine(10)
+				.getBranchCounter());
+		assertEquals(CounterImpl.getInstance(0, 16), node.getLine(11)
+				.getInstructionCounter());
+
+		node.increment(CounterImpl.COUNTER_0_0,
+				CounterImpl.getInstance(100000, 256), 9);
+		assertEquals(CounterImpl.getInstance(100000, 256), node.getLine(9)
+				.getBranchCounter());
+		assertEquals(CounterImpl.getInstance(1, 2), node.getLine(10)
+				.getInstructionCounter());
+		assertEquals(CounterImpl.getInstance(3, 4), node.getLine(10)
+				.getBranchCounter());
+		assertEquals(CounterImpl.getInstance(0, 16), node.getLine(11)
+				.getInstructionCounter());
+		assertEquals(9, node.getFirstLine());
+		assertEquals(11, node.getLastLine());
+		assertEquals(CounterImpl.getInstance(0, 2), node.getLineCounter());
+	}
+
+	@Test
+	public void testEnsureCapacityKeepsLines() {
+		final SourceNodeImpl node = new SourceNodeImpl(ElementType.CLASS, "Foo");
+		for (int i = 20; i < 30; i++) {
+			node.increment(CounterImpl.getInstance(i, 1),
+					CounterImpl.getInstance(1, i % 3), i);
+		}
+		node.ensureCapacity(5, 50);
+		assertEquals(5, node.getFirstLine());
+		assertEquals(50, node.getLastLine());
+		for (int i = 20; i < 30; i++) {
+			assertEquals(CounterImpl.getInstance(i, 1), node.getLine(i)
+					.getInstructionCounter());
+			assertEquals(CounterImpl.getInstance(1, i % 3), node.getLine(i)
+					.getBranchCounter());
+		}
+		assertEquals(LineImpl.EMPTY, node.getLine(19));
+		assertEquals(LineImpl.EMPTY, node.getLine(30));
+	}
+
 }
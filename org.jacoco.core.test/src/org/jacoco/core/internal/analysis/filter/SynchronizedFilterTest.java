@@ -12,7 +12,9 @@
 package org.jacoco.core.internal.analysis.filter;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.jacoco.core.internal.instr.InstrSupport;
 import org.junit.Test;
@@ -63,6 +65,7 @@ public class SynchronizedFilterTest implements IFilterOutput {
 		m.visitLabel(exit);
 		m.visitInsn(Opcodes.RETURN);
 
+		assertTrue(filter.isApplicable("Foo", "java/lang/Object", m));
 		filter.filter("Foo", "java/lang/Object", m, this);
 		assertEquals(handler.info, fromInclusive);
 		assertEquals(((LabelNode) exit.info).getPrevious(), toInclusive);
@@ -156,6 +159,24 @@ public class SynchronizedFilterTest implements IFilterOutput {
 		assertEquals(((LabelNode) exit.info).getPrevious(), toInclusive);
 	}
 
+	@Test
+	public void testNotApplicable() {
+		final Label start = new Label();
+		final Label end = new Label();
+		final Label handler = new Label();
+		m.visitTryCatchBlock(start, end, handler, "java/lang/Exception");
+		m.visitLabel(start);
+		m.visitInsn(Opcodes.NOP);
+		m.visitLabel(end);
+		m.visitInsn(Opcodes.RETURN);
+		m.visitLabel(handler);
+		m.visitInsn(Opcodes.ATHROW);
+
+		assertFalse(filter.isApplicable("Foo", "java/lang/Object", m));
+		filter.filter("Foo", "java/lang/Object", m, this);
+		assertNull(fromInclusive);
+	}
+
 	public void ignore(AbstractInsnNode fromInclusive,
 			AbstractInsnNode toInclusive) {
 		assertNull(this.fromInclusive);
@@ -0,0 +1,222 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.internal.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CompactDataInput} and {@link CompactDataOutput} backed
+ * by a {@link ByteBuffer}. Results must be identical to the stream based
+ * encoding.
+ */
+public class CompactDataByteBufferTest {
+
+	private static final int[] INTS = new int[] { 0, 1, 0x7F, 0x80, 0x3FFF,
+			0x4000, 0x12345678, -1, Integer.MIN_VALUE, Integer.MAX_VALUE };
+
+	private static final boolean[] BOOLEANS = new boolean[] { true, false,
+			false, true, true, false, true, false, true, true, false };
+
+	@Test
+	public void testHeapBuffer() throws IOException {
+		testSymmetry(ByteBuffer.allocate(256));
+	}
+
+	@Test
+	public void testDirectBuffer() throws IOException {
+		testSymmetry(ByteBuffer.allocateDirect(256));
+	}
+
+	@Test
+	public void testHeapBufferGrowth() throws IOException {
+		final ByteBuffer initial = ByteBuffer.allocate(1);
+		final CompactDataOutput out = new CompactDataOutput(initial);
+		writeSample(out);
+		assertNotSame(initial, out.getBuffer());
+		assertArrayEquals(createStreamSample(), toBytes(out.getBuffer()));
+	}
+
+	@Test
+	public void testDirectBufferExactCapacity() throws IOException {
+		final byte[] expected = createStreamSample();
+		final CompactDataOutput out = new CompactDataOutput(
+				ByteBuffer.allocateDirect(expected.length));
+		writeSample(out);
+		assertArrayEquals(expected, toBytes(out.getBuffer()));
+	}
+
+	@Test(expected = IOException.class)
+	public void testDirectBufferOverflow() throws IOException {
+		final CompactDataOutput out = new CompactDataOutput(
+				ByteBuffer.allocateDirect(4));
+		out.writeIntArray(INTS);
+	}
+
+	@Test
+	public void testStreamOutputHasNoBuffer() {
+		assertNull(new CompactDataOutput(new ByteArrayOutputStream())
+				.getBuffer());
+	}
+
+	@Test
+	public void testReadStreamEncoding() throws IOException {
+		final byte[] bytes = createStreamSample();
+		readSample(new CompactDataInput(ByteBuffer.wrap(bytes)));
+		final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes).flip();
+		readSample(new CompactDataInput(direct));
+		assertEquals(0, direct.remaining());
+	}
+
+	@Test
+	public void testReadBufferEncodingFromStream() throws IOException {
+		final CompactDataOutput out = new CompactDataOutput(
+				ByteBuffer.allocateDirect(256));
+		writeSample(out);
+		readSample(new CompactDataInput(new ByteArrayInputStream(
+				toBytes(out.getBuffer()))));
+	}
+
+	@Test
+	public void testReadFromBufferOffset() throws IOException {
+		final byte[] sample = createStreamSample();
+		final byte[] bytes = new byte[sample.length + 3];
+		System.arraycopy(sample, 0, bytes, 3, sample.length);
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		buffer.position(3);
+		readSample(new CompactDataInput(buffer.slice()));
+	}
+
+	@Test
+	public void testReadOnlyBuffer() throws IOException {
+		readSample(new CompactDataInput(ByteBuffer.wrap(createStreamSample())
+				.asReadOnlyBuffer()));
+	}
+
+	@Test(expected = EOFException.class)
+	public void testVarIntEOF() throws IOException {
+		new CompactDataInput(ByteBuffer.wrap(new byte[] { (byte) 0x80 }))
+				.readVarInt();
+	}
+
+	@Test(expected = EOFException.class)
+	public void testBooleanArrayEOF() throws IOException {
+		new CompactDataInput(ByteBuffer.wrap(new byte[] { 9, 0 }))
+				.readBooleanArray();
+	}
+
+	@Test(expected = EOFException.class)
+	public void testIntArrayEOF() throws IOException {
+		new CompactDataInput(ByteBuffer.wrap(new byte[] { 3, 1, 2 }))
+				.readIntArray();
+	}
+
+	@Test
+	public void testPackedBooleanArray() throws IOException {
+		final long[] words = new long[] { 0x8000000000000001L, 0x5L };
+		final CompactDataOutput out = new CompactDataOutput(
+				ByteBuffer.allocate(1));
+		out.writePackedBooleanArray(words, 67);
+		final ByteBuffer heap = out.getBuffer();
+		heap.flip();
+		final ByteBuffer direct = ByteBuffer.allocateDirect(heap.remaining());
+		direct.put(heap.duplicate()).flip();
+		for (final ByteBuffer buffer : new ByteBuffer[] { heap, direct }) {
+			final CompactDataInput in = new CompactDataInput(buffer);
+			assertEquals(67, in.readVarInt());
+			final long[] actual = new long[2];
+			in.mergePackedBooleanArray(actual, 67);
+			assertArrayEquals(words, actual);
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	public void testMixedReads() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final CompactDataOutput out = new CompactDataOutput(bytes);
+		out.writeUTF("abc");
+		out.writeVarInt(300);
+		out.writeLong(42);
+		out.close();
+		final CompactDataInput in = new CompactDataInput(
+				ByteBuffer.wrap(bytes.toByteArray()));
+		assertEquals("abc", in.readUTF());
+		assertEquals(300, in.readVarInt());
+		assertEquals(42, in.readLong());
+		assertEquals(-1, in.read());
+	}
+
+	private void testSymmetry(final ByteBuffer buffer) throws IOException {
+		final CompactDataOutput out = new CompactDataOutput(buffer);
+		writeSample(out);
+		assertSame(buffer, out.getBuffer());
+		assertArrayEquals(createStreamSample(), toBytes(buffer));
+		buffer.flip();
+		readSample(new CompactDataInput(buffer));
+		assertTrue(!buffer.hasRemaining());
+	}
+
+	private static byte[] createStreamSample() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final CompactDataOutput out = new CompactDataOutput(bytes);
+		writeSample(out);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static void writeSample(final CompactDataOutput out)
+			throws IOException {
+		for (final int i : INTS) {
+			out.writeVarInt(i);
+		}
+		out.writeBooleanArray(BOOLEANS);
+		out.writeBooleanArray(new boolean[0]);
+		out.writeIntArray(INTS);
+		out.writeByte(0x55);
+	}
+
+	private static void readSample(final CompactDataInput in)
+			throws IOException {
+		for (final int i : INTS) {
+			assertEquals(i, in.readVarInt());
+		}
+		assertTrue(Arrays.equals(BOOLEANS, in.readBooleanArray()));
+		assertEquals(0, in.readBooleanArray().length);
+		assertArrayEquals(INTS, in.readIntArray());
+		assertEquals(0x55, in.readByte());
+		assertEquals(-1, in.read());
+	}
+
+	private static byte[] toBytes(final ByteBuffer buffer) {
+		final ByteBuffer copy = buffer.duplicate();
+		copy.flip();
+		final byte[] bytes = new byte[copy.remaining()];
+		copy.get(bytes);
+		return bytes;
+	}
+
+}
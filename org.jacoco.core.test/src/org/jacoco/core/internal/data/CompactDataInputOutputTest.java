@@ -12,10 +12,13 @@
 package org.jacoco.core.internal.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.util.Arrays;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -105,6 +108,46 @@ public class CompactDataInputOutputTest {
 				true);
 	}
 
+	@Test
+	public void testMergeBooleanArray() throws IOException {
+		out.writeBooleanArray(new boolean[] { false, true, false, false, false,
+				false, false, false, true });
+		out.close();
+		final boolean[] value = new boolean[] { true, false, false, false,
+				false, false, false, false, false };
+		assertEquals(9, in.readVarInt());
+		in.mergeBooleanArray(value);
+		assertTrue(Arrays.equals(new boolean[] { true, true, false, false,
+				false, false, false, false, true }, value));
+		assertEquals(-1, in.read());
+	}
+
+	@Test
+	public void testMergeIntArray() throws IOException {
+		out.writeIntArray(new int[] { 0, 5, -3, 1000 });
+		out.close();
+		final int[] value = new int[] { 1, 2, 3, 4 };
+		assertEquals(4, in.readVarInt());
+		in.mergeIntArray(value);
+		assertTrue(Arrays.equals(new int[] { 1, 7, 3, 1004 }, value));
+		assertEquals(-1, in.read());
+	}
+
+	@Test
+	public void testReadPooledUTF() throws IOException {
+		out.writeUTF("org/example/Foo");
+		out.writeUTF("org/example/Bar");
+		out.writeUTF("org/example/Foo");
+		out.close();
+		final String s1 = in.readPooledUTF();
+		final String s2 = in.readPooledUTF();
+		final String s3 = in.readPooledUTF();
+		assertEquals("org/example/Foo", s1);
+		assertEquals("org/example/Bar", s2);
+		assertSame(s1, s3);
+		assertEquals(-1, in.read());
+	}
+
 	private void testPackedBoolean(boolean... values) throws IOException {
 		out.writeBooleanArray(values);
 		out.close();
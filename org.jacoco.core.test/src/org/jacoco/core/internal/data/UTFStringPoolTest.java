@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UTFDataFormatException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link UTFStringPool}.
+ */
+public class UTFStringPoolTest {
+
+	private UTFStringPool pool;
+
+	@Before
+	public void setup() {
+		pool = new UTFStringPool();
+	}
+
+	@Test
+	public void testGetSameInstance() throws IOException {
+		final String s1 = get("org/example/Foo");
+		final String s2 = get("org/example/Foo");
+		assertEquals("org/example/Foo", s1);
+		assertSame(s1, s2);
+	}
+
+	@Test
+	public void testGetDifferentStrings() throws IOException {
+		final String s1 = get("Foo");
+		final String s2 = get("Bar");
+		assertEquals("Foo", s1);
+		assertEquals("Bar", s2);
+		assertNotSame(s1, s2);
+	}
+
+	@Test
+	public void testEmptyString() throws IOException {
+		assertSame(get(""), get(""));
+	}
+
+	@Test
+	public void testNonAsciiString() throws IOException {
+		final String s = "ä€\u0000𝄞";
+		assertEquals(s, get(s));
+		assertSame(get(s), get(s));
+	}
+
+	@Test
+	public void testManyStrings() throws IOException {
+		final String[] first = new String[2000];
+		for (int i = 0; i < first.length; i++) {
+			first[i] = get("Class" + i);
+		}
+		for (int i = 0; i < first.length; i++) {
+			assertSame(first[i], get("Class" + i));
+		}
+	}
+
+	@Test(expected = UTFDataFormatException.class)
+	public void testMalformed() throws IOException {
+		pool.get(new byte[] { 0, 1, (byte) 0x80 }, 3);
+	}
+
+	private String get(final String s) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		new DataOutputStream(buffer).writeUTF(s);
+		final byte[] bytes = buffer.toByteArray();
+		// use a larger array to verify the length parameter is respected:
+		final byte[] padded = new byte[bytes.length + 5];
+		System.arraycopy(bytes, 0, padded, 0, bytes.length);
+		return pool.get(padded, bytes.length);
+	}
+
+}
@@ -20,8 +20,6 @@ import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Test;
 import org.objectweb.asm.Label;
-import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.tree.InsnNode;
 
 /**
  * Unit tests for {@link LabelInfoTest}.
@@ -43,7 +41,7 @@ public class LabelInfoTest {
 		assertFalse(LabelInfo.isDone(label));
 		assertEquals(LabelInfo.NO_PROBE, LabelInfo.getProbeId(label));
 		assertNull(LabelInfo.getIntermediateLabel(label));
-		assertNull(LabelInfo.getInstruction(label));
+		assertEquals(LabelInfo.NO_INSTRUCTION, LabelInfo.getInstruction(label));
 	}
 
 	@Test
@@ -161,10 +159,8 @@ public class LabelInfoTest {
 
 	@Test
 	public void testSetInstruction() {
-		final Instruction instruction = new Instruction(
-				new InsnNode(Opcodes.NOP), 123);
-		LabelInfo.setInstruction(label, instruction);
-		assertSame(instruction, LabelInfo.getInstruction(label));
+		LabelInfo.setInstruction(label, 123);
+		assertEquals(123, LabelInfo.getInstruction(label));
 	}
 
 }
@@ -66,6 +66,11 @@ public class ClassInstrumenterTest implements IProbeArrayStrategy {
 		return 0;
 	}
 
+	public MethodVisitor visitMethod(ClassVisitor cv, int access,
+			String name, String desc, String signature, String[] exceptions) {
+		return cv.visitMethod(access, name, desc, signature, exceptions);
+	}
+
 	public void addMembers(ClassVisitor cv, int probeCount) {
 	}
 
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import static org.junit.Assert.assertEquals;
+
+import org.jacoco.core.instr.MethodRecorder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Unit tests for {@link CompactProbeInserter}.
+ */
+public class CompactProbeInserterTest {
+
+	private MethodRecorder actual, expected;
+
+	private MethodVisitor actualVisitor, expectedVisitor;
+
+	@Before
+	public void setup() {
+		actual = new MethodRecorder();
+		actualVisitor = actual.getVisitor();
+		expected = new MethodRecorder();
+		expectedVisitor = expected.getVisitor();
+	}
+
+	@After
+	public void verify() {
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testInsertProbe() {
+		CompactProbeInserter pi = new CompactProbeInserter("Foo",
+				actualVisitor);
+		pi.insertProbe(0);
+		pi.insertProbe(42);
+
+		expectedVisitor.visitInsn(Opcodes.ICONST_0);
+		expectedVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, "Foo",
+				"$jacocoHit", "(I)V", false);
+		expectedVisitor.visitIntInsn(Opcodes.BIPUSH, 42);
+		expectedVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, "Foo",
+				"$jacocoHit", "(I)V", false);
+	}
+
+	@Test
+	public void testVisitVarIns() {
+		CompactProbeInserter pi = new CompactProbeInserter("Foo",
+				actualVisitor);
+		pi.visitVarInsn(Opcodes.ALOAD, 0);
+		pi.visitIincInsn(1, 1);
+
+		expectedVisitor.visitVarInsn(Opcodes.ALOAD, 0);
+		expectedVisitor.visitIincInsn(1, 1);
+	}
+
+	@Test
+	public void testVisitMaxs() {
+		CompactProbeInserter pi = new CompactProbeInserter("Foo",
+				actualVisitor);
+		pi.visitMaxs(0, 3);
+
+		expectedVisitor.visitMaxs(1, 3);
+	}
+
+	@Test
+	public void testCreateHitMethod() {
+		final ClassVisitor cv = new ClassVisitor(Opcodes.ASM5) {
+			@Override
+			public MethodVisitor visitMethod(int access, String name,
+					String desc, String signature, String[] exceptions) {
+				assertEquals(Opcodes.ACC_SYNTHETIC | Opcodes.ACC_PRIVATE
+						| Opcodes.ACC_STATIC, access);
+				assertEquals("$jacocoHit", name);
+				assertEquals("(I)V", desc);
+				return actualVisitor;
+			}
+		};
+		CompactProbeInserter.createHitMethod(cv, "Foo");
+
+		expectedVisitor.visitMethodInsn(Opcodes.INVOKESTATIC, "Foo",
+				"$jacocoInit", "()[Z", false);
+		expectedVisitor.visitVarInsn(Opcodes.ILOAD, 0);
+		expectedVisitor.visitInsn(Opcodes.ICONST_1);
+		expectedVisitor.visitInsn(Opcodes.BASTORE);
+		expectedVisitor.visitInsn(Opcodes.RETURN);
+		expectedVisitor.visitMaxs(3, 1);
+	}
+
+}
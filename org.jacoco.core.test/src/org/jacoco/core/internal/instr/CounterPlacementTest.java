@@ -0,0 +1,224 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.analysis.ExecutionCounts;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionData.ProbesType;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.runtime.SystemPropertiesRuntime;
+import org.jacoco.core.test.InstrumentingLoader;
+import org.jacoco.core.test.TargetLoader;
+import org.jacoco.core.test.validation.targets.Target01;
+import org.jacoco.core.test.validation.targets.Target02;
+import org.jacoco.core.test.validation.targets.Target03;
+import org.jacoco.core.test.validation.targets.Target05;
+import org.jacoco.core.test.validation.targets.Target06;
+import org.jacoco.core.test.validation.targets.Target07;
+import org.jacoco.core.test.validation.targets.Target08;
+import org.jacoco.core.test.validation.targets.Target09;
+import org.jacoco.core.test.validation.targets.Target10;
+import org.jacoco.core.test.validation.targets.Target11;
+import org.jacoco.core.test.validation.targets.Target12;
+import org.junit.After;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Unit tests for {@link CounterPlacement}.
+ */
+public class CounterPlacementTest {
+
+	@After
+	public void teardown() {
+		ExecutionData.setProbesType(ProbesType.BOOLEAN);
+	}
+
+	@Test
+	public void testLoop() throws Exception {
+		final CounterPlacement placement = create(org.jacoco.core.test.perf.targets.Target02.class);
+
+		// The loop body is part of the region of the loop condition, so the
+		// loop itself requires a counter. Only the loop entry is derived
+		// from the method exit.
+		assertEquals(5, placement.getProbeCount());
+		assertEquals(4, placement.getCounterCount());
+		assertEquals(0, placement.getCounter(0));
+		assertEquals(CounterPlacement.NO_COUNTER, placement.getCounter(1));
+		assertEquals(1, placement.getCounter(2));
+	}
+
+	@Test
+	public void testLoopCounts() throws Exception {
+		final Class<?> target = org.jacoco.core.test.perf.targets.Target02.class;
+		final ExecutionDataStore store = call(ProbesType.COUNTING, target);
+
+		final ExecutionData data = store.get(getId(target));
+		assertArrayEquals(new int[] { 1, 10000000, 1, 1 },
+				(int[]) data.getRawProbes());
+		final ExecutionCounts counts = ExecutionCounts.calculate(
+				TargetLoader.getClassDataAsBytes(target), data);
+		assertEquals(1, counts.getExecutions(1));
+		assertEquals(10000000, counts.getExecutions(2));
+		final int loop = counts.getFirstLine() + 5;
+		assertEquals(10000001, counts.getLineExecutions(loop));
+		assertEquals(10000000, counts.getLineExecutions(loop + 1));
+		assertEquals(ExecutionCounts.NO_CODE,
+				counts.getLineExecutions(loop + 2));
+		assertEquals(1, counts.getLineExecutions(loop + 3));
+	}
+
+	@Test
+	public void testGameOfLife() throws Exception {
+		final Class<?> target = org.jacoco.core.test.perf.targets.Target03.class;
+		final CounterPlacement placement = create(target);
+		assertTrue(placement.getCounterCount() < placement.getProbeCount());
+
+		assertSameCounts(target);
+	}
+
+	@Test
+	public void testValidationTargets() throws Exception {
+		assertSameCounts(Target01.class);
+		assertSameCounts(Target02.class);
+		assertSameCounts(Target03.class);
+		assertSameCounts(Target05.class);
+		assertSameCounts(Target06.class);
+		assertSameCounts(Target07.class);
+		assertSameCounts(Target08.class);
+		assertSameCounts(Target09.class);
+		assertSameCounts(Target10.class);
+		assertSameCounts(Target11.class);
+		assertSameCounts(Target12.class);
+	}
+
+	public static class ImplicitExceptionTarget implements Callable<Void> {
+
+		public Void call() {
+			final int[] array = new int[2];
+			for (int i = 0; i < 4; i++) {
+				try {
+					get(array, i);
+				} catch (ArrayIndexOutOfBoundsException e) {
+				}
+			}
+			return null;
+		}
+
+		private static int get(final int[] array, final int i) {
+			int index = 0;
+			if (i > 0) {
+				index = i;
+			}
+			return array[index];
+		}
+
+	}
+
+	@Test
+	public void testImplicitException() throws Exception {
+		assertSameCounts(ImplicitExceptionTarget.class);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetProbeCountsInvalidLength() throws Exception {
+		create(Target01.class).getProbeCounts(new int[0]);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testIncompatibleExecutionData() throws Exception {
+		ExecutionData.setProbesType(ProbesType.COUNTING);
+		final ExecutionData data = new ExecutionData(getId(Target01.class),
+				"Target01", 1);
+		ExecutionCounts.calculate(
+				TargetLoader.getClassDataAsBytes(Target01.class), data);
+	}
+
+	/**
+	 * Executes the target once with all probes and once with counters only
+	 * and compares the execution counts of all probes.
+	 */
+	private void assertSameCounts(final Class<?> target) throws Exception {
+		final Map<String, int[]> expected = getProbeCounts(
+				ProbesType.INTEGER, target);
+		final Map<String, int[]> actual = getProbeCounts(ProbesType.COUNTING,
+				target);
+		assertEquals(expected.keySet(), actual.keySet());
+		for (final Map.Entry<String, int[]> e : expected.entrySet()) {
+			assertArrayEquals(e.getKey(), e.getValue(), actual.get(e.getKey()));
+		}
+	}
+
+	private Map<String, int[]> getProbeCounts(final ProbesType type,
+			final Class<?> target) throws Exception {
+		final ExecutionDataStore store;
+		if (Callable.class.isAssignableFrom(target)) {
+			store = call(type, target);
+		} else {
+			store = runMain(type, target);
+		}
+		final Map<String, int[]> result = new HashMap<String, int[]>();
+		for (final ExecutionData data : store.getContents()) {
+			final byte[] bytes = TargetLoader.getClassDataAsBytes(
+					target.getClassLoader(), data.getName().replace('/', '.'));
+			final ExecutionCounts counts = ExecutionCounts.calculate(bytes,
+					data);
+			final int[] probes = new int[counts.getProbeCount()];
+			for (int i = 0; i < probes.length; i++) {
+				probes[i] = counts.getExecutions(i);
+			}
+			result.put(data.getName(), probes);
+		}
+		return result;
+	}
+
+	private ExecutionDataStore call(final ProbesType type,
+			final Class<?> target) throws Exception {
+		ExecutionData.setProbesType(type);
+		final InstrumentingLoader loader = new InstrumentingLoader(
+				new SystemPropertiesRuntime(), target.getName(),
+				target.getClassLoader());
+		((Callable<?>) loader.loadClass(target.getName()).newInstance())
+				.call();
+		return loader.collect();
+	}
+
+	private ExecutionDataStore runMain(final ProbesType type,
+			final Class<?> target) throws Exception {
+		ExecutionData.setProbesType(type);
+		final InstrumentingLoader loader = new InstrumentingLoader(target);
+		loader.loadClass(target.getName())
+				.getMethod("main", String[].class)
+				.invoke(null, (Object) new String[0]);
+		return loader.collect();
+	}
+
+	private static CounterPlacement create(final Class<?> target)
+			throws Exception {
+		return CounterPlacement.create(new ClassReader(
+				TargetLoader.getClassDataAsBytes(target)));
+	}
+
+	private static long getId(final Class<?> target) throws Exception {
+		return org.jacoco.core.internal.data.CRC64.checksum(TargetLoader
+				.getClassDataAsBytes(target));
+	}
+
+}
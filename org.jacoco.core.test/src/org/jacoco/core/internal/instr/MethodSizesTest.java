@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Unit tests for {@link MethodSizes}.
+ */
+public class MethodSizesTest {
+
+	@Test
+	public void testRead() {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_6, Opcodes.ACC_ABSTRACT, "Foo", null,
+				"java/lang/Object", new String[] { "java/io/Serializable" });
+		final FieldVisitor fv = writer.visitField(Opcodes.ACC_STATIC, "f",
+				"I", null, Integer.valueOf(3));
+		fv.visitEnd();
+
+		MethodVisitor mv = writer.visitMethod(0, "a", "()V", null, null);
+		mv.visitCode();
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 1);
+		mv.visitEnd();
+
+		mv = writer.visitMethod(Opcodes.ACC_ABSTRACT, "b", "()V", null, null);
+		mv.visitEnd();
+
+		mv = writer.visitMethod(0, "c", "(I)I", null, null);
+		mv.visitCode();
+		mv.visitIntInsn(Opcodes.SIPUSH, 1000);
+		mv.visitVarInsn(Opcodes.ILOAD, 1);
+		mv.visitInsn(Opcodes.IADD);
+		mv.visitInsn(Opcodes.IRETURN);
+		mv.visitMaxs(2, 2);
+		mv.visitEnd();
+		writer.visitEnd();
+
+		final Map<String, Integer> sizes = MethodSizes.read(new ClassReader(
+				writer.toByteArray()));
+
+		assertEquals(Arrays.asList("a()V", "c(I)I"),
+				Arrays.asList(sizes.keySet().toArray()));
+		assertEquals(Integer.valueOf(1), sizes.get("a()V"));
+		assertEquals(Integer.valueOf(6), sizes.get("c(I)I"));
+	}
+
+}
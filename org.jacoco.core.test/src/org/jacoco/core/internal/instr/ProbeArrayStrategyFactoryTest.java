@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
 import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
 import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
 import org.junit.Before;
@@ -30,6 +31,10 @@ import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
 
 /**
  * Unit tests for {@link ProbeArrayStrategyFactory} and the
@@ -214,6 +219,44 @@ public class ProbeArrayStrategyFactoryTest {
 				true, 0);
 	}
 
+	@Test
+	public void testInterfaceSinglePass() {
+		final ClassWriter writer = new ClassWriter(0);
+		writer.visit(Opcodes.V1_7, Opcodes.ACC_INTERFACE, "Foo", null,
+				"java/lang/Object", null);
+		final MethodVisitor mv = writer.visitMethod(Opcodes.ACC_STATIC,
+				"<clinit>", "()V", null, null);
+		mv.visitCode();
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		writer.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_ABSTRACT, "foo",
+				"()V", null, null).visitEnd();
+		writer.visitEnd();
+		final ClassReader reader = new ClassReader(writer.toByteArray());
+
+		final IProbeArrayStrategy strategy = ProbeArrayStrategyFactory
+				.createFor(reader, generator);
+		final ClassNode target = new ClassNode();
+		reader.accept(new ClassProbesAdapter(new ClassInstrumenter(strategy,
+				target), true), ClassReader.EXPAND_FRAMES);
+
+		assertEquals(2, target.methods.size());
+		final MethodNode clinit = target.methods.get(0);
+		assertEquals("<clinit>", clinit.name);
+		assertEquals("foo", target.methods.get(1).name);
+
+		// probe array is obtained with the total probe count first
+		AbstractInsnNode insn = clinit.instructions.getFirst();
+		while (insn.getType() != AbstractInsnNode.METHOD_INSN) {
+			insn = insn.getNext();
+		}
+		assertEquals("getProbes", ((MethodInsnNode) insn).name);
+		assertEquals(Opcodes.ICONST_1, insn.getPrevious().getOpcode());
+		assertEquals(Opcodes.ASTORE, insn.getNext().getOpcode());
+		assertEquals(4, clinit.maxStack);
+	}
+
 	private IProbeArrayStrategy test(int version, int access, boolean clinit,
 			boolean method, boolean abstractMethod) {
 		final ClassWriter writer = new ClassWriter(0);
@@ -243,13 +286,47 @@ public class ProbeArrayStrategyFactoryTest {
 		}
 		writer.visitEnd();
 
+		final ClassReader reader = new ClassReader(writer.toByteArray());
 		final IProbeArrayStrategy strategy = ProbeArrayStrategyFactory
-				.createFor(new ClassReader(writer.toByteArray()), generator);
+				.createFor(reader, generator);
+
+		if (strategy instanceof DeferredProbeArrayStrategy) {
+			final DeferredProbeArrayStrategy deferred = (DeferredProbeArrayStrategy) strategy;
+			final int[] counts = declareMethods(reader, deferred);
+			// interfaces without code do not have probes
+			deferred.addMembers(cv, counts[1] == 0 ? 0 : 123);
+			// remove the buffered methods emitted before the added members
+			cv.methods.subList(0, counts[0]).clear();
+			return deferred.getStrategy();
+		}
 
 		strategy.addMembers(cv, 123);
 		return strategy;
 	}
 
+	/**
+	 * Declares all methods of the class to the strategy and returns the
+	 * number of all methods and the number of methods with code.
+	 */
+	private static int[] declareMethods(final ClassReader reader,
+			final DeferredProbeArrayStrategy strategy) {
+		final int[] counts = new int[2];
+		reader.accept(new ClassVisitor(Opcodes.ASM5) {
+			@Override
+			public MethodVisitor visitMethod(int access, String name,
+					String desc, String signature, String[] exceptions) {
+				counts[0]++;
+				if ((access & Opcodes.ACC_ABSTRACT) == 0) {
+					counts[1]++;
+				}
+				strategy.visitMethod(null, access, name, desc, signature,
+						exceptions);
+				return null;
+			}
+		}, 0);
+		return counts;
+	}
+
 	private static class AddedMethod {
 		private final int access;
 		private final String name;
@@ -44,6 +44,13 @@ public class ProbeInserterTest {
 				return 5;
 			}
 
+			public MethodVisitor visitMethod(ClassVisitor cv, int access,
+					String name, String desc, String signature,
+					String[] exceptions) {
+				return cv.visitMethod(access, name, desc, signature,
+						exceptions);
+			}
+
 			public void addMembers(ClassVisitor delegate, int probeCount) {
 			}
 		};
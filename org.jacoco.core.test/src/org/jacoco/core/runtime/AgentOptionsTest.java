@@ -19,6 +19,7 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.util.Properties;
 
+import org.jacoco.core.data.ExecutionData.ProbesType;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
@@ -52,6 +53,16 @@ public class AgentOptionsTest {
 		assertEquals(AgentOptions.DEFAULT_PORT, options.getPort());
 		assertNull(options.getClassDumpDir());
 		assertFalse(options.getJmx());
+		assertFalse(options.getProbeMap());
+		assertNull(options.getCacheDir());
+		assertEquals(AgentOptions.DEFAULT_CACHESIZE, options.getCacheSize());
+		assertFalse(options.getCompactProbes());
+		assertNull(options.getInliningReport());
+		assertFalse(options.getDeinstrument());
+		assertEquals(0, options.getDeinstrumentStable());
+		assertEquals(0, options.getAttachDuration());
+		assertFalse(options.getAttachRestore());
+		assertEquals(ClassShard.ALL, options.getShard());
 
 		assertEquals("", options.toString());
 	}
@@ -310,6 +321,31 @@ public class AgentOptionsTest {
 		options.setOutput("foo");
 	}
 
+	@Test
+	public void testGetProbesTypeDefault() {
+		AgentOptions options = new AgentOptions();
+		assertEquals(ProbesType.BOOLEAN, options.getProbesType());
+	}
+
+	@Test
+	public void testGetProbesType() {
+		AgentOptions options = new AgentOptions("probestype=INTEGER");
+		assertEquals(ProbesType.INTEGER, options.getProbesType());
+	}
+
+	@Test
+	public void testGetProbesTypeCounting() {
+		AgentOptions options = new AgentOptions("probestype=COUNTING");
+		assertEquals(ProbesType.COUNTING, options.getProbesType());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetProbesTypePacked() {
+		AgentOptions options = new AgentOptions();
+		options.setProbesType(ProbesType.PACKED);
+		options.getProbesType();
+	}
+
 	@Test
 	public void testGetPort() {
 		AgentOptions options = new AgentOptions("port=1234");
@@ -397,6 +433,173 @@ public class AgentOptionsTest {
 		assertTrue(options.getJmx());
 	}
 
+	@Test
+	public void testGetCacheDir() {
+		AgentOptions options = new AgentOptions("cachedir=target/cache");
+		assertEquals("target/cache", options.getCacheDir());
+	}
+
+	@Test
+	public void testSetCacheDir() {
+		AgentOptions options = new AgentOptions();
+		options.setCacheDir("target/cache");
+		assertEquals("target/cache", options.getCacheDir());
+		assertEquals("cachedir=target/cache", options.toString());
+	}
+
+	@Test
+	public void testGetCacheSize() {
+		AgentOptions options = new AgentOptions("cachesize=64");
+		assertEquals(64, options.getCacheSize());
+	}
+
+	@Test
+	public void testSetCacheSize() {
+		AgentOptions options = new AgentOptions();
+		options.setCacheSize(64);
+		assertEquals(64, options.getCacheSize());
+		assertEquals("cachesize=64", options.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCacheSizeOptionValue() {
+		new AgentOptions("cachesize=-1");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSetNegativeCacheSize() {
+		AgentOptions options = new AgentOptions();
+		options.setCacheSize(-1);
+	}
+
+	@Test
+	public void testGetCompactProbes() {
+		AgentOptions options = new AgentOptions("compactprobes=true");
+		assertTrue(options.getCompactProbes());
+	}
+
+	@Test
+	public void testSetCompactProbes() {
+		AgentOptions options = new AgentOptions();
+		options.setCompactProbes(true);
+		assertTrue(options.getCompactProbes());
+		assertEquals("compactprobes=true", options.toString());
+	}
+
+	@Test
+	public void testGetInliningReport() {
+		AgentOptions options = new AgentOptions(
+				"inliningreport=target/inlining.txt");
+		assertEquals("target/inlining.txt", options.getInliningReport());
+	}
+
+	@Test
+	public void testSetInliningReport() {
+		AgentOptions options = new AgentOptions();
+		options.setInliningReport("target/inlining.txt");
+		assertEquals("target/inlining.txt", options.getInliningReport());
+		assertEquals("inliningreport=target/inlining.txt", options.toString());
+	}
+
+	@Test
+	public void testGetDeinstrument() {
+		AgentOptions options = new AgentOptions("deinstrument=true");
+		assertTrue(options.getDeinstrument());
+	}
+
+	@Test
+	public void testSetDeinstrument() {
+		AgentOptions options = new AgentOptions();
+		options.setDeinstrument(true);
+		assertTrue(options.getDeinstrument());
+		assertEquals("deinstrument=true", options.toString());
+	}
+
+	@Test
+	public void testGetDeinstrumentStable() {
+		AgentOptions options = new AgentOptions("deinstrumentstable=30");
+		assertEquals(30, options.getDeinstrumentStable());
+	}
+
+	@Test
+	public void testSetDeinstrumentStable() {
+		AgentOptions options = new AgentOptions();
+		options.setDeinstrumentStable(30);
+		assertEquals(30, options.getDeinstrumentStable());
+		assertEquals("deinstrumentstable=30", options.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidDeinstrumentStableOptionValue() {
+		new AgentOptions("deinstrumentstable=-1");
+	}
+
+	@Test
+	public void testGetAttachDuration() {
+		AgentOptions options = new AgentOptions("attachduration=60");
+		assertEquals(60, options.getAttachDuration());
+	}
+
+	@Test
+	public void testSetAttachDuration() {
+		AgentOptions options = new AgentOptions();
+		options.setAttachDuration(60);
+		assertEquals(60, options.getAttachDuration());
+		assertEquals("attachduration=60", options.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidAttachDurationOptionValue() {
+		new AgentOptions("attachduration=-1");
+	}
+
+	@Test
+	public void testGetShard() {
+		AgentOptions options = new AgentOptions("shard=1/4");
+		assertEquals(new ClassShard(1, 4), options.getShard());
+	}
+
+	@Test
+	public void testSetShard() {
+		AgentOptions options = new AgentOptions();
+		options.setShard(new ClassShard(1, 4));
+		assertEquals(new ClassShard(1, 4), options.getShard());
+		assertEquals("shard=1/4", options.toString());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidShardOptionValue() {
+		new AgentOptions("shard=4/4");
+	}
+
+	@Test
+	public void testGetAttachRestore() {
+		AgentOptions options = new AgentOptions("attachrestore=true");
+		assertTrue(options.getAttachRestore());
+	}
+
+	@Test
+	public void testSetAttachRestore() {
+		AgentOptions options = new AgentOptions();
+		options.setAttachRestore(true);
+		assertTrue(options.getAttachRestore());
+		assertEquals("attachrestore=true", options.toString());
+	}
+
+	@Test
+	public void testGetProbeMap() {
+		AgentOptions options = new AgentOptions("probemap=true");
+		assertTrue(options.getProbeMap());
+	}
+
+	@Test
+	public void testSetProbeMap() {
+		AgentOptions options = new AgentOptions();
+		options.setProbeMap(true);
+		assertTrue(options.getProbeMap());
+		assertEquals("probemap=true", options.toString());
+	}
+
 	@Test
 	public void testGetVMArgumentWithNoOptions() {
 		AgentOptions options = new AgentOptions();
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ClassShard}.
+ */
+public class ClassShardTest {
+
+	@Test
+	public void testParse() {
+		final ClassShard shard = ClassShard.parse("2/5");
+		assertEquals(2, shard.getIndex());
+		assertEquals(5, shard.getCount());
+		assertEquals("2/5", shard.toString());
+		assertEquals(new ClassShard(2, 5), shard);
+		assertEquals(new ClassShard(2, 5).hashCode(), shard.hashCode());
+		assertFalse(shard.equals(new ClassShard(1, 5)));
+		assertFalse(shard.equals("2/5"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseNoSlash() {
+		ClassShard.parse("2");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testParseNoNumber() {
+		ClassShard.parse("a/b");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidIndex() {
+		new ClassShard(5, 5);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidCount() {
+		new ClassShard(0, 0);
+	}
+
+	@Test
+	public void testAll() {
+		assertTrue(ClassShard.ALL.contains("org/example/Foo"));
+		assertEquals("0/1", ClassShard.ALL.toString());
+	}
+
+	@Test
+	public void testPartition() {
+		final int count = 4;
+		final int[] sizes = new int[count];
+		for (int i = 0; i < 1000; i++) {
+			final String name = "org/example/Foo$" + i;
+			int matches = 0;
+			for (int k = 0; k < count; k++) {
+				if (new ClassShard(k, count).contains(name)) {
+					matches++;
+					sizes[k]++;
+				}
+			}
+			assertEquals(1, matches);
+		}
+		for (final int size : sizes) {
+			assertTrue(String.valueOf(size), size > 200 && size < 300);
+		}
+	}
+
+	@Test
+	public void testDeterministic() {
+		// The shard must not change between JVMs and releases:
+		assertEquals(ClassShard.getIndex("org/example/Foo", 7),
+				ClassShard.getIndex(new String("org/example/Foo"), 7));
+		assertEquals(3, ClassShard.getIndex("org/example/Foo", 7));
+	}
+
+}
@@ -11,9 +11,13 @@
  *******************************************************************************/
 package org.jacoco.core.runtime;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Random;
+import java.util.regex.Pattern;
+
 import org.junit.Test;
 
 public class WildcardMatcherTest {
@@ -69,4 +73,83 @@ public class WildcardMatcherTest {
 				.matches("org/example/Enity$$$generated123"));
 	}
 
+	@Test
+	public void testOptional() {
+		assertTrue(new WildcardMatcher("a?c").matches("ac"));
+		assertTrue(new WildcardMatcher("a?c").matches("abc"));
+		assertFalse(new WildcardMatcher("a?c").matches("abbc"));
+		assertTrue(new WildcardMatcher("a*?").matches("abc"));
+	}
+
+	@Test
+	public void testCommonPrefixes() {
+		final StringBuilder expression = new StringBuilder();
+		for (int i = 0; i < 200; i++) {
+			if (i > 0) {
+				expression.append(':');
+			}
+			expression.append("org/example/lib").append(i).append("/*");
+		}
+		final WildcardMatcher matcher = new WildcardMatcher(
+				expression.toString());
+		assertTrue(matcher.matches("org/example/lib0/Foo"));
+		assertTrue(matcher.matches("org/example/lib199/Foo"));
+		assertTrue(matcher.matches("org/example/lib19/"));
+		assertFalse(matcher.matches("org/example/lib200/Foo"));
+		assertFalse(matcher.matches("org/example/lib"));
+	}
+
+	@Test
+	public void testSameAsRegex() {
+		final Random random = new Random(7);
+		for (int i = 0; i < 2000; i++) {
+			final String expression = randomString(random, "ab?*:", 6);
+			final WildcardMatcher matcher = new WildcardMatcher(expression);
+			final Pattern pattern = toRegex(expression);
+			for (int j = 0; j < 20; j++) {
+				final String s = randomString(random, "ab", 8);
+				assertEquals(expression + " " + s, pattern.matcher(s)
+						.matches(), matcher.matches(s));
+			}
+		}
+	}
+
+	private static String randomString(final Random random,
+			final String chars, final int maxLength) {
+		final StringBuilder sb = new StringBuilder();
+		final int length = random.nextInt(maxLength + 1);
+		for (int i = 0; i < length; i++) {
+			sb.append(chars.charAt(random.nextInt(chars.length())));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Translation into a regular expression as done by former versions.
+	 */
+	private static Pattern toRegex(final String expression) {
+		final StringBuilder regex = new StringBuilder();
+		for (final String part : expression.split("\\:")) {
+			if (regex.length() > 0) {
+				regex.append('|');
+			}
+			regex.append('(');
+			for (final char c : part.toCharArray()) {
+				switch (c) {
+				case '?':
+					regex.append(".?");
+					break;
+				case '*':
+					regex.append(".*");
+					break;
+				default:
+					regex.append(Pattern.quote(String.valueOf(c)));
+					break;
+				}
+			}
+			regex.append(')');
+		}
+		return Pattern.compile(regex.toString());
+	}
+
 }
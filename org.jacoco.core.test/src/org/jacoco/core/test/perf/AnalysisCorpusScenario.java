@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.internal.Java9Support;
+
+/**
+ * Scenario to measure the analysis of a large corpus of real world classes.
+ * The classes of the runtime library of the current JVM are used, i.e.
+ * <code>lib/rt.jar</code> or <code>jmods/java.base.jmod</code>. The class
+ * files are loaded into memory upfront so that only the analysis itself is
+ * measured.
+ */
+public class AnalysisCorpusScenario extends TimedScenario {
+
+	/** Header of the jmod format which precedes the zip content */
+	private static final int JMOD_HEADER = 4;
+
+	private final int count;
+
+	private final List<byte[]> classes = new ArrayList<byte[]>();
+
+	private final List<String> names = new ArrayList<String>();
+
+	/**
+	 * Creates a scenario for the given number of runtime library classes.
+	 *
+	 * @param count
+	 *            maximum number of classes to analyze
+	 */
+	protected AnalysisCorpusScenario(final int count) {
+		super(String.format("analysing %s runtime library classes",
+				Integer.valueOf(count)));
+		this.count = count;
+	}
+
+	@Override
+	public void run(final IPerfOutput output) throws Exception {
+		if (!load(count, classes, names)) {
+			return;
+		}
+		super.run(output);
+	}
+
+	/**
+	 * Loads class files from the runtime library of the current JVM.
+	 * 
+	 * @param count
+	 *            maximum number of classes to load
+	 * @param classes
+	 *            list to add the class file contents to
+	 * @param names
+	 *            list to add the entry names to
+	 * @return <code>false</code> if no runtime library was found
+	 * @throws IOException
+	 *             if the runtime library can't be read
+	 */
+	static boolean load(final int count, final List<byte[]> classes,
+			final List<String> names) throws IOException {
+		final String home = System.getProperty("java.home");
+		final File rtjar = new File(home, "lib/rt.jar");
+		final File jmod = new File(home, "jmods/java.base.jmod");
+		final InputStream in;
+		if (rtjar.isFile()) {
+			in = new FileInputStream(rtjar);
+		} else if (jmod.isFile()) {
+			in = new FileInputStream(jmod);
+			in.skip(JMOD_HEADER);
+		} else {
+			return false;
+		}
+		try {
+			final ZipInputStream zip = new ZipInputStream(in);
+			ZipEntry entry;
+			while (classes.size() < count
+					&& (entry = zip.getNextEntry()) != null) {
+				if (entry.getName().endsWith(".class")) {
+					classes.add(Java9Support.readFully(zip));
+					names.add(entry.getName());
+				}
+			}
+		} finally {
+			in.close();
+		}
+		return true;
+	}
+
+	@Override
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		final ICoverageVisitor visitor = new ICoverageVisitor() {
+			public void visitCoverage(final IClassCoverage coverage) {
+			}
+		};
+		final Analyzer analyzer = new Analyzer(new ExecutionDataStore(),
+				visitor);
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				for (int i = 0; i < classes.size(); i++) {
+					analyzer.analyzeClass(classes.get(i), names.get(i));
+				}
+				return null;
+			}
+		};
+	}
+
+}
@@ -11,6 +11,9 @@
  *******************************************************************************/
 package org.jacoco.core.test.perf;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
 import java.util.concurrent.Callable;
 
 import org.jacoco.core.analysis.Analyzer;
@@ -20,7 +23,9 @@ import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.test.TargetLoader;
 
 /**
- * Scenario to measure the time taken by the instrumentation process itself.
+ * Scenario to measure the time taken by the analysis process itself. If
+ * supported by the JVM also the number of bytes allocated by the analysis is
+ * reported.
  */
 public class AnalysisTimeScenario extends TimedScenario {
 
@@ -28,6 +33,8 @@ public class AnalysisTimeScenario extends TimedScenario {
 
 	private final int count;
 
+	private long allocated = IPerfOutput.NO_REFERENCE;
+
 	protected AnalysisTimeScenario(Class<?> target, int count) {
 		super(String.format("analysing %s classes", Integer.valueOf(count)));
 		this.target = target;
@@ -45,11 +52,46 @@ public class AnalysisTimeScenario extends TimedScenario {
 		final Analyzer analyzer = new Analyzer(executionData, visitor);
 		return new Callable<Void>() {
 			public Void call() throws Exception {
+				final long start = getAllocatedBytes();
 				for (int i = 0; i < count; i++) {
 					analyzer.analyzeClass(bytes, target.getName());
 				}
+				if (start != -1) {
+					allocated = getAllocatedBytes() - start;
+				}
 				return null;
 			}
 		};
 	}
+
+	@Override
+	protected void writeResult(final IPerfOutput output,
+			final String description, final long time, final long reftime) {
+		super.writeResult(output, description, time, reftime);
+		if (allocated != IPerfOutput.NO_REFERENCE) {
+			output.writeByteResult(String.format("allocation for %s classes",
+					Integer.valueOf(count)), allocated,
+					IPerfOutput.NO_REFERENCE);
+		}
+	}
+
+	/**
+	 * Returns the number of bytes allocated by the current thread. The
+	 * required API is specific to HotSpot VMs and therefore called
+	 * reflectively.
+	 * 
+	 * @return allocated bytes or -1 if not supported
+	 */
+	private static long getAllocatedBytes() {
+		final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		try {
+			final Method method = bean.getClass().getMethod(
+					"getThreadAllocatedBytes", long.class);
+			method.setAccessible(true);
+			return ((Long) method.invoke(bean,
+					Long.valueOf(Thread.currentThread().getId()))).longValue();
+		} catch (final Exception e) {
+			return -1;
+		}
+	}
 }
@@ -0,0 +1,95 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+
+/**
+ * Scenario to measure the time for loading an exec file with many sessions of
+ * the same classes into a {@link ExecutionDataStore}. The reference passes
+ * every record as a separate {@link ExecutionData} instance to the store.
+ */
+public class ExecFileLoadScenario extends TimedScenario {
+
+	private static final int CLASSES = 200;
+
+	private final byte[] data;
+
+	protected ExecFileLoadScenario(int sessions) throws IOException {
+		super(String.format("loading %s sessions", Integer.valueOf(sessions)));
+		final Random random = new Random(42);
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ExecutionDataWriter writer = new ExecutionDataWriter(buffer);
+		for (int s = 0; s < sessions; s++) {
+			writer.visitSessionInfo(new SessionInfo("session" + s, s, s + 1));
+			for (int c = 0; c < CLASSES; c++) {
+				final boolean[] probes = new boolean[20 + c % 50];
+				for (int p = 0; p < probes.length; p++) {
+					probes[p] = random.nextInt(4) == 0;
+				}
+				probes[0] = true;
+				writer.visitClassExecution(new ExecutionData(c,
+						"org/example/generated/Class" + c, probes));
+			}
+		}
+		data = buffer.toByteArray();
+	}
+
+	@Override
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				final ExecutionDataReader reader = createReader();
+				reader.setExecutionDataStore(new ExecutionDataStore());
+				reader.read();
+				return null;
+			}
+		};
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				final ExecutionDataStore store = new ExecutionDataStore();
+				final ExecutionDataReader reader = createReader();
+				reader.setExecutionDataVisitor(new IExecutionDataVisitor() {
+					public void visitClassExecution(final ExecutionData data) {
+						store.put(data);
+					}
+				});
+				reader.read();
+				return null;
+			}
+		};
+	}
+
+	private ExecutionDataReader createReader() {
+		final ExecutionDataReader reader = new ExecutionDataReader(
+				new ByteArrayInputStream(data));
+		reader.setSessionInfoVisitor(new SessionInfoStore());
+		return reader;
+	}
+
+}
@@ -13,6 +13,8 @@ package org.jacoco.core.test.perf;
 
 import java.util.concurrent.Callable;
 
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionData.ProbesType;
 import org.jacoco.core.instr.Instrumenter;
 import org.jacoco.core.runtime.IRuntime;
 import org.jacoco.core.runtime.LoggerRuntime;
@@ -28,10 +30,38 @@ public class ExecuteInstrumentedCodeScenario extends TimedScenario {
 
 	private final Class<? extends Callable<Void>> target;
 
+	private final ProbesType probesType;
+
+	private final boolean compactProbes;
+
 	protected ExecuteInstrumentedCodeScenario(String description,
 			Class<? extends Callable<Void>> target) {
+		this(description, target, ProbesType.BOOLEAN);
+	}
+
+	protected ExecuteInstrumentedCodeScenario(String description,
+			Class<? extends Callable<Void>> target, ProbesType probesType) {
+		this(description, target, probesType, false);
+	}
+
+	protected ExecuteInstrumentedCodeScenario(String description,
+			Class<? extends Callable<Void>> target, ProbesType probesType,
+			boolean compactProbes) {
 		super(description);
 		this.target = target;
+		this.probesType = probesType;
+		this.compactProbes = compactProbes;
+	}
+
+	@Override
+	public void run(IPerfOutput output) throws Exception {
+		final ProbesType previous = ExecutionData.getProbesType();
+		ExecutionData.setProbesType(probesType);
+		try {
+			super.run(output);
+		} finally {
+			ExecutionData.setProbesType(previous);
+		}
 	}
 
 	@Override
@@ -41,6 +71,7 @@ public class ExecuteInstrumentedCodeScenario extends TimedScenario {
 		IRuntime runtime = new LoggerRuntime();
 		runtime.startup(new RuntimeData());
 		final Instrumenter instr = new Instrumenter(runtime);
+		instr.setCompactProbes(compactProbes);
 		final byte[] instrumentedBuffer = instr.instrument(reader);
 		final TargetLoader loader = new TargetLoader();
 
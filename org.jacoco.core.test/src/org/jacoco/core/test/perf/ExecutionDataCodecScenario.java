@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.ISessionInfoVisitor;
+import org.jacoco.core.data.SessionInfo;
+
+/**
+ * Scenario to measure the throughput of encoding or decoding execution data
+ * with a direct buffer compared to a buffered stream.
+ */
+public class ExecutionDataCodecScenario extends TimedScenario {
+
+	private static final int SESSIONS = 3;
+
+	private static final int PASSES = 20;
+
+	private final boolean write;
+
+	private final List<SessionInfo> sessions;
+
+	private final List<ExecutionData> classes;
+
+	private final byte[] data;
+
+	private final ByteBuffer directData;
+
+	/**
+	 * Creates a scenario for exec file content with several sessions of
+	 * classes with varying probe counts and random hits.
+	 * 
+	 * @param count
+	 *            number of classes per session
+	 * @param write
+	 *            <code>true</code> to measure writing, <code>false</code> to
+	 *            measure reading
+	 */
+	protected ExecutionDataCodecScenario(int count, boolean write)
+			throws IOException {
+		super(String.format("%s %s classes", write ? "writing" : "reading",
+				Integer.valueOf(count)));
+		this.write = write;
+		this.sessions = new ArrayList<SessionInfo>();
+		this.classes = new ArrayList<ExecutionData>();
+		final Random random = new Random(42);
+		for (int s = 0; s < SESSIONS; s++) {
+			sessions.add(new SessionInfo("session" + s, s, s + 1));
+			for (int c = 0; c < count; c++) {
+				final boolean[] probes = new boolean[1 + random.nextInt(200)];
+				for (int p = 0; p < probes.length; p++) {
+					probes[p] = random.nextInt(3) != 0;
+				}
+				probes[0] = true;
+				classes.add(new ExecutionData(c,
+						"org/example/generated/Class" + c, probes));
+			}
+		}
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		write(new ExecutionDataWriter(buffer));
+		data = buffer.toByteArray();
+		directData = ByteBuffer.allocateDirect(data.length);
+		directData.put(data).flip();
+	}
+
+	@Override
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				for (int i = 0; i < PASSES; i++) {
+					if (write) {
+						directData.clear();
+						write(new ExecutionDataWriter(directData));
+					} else {
+						read(new ExecutionDataReader(directData.duplicate()));
+					}
+				}
+				return null;
+			}
+		};
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				for (int i = 0; i < PASSES; i++) {
+					if (write) {
+						final BufferedOutputStream out = new BufferedOutputStream(
+								new ByteArrayOutputStream(data.length));
+						write(new ExecutionDataWriter(out));
+						out.flush();
+					} else {
+						read(new ExecutionDataReader(new BufferedInputStream(
+								new ByteArrayInputStream(data))));
+					}
+				}
+				return null;
+			}
+		};
+	}
+
+	@Override
+	protected void writeResult(final IPerfOutput output,
+			final String description, final long time, final long reftime) {
+		output.writeThroughputResult(description, (long) data.length
+				* PASSES, time, reftime);
+	}
+
+	private void write(final ExecutionDataWriter writer) {
+		final int count = classes.size() / SESSIONS;
+		for (int s = 0; s < SESSIONS; s++) {
+			writer.visitSessionInfo(sessions.get(s));
+			for (final ExecutionData c : classes.subList(s * count, (s + 1)
+					* count)) {
+				writer.visitClassExecution(c);
+			}
+		}
+	}
+
+	private static void read(final ExecutionDataReader reader)
+			throws IOException {
+		reader.setSessionInfoVisitor(new ISessionInfoVisitor() {
+			public void visitSessionInfo(final SessionInfo info) {
+			}
+		});
+		reader.setExecutionDataVisitor(new IExecutionDataVisitor() {
+			public void visitClassExecution(final ExecutionData data) {
+			}
+		});
+		reader.read();
+	}
+
+}
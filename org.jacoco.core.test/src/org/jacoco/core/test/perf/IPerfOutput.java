@@ -45,4 +45,36 @@ public interface IPerfOutput {
 	 */
 	void writeByteResult(String description, long size, long reference);
 
+	/**
+	 * Reports the throughput for processing the given number of bytes with a
+	 * optional reference time for comparison.
+	 * 
+	 * @param description
+	 *            textual description of the test case
+	 * @param size
+	 *            number of bytes processed
+	 * @param duration
+	 *            duration in nano seconds
+	 * @param reference
+	 *            optional reference time in nano seconds
+	 */
+	void writeThroughputResult(String description, long size, long duration,
+			long reference);
+
+	/**
+	 * Reports the throughput for processing the given number of classes with
+	 * a optional reference time for comparison.
+	 * 
+	 * @param description
+	 *            textual description of the test case
+	 * @param classes
+	 *            number of classes processed
+	 * @param duration
+	 *            duration in nano seconds
+	 * @param reference
+	 *            optional reference time in nano seconds
+	 */
+	void writeClassThroughputResult(String description, long classes,
+			long duration, long reference);
+
 }
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.jacoco.core.instr.Instrumenter;
+import org.jacoco.core.runtime.OfflineInstrumentationAccessGenerator;
+
+/**
+ * Scenario to measure the offline instrumentation of an archive with runtime
+ * library classes with several threads compared to a single thread. The
+ * throughput is reported in classes per second.
+ */
+public class ParallelInstrumentationScenario extends TimedScenario {
+
+	private final int count;
+
+	private final int threads;
+
+	private byte[] archive;
+
+	private int classCount;
+
+	/**
+	 * Creates a scenario for the given number of runtime library classes.
+	 * 
+	 * @param count
+	 *            maximum number of classes to instrument
+	 * @param threads
+	 *            number of threads to compare with a single thread
+	 */
+	protected ParallelInstrumentationScenario(final int count,
+			final int threads) {
+		super(String.format("instrumenting jar, %s threads",
+				Integer.valueOf(threads)));
+		this.count = count;
+		this.threads = threads;
+	}
+
+	@Override
+	public void run(final IPerfOutput output) throws Exception {
+		final List<byte[]> classes = new ArrayList<byte[]>();
+		final List<String> names = new ArrayList<String>();
+		if (!AnalysisCorpusScenario.load(count, classes, names)) {
+			return;
+		}
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ZipOutputStream zip = new ZipOutputStream(buffer);
+		for (int i = 0; i < classes.size(); i++) {
+			zip.putNextEntry(new ZipEntry(names.get(i)));
+			zip.write(classes.get(i));
+		}
+		zip.finish();
+		archive = buffer.toByteArray();
+		classCount = classes.size();
+		super.run(output);
+	}
+
+	@Override
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		return getCallable(threads);
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		return getCallable(1);
+	}
+
+	private Callable<Void> getCallable(final int threads) {
+		final Instrumenter instrumenter = new Instrumenter(
+				new OfflineInstrumentationAccessGenerator());
+		instrumenter.setThreads(threads);
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				instrumenter.instrumentAll(new ByteArrayInputStream(archive),
+						new ByteArrayOutputStream(), "rt.jar");
+				return null;
+			}
+		};
+	}
+
+	@Override
+	protected void writeResult(final IPerfOutput output,
+			final String description, final long time, final long reftime) {
+		output.writeClassThroughputResult(description, classCount, time,
+				reftime);
+	}
+
+}
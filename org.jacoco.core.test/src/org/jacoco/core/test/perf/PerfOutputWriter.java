@@ -62,6 +62,37 @@ public class PerfOutputWriter implements IPerfOutput {
 		}
 	}
 
+	public void writeThroughputResult(final String description,
+			final long size, final long duration, final long reference) {
+		final double mbs = getMegaBytesPerSecond(size, duration);
+		if (reference == NO_REFERENCE) {
+			writeResult(description, mbs, "%.1f", "MB/s");
+		} else {
+			writeResult(description, mbs,
+					getMegaBytesPerSecond(size, reference), "%.1f", "MB/s");
+		}
+	}
+
+	public void writeClassThroughputResult(final String description,
+			final long classes, final long duration, final long reference) {
+		final double cps = getPerSecond(classes, duration);
+		if (reference == NO_REFERENCE) {
+			writeResult(description, cps, "%.0f", "cls/s");
+		} else {
+			writeResult(description, cps, getPerSecond(classes, reference),
+					"%.0f", "cls/s");
+		}
+	}
+
+	private static double getPerSecond(final long count, final long duration) {
+		return (double) count / duration * 1000000000;
+	}
+
+	private static double getMegaBytesPerSecond(final long size,
+			final long duration) {
+		return (double) size / (1024 * 1024) / duration * 1000000000;
+	}
+
 	private void writeResult(final String description, final double subject,
 			String fmt, String unit) {
 		writer.printf("%-30s%8s         %-6s%n", description,
@@ -13,9 +13,12 @@ package org.jacoco.core.test.perf;
 
 import java.io.PrintWriter;
 
+import org.jacoco.core.data.ExecutionData.ProbesType;
+
 import org.jacoco.core.test.perf.targets.Target01;
 import org.jacoco.core.test.perf.targets.Target02;
 import org.jacoco.core.test.perf.targets.Target03;
+import org.jacoco.core.test.perf.targets.Target04;
 
 /**
  * The main test suite.
@@ -25,13 +28,34 @@ public class PerformanceSuite implements IPerfScenario {
 	public void run(IPerfOutput output) throws Exception {
 		new ExecuteInstrumentedCodeScenario("plain method calls",
 				Target01.class).run(output);
+		new ExecuteInstrumentedCodeScenario(
+				"plain method calls, compact probes", Target01.class,
+				ProbesType.BOOLEAN, true).run(output);
+		new ExecuteInstrumentedCodeScenario("small methods", Target04.class)
+				.run(output);
+		new ExecuteInstrumentedCodeScenario("small methods, compact probes",
+				Target04.class, ProbesType.BOOLEAN, true).run(output);
 		new ExecuteInstrumentedCodeScenario("loop only", Target02.class)
 				.run(output);
 		new ExecuteInstrumentedCodeScenario("game of life", Target03.class)
 				.run(output);
+		new ExecuteInstrumentedCodeScenario("loop only, integer probes",
+				Target02.class, ProbesType.INTEGER).run(output);
+		new ExecuteInstrumentedCodeScenario("loop only, counters",
+				Target02.class, ProbesType.COUNTING).run(output);
+		new ExecuteInstrumentedCodeScenario("game of life, integer probes",
+				Target03.class, ProbesType.INTEGER).run(output);
+		new ExecuteInstrumentedCodeScenario("game of life, counters",
+				Target03.class, ProbesType.COUNTING).run(output);
 		new InstrumentationSizeSzenario(Target03.class).run(output);
 		new InstrumentationTimeScenario(Target03.class, 1000).run(output);
 		new AnalysisTimeScenario(Target03.class, 1000).run(output);
+		new AnalysisCorpusScenario(5000).run(output);
+		new ParallelInstrumentationScenario(5000, 4).run(output);
+		new ExecutionDataCodecScenario(2000, false).run(output);
+		new ExecutionDataCodecScenario(2000, true).run(output);
+		new ExecFileLoadScenario(1000).run(output);
+		new WildcardMatcherScenario(200, 10000).run(output);
 	}
 
 	public static void main(String[] args) throws Exception {
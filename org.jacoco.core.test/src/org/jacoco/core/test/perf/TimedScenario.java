@@ -35,6 +35,25 @@ public abstract class TimedScenario implements IPerfScenario {
 		} else {
 			reftime = getMinimumTime(refRunnable);
 		}
+		writeResult(output, description, time, reftime);
+	}
+
+	/**
+	 * Reports the measured times. Scenarios may override this method to
+	 * report derived values.
+	 * 
+	 * @param output
+	 *            output to report to
+	 * @param description
+	 *            textual description of the scenario
+	 * @param time
+	 *            minimum time of the instrumented callable in nano seconds
+	 * @param reftime
+	 *            minimum time of the reference callable in nano seconds or
+	 *            {@link IPerfOutput#NO_REFERENCE}
+	 */
+	protected void writeResult(final IPerfOutput output,
+			final String description, final long time, final long reftime) {
 		output.writeTimeResult(description, time, reftime);
 	}
 
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.test.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.regex.Pattern;
+
+import org.jacoco.core.runtime.WildcardMatcher;
+
+/**
+ * Scenario to measure the time for matching class names against a long list
+ * of wildcard expressions compared to a single regular expression as used by
+ * former versions of {@link WildcardMatcher}.
+ */
+public class WildcardMatcherScenario extends TimedScenario {
+
+	private final String expression;
+
+	private final List<String> names;
+
+	/**
+	 * Creates a scenario for typical exclude lists with package prefixes and
+	 * some expressions with leading wildcards.
+	 * 
+	 * @param expressions
+	 *            number of wildcard expressions
+	 * @param count
+	 *            number of class names to match
+	 */
+	protected WildcardMatcherScenario(final int expressions, final int count) {
+		super(String.format("matching %s class names against %s expressions",
+				Integer.valueOf(count), Integer.valueOf(expressions)));
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < expressions; i++) {
+			if (i > 0) {
+				sb.append(':');
+			}
+			if (i % 10 == 0) {
+				sb.append("*$Proxy").append(i).append('*');
+			} else {
+				sb.append("com/vendor").append(i).append("/*");
+			}
+		}
+		this.expression = sb.toString();
+		this.names = new ArrayList<String>();
+		for (int i = 0; i < count; i++) {
+			names.add("com/vendor" + (i % (expressions * 3 / 2))
+					+ "/internal/Class" + i);
+		}
+	}
+
+	@Override
+	protected Callable<Void> getInstrumentedCallable() throws Exception {
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				final WildcardMatcher matcher = new WildcardMatcher(expression);
+				for (final String name : names) {
+					matcher.matches(name);
+				}
+				return null;
+			}
+		};
+	}
+
+	@Override
+	protected Callable<Void> getReferenceCallable() throws Exception {
+		return new Callable<Void>() {
+			public Void call() throws Exception {
+				final Pattern pattern = toRegex(expression);
+				for (final String name : names) {
+					pattern.matcher(name).matches();
+				}
+				return null;
+			}
+		};
+	}
+
+	private static Pattern toRegex(final String expression) {
+		final StringBuilder regex = new StringBuilder();
+		for (final String part : expression.split("\\:")) {
+			if (regex.length() > 0) {
+				regex.append('|');
+			}
+			regex.append('(');
+			for (final char c : part.toCharArray()) {
+				switch (c) {
+				case '?':
+					regex.append(".?");
+					break;
+				case '*':
+					regex.append(".*");
+					break;
+				default:
+					regex.append(Pattern.quote(String.valueOf(c)));
+					break;
+				}
+			}
+			regex.append(')');
+		}
+		return Pattern.compile(regex.toString());
+	}
+
+}
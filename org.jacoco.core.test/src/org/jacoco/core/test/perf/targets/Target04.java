@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.test.perf.targets;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Small methods called in a loop which are inlined by the JIT compiler.
+ */
+public class Target04 implements Callable<Void> {
+
+	private int a = 1;
+
+	private int b = 2;
+
+	private int c = 3;
+
+	public Void call() throws Exception {
+		int sum = 0;
+		for (int i = 0; i < 10000000; i++) {
+			sum += combine(i);
+		}
+		a = sum; // some side effect, otherwise the JIT will remove the loop
+		return null;
+	}
+
+	// Byte code size below the inlining threshold of HotSpot, 35 bytes
+	private int combine(final int i) {
+		return a * i + b * c + c * i - a;
+	}
+
+}
@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.IExecutionDataVisitor;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link ExecFileCompactor}.
+ */
+public class ExecFileCompactorTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private ExecFileCompactor compactor;
+
+	private File file;
+
+	@Before
+	public void setup() throws IOException {
+		compactor = new ExecFileCompactor();
+		file = new File(folder.getRoot(), "jacoco.exec");
+		append(new SessionInfo("s1", 10, 20), new boolean[] { true, false,
+				false }, new boolean[] { false, true });
+		append(new SessionInfo("s2", 30, 40), new boolean[] { false, true,
+				false }, null);
+		append(new SessionInfo("s1", 10, 20), new boolean[] { false, false,
+				false }, new boolean[] { true, false });
+	}
+
+	@Test
+	public void testCompactFile() throws IOException {
+		final long originalSize = file.length();
+
+		compactor.compact(file);
+
+		assertTrue(file.length() < originalSize);
+		final List<ExecutionData> records = new ArrayList<ExecutionData>();
+		final SessionInfoStore sessions = read(records);
+		assertEquals(2, records.size());
+		final ExecutionDataStore store = new ExecutionDataStore();
+		for (final ExecutionData data : records) {
+			store.put(data);
+		}
+		assertTrue(Arrays.equals(new boolean[] { true, true, false }, store
+				.get(1).getProbes()));
+		assertTrue(Arrays.equals(new boolean[] { true, true }, store.get(2)
+				.getProbes()));
+		final List<SessionInfo> infos = sessions.getInfos();
+		assertEquals(2, infos.size());
+		assertEquals("s1", infos.get(0).getId());
+		assertEquals("s2", infos.get(1).getId());
+	}
+
+	@Test
+	public void testCompactFileWithSessionId() throws IOException {
+		compactor.setSessionId("merged");
+
+		compactor.compact(file);
+
+		final SessionInfoStore sessions = read(new ArrayList<ExecutionData>());
+		final List<SessionInfo> infos = sessions.getInfos();
+		assertEquals(1, infos.size());
+		assertEquals("merged", infos.get(0).getId());
+		assertEquals(10, infos.get(0).getStartTimeStamp());
+		assertEquals(40, infos.get(0).getDumpTimeStamp());
+	}
+
+	@Test
+	public void testCompactTwice() throws IOException {
+		compactor.compact(file);
+		final long size = file.length();
+
+		compactor.compact(file);
+
+		assertEquals(size, file.length());
+	}
+
+	@Test
+	public void testAppendAfterCompact() throws IOException {
+		compactor.compact(file);
+		append(new SessionInfo("s3", 50, 60), null, new boolean[] { false,
+				true });
+
+		final List<ExecutionData> records = new ArrayList<ExecutionData>();
+		final SessionInfoStore sessions = read(records);
+		assertEquals(3, records.size());
+		assertEquals(3, sessions.getInfos().size());
+	}
+
+	@Test
+	public void testCompactStream() throws IOException {
+		final ExecFileLoader loader = new ExecFileLoader();
+		loader.load(file);
+		final ByteArrayOutputStream original = new ByteArrayOutputStream();
+		loader.save(original);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		compactor.compact(new ByteArrayInputStream(original.toByteArray()),
+				out);
+
+		final ExecFileLoader result = new ExecFileLoader();
+		result.load(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(2, result.getExecutionDataStore().getContents().size());
+		assertEquals(2, result.getSessionInfoStore().getInfos().size());
+	}
+
+	@Test(expected = FileNotFoundException.class)
+	public void testCompactMissingFile() throws IOException {
+		compactor.compact(new File(folder.getRoot(), "missing.exec"));
+	}
+
+	@Test(expected = IOException.class)
+	public void testCompactInvalidFile() throws IOException {
+		final File invalid = folder.newFile("invalid.exec");
+		final OutputStream out = new FileOutputStream(invalid);
+		out.write("invalid".getBytes());
+		out.close();
+
+		compactor.compact(invalid);
+	}
+
+	@Test
+	public void testCompactFileWriteFailure() throws IOException {
+		final byte[] original = readFile();
+		compactor = new ExecFileCompactor() {
+			@Override
+			public void compact(final InputStream input,
+					final OutputStream output) throws IOException {
+				super.compact(input, new OutputStream() {
+					private int count;
+
+					@Override
+					public void write(final int b) throws IOException {
+						if (++count > 20) {
+							throw new IOException("Disk full");
+						}
+						output.write(b);
+					}
+				});
+			}
+		};
+
+		try {
+			compactor.compact(file);
+			fail("Exception expected");
+		} catch (final RuntimeException e) {
+			// writer reports the IOException as RuntimeException
+			assertEquals("Disk full", e.getCause().getMessage());
+		}
+		assertArrayEquals(original, readFile());
+	}
+
+	private byte[] readFile() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final InputStream in = new FileInputStream(file);
+		try {
+			final byte[] buffer = new byte[1024];
+			int len;
+			while ((len = in.read(buffer)) != -1) {
+				out.write(buffer, 0, len);
+			}
+		} finally {
+			in.close();
+		}
+		return out.toByteArray();
+	}
+
+	private void append(final SessionInfo info, final boolean[] probes1,
+			final boolean[] probes2) throws IOException {
+		final ExecFileLoader loader = new ExecFileLoader();
+		loader.getSessionInfoStore().visitSessionInfo(info);
+		if (probes1 != null) {
+			loader.getExecutionDataStore().put(
+					new ExecutionData(1, "Foo", probes1));
+		}
+		if (probes2 != null) {
+			loader.getExecutionDataStore().put(
+					new ExecutionData(2, "Bar", probes2));
+		}
+		loader.save(file, true);
+	}
+
+	private SessionInfoStore read(final List<ExecutionData> records)
+			throws IOException {
+		final SessionInfoStore sessions = new SessionInfoStore();
+		final InputStream in = new FileInputStream(file);
+		try {
+			final ExecutionDataReader reader = new ExecutionDataReader(in);
+			reader.setSessionInfoVisitor(sessions);
+			reader.setExecutionDataVisitor(new IExecutionDataVisitor() {
+				public void visitClassExecution(final ExecutionData data) {
+					records.add(data);
+				}
+			});
+			reader.read();
+		} finally {
+			in.close();
+		}
+		return sessions;
+	}
+
+}
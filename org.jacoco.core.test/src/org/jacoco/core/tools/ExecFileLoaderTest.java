@@ -20,6 +20,8 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.util.List;
 
 import org.jacoco.core.data.ExecutionData;
@@ -68,6 +70,14 @@ public class ExecFileLoaderTest {
 		assertLoaderContents("a", "bb");
 	}
 
+	@Test
+	public void testLoadByteBuffer() throws IOException {
+		loadMapped(createFile("a"));
+		loadMapped(createFile("bb"));
+
+		assertLoaderContents("a", "bb");
+	}
+
 	@Test(expected = IOException.class)
 	public void testLoadBrokenContent() throws IOException {
 		final File file = new File(sourceFolder.getRoot(), "broken.exec");
@@ -113,6 +123,17 @@ public class ExecFileLoaderTest {
 		assertFileContents(file, "a");
 	}
 
+	private void loadMapped(final File file) throws IOException {
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			loader.load(channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size()));
+		} finally {
+			raf.close();
+		}
+	}
+
 	private File createFile(String id) throws IOException {
 		final File file = new File(sourceFolder.getRoot(), id + ".exec");
 		final FileOutputStream out = new FileOutputStream(file);
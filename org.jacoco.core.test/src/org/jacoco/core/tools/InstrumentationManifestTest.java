@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.TreeSet;
+
+import org.jacoco.core.internal.data.CRC64;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link InstrumentationManifest}.
+ */
+public class InstrumentationManifestTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private InstrumentationManifest manifest;
+
+	@Before
+	public void setup() {
+		manifest = new InstrumentationManifest("config");
+	}
+
+	@Test
+	public void testHash() {
+		final byte[] content = new byte[] { 1, 2, 3 };
+		assertEquals(CRC64.checksum(content),
+				InstrumentationManifest.hash(content));
+	}
+
+	@Test
+	public void testPut() {
+		manifest.put("a/A.class", 1, 2);
+
+		assertTrue(manifest.isUnchanged("a/A.class", 1));
+		assertFalse(manifest.isUnchanged("a/A.class", 2));
+		assertFalse(manifest.isUnchanged("a/B.class", 1));
+		assertTrue(manifest.isInstrumented("a/A.class", 2));
+		assertFalse(manifest.isInstrumented("a/A.class", 1));
+		assertFalse(manifest.isInstrumented("a/B.class", 2));
+	}
+
+	@Test
+	public void testRetain() {
+		manifest.put("A.class", 1, 2);
+		manifest.put("B.class", 3, 4);
+		manifest.put("C.class", 5, 6);
+
+		assertEquals(Collections.singleton("B.class"),
+				manifest.retain(Arrays.asList("A.class", "C.class", "D.class")));
+		assertEquals(
+				new TreeSet<String>(Arrays.asList("A.class",
+						"C.class")), manifest.getNames());
+	}
+
+	@Test
+	public void testSaveLoad() throws IOException {
+		manifest.put("A.class", 0, -1);
+		manifest.put("lib/a b.jar", Long.MIN_VALUE, Long.MAX_VALUE);
+		manifest.put("C.class", 0x123456789abcdefL, 0xfedcba9876543210L);
+
+		final InstrumentationManifest loaded = reload(manifest, "config");
+
+		assertEquals(manifest.getNames(), loaded.getNames());
+		assertTrue(loaded.isUnchanged("A.class", 0));
+		assertTrue(loaded.isInstrumented("A.class", -1));
+		assertTrue(loaded.isUnchanged("lib/a b.jar", Long.MIN_VALUE));
+		assertTrue(loaded.isInstrumented("lib/a b.jar", Long.MAX_VALUE));
+		assertTrue(loaded.isUnchanged("C.class", 0x123456789abcdefL));
+		assertTrue(loaded.isInstrumented("C.class", 0xfedcba9876543210L));
+	}
+
+	@Test
+	public void testLoadOtherConfiguration() throws IOException {
+		manifest.put("A.class", 1, 2);
+
+		final InstrumentationManifest loaded = reload(manifest, "other");
+
+		assertTrue(loaded.getNames().isEmpty());
+	}
+
+	@Test
+	public void testLoadOtherVersion() throws IOException {
+		final String content = "# JaCoCo 0.1.0\tconfig\n1\t2\tA.class\n";
+		manifest.load(new ByteArrayInputStream(content.getBytes("UTF-8")));
+
+		assertTrue(manifest.getNames().isEmpty());
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadInvalidEntry() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		manifest.save(out);
+		out.write("1\tA.class\n".getBytes("UTF-8"));
+		manifest.load(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadInvalidHash() throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		manifest.save(out);
+		out.write("1\txyz\tA.class\n".getBytes("UTF-8"));
+		manifest.load(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	@Test
+	public void testSaveLoadFile() throws IOException {
+		final File file = new File(folder.getRoot(), "sub/jacoco.manifest");
+		manifest.put("A.class", 1, 2);
+		manifest.save(file);
+
+		final InstrumentationManifest loaded = new InstrumentationManifest(
+				"config");
+		loaded.load(file);
+
+		assertTrue(loaded.isUnchanged("A.class", 1));
+	}
+
+	@Test
+	public void testLoadMissingFile() throws IOException {
+		manifest.load(new File(folder.getRoot(), "missing"));
+
+		assertTrue(manifest.getNames().isEmpty());
+	}
+
+	private static InstrumentationManifest reload(
+			final InstrumentationManifest manifest, final String configuration)
+			throws IOException {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		manifest.save(out);
+		final InstrumentationManifest loaded = new InstrumentationManifest(
+				configuration);
+		loaded.load(new ByteArrayInputStream(out.toByteArray()));
+		return loaded;
+	}
+
+}
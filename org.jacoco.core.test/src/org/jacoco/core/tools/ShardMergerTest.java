@@ -0,0 +1,183 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.runtime.ClassShard;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link ShardMerger}.
+ */
+public class ShardMergerTest {
+
+	@Rule
+	public final TemporaryFolder folder = new TemporaryFolder();
+
+	private static final ClassShard SHARD0 = new ClassShard(0, 3);
+
+	private static final ClassShard SHARD1 = new ClassShard(1, 3);
+
+	private static final ClassShard SHARD2 = new ClassShard(2, 3);
+
+	private ShardMerger merger;
+
+	private String class0;
+
+	private String class1;
+
+	private String class2;
+
+	@Before
+	public void setup() {
+		merger = new ShardMerger();
+		class0 = getClass(SHARD0);
+		class1 = getClass(SHARD1);
+		class2 = getClass(SHARD2);
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+		merger.load(createExec("r1", class0, new boolean[] { true, false }),
+				SHARD0);
+		merger.load(createExec("r2", class0, new boolean[] { false, true }),
+				SHARD0);
+		final File file = folder.newFile("shard1.exec");
+		final OutputStream out = new FileOutputStream(file);
+		out.write(toBytes("r3", class1, new boolean[] { true }));
+		out.close();
+		merger.load(file, SHARD1);
+
+		assertEquals(3, merger.getSessionInfoStore().getInfos().size());
+		assertEquals(2, merger.getExecutionDataStore().getContents().size());
+		final boolean[] probes = merger.getExecutionDataStore()
+				.get(Long.valueOf(class0.hashCode()), class0, 2).getProbes();
+		assertTrue(probes[0]);
+		assertTrue(probes[1]);
+
+		assertTrue(merger.isInstrumented(class0));
+		assertTrue(merger.isInstrumented(class1));
+		assertFalse(merger.isInstrumented(class2));
+	}
+
+	@Test(expected = IOException.class)
+	public void testLoadWrongShard() throws Exception {
+		merger.load(createExec("r1", class1, new boolean[] { true }), SHARD0);
+	}
+
+	@Test
+	public void testFilter() throws Exception {
+		merger.load(createExec("r1", class0, new boolean[] { true }), SHARD0);
+		final List<String> visited = new ArrayList<String>();
+		final ICoverageVisitor filter = merger.filter(new ICoverageVisitor() {
+			public void visitCoverage(final IClassCoverage coverage) {
+				visited.add(coverage.getName());
+			}
+		});
+
+		filter.visitCoverage(new ClassCoverageImpl(class0, 0, false));
+		filter.visitCoverage(new ClassCoverageImpl(class1, 0, false));
+
+		assertEquals(Arrays.asList(class0), visited);
+		assertEquals(Arrays.asList(class1),
+				new ArrayList<String>(merger.getNotInstrumented()));
+	}
+
+	@Test
+	public void testMixedShardCounts() throws Exception {
+		merger.load(createExec("r1", class0, new boolean[] { true }),
+				ClassShard.ALL);
+		assertTrue(merger.isInstrumented(class1));
+		assertTrue(merger.isInstrumented(class2));
+	}
+
+	@Test
+	public void testWriteShardMap() throws Exception {
+		merger.load(createExec("r1", class1, new boolean[] { true }), SHARD1);
+		merger.load(createExec("r2", class1, new boolean[] { true }),
+				ClassShard.ALL);
+		merger.load(createExec("r3", class0, new boolean[] { true }), SHARD0);
+
+		final StringWriter writer = new StringWriter();
+		merger.writeShardMap(writer);
+
+		final String[] expected = new String[] { class0 + "\t0/3",
+				class1 + "\t0/1,1/3" };
+		Arrays.sort(expected);
+		assertEquals("# shards\t1/3,0/1,0/3\n" + expected[0] + "\n"
+				+ expected[1] + "\n", writer.toString());
+	}
+
+	@Test
+	public void testSave() throws Exception {
+		merger.load(createExec("r1", class0, new boolean[] { true }), SHARD0);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		merger.save(out);
+
+		final ExecFileLoader loader = new ExecFileLoader();
+		loader.load(new ByteArrayInputStream(out.toByteArray()));
+		assertTrue(loader.getExecutionDataStore().contains(class0));
+
+		final File file = new File(folder.getRoot(), "merged.exec");
+		merger.save(file, false);
+		loader.load(file);
+		assertEquals(1, loader.getExecutionDataStore().getContents().size());
+	}
+
+	private static String getClass(final ClassShard shard) {
+		for (int i = 0;; i++) {
+			final String name = "org/example/Foo" + i;
+			if (shard.contains(name)) {
+				return name;
+			}
+		}
+	}
+
+	private static ByteArrayInputStream createExec(final String session,
+			final String name, final boolean[] probes) throws IOException {
+		return new ByteArrayInputStream(toBytes(session, name, probes));
+	}
+
+	private static byte[] toBytes(final String session, final String name,
+			final boolean[] probes) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		final ExecutionDataWriter writer = new ExecutionDataWriter(buffer);
+		writer.visitSessionInfo(new SessionInfo(session, 1, 2));
+		writer.visitClassExecution(new ExecutionData(name.hashCode(), name,
+				probes));
+		return buffer.toByteArray();
+	}
+
+}
@@ -11,20 +11,33 @@
  *******************************************************************************/
 package org.jacoco.core.analysis;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.internal.ContentTypeDetector;
 import org.jacoco.core.internal.Java9Support;
 import org.jacoco.core.internal.Pack200Streams;
-import org.jacoco.core.internal.analysis.StringPool;
 import org.jacoco.core.internal.data.CRC64;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
@@ -46,6 +59,8 @@ public abstract class AbstractAnalyzer {
 	@SuppressWarnings("javadoc")
 	protected final StringPool stringPool;
 
+	private int archiveThreads = 0;
+
 	/**
 	 * Creates a new analyzer reporting to the given output.
 	 * 
@@ -53,8 +68,43 @@ public abstract class AbstractAnalyzer {
 	 *            execution data
 	 */
 	public AbstractAnalyzer(final ExecutionDataStore executionData) {
+		this(executionData, new StringPool());
+	}
+
+	/**
+	 * Creates a new analyzer which normalizes strings with the given pool.
+	 * 
+	 * @param executionData
+	 *            execution data
+	 * @param stringPool
+	 *            pool which might be shared with other analyzers
+	 */
+	public AbstractAnalyzer(final ExecutionDataStore executionData,
+			final StringPool stringPool) {
 		this.executionData = executionData;
-		this.stringPool = new StringPool();
+		this.stringPool = stringPool;
+	}
+
+	/**
+	 * Enables random access to archive files on disk. With a positive number
+	 * of threads ZIP files passed to {@link #analyzeAll(File)} are read
+	 * through their central directory: Only entries with a class file or
+	 * archive file name are inflated, each into a buffer of the exact entry
+	 * size. The class files are analyzed by the given number of threads and
+	 * the results are reported from the calling thread in the order of the
+	 * entries. Nested ZIP archives are copied to a temporary file to read
+	 * them the same way.
+	 * 
+	 * @param threads
+	 *            number of threads for the analysis of archive files on disk
+	 *            or 0 (default) to read all archives as streams
+	 */
+	public void setArchiveThreads(final int threads) {
+		if (threads < 0) {
+			throw new IllegalArgumentException(
+					"Number of threads must not be negative.");
+		}
+		this.archiveThreads = threads;
 	}
 
 	/**
@@ -120,6 +170,32 @@ public abstract class AbstractAnalyzer {
 		}
 	}
 
+	/**
+	 * Analyzes the class definition from a given in-memory buffer on a worker
+	 * thread. The returned task reports the results of the analysis and is
+	 * executed on the thread which has started the analysis, in the order of
+	 * the archive entries. This implementation analyzes the class immediately
+	 * and therefore requires {@link #createAnalyzingVisitor(long, String)} to
+	 * be thread safe. Subclasses should defer reporting to the returned task.
+	 * 
+	 * @param buffer
+	 *            class definitions
+	 * @param location
+	 *            a location description used for exception messages
+	 * @return task which reports the results of the analysis
+	 * @throws IOException
+	 *             if the class can't be analyzed
+	 */
+	protected Runnable analyzeClassDeferred(final byte[] buffer,
+			final String location) throws IOException {
+		analyzeClass(buffer, location);
+		return new Runnable() {
+			public void run() {
+				// results have already been reported
+			}
+		};
+	}
+
 	private IOException analyzerError(final String location,
 			final Exception cause) {
 		final IOException ex = new IOException(
@@ -168,7 +244,8 @@ public abstract class AbstractAnalyzer {
 	/**
 	 * Analyzes all class files contained in the given file or folder. Class
 	 * files as well as ZIP files are considered. Folders are searched
-	 * recursively.
+	 * recursively. ZIP files are read with random access if enabled with
+	 * {@link #setArchiveThreads(int)}.
 	 * 
 	 * @param file
 	 *            file or folder to look for class files
@@ -182,6 +259,16 @@ public abstract class AbstractAnalyzer {
 			for (final File f : file.listFiles()) {
 				count += analyzeAll(f);
 			}
+		} else if (archiveThreads > 0) {
+			final ExecutorService executor = archiveThreads == 1 ? null
+					: Executors.newFixedThreadPool(archiveThreads);
+			try {
+				count += analyzeFile(file, file.getPath(), executor);
+			} finally {
+				if (executor != null) {
+					executor.shutdownNow();
+				}
+			}
 		} else {
 			final InputStream in = new FileInputStream(file);
 			try {
@@ -238,6 +325,179 @@ public abstract class AbstractAnalyzer {
 		}
 	}
 
+	private int analyzeFile(final File file, final String location,
+			final ExecutorService executor) throws IOException {
+		final InputStream in = new FileInputStream(file);
+		try {
+			final ContentTypeDetector detector;
+			try {
+				detector = new ContentTypeDetector(in);
+			} catch (final IOException e) {
+				throw analyzerError(location, e);
+			}
+			if (detector.getType() != ContentTypeDetector.ZIPFILE) {
+				return analyzeAll(detector.getInputStream(), location);
+			}
+		} finally {
+			in.close();
+		}
+		final ZipFile zip;
+		try {
+			zip = new ZipFile(file);
+		} catch (final IOException e) {
+			throw analyzerError(location, e);
+		}
+		try {
+			return analyzeZipFile(zip, location, executor);
+		} finally {
+			zip.close();
+		}
+	}
+
+	private int analyzeZipFile(final ZipFile zip, final String location,
+			final ExecutorService executor) throws IOException {
+		final List<Future<Runnable>> pending = new ArrayList<Future<Runnable>>();
+		int count = 0;
+		try {
+			final Enumeration<? extends ZipEntry> entries = zip.entries();
+			while (entries.hasMoreElements()) {
+				final ZipEntry entry = entries.nextElement();
+				final String name = entry.getName();
+				final String entryLocation = location + "@" + name;
+				if (name.endsWith(".class")) {
+					if (executor == null) {
+						count += report(analyzeEntry(zip, entry, entryLocation));
+					} else {
+						pending.add(executor.submit(new Callable<Runnable>() {
+							public Runnable call() throws IOException {
+								return analyzeEntry(zip, entry, entryLocation);
+							}
+						}));
+					}
+				} else if (isArchive(name)) {
+					count += report(pending);
+					count += analyzeNestedArchive(zip, entry, entryLocation,
+							executor);
+				}
+			}
+			count += report(pending);
+		} finally {
+			for (final Future<Runnable> f : pending) {
+				f.cancel(true);
+			}
+		}
+		return count;
+	}
+
+	private static boolean isArchive(final String name) {
+		return name.endsWith(".jar") || name.endsWith(".war")
+				|| name.endsWith(".ear") || name.endsWith(".zip")
+				|| name.endsWith(".gz") || name.endsWith(".pack");
+	}
+
+	private Runnable analyzeEntry(final ZipFile zip, final ZipEntry entry,
+			final String location) throws IOException {
+		final byte[] buffer;
+		try {
+			buffer = readEntry(zip, entry);
+		} catch (final IOException e) {
+			throw analyzerError(location, e);
+		}
+		final int type = new ContentTypeDetector(
+				new ByteArrayInputStream(buffer)).getType();
+		if (type != ContentTypeDetector.CLASSFILE) {
+			return null;
+		}
+		return analyzeClassDeferred(buffer, location);
+	}
+
+	private static byte[] readEntry(final ZipFile zip, final ZipEntry entry)
+			throws IOException {
+		final InputStream in = zip.getInputStream(entry);
+		try {
+			final long size = entry.getSize();
+			if (size < 0 || size > Integer.MAX_VALUE) {
+				return Java9Support.readFully(in);
+			}
+			final byte[] buffer = new byte[(int) size];
+			int offset = 0;
+			while (offset < buffer.length) {
+				final int r = in.read(buffer, offset, buffer.length - offset);
+				if (r == -1) {
+					throw new EOFException();
+				}
+				offset += r;
+			}
+			return buffer;
+		} finally {
+			in.close();
+		}
+	}
+
+	private int analyzeNestedArchive(final ZipFile zip, final ZipEntry entry,
+			final String location, final ExecutorService executor)
+			throws IOException {
+		final File temp = File.createTempFile("jacoco", ".tmp");
+		try {
+			final OutputStream out = new FileOutputStream(temp);
+			try {
+				final InputStream in = zip.getInputStream(entry);
+				try {
+					final byte[] buffer = new byte[8192];
+					int r;
+					while ((r = in.read(buffer)) != -1) {
+						out.write(buffer, 0, r);
+					}
+				} finally {
+					in.close();
+				}
+			} catch (final IOException e) {
+				throw analyzerError(location, e);
+			} finally {
+				out.close();
+			}
+			return analyzeFile(temp, location, executor);
+		} finally {
+			temp.delete();
+		}
+	}
+
+	private static int report(final Runnable result) {
+		if (result == null) {
+			return 0;
+		}
+		result.run();
+		return 1;
+	}
+
+	private static int report(final List<Future<Runnable>> pending)
+			throws IOException {
+		int count = 0;
+		while (!pending.isEmpty()) {
+			final Runnable result;
+			try {
+				result = pending.get(0).get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				final InterruptedIOException ex = new InterruptedIOException();
+				ex.initCause(e);
+				throw ex;
+			} catch (final ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				}
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw (Error) cause;
+			}
+			pending.remove(0);
+			count += report(result);
+		}
+		return count;
+	}
+
 	private int analyzeGzip(final InputStream input, final String location)
 			throws IOException {
 		GZIPInputStream gzipInputStream;
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.jacoco.core.internal.analysis.ClassStructure;
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+
+/**
+ * Directory which stores the probe independent structure of analyzed classes
+ * in a compact binary form. Entries are keyed by the class id, which is a
+ * checksum of the class file content, so an entry stays valid as long as the
+ * class file does not change. For a class with a cache entry the
+ * {@link Analyzer} calculates the coverage from the cached structure without
+ * parsing the class file.
+ *
+ * A cache entry which can not be read is treated as missing and entries which
+ * can not be written are skipped, i.e. problems with the cache never fail the
+ * analysis. Entries are written to temporary files first, therefore a cache
+ * directory can be shared by concurrent processes.
+ */
+public class AnalysisCache {
+
+	/** Magic number in the header of every entry. */
+	private static final char MAGIC_NUMBER = 0xC0C0;
+
+	/**
+	 * Version of the entry format, must be increased whenever the format or
+	 * the analysis results (e.g. filters) change.
+	 */
+	private static final char FORMAT_VERSION = 0x0001;
+
+	private static final String SUFFIX = ".jacococache";
+
+	private final File directory;
+
+	/**
+	 * Creates a cache in the given directory. The directory is created when
+	 * the first entry is written.
+	 *
+	 * @param directory
+	 *            directory to store the cache entries in
+	 */
+	public AnalysisCache(final File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the directory of this cache.
+	 *
+	 * @return cache directory
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Reads the structure of the class with the given id.
+	 *
+	 * @param id
+	 *            class id
+	 * @param stringPool
+	 *            shared pool to minimize the number of {@link String} instances
+	 * @return cached structure or <code>null</code> if no valid entry exists
+	 */
+	ClassStructure get(final long id, final StringPool stringPool) {
+		final File file = getFile(id);
+		if (!file.isFile()) {
+			return null;
+		}
+		try {
+			final InputStream in = new BufferedInputStream(
+					new FileInputStream(file));
+			try {
+				final CompactDataInput data = new CompactDataInput(in);
+				if (data.readChar() != MAGIC_NUMBER
+						|| data.readChar() != FORMAT_VERSION
+						|| data.readLong() != id) {
+					return null;
+				}
+				return ClassStructure.read(data, stringPool);
+			} finally {
+				in.close();
+			}
+		} catch (final IOException e) {
+			// Incomplete or corrupt entries are recalculated
+			return null;
+		}
+	}
+
+	/**
+	 * Writes the structure of the class with the given id.
+	 *
+	 * @param id
+	 *            class id
+	 * @param structure
+	 *            structure of the class
+	 */
+	void put(final long id, final ClassStructure structure) {
+		File temp = null;
+		try {
+			directory.mkdirs();
+			temp = File.createTempFile(String.format("%016x", Long.valueOf(id)),
+					".tmp", directory);
+			final OutputStream out = new BufferedOutputStream(
+					new FileOutputStream(temp));
+			try {
+				final CompactDataOutput data = new CompactDataOutput(out);
+				data.writeChar(MAGIC_NUMBER);
+				data.writeChar(FORMAT_VERSION);
+				data.writeLong(id);
+				structure.write(data);
+			} finally {
+				out.close();
+			}
+			if (temp.renameTo(getFile(id))) {
+				temp = null;
+			}
+		} catch (final IOException e) {
+			// The entry will be calculated again next time
+		} finally {
+			if (temp != null) {
+				temp.delete();
+			}
+		}
+	}
+
+	private File getFile(final long id) {
+		return new File(directory, String.format("%016x%s", Long.valueOf(id),
+				SUFFIX));
+	}
+
+}
@@ -11,12 +11,20 @@
  *******************************************************************************/
 package org.jacoco.core.analysis;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionData.ProbesType;
 import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.internal.analysis.ClassAnalyzer;
 import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.ClassStructure;
 import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.instr.CounterPlacement;
+import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 
 /**
@@ -31,6 +39,12 @@ public class Analyzer extends AbstractAnalyzer {
 
 	private final ICoverageVisitor coverageVisitor;
 
+	private AnalysisCache cache;
+
+	private boolean lineCoverage = true;
+
+	private final ThreadLocal<List<IClassCoverage>> deferred = new ThreadLocal<List<IClassCoverage>>();
+
 	/**
 	 * Creates a new analyzer reporting to the given output.
 	 * 
@@ -46,6 +60,125 @@ public class Analyzer extends AbstractAnalyzer {
 		this.coverageVisitor = coverageVisitor;
 	}
 
+	/**
+	 * Creates a new analyzer reporting to the given output. All names,
+	 * descriptors and signatures of the coverage data are normalized with the
+	 * given pool.
+	 * 
+	 * @param executionData
+	 *            execution data
+	 * @param coverageVisitor
+	 *            the output instance that will coverage data for every analyzed
+	 *            class
+	 * @param stringPool
+	 *            pool which might be shared with other analyzers
+	 */
+	public Analyzer(final ExecutionDataStore executionData,
+			final ICoverageVisitor coverageVisitor, final StringPool stringPool) {
+		super(executionData, stringPool);
+		this.coverageVisitor = coverageVisitor;
+	}
+
+	/**
+	 * Sets a cache for the structure of analyzed classes. Classes with a cache
+	 * entry are not parsed again, for all other classes an entry is created.
+	 * 
+	 * @param cache
+	 *            cache to use or <code>null</code> (default) to analyze all
+	 *            classes
+	 */
+	public void setAnalysisCache(final AnalysisCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Sets whether line coverage is calculated. Without line coverage the
+	 * line numbers of the class files are ignored: The coverage nodes have no
+	 * lines and an empty line counter, all other counters are calculated as
+	 * usual. This saves memory and time if only summary counters are
+	 * required, e.g. for coverage checks. No cache entries are written
+	 * without line coverage.
+	 * 
+	 * @param lineCoverage
+	 *            <code>false</code> to skip line coverage, default is
+	 *            <code>true</code>
+	 */
+	public void setLineCoverage(final boolean lineCoverage) {
+		this.lineCoverage = lineCoverage;
+	}
+
+	@Override
+	public void analyzeClass(final ClassReader reader) {
+		if (ExecutionData.getProbesType() == ProbesType.COUNTING) {
+			analyzeCountedClass(reader);
+			return;
+		}
+		if (cache != null) {
+			final long classid = CRC64.checksum(reader.b);
+			final ClassStructure structure = cache.get(classid, stringPool);
+			if (structure != null) {
+				final String className = structure.getName();
+				final ExecutionData data = executionData.get(classid);
+				report(structure.replay(classid,
+						isNoMatch(data, className), getProbes(data),
+						lineCoverage));
+				return;
+			}
+		}
+		super.analyzeClass(reader);
+	}
+
+	/**
+	 * Execution data recorded with {@link ProbesType#COUNTING} only holds the
+	 * counters, so the probes are derived from the counters first.
+	 */
+	private void analyzeCountedClass(final ClassReader reader) {
+		final long classid = CRC64.checksum(reader.b);
+		final ExecutionData data = executionData.get(classid);
+		final boolean[] probes;
+		if (data == null) {
+			probes = null;
+		} else {
+			final int[] counts = ExecutionCounts.getProbeCounts(
+					CounterPlacement.create(reader), data);
+			probes = new boolean[counts.length];
+			for (int i = 0; i < counts.length; i++) {
+				probes[i] = counts[i] > 0;
+			}
+		}
+		if (cache != null) {
+			final ClassStructure structure = cache.get(classid, stringPool);
+			if (structure != null) {
+				report(structure.replay(classid,
+						isNoMatch(data, structure.getName()), probes,
+						lineCoverage));
+				return;
+			}
+		}
+		reader.accept(
+				createAnalyzingVisitor(classid, reader.getClassName(), probes),
+				0);
+	}
+
+	@Override
+	protected Runnable analyzeClassDeferred(final byte[] buffer,
+			final String location) throws IOException {
+		final List<IClassCoverage> results = new ArrayList<IClassCoverage>(1);
+		deferred.set(results);
+		try {
+			analyzeClass(buffer, location);
+		} finally {
+			deferred.remove();
+		}
+		return new Runnable() {
+			public void run() {
+				for (final IClassCoverage coverage : results) {
+					coverageVisitor.visitCoverage(coverage);
+				}
+			}
+		};
+	}
+
 	/**
 	 * Creates an ASM class visitor for analysis.
 	 * 
@@ -58,27 +191,48 @@ public class Analyzer extends AbstractAnalyzer {
 	@Override
 	protected ClassVisitor createAnalyzingVisitor(final long classid,
 			final String className) {
+		return createAnalyzingVisitor(classid, className,
+				getProbes(executionData.get(classid)));
+	}
+
+	private ClassVisitor createAnalyzingVisitor(final long classid,
+			final String className, final boolean[] probes) {
 		final ExecutionData data = executionData.get(classid);
-		final boolean[] probes;
-		final boolean noMatch;
-		if (data == null) {
-			probes = null;
-			noMatch = executionData.contains(className);
-		} else {
-			probes = data.getProbes();
-			noMatch = false;
-		}
-		final ClassCoverageImpl coverage = new ClassCoverageImpl(className,
-				classid, noMatch);
+		final String name = stringPool.get(className);
+		final ClassCoverageImpl coverage = new ClassCoverageImpl(name, classid,
+				isNoMatch(data, name));
+		final ClassStructure structure = cache == null || !lineCoverage ? null
+				: new ClassStructure(name);
 		final ClassAnalyzer analyzer = new ClassAnalyzer(coverage, probes,
-				stringPool) {
+				stringPool, structure) {
 			@Override
 			public void visitEnd() {
 				super.visitEnd();
-				coverageVisitor.visitCoverage(coverage);
+				if (structure != null) {
+					cache.put(classid, structure);
+				}
+				report(coverage);
 			}
 		};
+		analyzer.setLineCoverage(lineCoverage);
 		return new ClassProbesAdapter(analyzer, false);
 	}
 
+	private void report(final IClassCoverage coverage) {
+		final List<IClassCoverage> results = deferred.get();
+		if (results == null) {
+			coverageVisitor.visitCoverage(coverage);
+		} else {
+			results.add(coverage);
+		}
+	}
+
+	private boolean isNoMatch(final ExecutionData data, final String className) {
+		return data == null && executionData.contains(className);
+	}
+
+	private static boolean[] getProbes(final ExecutionData data) {
+		return data == null ? null : data.getProbes();
+	}
+
 }
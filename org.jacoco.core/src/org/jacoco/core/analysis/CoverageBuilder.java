@@ -40,6 +40,8 @@ public class CoverageBuilder implements ICoverageVisitor {
 
 	private final Map<String, ISourceFileCoverage> sourcefiles;
 
+	private boolean sourceFileCoverage = true;
+
 	/**
 	 * Create a new builder.
 	 * 
@@ -49,6 +51,21 @@ public class CoverageBuilder implements ICoverageVisitor {
 		this.sourcefiles = new HashMap<String, ISourceFileCoverage>();
 	}
 
+	/**
+	 * Sets whether source file nodes are created for the classes added
+	 * afterwards. Without source file nodes bundles and packages only contain
+	 * classes, which saves memory if no source file level data is required.
+	 * As the lines of all classes of a source file are merged, the line
+	 * counters of packages and bundles are only exact with source file nodes.
+	 * 
+	 * @param sourceFileCoverage
+	 *            <code>false</code> to skip source file nodes, default is
+	 *            <code>true</code>
+	 */
+	public void setSourceFileCoverage(final boolean sourceFileCoverage) {
+		this.sourceFileCoverage = sourceFileCoverage;
+	}
+
 	/**
 	 * Returns all class nodes currently contained in this builder.
 	 * 
@@ -110,7 +127,7 @@ public class CoverageBuilder implements ICoverageVisitor {
 				}
 			} else {
 				final String source = coverage.getSourceFileName();
-				if (source != null) {
+				if (source != null && sourceFileCoverage) {
 					final SourceFileCoverageImpl sourceFile = getSourceFile(
 							source, coverage.getPackageName());
 					sourceFile.increment(coverage);
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.analysis;
+
+import static java.lang.String.format;
+
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionData.ProbesType;
+import org.jacoco.core.internal.Java9Support;
+import org.jacoco.core.internal.instr.CounterPlacement;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Execution counts of the probes and lines of a single class. The counts are
+ * calculated from execution data which has been recorded with the probes type
+ * {@link ProbesType#INTEGER} or {@link ProbesType#COUNTING}. For the latter
+ * the counts of the probes without counter are derived from the recorded
+ * counters.
+ */
+public final class ExecutionCounts {
+
+	/** Count of lines without instructions. */
+	public static final long NO_CODE = -1;
+
+	private final int[] probes;
+
+	private final int firstLine;
+
+	private final long[] lines;
+
+	private ExecutionCounts(final int[] probes, final int firstLine,
+			final long[] lines) {
+		this.probes = probes;
+		this.firstLine = firstLine;
+		this.lines = lines;
+	}
+
+	/**
+	 * Calculates the execution counts for the given class definition. The
+	 * execution data is interpreted according to the probes type currently
+	 * set for {@link ExecutionData}.
+	 *
+	 * @param buffer
+	 *            original class definition
+	 * @param data
+	 *            execution data of the class or <code>null</code> if the
+	 *            class has not been executed
+	 * @return execution counts of the class
+	 * @throws IllegalStateException
+	 *             if the execution data does not fit the class definition
+	 */
+	public static ExecutionCounts calculate(final byte[] buffer,
+			final ExecutionData data) {
+		final CounterPlacement placement = CounterPlacement
+				.create(new ClassReader(Java9Support.downgradeIfRequired(buffer)));
+		final int[] probes = getProbeCounts(placement, data);
+
+		final long[] insns = placement.getInstructionCounts(probes);
+		int first = Integer.MAX_VALUE;
+		int last = -1;
+		for (int i = 0; i < insns.length; i++) {
+			final int line = placement.getLine(i);
+			if (line != -1) {
+				first = Math.min(first, line);
+				last = Math.max(last, line);
+			}
+		}
+		if (last == -1) {
+			return new ExecutionCounts(probes, -1, new long[0]);
+		}
+		final long[] lines = new long[last - first + 1];
+		for (int i = 0; i < lines.length; i++) {
+			lines[i] = NO_CODE;
+		}
+		for (int i = 0; i < insns.length; i++) {
+			final int line = placement.getLine(i);
+			if (line != -1) {
+				lines[line - first] = Math.max(lines[line - first], insns[i]);
+			}
+		}
+		return new ExecutionCounts(probes, first, lines);
+	}
+
+	/**
+	 * Returns the execution counts of all probes of the class.
+	 *
+	 * @param placement
+	 *            counter placement of the class
+	 * @param data
+	 *            execution data of the class or <code>null</code>
+	 * @return execution count for every probe id
+	 */
+	static int[] getProbeCounts(final CounterPlacement placement,
+			final ExecutionData data) {
+		if (data == null) {
+			return new int[placement.getProbeCount()];
+		}
+		final int[] values = (int[]) data.getRawProbes();
+		final boolean counting = ExecutionData.getProbesType() == ProbesType.COUNTING;
+		final int expected = counting ? placement.getCounterCount()
+				: placement.getProbeCount();
+		if (values.length != expected) {
+			throw new IllegalStateException(format(
+					"Incompatible execution data for class %s with id %016x.",
+					data.getName(), Long.valueOf(data.getId())));
+		}
+		return counting ? placement.getProbeCounts(values) : values;
+	}
+
+	/**
+	 * Returns the number of probes of the class.
+	 *
+	 * @return number of probes
+	 */
+	public int getProbeCount() {
+		return probes.length;
+	}
+
+	/**
+	 * Returns how often the given probe has been executed.
+	 *
+	 * @param probeId
+	 *            id of the probe
+	 * @return execution count
+	 */
+	public int getExecutions(final int probeId) {
+		return probes[probeId];
+	}
+
+	/**
+	 * The number of the first line with code or <code>-1</code> if there is
+	 * no line information.
+	 *
+	 * @return number of the first line or <code>-1</code>
+	 */
+	public int getFirstLine() {
+		return firstLine;
+	}
+
+	/**
+	 * The number of the last line with code or <code>-1</code> if there is no
+	 * line information.
+	 *
+	 * @return number of the last line or <code>-1</code>
+	 */
+	public int getLastLine() {
+		return firstLine == -1 ? -1 : firstLine + lines.length - 1;
+	}
+
+	/**
+	 * Returns how often the given line has been executed, i.e. the maximum
+	 * execution count of its instructions.
+	 *
+	 * @param nr
+	 *            line number
+	 * @return execution count or {@link #NO_CODE} if there are no
+	 *         instructions for this line
+	 */
+	public long getLineExecutions(final int nr) {
+		final int index = nr - firstLine;
+		if (firstLine == -1 || index < 0 || index >= lines.length) {
+			return NO_CODE;
+		}
+		return lines[index];
+	}
+
+}
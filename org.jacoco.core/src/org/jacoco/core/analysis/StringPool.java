@@ -10,24 +10,38 @@
  *    Marc R. Hoffmann - initial API and implementation
  *    
  *******************************************************************************/
-package org.jacoco.core.internal.analysis;
+package org.jacoco.core.analysis;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Utility to normalize {@link String} instances in a way that if
  * <code>equals()</code> is <code>true</code> for two strings they will be
  * represented the same instance. While this is exactly what
  * {@link String#intern()} does, this implementation avoids VM specific side
- * effects and is supposed to be faster, as neither native code is called nor
- * synchronization is required for concurrent lookup.
+ * effects and is supposed to be faster, as no native code is called and
+ * lookups of existing strings do not lock.
+ * 
+ * Every {@link Analyzer} creates its own pool by default. A single instance
+ * can be passed to several analyzers, e.g. for all modules of an aggregated
+ * report, so that names, descriptors and signatures used by several modules
+ * are retained only once. Instances are thread safe and can also be used by
+ * analyzers running concurrently.
  */
 public final class StringPool {
 
 	private static final String[] EMPTY_ARRAY = new String[0];
 
-	private final Map<String, String> pool = new HashMap<String, String>(1024);
+	private final ConcurrentMap<String, String> pool = new ConcurrentHashMap<String, String>(
+			1024);
+
+	/**
+	 * Creates a new empty pool.
+	 */
+	public StringPool() {
+		// nothing to do
+	}
 
 	/**
 	 * Returns a normalized instance that is equal to the given {@link String} .
@@ -41,11 +55,11 @@ public final class StringPool {
 			return null;
 		}
 		final String norm = pool.get(s);
-		if (norm == null) {
-			pool.put(s, s);
-			return s;
+		if (norm != null) {
+			return norm;
 		}
-		return norm;
+		final String other = pool.putIfAbsent(s, s);
+		return other == null ? s : other;
 	}
 
 	/**
@@ -70,4 +84,13 @@ public final class StringPool {
 		return arr;
 	}
 
+	/**
+	 * Returns the number of distinct strings in this pool.
+	 * 
+	 * @return number of strings
+	 */
+	public int size() {
+		return pool.size();
+	}
+
 }
@@ -61,8 +61,12 @@ public final class ExecutionData {
 			final int probeCount) {
 		switch (probesType) {
 		case INTEGER:
+		case COUNTING:
 			execData = new ExtExecutionData(id, name, probeCount);
 			break;
+		case PACKED:
+			execData = new PackedExecutionData(id, name, probeCount);
+			break;
 		default:
 			execData = new OrgExecutionData(id, name, probeCount);
 			break;
@@ -206,8 +210,11 @@ public final class ExecutionData {
 	public static ExecutionData read(final CompactDataInput in)
 			throws IOException {
 		final IExecutionData execData;
-		if (probesType == ProbesType.INTEGER) {
+		if (probesType == ProbesType.INTEGER
+				|| probesType == ProbesType.COUNTING) {
 			execData = ExtExecutionData.read(in);
+		} else if (probesType == ProbesType.PACKED) {
+			execData = PackedExecutionData.read(in);
 		} else {
 			execData = OrgExecutionData.read(in);
 		}
@@ -215,6 +222,43 @@ public final class ExecutionData {
 		return new ExecutionData(execData);
 	}
 
+	/**
+	 * Returns the covered probes of this object as packed words.
+	 * 
+	 * @return packed representation, may be the underlying data
+	 * @see PackedExecutionData#valueOf(IExecutionData)
+	 */
+	PackedExecutionData pack() {
+		return PackedExecutionData.valueOf(execData);
+	}
+
+	/**
+	 * Reads probe data from the given input and merges it into this object.
+	 * 
+	 * @param in
+	 *            input positioned after the probe count
+	 * @throws IOException
+	 *             might be thrown by the underlying input stream
+	 * @see IExecutionData#mergeProbes(CompactDataInput)
+	 */
+	void mergeProbes(final CompactDataInput in) throws IOException {
+		execData.mergeProbes(in);
+	}
+
+	/**
+	 * Reads probe data from the given input and replaces the probe data of
+	 * this object with it.
+	 * 
+	 * @param in
+	 *            input positioned after the probe count
+	 * @throws IOException
+	 *             might be thrown by the underlying input stream
+	 * @see IExecutionData#readProbes(CompactDataInput)
+	 */
+	void readProbes(final CompactDataInput in) throws IOException {
+		execData.readProbes(in);
+	}
+
 	/**
 	 * get the real data need to write in instrumented code.
 	 * 
@@ -239,12 +283,20 @@ public final class ExecutionData {
 	 *         byte code base on execution data structure.
 	 */
 	public static IInstrSupport getInstrSupport() {
-		if (probesType == ProbesType.INTEGER) {
+		if (probesType == ProbesType.INTEGER
+				|| probesType == ProbesType.COUNTING) {
 			return ExtExecutionData.getInstrSupport();
 		}
 		return OrgExecutionData.getInstrSupport();
 	}
 	
+	/**
+	 * @return the probesType currently used
+	 */
+	public static ProbesType getProbesType() {
+		return probesType;
+	}
+
 	/**
 	 * @param probesType the probesType to set
 	 */
@@ -264,7 +316,18 @@ public final class ExecutionData {
 		/**
 		 * the extended one which store probes as a integer array.
 		 */
-		INTEGER
+		INTEGER,
+		/**
+		 * bits of a long array with the same file format as BOOLEAN, for
+		 * offline tools only as it can not be used at runtime.
+		 */
+		PACKED,
+		/**
+		 * execution counts stored in a integer array like INTEGER, but only
+		 * the probes which can not be derived from others are counted. The
+		 * counts of all probes are reconstructed during analysis.
+		 */
+		COUNTING
 	}
 
 }
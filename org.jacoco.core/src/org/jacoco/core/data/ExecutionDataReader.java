@@ -15,6 +15,7 @@ import static java.lang.String.format;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.jacoco.core.internal.data.CompactDataInput;
 
@@ -30,6 +31,8 @@ public class ExecutionDataReader {
 
 	private IExecutionDataVisitor executionDataVisitor = null;
 
+	private ExecutionDataStore executionDataStore = null;
+
 	private boolean firstBlock = true;
 
 	/**
@@ -44,6 +47,18 @@ public class ExecutionDataReader {
 		this.in = new CompactDataInput(input);
 	}
 
+	/**
+	 * Creates a new reader based on the given buffer. Data is read from the
+	 * current position of the buffer up to its limit. Heap, direct and memory
+	 * mapped buffers are supported.
+	 * 
+	 * @param input
+	 *            buffer to read execution data from
+	 */
+	public ExecutionDataReader(final ByteBuffer input) {
+		this.in = new CompactDataInput(input);
+	}
+
 	/**
 	 * Sets an listener for session information.
 	 * 
@@ -62,6 +77,21 @@ public class ExecutionDataReader {
 	 */
 	public void setExecutionDataVisitor(final IExecutionDataVisitor visitor) {
 		this.executionDataVisitor = visitor;
+		this.executionDataStore = null;
+	}
+
+	/**
+	 * Sets a store for execution data. In contrast to
+	 * {@link #setExecutionDataVisitor(IExecutionDataVisitor)} records of
+	 * classes which are already contained in the store are merged into the
+	 * existing entries without creating temporary probe arrays.
+	 * 
+	 * @param store
+	 *            store to add the execution data to
+	 */
+	public void setExecutionDataStore(final ExecutionDataStore store) {
+		this.executionDataVisitor = store;
+		this.executionDataStore = store;
 	}
 
 	/**
@@ -144,6 +174,10 @@ public class ExecutionDataReader {
 		if (executionDataVisitor == null) {
 			throw new IOException("No execution data visitor.");
 		}
+		if (executionDataStore != null) {
+			executionDataStore.read(in);
+			return;
+		}
 		final ExecutionData execData = ExecutionData.read(in);
 		executionDataVisitor.visitClassExecution(execData);
 	}
@@ -0,0 +1,366 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+/**
+ * Set operations on the covered probes of {@link ExecutionDataStore}s. A
+ * store is considered as the set of its covered probes, where a probe of
+ * {@link ExtExecutionData} is covered if its count is positive. Classes are
+ * matched by their id, classes which are only contained in one of the stores
+ * are treated as if they had no covered probes in the other store.
+ *
+ * All operations process 64 probes at a time. Results are new stores with
+ * {@link PackedExecutionData} entries, the given stores are not modified. If
+ * one of the inputs of an entry is {@link ExtExecutionData} the result entry
+ * is also {@link ExtExecutionData}, so it can be written and read with the
+ * same probes type. The count of every probe of such a result is the sum of
+ * the positive counts of both inputs, probes not contained in the result have
+ * count zero. The cardinality methods calculate the number of covered probes
+ * of the corresponding result without creating it.
+ */
+public final class ExecutionDataSets {
+
+	private enum Operation {
+
+		UNION(true, true) {
+			@Override
+			long apply(final long a, final long b) {
+				return a | b;
+			}
+		},
+
+		INTERSECTION(false, false) {
+			@Override
+			long apply(final long a, final long b) {
+				return a & b;
+			}
+		},
+
+		DIFFERENCE(true, false) {
+			@Override
+			long apply(final long a, final long b) {
+				return a & ~b;
+			}
+		},
+
+		SYMMETRIC_DIFFERENCE(true, true) {
+			@Override
+			long apply(final long a, final long b) {
+				return a ^ b;
+			}
+		};
+
+		/** Whether classes only contained in the first store are included. */
+		final boolean left;
+
+		/** Whether classes only contained in the second store are included. */
+		final boolean right;
+
+		private Operation(final boolean left, final boolean right) {
+			this.left = left;
+			this.right = right;
+		}
+
+		abstract long apply(long a, long b);
+
+	}
+
+	private ExecutionDataSets() {
+	}
+
+	/**
+	 * Calculates the probes covered in at least one of the given stores.
+	 *
+	 * @param a
+	 *            first store
+	 * @param b
+	 *            second store
+	 * @return new store with the union of both stores
+	 * @throws IllegalStateException
+	 *             if entries with the same id are not compatible
+	 */
+	public static ExecutionDataStore union(final ExecutionDataStore a,
+			final ExecutionDataStore b) throws IllegalStateException {
+		final ExecutionDataStore result = new ExecutionDataStore();
+		apply(Operation.UNION, a, b, result, false);
+		return result;
+	}
+
+	/**
+	 * Calculates the probes covered in both given stores. The result only
+	 * contains classes which are contained in both stores.
+	 *
+	 * @param a
+	 *            first store
+	 * @param b
+	 *            second store
+	 * @return new store with the intersection of both stores
+	 * @throws IllegalStateException
+	 *             if entries with the same id are not compatible
+	 */
+	public static ExecutionDataStore intersection(final ExecutionDataStore a,
+			final ExecutionDataStore b) throws IllegalStateException {
+		final ExecutionDataStore result = new ExecutionDataStore();
+		apply(Operation.INTERSECTION, a, b, result, false);
+		return result;
+	}
+
+	/**
+	 * Calculates the probes covered in the first but not in the second store.
+	 * The result contains all classes of the first store. Unlike
+	 * {@link ExecutionDataStore#subtract(ExecutionDataStore)} this never
+	 * produces negative counts for {@link ExtExecutionData}.
+	 *
+	 * @param a
+	 *            first store
+	 * @param b
+	 *            store to subtract
+	 * @return new store with the difference of both stores
+	 * @throws IllegalStateException
+	 *             if entries with the same id are not compatible
+	 */
+	public static ExecutionDataStore difference(final ExecutionDataStore a,
+			final ExecutionDataStore b) throws IllegalStateException {
+		final ExecutionDataStore result = new ExecutionDataStore();
+		apply(Operation.DIFFERENCE, a, b, result, false);
+		return result;
+	}
+
+	/**
+	 * Calculates the probes covered in exactly one of the given stores.
+	 *
+	 * @param a
+	 *            first store
+	 * @param b
+	 *            second store
+	 * @return new store with the symmetric difference of both stores
+	 * @throws IllegalStateException
+	 *             if entries with the same id are not compatible
+	 */
+	public static ExecutionDataStore symmetricDifference(
+			final ExecutionDataStore a, final ExecutionDataStore b)
+			throws IllegalStateException {
+		final ExecutionDataStore result = new ExecutionDataStore();
+		apply(Operation.SYMMETRIC_DIFFERENCE, a, b, result, false);
+		return result;
+	}
+
+	/**
+	 * Calculates the coverage of the first store which is new relative to the
+	 * baseline given by the second store. The probes are the same as for
+	 * {@link #difference(ExecutionDataStore, ExecutionDataStore)}, but the
+	 * result only contains classes with at least one newly covered probe.
+	 *
+	 * @param a
+	 *            store with the new coverage
+	 * @param baseline
+	 *            baseline store
+	 * @return new store with the classes that gained coverage
+	 * @throws IllegalStateException
+	 *             if entries with the same id are not compatible
+	 */
+	public static ExecutionDataStore newCoverage(final ExecutionDataStore a,
+			final ExecutionDataStore baseline) throws IllegalStateException {
+		final ExecutionDataStore result = new ExecutionDataStore();
+		apply(Operation.DIFFERENCE, a, baseline, result, true);
+		return result;
+	}
+
+	/**
+	 * Returns the number of covered probes in the given store.
+	 *
+	 * @param store
+	 *            store to count
+	 * @return number of covered probes
+	 */
+	public static long cardinality(final ExecutionDataStore store) {
+		long count = 0;
+		for (final ExecutionData data : store.getContents()) {
+			for (final long w : data.pack().getWords()) {
+				count += Long.bitCount(w);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of probes covered in at least one of the given
+	 * stores.
+	 *
+	 * @param a
+	 *            first store
+	 * @param b
+	 *            second store
+	 * @return cardinality of the union
+	 * @throws IllegalStateException
+	 *             if entries with the same id are not compatible
+	 */
+	public static long unionCardinality(final ExecutionDataStore a,
+			final ExecutionDataStore b) throws IllegalStateException {
+		return apply(Operation.UNION, a, b, null, false);
+	}
+
+	/**
+	 * Returns the number of probes covered in both given stores.
+	 *
+	 * @param a
+	 *            first store
+	 * @param b
+	 *            second store
+	 * @return cardinality of the intersection
+	 * @throws IllegalStateException
+	 *             if entries with the same id are not compatible
+	 */
+	public static long intersectionCardinality(final ExecutionDataStore a,
+			final ExecutionDataStore b) throws IllegalStateException {
+		return apply(Operation.INTERSECTION, a, b, null, false);
+	}
+
+	/**
+	 * Returns the number of probes covered in the first but not in the second
+	 * store. This is also the number of newly covered probes relative to the
+	 * second store.
+	 *
+	 * @param a
+	 *            first store
+	 * @param b
+	 *            store to subtract
+	 * @return cardinality of the difference
+	 * @throws IllegalStateException
+	 *             if entries with the same id are not compatible
+	 */
+	public static long differenceCardinality(final ExecutionDataStore a,
+			final ExecutionDataStore b) throws IllegalStateException {
+		return apply(Operation.DIFFERENCE, a, b, null, false);
+	}
+
+	/**
+	 * Returns the number of probes covered in exactly one of the given stores.
+	 *
+	 * @param a
+	 *            first store
+	 * @param b
+	 *            second store
+	 * @return cardinality of the symmetric difference
+	 * @throws IllegalStateException
+	 *             if entries with the same id are not compatible
+	 */
+	public static long symmetricDifferenceCardinality(
+			final ExecutionDataStore a, final ExecutionDataStore b)
+			throws IllegalStateException {
+		return apply(Operation.SYMMETRIC_DIFFERENCE, a, b, null, false);
+	}
+
+	private static long apply(final Operation operation,
+			final ExecutionDataStore a, final ExecutionDataStore b,
+			final ExecutionDataStore result, final boolean hitsOnly) {
+		long count = 0;
+		for (final ExecutionData data : a.getContents()) {
+			final ExecutionData other = b.get(data.getId());
+			if (other != null) {
+				count += apply(operation, data, other, result, hitsOnly);
+			} else if (operation.left) {
+				count += apply(operation, data, null, result, hitsOnly);
+			}
+		}
+		if (operation.right) {
+			for (final ExecutionData data : b.getContents()) {
+				if (a.get(data.getId()) == null) {
+					count += apply(operation, null, data, result, hitsOnly);
+				}
+			}
+		}
+		return count;
+	}
+
+	private static int apply(final Operation operation, final ExecutionData a,
+			final ExecutionData b, final ExecutionDataStore result,
+			final boolean hitsOnly) {
+		final PackedExecutionData packedA = a == null ? null : a.pack();
+		final PackedExecutionData packedB = b == null ? null : b.pack();
+		if (packedA != null && packedB != null) {
+			packedA.assertCompatibility(packedB.getId(), packedB.getName(),
+					packedB.getProbeCount());
+		}
+		final PackedExecutionData template = packedA == null ? packedB
+				: packedA;
+		final long[] wordsA = packedA == null ? null : packedA.getWords();
+		final long[] wordsB = packedB == null ? null : packedB.getWords();
+		final long[] words;
+		final PackedExecutionData target;
+		if (result == null) {
+			target = null;
+			words = null;
+		} else {
+			target = new PackedExecutionData(template.getId(),
+					template.getName(), template.getProbeCount());
+			words = target.getWords();
+		}
+		int count = 0;
+		final int length = template.getWords().length;
+		for (int i = 0; i < length; i++) {
+			final long w = operation.apply(wordsA == null ? 0 : wordsA[i],
+					wordsB == null ? 0 : wordsB[i]);
+			count += Long.bitCount(w);
+			if (words != null) {
+				words[i] = w;
+			}
+		}
+		if (target != null && (count > 0 || !hitsOnly)) {
+			if (isCounting(a) || isCounting(b)) {
+				result.put(new ExecutionData(withCounts(target, a, b)));
+			} else {
+				result.put(new ExecutionData(target));
+			}
+		}
+		return count;
+	}
+
+	private static boolean isCounting(final ExecutionData data) {
+		return data != null && data.getRawProbes() instanceof int[];
+	}
+
+	private static ExtExecutionData withCounts(
+			final PackedExecutionData target, final ExecutionData a,
+			final ExecutionData b) {
+		final int probeCount = target.getProbeCount();
+		final int[] countsA = getCounts(a, probeCount);
+		final int[] countsB = getCounts(b, probeCount);
+		final long[] words = target.getWords();
+		final int[] counts = new int[probeCount];
+		for (int i = 0; i < probeCount; i++) {
+			if ((words[i >>> 6] & (1L << i)) != 0) {
+				counts[i] = Math.max(countsA[i], 0) + Math.max(countsB[i], 0);
+			}
+		}
+		return new ExtExecutionData(target.getId(), target.getName(), counts);
+	}
+
+	private static int[] getCounts(final ExecutionData data,
+			final int probeCount) {
+		if (data == null) {
+			return new int[probeCount];
+		}
+		final Object raw = data.getRawProbes();
+		if (raw instanceof int[]) {
+			return (int[]) raw;
+		}
+		// covered probes without counts are executed at least once
+		final boolean[] probes = data.getProbes();
+		final int[] counts = new int[probeCount];
+		for (int i = 0; i < probeCount; i++) {
+			counts[i] = probes[i] ? 1 : 0;
+		}
+		return counts;
+	}
+
+}
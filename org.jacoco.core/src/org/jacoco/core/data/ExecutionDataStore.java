@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.jacoco.core.data;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -18,6 +19,8 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
+import org.jacoco.core.internal.data.CompactDataInput;
+
 /**
  * In-memory data store for execution data. The data can be added through its
  * {@link IExecutionDataVisitor} interface. If execution data is provided
@@ -55,6 +58,36 @@ public final class ExecutionDataStore implements IExecutionDataVisitor {
 		}
 	}
 
+	/**
+	 * Reads an execution data record from the given input and adds it to the
+	 * store like {@link #put(ExecutionData)}. The probes of classes which are
+	 * already contained are merged into the existing entry without creating a
+	 * temporary probe array.
+	 * 
+	 * @param in
+	 *            input positioned at the execution data section
+	 * @throws IOException
+	 *             might be thrown by the underlying input stream
+	 * @throws IllegalStateException
+	 *             if the record is not compatible to a corresponding entry,
+	 *             that is already contained
+	 */
+	void read(final CompactDataInput in) throws IOException {
+		final Long id = Long.valueOf(in.readLong());
+		final String name = in.readPooledUTF();
+		final int probecount = in.readVarInt();
+		ExecutionData entry = entries.get(id);
+		if (entry == null) {
+			entry = new ExecutionData(id.longValue(), name, probecount);
+			entry.readProbes(in);
+			entries.put(id, entry);
+			names.add(name);
+		} else {
+			entry.assertCompatibility(id.longValue(), name, probecount);
+			entry.mergeProbes(in);
+		}
+	}
+
 	/**
 	 * Subtracts the probes in the given {@link ExecutionData} object from the
 	 * store. I.e. for all set probes in the given data object the corresponding
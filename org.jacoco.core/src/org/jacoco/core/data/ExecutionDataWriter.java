@@ -14,6 +14,7 @@ package org.jacoco.core.data;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.jacoco.core.internal.data.CompactDataOutput;
 
@@ -61,6 +62,23 @@ public class ExecutionDataWriter implements ISessionInfoVisitor,
 		writeHeader();
 	}
 
+	/**
+	 * Creates a new writer based on the given buffer. Data is written starting
+	 * at the current position of the buffer. Heap buffers are enlarged on
+	 * demand, the buffer holding the written data is available via
+	 * {@link #getBuffer()}. Direct and memory mapped buffers must have
+	 * sufficient capacity.
+	 * 
+	 * @param output
+	 *            buffer to write execution data to
+	 * @throws IOException
+	 *             if the header can't be written
+	 */
+	public ExecutionDataWriter(final ByteBuffer output) throws IOException {
+		this.out = new CompactDataOutput(output);
+		writeHeader();
+	}
+
 	/**
 	 * Writes an file header to identify the stream and its protocol version.
 	 * 
@@ -83,6 +101,17 @@ public class ExecutionDataWriter implements ISessionInfoVisitor,
 		out.flush();
 	}
 
+	/**
+	 * Returns the buffer this writer writes to. The position of the buffer
+	 * marks the end of the data written so far.
+	 * 
+	 * @return current buffer or <code>null</code> if this writer writes to a
+	 *         stream
+	 */
+	public ByteBuffer getBuffer() {
+		return out.getBuffer();
+	}
+
 	public void visitSessionInfo(final SessionInfo info) {
 		try {
 			out.writeByte(BLOCK_SESSIONINFO);
@@ -250,11 +250,19 @@ public class ExtExecutionData implements IExecutionData {
 	public static IExecutionData read(final CompactDataInput in)
 			throws IOException {
 		final long id = in.readLong();
-		final String name = in.readUTF();
+		final String name = in.readPooledUTF();
 		final int[] probes = in.readIntArray();
 		return new ExtExecutionData(id, name, probes);
 	}
 
+	public void mergeProbes(final CompactDataInput in) throws IOException {
+		in.mergeIntArray(probes);
+	}
+
+	public void readProbes(final CompactDataInput in) throws IOException {
+		in.readIntArray(probes);
+	}
+
 	/**
 	 * Write execution data section
 	 * 
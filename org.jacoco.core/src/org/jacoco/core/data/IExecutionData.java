@@ -13,6 +13,7 @@ package org.jacoco.core.data;
 
 import java.io.IOException;
 
+import org.jacoco.core.internal.data.CompactDataInput;
 import org.jacoco.core.internal.data.CompactDataOutput;
 
 /**
@@ -114,6 +115,31 @@ public interface IExecutionData {
 	 */
 	void assertCompatibility(long id, String name, int probecount);
 
+	/**
+	 * Reads probe data from the given input and merges it into the probe data
+	 * of this object like {@link #merge(IExecutionData)} does. The input must
+	 * be positioned after the probe count which has been checked with
+	 * {@link #assertCompatibility(long, String, int)} before.
+	 * 
+	 * @param in
+	 *            input positioned at the probe data
+	 * @throws IOException
+	 *             might be thrown by the underlying input stream
+	 */
+	void mergeProbes(CompactDataInput in) throws IOException;
+
+	/**
+	 * Reads probe data from the given input and replaces the probe data of
+	 * this object with it. The input must be positioned after the probe count
+	 * which has to match the probe count of this object.
+	 * 
+	 * @param in
+	 *            input positioned at the probe data
+	 * @throws IOException
+	 *             might be thrown by the underlying input stream
+	 */
+	void readProbes(CompactDataInput in) throws IOException;
+
 	/**
 	 * Write execution data section
 	 * 
@@ -233,11 +233,20 @@ public class OrgExecutionData implements IExecutionData {
 	public static OrgExecutionData read(final CompactDataInput in)
 			throws IOException {
 		final long id = in.readLong();
-		final String name = in.readUTF();
+		final String name = in.readPooledUTF();
 		final boolean[] probes = in.readBooleanArray();
 		return new OrgExecutionData(id, name, probes);
 	}
 
+	public void mergeProbes(final CompactDataInput in) throws IOException {
+		in.mergeBooleanArray(probes);
+	}
+
+	public void readProbes(final CompactDataInput in) throws IOException {
+		reset();
+		in.mergeBooleanArray(probes);
+	}
+
 	/**
 	 * Write execution data section
 	 * 
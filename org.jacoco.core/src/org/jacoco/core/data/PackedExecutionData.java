@@ -0,0 +1,279 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.data;
+
+import static java.lang.String.format;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+
+/**
+ * Execution data for a single Java class where the probes are stored as bits
+ * of <code>long</code> words. This representation needs one bit per probe and
+ * allows merge operations on 64 probes at a time. It is intended for offline
+ * tools which load, merge and analyze execution data. The binary format is
+ * the same as for {@link OrgExecutionData}, but instances can not be used as
+ * probe arrays of instrumented classes.
+ */
+public class PackedExecutionData implements IExecutionData {
+
+	private final long id;
+
+	private final String name;
+
+	private final int probeCount;
+
+	private final long[] words;
+
+	/**
+	 * Creates a new {@link PackedExecutionData} object with the given probe
+	 * data.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param name
+	 *            VM name
+	 * @param probes
+	 *            probe data
+	 */
+	public PackedExecutionData(final long id, final String name,
+			final boolean[] probes) {
+		this(id, name, probes.length);
+		for (int i = 0; i < probes.length; i++) {
+			if (probes[i]) {
+				words[i >>> 6] |= 1L << i;
+			}
+		}
+	}
+
+	/**
+	 * Creates a new {@link PackedExecutionData} object with the given probe
+	 * data length. All probes are set to <code>false</code>.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param name
+	 *            VM name
+	 * @param probeCount
+	 *            probe count
+	 */
+	public PackedExecutionData(final long id, final String name,
+			final int probeCount) {
+		this.id = id;
+		this.name = name;
+		this.probeCount = probeCount;
+		this.words = new long[getWordCount(probeCount)];
+	}
+
+	/**
+	 * Creates a {@link PackedExecutionData} object with the covered probes of
+	 * the given execution data. For {@link ExtExecutionData} a probe is
+	 * covered if its count is positive. If the given object is already a
+	 * {@link PackedExecutionData} it is returned as is.
+	 *
+	 * @param data
+	 *            execution data of any probe type
+	 * @return packed representation of the given data
+	 */
+	public static PackedExecutionData valueOf(final IExecutionData data) {
+		if (data instanceof PackedExecutionData) {
+			return (PackedExecutionData) data;
+		}
+		final Object raw = data.getRawProbes();
+		if (raw instanceof int[]) {
+			final int[] counts = (int[]) raw;
+			final PackedExecutionData result = new PackedExecutionData(
+					data.getId(), data.getName(), counts.length);
+			for (int i = 0; i < counts.length; i++) {
+				if (counts[i] > 0) {
+					result.words[i >>> 6] |= 1L << i;
+				}
+			}
+			return result;
+		}
+		return new PackedExecutionData(data.getId(), data.getName(),
+				data.getProbes());
+	}
+
+	/**
+	 * Returns the number of words required for the given number of probes.
+	 *
+	 * @param probeCount
+	 *            probe count
+	 * @return number of words
+	 */
+	public static int getWordCount(final int probeCount) {
+		return (probeCount + 63) >>> 6;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the number of probes of this class.
+	 *
+	 * @return probe count
+	 */
+	public int getProbeCount() {
+		return probeCount;
+	}
+
+	/**
+	 * Returns the probes as a new array, modifications do not affect this
+	 * object.
+	 *
+	 * @return copy of the probe data
+	 */
+	public boolean[] getProbes() {
+		final boolean[] result = new boolean[probeCount];
+		for (int i = 0; i < probeCount; i++) {
+			result[i] = (words[i >>> 6] & (1L << i)) != 0;
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the words holding the probes. Probe <code>i</code> is bit
+	 * <code>i % 64</code> of word <code>i / 64</code>, unused bits of the last
+	 * word are always zero.
+	 *
+	 * @return probe data words, may be modified
+	 */
+	public long[] getWords() {
+		return words;
+	}
+
+	public Object getRawProbes() {
+		return words;
+	}
+
+	public void reset() {
+		Arrays.fill(words, 0L);
+	}
+
+	public boolean hasHits() {
+		for (final long w : words) {
+			if (w != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public void merge(final IExecutionData other) {
+		merge(other, true);
+	}
+
+	/**
+	 * Merges the given execution data into the probe data of this object,
+	 * see {@link ExecutionData#merge(ExecutionData, boolean)}. If the other
+	 * object is also a {@link PackedExecutionData} 64 probes are processed at
+	 * a time.
+	 */
+	public void merge(final IExecutionData other, final boolean flag) {
+		if (other instanceof PackedExecutionData) {
+			final PackedExecutionData packed = (PackedExecutionData) other;
+			assertCompatibility(packed.id, packed.name, packed.probeCount);
+			final long[] otherWords = packed.words;
+			if (flag) {
+				for (int i = 0; i < words.length; i++) {
+					words[i] |= otherWords[i];
+				}
+			} else {
+				for (int i = 0; i < words.length; i++) {
+					words[i] &= ~otherWords[i];
+				}
+			}
+			return;
+		}
+		final boolean[] otherData = other.getProbes();
+		assertCompatibility(other.getId(), other.getName(), otherData.length);
+		for (int i = 0; i < otherData.length; i++) {
+			if (otherData[i]) {
+				if (flag) {
+					words[i >>> 6] |= 1L << i;
+				} else {
+					words[i >>> 6] &= ~(1L << i);
+				}
+			}
+		}
+	}
+
+	public void assertCompatibility(final long id, final String name,
+			final int probecount) throws IllegalStateException {
+		if (this.id != id) {
+			throw new IllegalStateException(format(
+					"Different ids (%016x and %016x).", Long.valueOf(this.id),
+					Long.valueOf(id)));
+		}
+		if (!this.name.equals(name)) {
+			throw new IllegalStateException(format(
+					"Different class names %s and %s for id %016x.", this.name,
+					name, Long.valueOf(id)));
+		}
+		if (this.probeCount != probecount) {
+			throw new IllegalStateException(format(
+					"Incompatible execution data for class %s with id %016x.",
+					name, Long.valueOf(id)));
+		}
+	}
+
+	public void mergeProbes(final CompactDataInput in) throws IOException {
+		in.mergePackedBooleanArray(words, probeCount);
+	}
+
+	public void readProbes(final CompactDataInput in) throws IOException {
+		reset();
+		in.mergePackedBooleanArray(words, probeCount);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ExecutionData[name=%s, id=%016x]", name,
+				Long.valueOf(id));
+	}
+
+	/**
+	 * Reads execution data in the format of {@link OrgExecutionData} without
+	 * creating an intermediate <code>boolean[]</code>.
+	 *
+	 * @param in
+	 *            input positioned at the execution data section
+	 * @return execution data
+	 * @throws IOException
+	 *             might be thrown by the underlying input stream
+	 */
+	public static PackedExecutionData read(final CompactDataInput in)
+			throws IOException {
+		final long id = in.readLong();
+		final String name = in.readPooledUTF();
+		final PackedExecutionData data = new PackedExecutionData(id, name,
+				in.readVarInt());
+		data.mergeProbes(in);
+		return data;
+	}
+
+	public void write(final CompactDataOutput out) throws IOException {
+		out.writeLong(id);
+		out.writeUTF(name);
+		out.writePackedBooleanArray(words, probeCount);
+	}
+
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.instr;
+
+import java.io.IOException;
+
+/**
+ * Interface for consumers of the methods which exceed an inlining threshold of
+ * the HotSpot JIT compiler only because of their instrumentation. Such methods
+ * are no longer inlined into their callers and may slow down call-heavy code
+ * considerably.
+ */
+public interface IInliningVisitor {
+
+	/**
+	 * Default of the HotSpot option <code>-XX:MaxInlineSize</code>: methods up
+	 * to this byte code size are always inlined.
+	 */
+	int MAX_INLINE_SIZE = 35;
+
+	/**
+	 * Default of the HotSpot option <code>-XX:FreqInlineSize</code>: frequently
+	 * called methods up to this byte code size are inlined.
+	 */
+	int FREQ_INLINE_SIZE = 325;
+
+	/**
+	 * Reports a method whose byte code size exceeds the given threshold after
+	 * instrumentation.
+	 *
+	 * @param className
+	 *            VM name of the class
+	 * @param methodName
+	 *            name of the method
+	 * @param methodDesc
+	 *            descriptor of the method
+	 * @param originalSize
+	 *            byte code size of the original method
+	 * @param instrumentedSize
+	 *            byte code size of the instrumented method
+	 * @param threshold
+	 *            the exceeded threshold, either {@link #MAX_INLINE_SIZE} or
+	 *            {@link #FREQ_INLINE_SIZE}
+	 * @throws IOException
+	 *             if the report can't be processed
+	 */
+	void visitThresholdExceeded(String className, String methodName,
+			String methodDesc, int originalSize, int instrumentedSize,
+			int threshold) throws IOException;
+
+}
@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.instr;
+
+import java.io.IOException;
+
+/**
+ * Interface for consumers of the {@link ProbeMap}s created by the
+ * {@link Instrumenter}.
+ */
+public interface IProbeMapVisitor {
+
+	/**
+	 * Provides the probe map of an instrumented class.
+	 *
+	 * @param map
+	 *            probe map of the class
+	 * @throws IOException
+	 *             if the map can't be processed
+	 */
+	void visitProbeMap(ProbeMap map) throws IOException;
+
+}
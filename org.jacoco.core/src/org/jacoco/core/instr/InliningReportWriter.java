@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.instr;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * {@link IInliningVisitor} which appends every report as a line to a text
+ * file. The columns of a line are separated by tabs: class name, method name,
+ * method descriptor, original size, instrumented size and threshold.
+ */
+public class InliningReportWriter implements IInliningVisitor {
+
+	private final File file;
+
+	/**
+	 * Creates a new writer for the given file.
+	 *
+	 * @param file
+	 *            file to append the reports to
+	 */
+	public InliningReportWriter(final File file) {
+		this.file = file;
+	}
+
+	public synchronized void visitThresholdExceeded(final String className,
+			final String methodName, final String methodDesc,
+			final int originalSize, final int instrumentedSize,
+			final int threshold) throws IOException {
+		final File folder = file.getParentFile();
+		if (folder != null) {
+			folder.mkdirs();
+		}
+		final Writer out = new OutputStreamWriter(new FileOutputStream(file,
+				true), "UTF-8");
+		try {
+			out.write(String.format("%s\t%s\t%s\t%s\t%s\t%s%n", className,
+					methodName, methodDesc, Integer.valueOf(originalSize),
+					Integer.valueOf(instrumentedSize),
+					Integer.valueOf(threshold)));
+		} finally {
+			out.close();
+		}
+	}
+
+}
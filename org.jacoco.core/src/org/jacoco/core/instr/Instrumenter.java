@@ -11,22 +11,44 @@
  *******************************************************************************/
 package org.jacoco.core.instr;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
+import org.jacoco.core.analysis.StringPool;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionData.ProbesType;
 import org.jacoco.core.internal.ContentTypeDetector;
 import org.jacoco.core.internal.Java9Support;
 import org.jacoco.core.internal.Pack200Streams;
+import org.jacoco.core.internal.analysis.ClassAnalyzer;
+import org.jacoco.core.internal.analysis.ClassCoverageImpl;
+import org.jacoco.core.internal.analysis.ClassStructure;
+import org.jacoco.core.internal.data.CRC64;
 import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.instr.AddedMembersAdapter;
 import org.jacoco.core.internal.instr.ClassInstrumenter;
+import org.jacoco.core.internal.instr.CounterPlacement;
 import org.jacoco.core.internal.instr.IProbeArrayStrategy;
+import org.jacoco.core.internal.instr.MethodSizes;
 import org.jacoco.core.internal.instr.ProbeArrayStrategyFactory;
 import org.jacoco.core.internal.instr.SignatureRemover;
 import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
@@ -43,6 +65,16 @@ public class Instrumenter {
 
 	private final SignatureRemover signatureRemover;
 
+	private IProbeMapVisitor probeMapVisitor;
+
+	private boolean compactProbes;
+
+	private IInliningVisitor inliningVisitor;
+
+	private boolean retransformable;
+
+	private int threads = 1;
+
 	/**
 	 * Creates a new instance based on the given runtime.
 	 * 
@@ -54,6 +86,85 @@ public class Instrumenter {
 		this.signatureRemover = new SignatureRemover();
 	}
 
+	/**
+	 * Sets a visitor which receives a {@link ProbeMap} for every class
+	 * instrumented from a byte array or stream. Creating the map requires an
+	 * additional pass over the class. Default is <code>null</code>, i.e. no
+	 * probe maps are created.
+	 * 
+	 * @param visitor
+	 *            visitor for probe maps or <code>null</code>
+	 */
+	public void setProbeMapVisitor(final IProbeMapVisitor visitor) {
+		this.probeMapVisitor = visitor;
+	}
+
+	/**
+	 * Determines whether small methods receive compact probes. Compact probes
+	 * call a shared static method of the class instead of loading the probe
+	 * array into a local variable. They are used for methods which exceed
+	 * {@link IInliningVisitor#MAX_INLINE_SIZE} with regular probes only and
+	 * only if they keep the method small enough to be inlined by the JIT
+	 * compiler. Interfaces always use regular probes. Default is
+	 * <code>false</code>.
+	 * 
+	 * @param flag
+	 *            <code>true</code> if compact probes should be used
+	 */
+	public void setCompactProbes(final boolean flag) {
+		this.compactProbes = flag;
+	}
+
+	/**
+	 * Sets a visitor which receives every method of a class instrumented from
+	 * a byte array or stream whose byte code size exceeds an inlining
+	 * threshold because of the instrumentation. Default is <code>null</code>,
+	 * i.e. method sizes are not checked.
+	 * 
+	 * @param visitor
+	 *            visitor for methods exceeding an inlining threshold or
+	 *            <code>null</code>
+	 */
+	public void setInliningVisitor(final IInliningVisitor visitor) {
+		this.inliningVisitor = visitor;
+	}
+
+	/**
+	 * Determines whether instrumented classes keep exactly the members of the
+	 * original class. Such classes can replace already loaded classes through
+	 * retransformation, which must not add fields or methods. As the probe
+	 * array can not be stored in the class every method obtains it from the
+	 * runtime on every invocation, which is considerably slower. Compact
+	 * probes are not used in this mode. Default is <code>false</code>.
+	 * 
+	 * @param flag
+	 *            <code>true</code> if no members should be added to classes
+	 */
+	public void setRetransformable(final boolean flag) {
+		this.retransformable = flag;
+	}
+
+	/**
+	 * Sets the number of threads used to instrument the entries of archive
+	 * files with {@link #instrumentAll(InputStream, OutputStream, String)}.
+	 * With more than one thread every entry of the top level archive is read
+	 * into memory and processed by a worker thread, nested archives are
+	 * processed by the worker thread of their entry. The output archive
+	 * contains the entries in their original order. Probe map and inlining
+	 * visitors are called from the worker threads, but never concurrently.
+	 * Default is 1, i.e. entries are instrumented by the calling thread.
+	 * 
+	 * @param threads
+	 *            number of threads for the instrumentation of archive files
+	 */
+	public void setThreads(final int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException(
+					"Number of threads must be positive.");
+		}
+		this.threads = threads;
+	}
+
 	/**
 	 * Determines whether signatures should be removed from JAR files. This is
 	 * typically necessary as instrumentation modifies the class files and
@@ -76,6 +187,42 @@ public class Instrumenter {
 	 * 
 	 */
 	public byte[] instrument(final ClassReader reader) {
+		final CounterPlacement placement;
+		if (ExecutionData.getProbesType() == ProbesType.COUNTING) {
+			placement = CounterPlacement.create(reader);
+		} else {
+			placement = null;
+		}
+		final Set<String> none = Collections.emptySet();
+		final byte[] result = instrument(reader, placement, none);
+		if (!compactProbes || retransformable) {
+			return result;
+		}
+		final Map<String, Integer> originalSizes = MethodSizes.read(reader);
+		final Set<String> compact = getExceedingMethods(originalSizes,
+				MethodSizes.read(new ClassReader(result)),
+				IInliningVisitor.MAX_INLINE_SIZE);
+		if (compact.isEmpty()) {
+			return result;
+		}
+		// Compact probes are slower than regular probes, therefore they are
+		// only kept for methods which can be inlined again:
+		final byte[] compactResult = instrument(reader, placement, compact);
+		final Set<String> failed = getExceedingMethods(originalSizes,
+				MethodSizes.read(new ClassReader(compactResult)),
+				IInliningVisitor.MAX_INLINE_SIZE);
+		if (failed.isEmpty()) {
+			return compactResult;
+		}
+		compact.removeAll(failed);
+		if (compact.isEmpty()) {
+			return result;
+		}
+		return instrument(reader, placement, compact);
+	}
+
+	private byte[] instrument(final ClassReader reader,
+			final CounterPlacement placement, final Set<String> compactMethods) {
 		final ClassWriter writer = new ClassWriter(reader, 0) {
 			@Override
 			protected String getCommonSuperClass(final String type1,
@@ -84,9 +231,11 @@ public class Instrumenter {
 			}
 		};
 		final IProbeArrayStrategy strategy = ProbeArrayStrategyFactory
-				.createFor(reader, accessorGenerator);
-		final ClassVisitor visitor = new ClassProbesAdapter(
-				new ClassInstrumenter(strategy, writer), true);
+				.createFor(reader, accessorGenerator, retransformable);
+		final ClassInstrumenter instrumenter = new ClassInstrumenter(strategy,
+				placement, writer);
+		instrumenter.setCompactMethods(compactMethods);
+		final ClassVisitor visitor = new ClassProbesAdapter(instrumenter, true);
 		reader.accept(visitor, ClassReader.EXPAND_FRAMES);
 		return writer.toByteArray();
 	}
@@ -106,12 +255,19 @@ public class Instrumenter {
 			throws IOException {
 		try {
 			if (Java9Support.isPatchRequired(buffer)) {
-				final byte[] result = instrument(
-						new ClassReader(Java9Support.downgrade(buffer)));
+				final ClassReader reader = new ClassReader(
+						Java9Support.downgrade(buffer));
+				final byte[] result = instrument(reader);
+				visitInlining(reader, result);
 				Java9Support.upgrade(result);
+				visitProbeMap(reader);
 				return result;
 			} else {
-				return instrument(new ClassReader(buffer));
+				final ClassReader reader = new ClassReader(buffer);
+				final byte[] result = instrument(reader);
+				visitInlining(reader, result);
+				visitProbeMap(reader);
+				return result;
 			}
 		} catch (final RuntimeException e) {
 			throw instrumentError(name, e);
@@ -161,6 +317,102 @@ public class Instrumenter {
 		}
 	}
 
+	/**
+	 * Creates a version of the given class without probes which is compatible
+	 * with its instrumented version: It declares the same fields and methods,
+	 * but all methods have their original code. Such a version can replace a
+	 * loaded instrumented class through retransformation when its probes are
+	 * no longer required. The static probe array of the class is not modified.
+	 * 
+	 * @param buffer
+	 *            original definition of the class
+	 * @param name
+	 *            a name used for exception messages
+	 * @return definition without probes
+	 * @throws IOException
+	 *             if the class can't be processed
+	 */
+	public byte[] removeProbes(final byte[] buffer, final String name)
+			throws IOException {
+		try {
+			final boolean patch = Java9Support.isPatchRequired(buffer);
+			final ClassReader reader = new ClassReader(
+					patch ? Java9Support.downgrade(buffer) : buffer);
+			final ClassReader instrumented = new ClassReader(
+					instrument(reader));
+			final ClassWriter writer = new ClassWriter(reader, 0);
+			reader.accept(new AddedMembersAdapter(instrumented, writer), 0);
+			final byte[] result = writer.toByteArray();
+			if (patch) {
+				Java9Support.upgrade(result);
+			}
+			return result;
+		} catch (final RuntimeException e) {
+			throw instrumentError(name, e);
+		}
+	}
+
+	private static Set<String> getExceedingMethods(
+			final Map<String, Integer> originalSizes,
+			final Map<String, Integer> instrumentedSizes, final int threshold) {
+		final Set<String> methods = new LinkedHashSet<String>();
+		for (final Map.Entry<String, Integer> e : originalSizes.entrySet()) {
+			final Integer instrumented = instrumentedSizes.get(e.getKey());
+			if (instrumented != null && e.getValue().intValue() <= threshold
+					&& instrumented.intValue() > threshold) {
+				methods.add(e.getKey());
+			}
+		}
+		return methods;
+	}
+
+	private void visitInlining(final ClassReader reader, final byte[] result)
+			throws IOException {
+		if (inliningVisitor == null) {
+			return;
+		}
+		final String className = reader.getClassName();
+		final Map<String, Integer> originalSizes = MethodSizes.read(reader);
+		final Map<String, Integer> instrumentedSizes = MethodSizes
+				.read(new ClassReader(result));
+		synchronized (inliningVisitor) {
+			for (final int threshold : new int[] {
+					IInliningVisitor.MAX_INLINE_SIZE,
+					IInliningVisitor.FREQ_INLINE_SIZE }) {
+				for (final String key : getExceedingMethods(originalSizes,
+						instrumentedSizes, threshold)) {
+					final int split = key.indexOf('(');
+					inliningVisitor.visitThresholdExceeded(className,
+							key.substring(0, split), key.substring(split),
+							originalSizes.get(key).intValue(),
+							instrumentedSizes.get(key).intValue(), threshold);
+				}
+			}
+		}
+	}
+
+	private void visitProbeMap(final ClassReader reader) throws IOException {
+		if (probeMapVisitor == null) {
+			return;
+		}
+		final long classid = CRC64.checksum(reader.b);
+		final String name = reader.getClassName();
+		final ClassStructure structure = new ClassStructure(name);
+		final int[] probeCount = new int[1];
+		final ClassAnalyzer analyzer = new ClassAnalyzer(new ClassCoverageImpl(
+				name, classid, false), null, new StringPool(), structure) {
+			@Override
+			public void visitTotalProbeCount(final int count) {
+				probeCount[0] = count;
+			}
+		};
+		reader.accept(new ClassProbesAdapter(analyzer, false), 0);
+		final ProbeMap map = structure.createProbeMap(classid, probeCount[0]);
+		synchronized (probeMapVisitor) {
+			probeMapVisitor.visitProbeMap(map);
+		}
+	}
+
 	private IOException instrumentError(final String name,
 			final RuntimeException cause) {
 		final IOException ex = new IOException(String.format(
@@ -187,17 +439,29 @@ public class Instrumenter {
 	 */
 	public int instrumentAll(final InputStream input,
 			final OutputStream output, final String name) throws IOException {
+		return instrumentAll(input, output, name, threads > 1);
+	}
+
+	private int instrumentAll(final InputStream input,
+			final OutputStream output, final String name,
+			final boolean parallel) throws IOException {
 		final ContentTypeDetector detector = new ContentTypeDetector(input);
 		switch (detector.getType()) {
 		case ContentTypeDetector.CLASSFILE:
 			instrument(detector.getInputStream(), output, name);
 			return 1;
 		case ContentTypeDetector.ZIPFILE:
+			if (parallel) {
+				return instrumentZipParallel(detector.getInputStream(),
+						output, name);
+			}
 			return instrumentZip(detector.getInputStream(), output, name);
 		case ContentTypeDetector.GZFILE:
-			return instrumentGzip(detector.getInputStream(), output, name);
+			return instrumentGzip(detector.getInputStream(), output, name,
+					parallel);
 		case ContentTypeDetector.PACK200FILE:
-			return instrumentPack200(detector.getInputStream(), output, name);
+			return instrumentPack200(detector.getInputStream(), output, name,
+					parallel);
 		default:
 			copy(detector.getInputStream(), output);
 			return 0;
@@ -218,7 +482,8 @@ public class Instrumenter {
 
 			zipout.putNextEntry(new ZipEntry(entryName));
 			if (!signatureRemover.filterEntry(entryName, zipin, zipout)) {
-				count += instrumentAll(zipin, zipout, name + "@" + entryName);
+				count += instrumentAll(zipin, zipout, name + "@" + entryName,
+						false);
 			}
 			zipout.closeEntry();
 		}
@@ -226,19 +491,129 @@ public class Instrumenter {
 		return count;
 	}
 
-	private int instrumentGzip(final InputStream input,
+	private int instrumentZipParallel(final InputStream input,
 			final OutputStream output, final String name) throws IOException {
+		final ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			return instrumentZip(input, output, name, executor);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private int instrumentZip(final InputStream input,
+			final OutputStream output, final String name,
+			final ExecutorService executor) throws IOException {
+		final ZipInputStream zipin = new ZipInputStream(input);
+		final ZipOutputStream zipout = new ZipOutputStream(output);
+		final LinkedList<Future<ZipContent>> pending = new LinkedList<Future<ZipContent>>();
+		ZipEntry entry;
+		int count = 0;
+		try {
+			while ((entry = zipin.getNextEntry()) != null) {
+				final String entryName = entry.getName();
+				if (signatureRemover.removeEntry(entryName)) {
+					continue;
+				}
+
+				final byte[] content = Java9Support.readFully(zipin);
+				final String location = name + "@" + entryName;
+				pending.add(executor.submit(new Callable<ZipContent>() {
+					public ZipContent call() throws IOException {
+						return instrumentZipEntry(entryName, content, location);
+					}
+				}));
+				// Limit the number of buffered entries:
+				if (pending.size() > threads * 4) {
+					count += write(pending.removeFirst(), zipout);
+				}
+			}
+			while (!pending.isEmpty()) {
+				count += write(pending.removeFirst(), zipout);
+			}
+		} finally {
+			for (final Future<ZipContent> f : pending) {
+				f.cancel(true);
+			}
+		}
+		zipout.finish();
+		return count;
+	}
+
+	private ZipContent instrumentZipEntry(final String entryName,
+			final byte[] content, final String location) throws IOException {
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream(
+				content.length);
+		int count = 0;
+		if (!signatureRemover.filterEntry(entryName, new ByteArrayInputStream(
+				content), buffer)) {
+			count = instrumentAll(new ByteArrayInputStream(content), buffer,
+					location, false);
+		}
+		return new ZipContent(entryName, buffer.toByteArray(), count);
+	}
+
+	private static int write(final Future<ZipContent> future,
+			final ZipOutputStream zipout) throws IOException {
+		final ZipContent content;
+		try {
+			content = future.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			final InterruptedIOException ex = new InterruptedIOException();
+			ex.initCause(e);
+			throw ex;
+		} catch (final ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw (Error) cause;
+		}
+		zipout.putNextEntry(new ZipEntry(content.name));
+		zipout.write(content.bytes);
+		zipout.closeEntry();
+		return content.count;
+	}
+
+	/**
+	 * Instrumented content of a single archive entry.
+	 */
+	private static class ZipContent {
+
+		final String name;
+
+		final byte[] bytes;
+
+		final int count;
+
+		ZipContent(final String name, final byte[] bytes, final int count) {
+			this.name = name;
+			this.bytes = bytes;
+			this.count = count;
+		}
+
+	}
+
+	private int instrumentGzip(final InputStream input,
+			final OutputStream output, final String name,
+			final boolean parallel) throws IOException {
 		final GZIPOutputStream gzout = new GZIPOutputStream(output);
-		final int count = instrumentAll(new GZIPInputStream(input), gzout, name);
+		final int count = instrumentAll(new GZIPInputStream(input), gzout,
+				name, parallel);
 		gzout.finish();
 		return count;
 	}
 
 	private int instrumentPack200(final InputStream input,
-			final OutputStream output, final String name) throws IOException {
+			final OutputStream output, final String name,
+			final boolean parallel) throws IOException {
 		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
 		final int count = instrumentAll(Pack200Streams.unpack(input), buffer,
-				name);
+				name, parallel);
 		Pack200Streams.pack(buffer.toByteArray(), output);
 		return count;
 	}
@@ -0,0 +1,320 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.instr;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.BitSet;
+
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+
+/**
+ * Maps the probes of an instrumented class to its source code. For every
+ * probe the map contains the method, the source line of the instruction the
+ * probe belongs to, the branch index of the probe at this instruction and all
+ * source lines which contain instructions executed before the probe. With
+ * this information probe arrays can be translated to line coverage without
+ * analyzing the class file.
+ *
+ * Probes of methods which are not considered for coverage (e.g. filtered
+ * synthetic methods) have no method and no lines. Line numbers are only
+ * available for classes compiled with debug information.
+ */
+public final class ProbeMap {
+
+	/** Magic number in the header of the binary format. */
+	private static final char MAGIC_NUMBER = 0xC0C0;
+
+	/** Version of the binary format. */
+	private static final char FORMAT_VERSION = 0x0001;
+
+	/** Value for a missing method or line. */
+	public static final int UNKNOWN = -1;
+
+	private static final int[] NO_LINES = new int[0];
+
+	private final long id;
+
+	private final String name;
+
+	private final String[] methodNames;
+
+	private final String[] methodDescs;
+
+	private final int[] methods;
+
+	private final int[] lines;
+
+	private final int[] branches;
+
+	private final int[][] coveredLines;
+
+	/**
+	 * Creates a new probe map. All probe arrays must have the length of the
+	 * probe array of the class.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param name
+	 *            VM name of the class
+	 * @param methodNames
+	 *            names of the methods
+	 * @param methodDescs
+	 *            descriptors of the methods
+	 * @param methods
+	 *            method index of every probe or {@link #UNKNOWN}
+	 * @param lines
+	 *            source line of every probe or {@link #UNKNOWN}
+	 * @param branches
+	 *            branch index of every probe
+	 * @param coveredLines
+	 *            sorted source lines covered by every probe, may contain
+	 *            <code>null</code> entries for no lines
+	 */
+	public ProbeMap(final long id, final String name,
+			final String[] methodNames, final String[] methodDescs,
+			final int[] methods, final int[] lines, final int[] branches,
+			final int[][] coveredLines) {
+		this.id = id;
+		this.name = name;
+		this.methodNames = methodNames;
+		this.methodDescs = methodDescs;
+		this.methods = methods;
+		this.lines = lines;
+		this.branches = branches;
+		this.coveredLines = coveredLines;
+		for (int i = 0; i < coveredLines.length; i++) {
+			if (coveredLines[i] == null) {
+				coveredLines[i] = NO_LINES;
+			}
+		}
+	}
+
+	/**
+	 * Returns the class identifier.
+	 *
+	 * @return class identifier
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the VM name of the class.
+	 *
+	 * @return VM name
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Returns the number of probes of the class.
+	 *
+	 * @return number of probes
+	 */
+	public int getProbeCount() {
+		return methods.length;
+	}
+
+	/**
+	 * Returns the number of methods referenced by the probes.
+	 *
+	 * @return number of methods
+	 */
+	public int getMethodCount() {
+		return methodNames.length;
+	}
+
+	/**
+	 * Returns the name of the method with the given index.
+	 *
+	 * @param method
+	 *            method index
+	 * @return method name
+	 */
+	public String getMethodName(final int method) {
+		return methodNames[method];
+	}
+
+	/**
+	 * Returns the descriptor of the method with the given index.
+	 *
+	 * @param method
+	 *            method index
+	 * @return method descriptor
+	 */
+	public String getMethodDesc(final int method) {
+		return methodDescs[method];
+	}
+
+	/**
+	 * Returns the index of the method the given probe belongs to.
+	 *
+	 * @param probe
+	 *            probe id
+	 * @return method index or {@link #UNKNOWN}
+	 */
+	public int getMethod(final int probe) {
+		return methods[probe];
+	}
+
+	/**
+	 * Returns the source line of the instruction the given probe belongs to.
+	 *
+	 * @param probe
+	 *            probe id
+	 * @return source line or {@link #UNKNOWN}
+	 */
+	public int getLine(final int probe) {
+		return lines[probe];
+	}
+
+	/**
+	 * Returns the index of the given probe among all probes of the same
+	 * instruction, e.g. the branch of a conditional jump.
+	 *
+	 * @param probe
+	 *            probe id
+	 * @return branch index
+	 */
+	public int getBranch(final int probe) {
+		return branches[probe];
+	}
+
+	/**
+	 * Returns the sorted source lines which contain instructions that have
+	 * been executed if the given probe has been executed.
+	 *
+	 * @param probe
+	 *            probe id
+	 * @return covered lines, must not be modified
+	 */
+	public int[] getCoveredLines(final int probe) {
+		return coveredLines[probe];
+	}
+
+	/**
+	 * Calculates the source lines which contain at least one executed
+	 * instruction for the given probe array.
+	 *
+	 * @param probes
+	 *            probe array of the class
+	 * @return sorted covered lines
+	 */
+	public int[] getCoveredLines(final boolean[] probes) {
+		final BitSet result = new BitSet();
+		for (int p = 0; p < coveredLines.length; p++) {
+			if (probes[p]) {
+				for (final int line : coveredLines[p]) {
+					result.set(line);
+				}
+			}
+		}
+		final int[] array = new int[result.cardinality()];
+		int i = 0;
+		for (int line = result.nextSetBit(0); line >= 0; line = result
+				.nextSetBit(line + 1)) {
+			array[i++] = line;
+		}
+		return array;
+	}
+
+	/**
+	 * Writes this map in a compact binary format.
+	 *
+	 * @param output
+	 *            stream to write to
+	 * @throws IOException
+	 *             might be thrown by the underlying stream
+	 */
+	public void write(final OutputStream output) throws IOException {
+		final CompactDataOutput out = new CompactDataOutput(output);
+		out.writeChar(MAGIC_NUMBER);
+		out.writeChar(FORMAT_VERSION);
+		out.writeLong(id);
+		out.writeUTF(name);
+		out.writeVarInt(methodNames.length);
+		for (int m = 0; m < methodNames.length; m++) {
+			out.writeUTF(methodNames[m]);
+			out.writeUTF(methodDescs[m]);
+		}
+		out.writeVarInt(methods.length);
+		for (int p = 0; p < methods.length; p++) {
+			// Shifted as UNKNOWN is -1:
+			out.writeVarInt(methods[p] + 1);
+			out.writeVarInt(lines[p] + 1);
+			out.writeVarInt(branches[p]);
+			final int[] covered = coveredLines[p];
+			out.writeVarInt(covered.length);
+			int last = 0;
+			for (final int line : covered) {
+				out.writeVarInt(line - last);
+				last = line;
+			}
+		}
+		out.flush();
+	}
+
+	/**
+	 * Reads a map which has been written with {@link #write(OutputStream)}.
+	 *
+	 * @param input
+	 *            stream to read from
+	 * @return probe map
+	 * @throws IOException
+	 *             if the stream can't be read or has an invalid format
+	 */
+	public static ProbeMap read(final InputStream input) throws IOException {
+		final CompactDataInput in = new CompactDataInput(input);
+		if (in.readChar() != MAGIC_NUMBER) {
+			throw new IOException("Invalid probe map file.");
+		}
+		final char version = in.readChar();
+		if (version != FORMAT_VERSION) {
+			throw new IOException(String.format(
+					"Unsupported probe map version %x.",
+					Integer.valueOf(version)));
+		}
+		final long id = in.readLong();
+		final String name = in.readUTF();
+		final int methodCount = in.readVarInt();
+		final String[] methodNames = new String[methodCount];
+		final String[] methodDescs = new String[methodCount];
+		for (int m = 0; m < methodCount; m++) {
+			methodNames[m] = in.readUTF();
+			methodDescs[m] = in.readUTF();
+		}
+		final int probeCount = in.readVarInt();
+		final int[] methods = new int[probeCount];
+		final int[] lines = new int[probeCount];
+		final int[] branches = new int[probeCount];
+		final int[][] coveredLines = new int[probeCount][];
+		for (int p = 0; p < probeCount; p++) {
+			methods[p] = in.readVarInt() - 1;
+			lines[p] = in.readVarInt() - 1;
+			branches[p] = in.readVarInt();
+			final int[] covered = new int[in.readVarInt()];
+			int last = 0;
+			for (int i = 0; i < covered.length; i++) {
+				last += in.readVarInt();
+				covered[i] = last;
+			}
+			coveredLines[p] = covered;
+		}
+		return new ProbeMap(id, name, methodNames, methodDescs, methods,
+				lines, branches, coveredLines);
+	}
+
+}
@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.instr;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * {@link IProbeMapVisitor} which writes every map to a file in a directory.
+ * The file for a class <code>a/b/C</code> with id <code>123</code> is
+ * <code>a/b/C.0000000000000123.probes</code>, the id makes sure that different
+ * versions of the same class do not overwrite each other.
+ */
+public class ProbeMapWriter implements IProbeMapVisitor {
+
+	/** File extension of probe map files. */
+	public static final String SUFFIX = ".probes";
+
+	private final File directory;
+
+	/**
+	 * Creates a new writer for the given directory.
+	 *
+	 * @param directory
+	 *            base directory for probe map files
+	 */
+	public ProbeMapWriter(final File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the file for the probe map of the given class.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param name
+	 *            VM name of the class
+	 * @return file for the probe map
+	 */
+	public File getFile(final long id, final String name) {
+		return new File(directory, String.format("%s.%016x%s", name,
+				Long.valueOf(id), SUFFIX));
+	}
+
+	public void visitProbeMap(final ProbeMap map) throws IOException {
+		final File file = getFile(map.getId(), map.getName());
+		file.getParentFile().mkdirs();
+		final OutputStream out = new BufferedOutputStream(new FileOutputStream(
+				file));
+		try {
+			map.write(out);
+		} finally {
+			out.close();
+		}
+	}
+
+}
@@ -12,19 +12,18 @@
 package org.jacoco.core.internal.analysis;
 
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Set;
 
 import org.jacoco.core.analysis.ISourceNode;
 import org.jacoco.core.internal.analysis.filter.EnumFilter;
 import org.jacoco.core.internal.analysis.filter.IFilter;
 import org.jacoco.core.internal.analysis.filter.IFilterOutput;
+import org.jacoco.core.internal.analysis.filter.IInstructionFilter;
 import org.jacoco.core.internal.analysis.filter.LombokGeneratedFilter;
 import org.jacoco.core.internal.analysis.filter.SynchronizedFilter;
 import org.jacoco.core.internal.analysis.filter.SyntheticFilter;
 import org.jacoco.core.internal.flow.IFrame;
-import org.jacoco.core.internal.flow.Instruction;
 import org.jacoco.core.internal.flow.LabelInfo;
 import org.jacoco.core.internal.flow.MethodProbesVisitor;
 import org.objectweb.asm.Handle;
@@ -41,6 +40,8 @@ import org.objectweb.asm.tree.TryCatchBlockNode;
 public abstract class AbstractMethodAnalyzer extends MethodProbesVisitor
 		implements IFilterOutput {
 
+	private static final int[] EMPTY = new int[0];
+
 	private static final IFilter[] FILTERS = new IFilter[] { new EnumFilter(),
 			new SyntheticFilter(), new SynchronizedFilter(),
 			new LombokGeneratedFilter() };
@@ -60,14 +61,29 @@ public abstract class AbstractMethodAnalyzer extends MethodProbesVisitor
 	// Due to ASM issue #315745 there can be more than one label per instruction
 	private final List<Label> currentLabel = new ArrayList<Label>(2);
 
-	/** List of all analyzed instructions */
-	protected final List<Instruction> instructions = new ArrayList<Instruction>();
+	/** Number of all analyzed instructions */
+	protected int insnCount;
+
+	/** Source line of every instruction */
+	protected int[] insnLines = EMPTY;
+
+	/** Number of branches of every instruction */
+	protected int[] insnBranches = EMPTY;
+
+	/** Index of the predecessor of every instruction or -1 */
+	protected int[] insnPredecessors = EMPTY;
+
+	/** Number of all jumps encountered */
+	private int jumpCount;
+
+	/** Index of the source instruction of every jump */
+	private int[] jumpSources = EMPTY;
 
-	/** List of all jumps encountered */
-	protected final List<Jump> jumps = new ArrayList<Jump>();
+	/** Target label of every jump */
+	private Label[] jumpTargets = new Label[0];
 
-	/** Last instruction in byte code sequence */
-	protected Instruction lastInsn;
+	/** Index of the last instruction in byte code sequence or -1 */
+	protected int lastInsn = -1;
 
 	/**
 	 * New Method analyzer for the given probe data.
@@ -85,45 +101,105 @@ public abstract class AbstractMethodAnalyzer extends MethodProbesVisitor
 	}
 
 	/**
-	 * {@link MethodNode#accept(MethodVisitor)}
+	 * Replays the given method like {@link MethodNode#accept(MethodVisitor)}.
+	 * Method level filters are applied upfront, instruction filters are called
+	 * for every node in the same pass that replays the instructions.
 	 */
 	@Override
 	public void accept(final MethodNode methodNode,
 			final MethodVisitor methodVisitor) {
 		this.ignored.clear();
+		int filterCount = 0;
 		for (final IFilter filter : FILTERS) {
-			filter.filter(className, superClassName, methodNode, this);
+			if (filter instanceof IInstructionFilter) {
+				final IInstructionFilter f = (IInstructionFilter) filter;
+				if (f.isApplicable(className, superClassName, methodNode)) {
+					activeFilters[filterCount++] = f;
+				}
+			} else {
+				filter.filter(className, superClassName, methodNode, this);
+			}
 		}
 
+		// The node count is an upper bound for the number of instructions:
+		ensureCapacity(methodNode.instructions.size());
 		for (final TryCatchBlockNode n : methodNode.tryCatchBlocks) {
 			n.accept(methodVisitor);
 		}
 		currentNode = methodNode.instructions.getFirst();
 		while (currentNode != null) {
+			for (int i = 0; i < filterCount; i++) {
+				activeFilters[i].filter(currentNode, methodNode, this);
+			}
+			if (!pendingFrom.isEmpty()) {
+				startIgnore();
+			}
+			final int index = insnCount;
 			currentNode.accept(methodVisitor);
+			if (!ignoreUntil.isEmpty()) {
+				if (insnCount > index) {
+					ignored.set(index);
+				}
+				for (int i = ignoreUntil.size(); --i >= 0;) {
+					if (ignoreUntil.get(i) == currentNode) {
+						ignoreUntil.remove(i);
+					}
+				}
+			}
 			currentNode = currentNode.getNext();
 		}
+		pendingFrom.clear();
+		pendingTo.clear();
+		ignoreUntil.clear();
 		methodVisitor.visitEnd();
 	}
 
-	@SuppressWarnings("javadoc")
-	protected final Set<AbstractInsnNode> ignored = new HashSet<AbstractInsnNode>();
+	/**
+	 * Indexes of ignored instructions.
+	 */
+	protected final BitSet ignored = new BitSet();
+
+	private final IInstructionFilter[] activeFilters = new IInstructionFilter[FILTERS.length];
+
+	/** Start of reported sequences which have not been reached yet */
+	private final List<AbstractInsnNode> pendingFrom = new ArrayList<AbstractInsnNode>(
+			2);
+
+	/** End of reported sequences which have not been reached yet */
+	private final List<AbstractInsnNode> pendingTo = new ArrayList<AbstractInsnNode>(
+			2);
+
+	/** End of the sequences which contain the current node */
+	private final List<AbstractInsnNode> ignoreUntil = new ArrayList<AbstractInsnNode>(
+			2);
+
 	private AbstractInsnNode currentNode;
 
+	/**
+	 * Records the given sequence. The instructions are marked as ignored while
+	 * they are replayed, therefore the sequence must not start before the
+	 * current node.
+	 */
 	public void ignore(final AbstractInsnNode fromInclusive,
 			final AbstractInsnNode toInclusive) {
-		for (AbstractInsnNode i = fromInclusive; i != toInclusive; i = i
-				.getNext()) {
-			ignored.add(i);
+		pendingFrom.add(fromInclusive);
+		pendingTo.add(toInclusive);
+	}
+
+	private void startIgnore() {
+		for (int i = pendingFrom.size(); --i >= 0;) {
+			if (pendingFrom.get(i) == currentNode) {
+				pendingFrom.remove(i);
+				ignoreUntil.add(pendingTo.remove(i));
+			}
 		}
-		ignored.add(toInclusive);
 	}
 
 	@Override
 	public void visitLabel(final Label label) {
 		currentLabel.add(label);
 		if (!LabelInfo.isSuccessor(label)) {
-			lastInsn = null;
+			lastInsn = -1;
 		}
 	}
 
@@ -140,10 +216,16 @@ public abstract class AbstractMethodAnalyzer extends MethodProbesVisitor
 
 	@SuppressWarnings("javadoc")
 	protected void visitInsn() {
-		final Instruction insn = createInsn(currentNode, currentLine);
-		instructions.add(insn);
-		if (lastInsn != null) {
-			insn.setPredecessor(lastInsn);
+		final int insn = insnCount;
+		if (insn == insnLines.length) {
+			ensureCapacity(Math.max(16, insn * 2));
+		}
+		insnLines[insn] = currentLine;
+		insnBranches[insn] = 0;
+		insnPredecessors[insn] = -1;
+		insnCount++;
+		if (lastInsn != -1) {
+			setPredecessor(insn, lastInsn);
 		}
 		final int labelCount = currentLabel.size();
 		if (labelCount > 0) {
@@ -156,15 +238,49 @@ public abstract class AbstractMethodAnalyzer extends MethodProbesVisitor
 	}
 
 	/**
-	 * init instruction.
+	 * Sets the predecessor of the given instruction. This adds a branch to the
+	 * predecessor.
+	 */
+	private void setPredecessor(final int insn, final int predecessor) {
+		insnPredecessors[insn] = predecessor;
+		insnBranches[predecessor]++;
+	}
+
+	private void ensureCapacity(final int capacity) {
+		if (capacity > insnLines.length) {
+			insnLines = copyOf(insnLines, capacity);
+			insnBranches = copyOf(insnBranches, capacity);
+			insnPredecessors = copyOf(insnPredecessors, capacity);
+		}
+	}
+
+	private void addJump(final int source, final Label target) {
+		if (jumpCount == jumpSources.length) {
+			final int capacity = Math.max(8, jumpCount * 2);
+			jumpSources = copyOf(jumpSources, capacity);
+			final Label[] targets = new Label[capacity];
+			System.arraycopy(jumpTargets, 0, targets, 0, jumpCount);
+			jumpTargets = targets;
+		}
+		jumpSources[jumpCount] = source;
+		jumpTargets[jumpCount] = target;
+		jumpCount++;
+	}
+
+	/**
+	 * Returns a copy of the given array with the given length.
 	 * 
-	 * @param node
-	 *            asm node
-	 * @param line
-	 *            line number
-	 * @return
+	 * @param array
+	 *            array to copy
+	 * @param length
+	 *            length of the copy
+	 * @return new array
 	 */
-	protected abstract Instruction createInsn(AbstractInsnNode node, int line);
+	protected static int[] copyOf(final int[] array, final int length) {
+		final int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+		return copy;
+	}
 
 	@Override
 	public void visitInsn(final int opcode) {
@@ -207,7 +323,7 @@ public abstract class AbstractMethodAnalyzer extends MethodProbesVisitor
 	@Override
 	public void visitJumpInsn(final int opcode, final Label label) {
 		visitInsn();
-		jumps.add(new Jump(lastInsn, label));
+		addJump(lastInsn, label);
 	}
 
 	@Override
@@ -235,11 +351,11 @@ public abstract class AbstractMethodAnalyzer extends MethodProbesVisitor
 	private void visitSwitchInsn(final Label dflt, final Label[] labels) {
 		visitInsn();
 		LabelInfo.resetDone(labels);
-		jumps.add(new Jump(lastInsn, dflt));
+		addJump(lastInsn, dflt);
 		LabelInfo.setDone(dflt);
 		for (final Label l : labels) {
 			if (!LabelInfo.isDone(l)) {
-				jumps.add(new Jump(lastInsn, l));
+				addJump(lastInsn, l);
 				LabelInfo.setDone(l);
 			}
 		}
@@ -253,7 +369,7 @@ public abstract class AbstractMethodAnalyzer extends MethodProbesVisitor
 	@Override
 	public void visitProbe(final int probeId) {
 		addProbe(probeId);
-		lastInsn = null;
+		lastInsn = -1;
 	}
 
 	@Override
@@ -296,7 +412,7 @@ public abstract class AbstractMethodAnalyzer extends MethodProbesVisitor
 		final int id = LabelInfo.getProbeId(label);
 		if (!LabelInfo.isDone(label)) {
 			if (id == LabelInfo.NO_PROBE) {
-				jumps.add(new Jump(lastInsn, label));
+				addJump(lastInsn, label);
 			} else {
 				addProbe(id);
 			}
@@ -307,44 +423,18 @@ public abstract class AbstractMethodAnalyzer extends MethodProbesVisitor
 	@Override
 	public void visitEnd() {
 		// Wire jumps:
-		for (final Jump j : jumps) {
-			LabelInfo.getInstruction(j.target).setPredecessor(j.source);
+		for (int j = 0; j < jumpCount; j++) {
+			setPredecessor(LabelInfo.getInstruction(jumpTargets[j]),
+					jumpSources[j]);
 		}
 	}
 
 	/**
+	 * Called for every probe. The probe belongs to {@link #lastInsn}.
+	 * 
 	 * @param probeId
 	 *            probe index in probes array
 	 */
 	protected abstract void addProbe(final int probeId);
 
-	/**
-	 * to store jump infor for jump inst
-	 */
-	protected static class Jump {
-
-		final Instruction source;
-		final Label target;
-
-		@SuppressWarnings("javadoc")
-		public Jump(final Instruction source, final Label target) {
-			this.source = source;
-			this.target = target;
-		}
-
-		/**
-		 * @return the target
-		 */
-		public Label getTarget() {
-			return target;
-		}
-
-		/**
-		 * @return the source
-		 */
-		public Instruction getSource() {
-			return source;
-		}
-	}
-
 }
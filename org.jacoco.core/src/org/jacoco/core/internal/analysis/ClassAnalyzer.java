@@ -11,7 +11,11 @@
  *******************************************************************************/
 package org.jacoco.core.internal.analysis;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.analysis.StringPool;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.internal.flow.ClassProbesVisitor;
 import org.jacoco.core.internal.flow.MethodProbesVisitor;
@@ -26,6 +30,9 @@ public class ClassAnalyzer extends ClassProbesVisitor {
 	private final ClassCoverageImpl coverage;
 	private final boolean[] probes;
 	private final StringPool stringPool;
+	private final ClassStructure structure;
+	private final List<IMethodCoverage> methods = new ArrayList<IMethodCoverage>();
+	private boolean lineCoverage = true;
 	private final IInstrSupport instrSupport = ExecutionData.getInstrSupport();
 
 	/**
@@ -40,9 +47,41 @@ public class ClassAnalyzer extends ClassProbesVisitor {
 	 */
 	public ClassAnalyzer(final ClassCoverageImpl coverage,
 			final boolean[] probes, final StringPool stringPool) {
+		this(coverage, probes, stringPool, null);
+	}
+
+	/**
+	 * Creates a new analyzer that builds coverage data for a class and
+	 * additionally records the probe independent structure of the class.
+	 * 
+	 * @param coverage
+	 *            coverage node for the analyzed class data
+	 * @param probes
+	 *            execution data for this class or <code>null</code>
+	 * @param stringPool
+	 *            shared pool to minimize the number of {@link String} instances
+	 * @param structure
+	 *            structure to record to or <code>null</code>
+	 */
+	public ClassAnalyzer(final ClassCoverageImpl coverage,
+			final boolean[] probes, final StringPool stringPool,
+			final ClassStructure structure) {
 		this.coverage = coverage;
 		this.probes = probes;
 		this.stringPool = stringPool;
+		this.structure = structure;
+	}
+
+	/**
+	 * Sets whether line coverage is calculated. Without line coverage all
+	 * line numbers are ignored, the coverage data has no lines and the line
+	 * counter is empty. All other counters are not affected.
+	 * 
+	 * @param lineCoverage
+	 *            <code>false</code> to ignore line numbers
+	 */
+	public void setLineCoverage(final boolean lineCoverage) {
+		this.lineCoverage = lineCoverage;
 	}
 
 	@Override
@@ -65,19 +104,29 @@ public class ClassAnalyzer extends ClassProbesVisitor {
 
 		instrSupport.assertNotInstrumented(name, coverage.getName());
 
-		return new MethodAnalyzer(coverage.getName(), coverage.getSuperName(),
-				stringPool.get(name), stringPool.get(desc),
-				stringPool.get(signature), probes) {
+		final MethodAnalyzer analyzer = new MethodAnalyzer(coverage.getName(),
+				coverage.getSuperName(), stringPool.get(name),
+				stringPool.get(desc), stringPool.get(signature), probes) {
 			@Override
 			public void visitEnd() {
 				super.visitEnd();
 				final IMethodCoverage methodCoverage = getCoverage();
 				if (methodCoverage.getInstructionCounter().getTotalCount() > 0) {
 					// Only consider methods that actually contain code
-					coverage.addMethod(methodCoverage);
+					methods.add(methodCoverage);
+					if (structure != null) {
+						structure.addMethod(getStructure());
+					}
 				}
 			}
 		};
+		if (structure != null) {
+			analyzer.recordStructure();
+		}
+		if (!lineCoverage) {
+			analyzer.ignoreLines();
+		}
+		return analyzer;
 	}
 
 	@Override
@@ -92,4 +141,12 @@ public class ClassAnalyzer extends ClassProbesVisitor {
 		// nothing to do
 	}
 
+	@Override
+	public void visitEnd() {
+		coverage.addMethods(methods);
+		if (structure != null) {
+			structure.setClassInfo(coverage);
+		}
+	}
+
 }
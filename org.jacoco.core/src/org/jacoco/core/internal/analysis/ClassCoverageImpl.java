@@ -66,6 +66,32 @@ public class ClassCoverageImpl extends SourceNodeImpl implements IClassCoverage
 		}
 	}
 
+	/**
+	 * Adds all given methods to this class. Other than adding the methods one
+	 * by one the line buffer of the class is only allocated once for the line
+	 * range of all methods.
+	 * 
+	 * @param methods
+	 *            method data to add
+	 */
+	public void addMethods(final Collection<? extends IMethodCoverage> methods) {
+		int first = UNKNOWN_LINE;
+		int last = UNKNOWN_LINE;
+		for (final IMethodCoverage m : methods) {
+			final int f = m.getFirstLine();
+			if (f != UNKNOWN_LINE) {
+				if (first == UNKNOWN_LINE || f < first) {
+					first = f;
+				}
+				last = Math.max(last, m.getLastLine());
+			}
+		}
+		ensureCapacity(first, last);
+		for (final IMethodCoverage m : methods) {
+			addMethod(m);
+		}
+	}
+
 	/**
 	 * Sets the VM signature of the class.
 	 * 
@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jacoco.core.analysis.StringPool;
+import org.jacoco.core.instr.ProbeMap;
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+
+/**
+ * Probe independent result of the analysis of a class. The structure is
+ * recorded by {@link ClassAnalyzer} and allows to calculate the coverage of
+ * the class for any probe data without parsing the class file again.
+ */
+public final class ClassStructure {
+
+	private final String name;
+
+	private String signature;
+
+	private String superName;
+
+	private String[] interfaces;
+
+	private String sourceFileName;
+
+	private final List<MethodStructure> methods = new ArrayList<MethodStructure>();
+
+	/**
+	 * Creates a new empty structure for the class with the given name.
+	 *
+	 * @param name
+	 *            VM name of the class
+	 */
+	public ClassStructure(final String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns the VM name of the class.
+	 *
+	 * @return VM name of the class
+	 */
+	public String getName() {
+		return name;
+	}
+
+	void setClassInfo(final ClassCoverageImpl coverage) {
+		signature = coverage.getSignature();
+		superName = coverage.getSuperName();
+		interfaces = coverage.getInterfaceNames();
+		sourceFileName = coverage.getSourceFileName();
+	}
+
+	void addMethod(final MethodStructure method) {
+		methods.add(method);
+	}
+
+	/**
+	 * Calculates the coverage of the class for the given probes. The result is
+	 * the same as for a {@link ClassAnalyzer} with the same probes.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param noMatch
+	 *            <code>true</code>, if class id does not match with execution
+	 *            data
+	 * @param probes
+	 *            execution data for this class or <code>null</code>
+	 * @param lineCoverage
+	 *            <code>false</code> to ignore line numbers, see
+	 *            {@link ClassAnalyzer#setLineCoverage(boolean)}
+	 * @return coverage of the class
+	 */
+	public ClassCoverageImpl replay(final long id, final boolean noMatch,
+			final boolean[] probes, final boolean lineCoverage) {
+		final ClassCoverageImpl coverage = new ClassCoverageImpl(name, id,
+				noMatch);
+		coverage.setSignature(signature);
+		coverage.setSuperName(superName);
+		coverage.setInterfaces(interfaces);
+		coverage.setSourceFileName(sourceFileName);
+		final List<MethodCoverageImpl> methodCoverages = new ArrayList<MethodCoverageImpl>(
+				methods.size());
+		for (final MethodStructure method : methods) {
+			methodCoverages.add(method.replay(probes, lineCoverage));
+		}
+		coverage.addMethods(methodCoverages);
+		return coverage;
+	}
+
+	/**
+	 * Creates the probe map of the class.
+	 *
+	 * @param id
+	 *            class identifier
+	 * @param probeCount
+	 *            total number of probes of the class
+	 * @return probe map of the class
+	 */
+	public ProbeMap createProbeMap(final long id, final int probeCount) {
+		final int methodCount = methods.size();
+		final String[] methodNames = new String[methodCount];
+		final String[] methodDescs = new String[methodCount];
+		final int[] probeMethods = new int[probeCount];
+		final int[] probeLines = new int[probeCount];
+		final int[] probeBranches = new int[probeCount];
+		final int[][] coveredLines = new int[probeCount][];
+		Arrays.fill(probeMethods, ProbeMap.UNKNOWN);
+		Arrays.fill(probeLines, ProbeMap.UNKNOWN);
+		for (int m = 0; m < methodCount; m++) {
+			final MethodStructure method = methods.get(m);
+			methodNames[m] = method.getName();
+			methodDescs[m] = method.getDesc();
+			method.mapProbes(m, probeMethods, probeLines, probeBranches,
+					coveredLines);
+		}
+		return new ProbeMap(id, name, methodNames, methodDescs, probeMethods,
+				probeLines, probeBranches, coveredLines);
+	}
+
+	/**
+	 * Writes this structure to the given output.
+	 *
+	 * @param out
+	 *            output to write to
+	 * @throws IOException
+	 *             might be thrown by the underlying output stream
+	 */
+	public void write(final CompactDataOutput out) throws IOException {
+		out.writeUTF(name);
+		writeOptionalUTF(out, signature);
+		writeOptionalUTF(out, superName);
+		if (interfaces == null) {
+			out.writeVarInt(0);
+		} else {
+			out.writeVarInt(interfaces.length + 1);
+			for (final String i : interfaces) {
+				out.writeUTF(i);
+			}
+		}
+		writeOptionalUTF(out, sourceFileName);
+		out.writeVarInt(methods.size());
+		for (final MethodStructure method : methods) {
+			method.write(out);
+		}
+	}
+
+	/**
+	 * Reads a structure which has been written with
+	 * {@link #write(CompactDataOutput)}.
+	 *
+	 * @param in
+	 *            input to read from
+	 * @param stringPool
+	 *            shared pool to minimize the number of {@link String} instances
+	 * @return structure read
+	 * @throws IOException
+	 *             might be thrown by the underlying input stream or if the
+	 *             content is not valid
+	 */
+	public static ClassStructure read(final CompactDataInput in,
+			final StringPool stringPool) throws IOException {
+		final ClassStructure structure = new ClassStructure(stringPool.get(in
+				.readUTF()));
+		structure.signature = stringPool.get(readOptionalUTF(in));
+		structure.superName = stringPool.get(readOptionalUTF(in));
+		final int interfaceCount = in.readVarInt();
+		if (interfaceCount > 0) {
+			final String[] interfaces = new String[interfaceCount - 1];
+			for (int i = 0; i < interfaces.length; i++) {
+				interfaces[i] = stringPool.get(in.readUTF());
+			}
+			structure.interfaces = stringPool.get(interfaces);
+		}
+		structure.sourceFileName = stringPool.get(readOptionalUTF(in));
+		final int methodCount = in.readVarInt();
+		for (int i = 0; i < methodCount; i++) {
+			structure.methods.add(MethodStructure.read(in, stringPool));
+		}
+		return structure;
+	}
+
+	static void writeOptionalUTF(final CompactDataOutput out,
+			final String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	static String readOptionalUTF(final CompactDataInput in)
+			throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+}
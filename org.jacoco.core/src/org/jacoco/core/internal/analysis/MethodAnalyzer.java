@@ -11,14 +11,10 @@
  *******************************************************************************/
 package org.jacoco.core.internal.analysis;
 
-import java.util.ArrayList;
-import java.util.List;
-
 import org.jacoco.core.analysis.ICounter;
 import org.jacoco.core.analysis.IMethodCoverage;
-import org.jacoco.core.internal.flow.Instruction;
 import org.jacoco.core.internal.flow.MethodProbesVisitor;
-import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.Label;
 
 /**
  * A {@link MethodProbesVisitor} that analyzes which statements and branches of
@@ -30,8 +26,26 @@ public class MethodAnalyzer extends AbstractMethodAnalyzer {
 
 	private final MethodCoverageImpl coverage;
 
-	/** List of all predecessors of covered probes */
-	private final List<Instruction> coveredProbes = new ArrayList<Instruction>();
+	/** Number of covered probes */
+	private int coveredProbeCount;
+
+	/** Instruction indexes of all covered probes */
+	private int[] coveredProbes = new int[8];
+
+	/** Whether all probes are recorded */
+	private boolean recordStructure;
+
+	/** Number of recorded probes */
+	private int probeCount;
+
+	/** Ids of all probes if the structure is recorded */
+	private int[] probeIds;
+
+	/** Instruction indexes of all probes if the structure is recorded */
+	private int[] probeInsns;
+
+	/** Whether line numbers are ignored */
+	private boolean ignoreLines;
 
 	/**
 	 * New Method analyzer for the given probe data.
@@ -69,43 +83,92 @@ public class MethodAnalyzer extends AbstractMethodAnalyzer {
 		return coverage;
 	}
 
+	/**
+	 * Records all probes so that {@link #getStructure()} can be called after
+	 * this visitor has been processed.
+	 */
+	void recordStructure() {
+		recordStructure = true;
+		probeIds = new int[8];
+		probeInsns = new int[8];
+	}
+
+	/**
+	 * Ignores all line numbers of the method. The coverage data then has no
+	 * lines and an empty line counter.
+	 */
+	void ignoreLines() {
+		ignoreLines = true;
+	}
+
+	/**
+	 * Returns the probe independent structure of this method after this
+	 * visitor has been processed.
+	 * 
+	 * @return structure of this method
+	 * @see #recordStructure()
+	 */
+	MethodStructure getStructure() {
+		return MethodStructure.create(coverage, firstLine, lastLine,
+				insnCount, insnLines, insnBranches, insnPredecessors, ignored,
+				probeCount, probeIds, probeInsns);
+	}
+
 	@Override
-	protected Instruction createInsn(final AbstractInsnNode node,
-			final int line) {
-		return new Instruction(node, line);
+	public void visitLineNumber(final int line, final Label start) {
+		if (!ignoreLines) {
+			super.visitLineNumber(line, start);
+		}
 	}
 
 	@Override
 	public void visitEnd() {
 		super.visitEnd();
-		// Propagate probe values:
-		for (final Instruction p : coveredProbes) {
-			p.setCovered();
+		// Propagate probe values, the covered probes are the work list:
+		final int[] covered = new int[insnCount];
+		for (int p = 0; p < coveredProbeCount; p++) {
+			int i = coveredProbes[p];
+			while (i != -1 && covered[i]++ == 0) {
+				i = insnPredecessors[i];
+			}
 		}
 		// Report result:
 		coverage.ensureCapacity(firstLine, lastLine);
-		for (final Instruction i : instructions) {
-			if (ignored.contains(i.getNode())) {
+		for (int i = 0; i < insnCount; i++) {
+			if (ignored.get(i)) {
 				continue;
 			}
 
-			final int total = i.getBranches();
-			final int covered = i.getCoveredBranches();
-			final ICounter instrCounter = covered == 0 ? CounterImpl.COUNTER_1_0
+			final int total = insnBranches[i];
+			final int coveredBranches = covered[i];
+			final ICounter instrCounter = coveredBranches == 0 ? CounterImpl.COUNTER_1_0
 					: CounterImpl.COUNTER_0_1;
 			final ICounter branchCounter = total > 1
-					? CounterImpl.getInstance(total - covered, covered)
+					? CounterImpl.getInstance(total - coveredBranches,
+							coveredBranches)
 					: CounterImpl.COUNTER_0_0;
-			coverage.increment(instrCounter, branchCounter, i.getLine());
+			coverage.increment(instrCounter, branchCounter, insnLines[i]);
 		}
 		coverage.incrementMethodCounter();
 	}
 
 	@Override
 	protected void addProbe(final int probeId) {
-		lastInsn.addBranch();
+		insnBranches[lastInsn]++;
+		if (recordStructure) {
+			if (probeCount == probeIds.length) {
+				probeIds = copyOf(probeIds, probeCount * 2);
+				probeInsns = copyOf(probeInsns, probeCount * 2);
+			}
+			probeIds[probeCount] = probeId;
+			probeInsns[probeCount] = lastInsn;
+			probeCount++;
+		}
 		if (probes != null && probes[probeId]) {
-			coveredProbes.add(lastInsn);
+			if (coveredProbeCount == coveredProbes.length) {
+				coveredProbes = copyOf(coveredProbes, coveredProbeCount * 2);
+			}
+			coveredProbes[coveredProbeCount++] = lastInsn;
 		}
 	}
 
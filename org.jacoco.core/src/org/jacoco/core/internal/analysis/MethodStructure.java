@@ -0,0 +1,246 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis;
+
+import java.io.IOException;
+import java.util.BitSet;
+
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.analysis.ISourceNode;
+import org.jacoco.core.analysis.StringPool;
+import org.jacoco.core.internal.data.CompactDataInput;
+import org.jacoco.core.internal.data.CompactDataOutput;
+
+/**
+ * Probe independent result of the analysis of a single method. Instructions
+ * are identified by their index in the method, the control flow is given by
+ * the predecessor index of every instruction. Replaying probe data against
+ * this structure gives the same coverage as {@link MethodAnalyzer}.
+ */
+final class MethodStructure {
+
+	private final String name;
+
+	private final String desc;
+
+	private final String signature;
+
+	private final int firstLine;
+
+	private final int lastLine;
+
+	private final int[] lines;
+
+	private final int[] branches;
+
+	/** Index of the predecessor of every instruction or -1 */
+	private final int[] predecessors;
+
+	private final boolean[] ignored;
+
+	private final int[] probeIds;
+
+	/** Index of the instruction of every probe */
+	private final int[] probeInsns;
+
+	private MethodStructure(final String name, final String desc,
+			final String signature, final int firstLine, final int lastLine,
+			final int[] lines, final int[] branches, final int[] predecessors,
+			final boolean[] ignored, final int[] probeIds,
+			final int[] probeInsns) {
+		this.name = name;
+		this.desc = desc;
+		this.signature = signature;
+		this.firstLine = firstLine;
+		this.lastLine = lastLine;
+		this.lines = lines;
+		this.branches = branches;
+		this.predecessors = predecessors;
+		this.ignored = ignored;
+		this.probeIds = probeIds;
+		this.probeInsns = probeInsns;
+	}
+
+	/**
+	 * Creates the structure from the state of a {@link MethodAnalyzer} after
+	 * all jumps have been wired. The arrays are copied.
+	 */
+	static MethodStructure create(final IMethodCoverage method,
+			final int firstLine, final int lastLine, final int insnCount,
+			final int[] insnLines, final int[] insnBranches,
+			final int[] insnPredecessors, final BitSet ignoredInsns,
+			final int probeCount, final int[] probeIds, final int[] probeInsns) {
+		final boolean[] ignored = new boolean[insnCount];
+		for (int i = ignoredInsns.nextSetBit(0); i >= 0 && i < insnCount; i = ignoredInsns
+				.nextSetBit(i + 1)) {
+			ignored[i] = true;
+		}
+		return new MethodStructure(method.getName(), method.getDesc(),
+				method.getSignature(), firstLine, lastLine, copyOf(insnLines,
+						insnCount), copyOf(insnBranches, insnCount), copyOf(
+						insnPredecessors, insnCount), ignored, copyOf(
+						probeIds, probeCount), copyOf(probeInsns, probeCount));
+	}
+
+	private static int[] copyOf(final int[] array, final int length) {
+		final int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, length);
+		return copy;
+	}
+
+	String getName() {
+		return name;
+	}
+
+	String getDesc() {
+		return desc;
+	}
+
+	/**
+	 * Fills the probe map arrays for all probes of this method.
+	 */
+	void mapProbes(final int method, final int[] probeMethods,
+			final int[] probeLines, final int[] probeBranches,
+			final int[][] coveredLines) {
+		final int[] insnProbes = new int[lines.length];
+		// Marks instructions already visited for the current probe:
+		final int[] visited = new int[lines.length];
+		final BitSet covered = new BitSet();
+		for (int p = 0; p < probeIds.length; p++) {
+			final int id = probeIds[p];
+			final int insn = probeInsns[p];
+			probeMethods[id] = method;
+			probeLines[id] = lines[insn];
+			probeBranches[id] = insnProbes[insn]++;
+			covered.clear();
+			// Predecessor chains may contain loops:
+			for (int i = insn; i != -1 && visited[i] != p + 1; i = predecessors[i]) {
+				visited[i] = p + 1;
+				if (!ignored[i] && lines[i] != ISourceNode.UNKNOWN_LINE) {
+					covered.set(lines[i]);
+				}
+			}
+			final int[] result = new int[covered.cardinality()];
+			int j = 0;
+			for (int l = covered.nextSetBit(0); l >= 0; l = covered
+					.nextSetBit(l + 1)) {
+				result[j++] = l;
+			}
+			coveredLines[id] = result;
+		}
+	}
+
+	/**
+	 * Calculates the coverage of this method for the given probes.
+	 *
+	 * @param probes
+	 *            probes of the class or <code>null</code>
+	 * @param lineCoverage
+	 *            <code>false</code> to ignore line numbers
+	 * @return coverage of this method
+	 */
+	MethodCoverageImpl replay(final boolean[] probes,
+			final boolean lineCoverage) {
+		final MethodCoverageImpl coverage = new MethodCoverageImpl(name, desc,
+				signature);
+		final int[] covered = new int[lines.length];
+		if (probes != null) {
+			for (int p = 0; p < probeIds.length; p++) {
+				if (probes[probeIds[p]]) {
+					int i = probeInsns[p];
+					while (i != -1 && covered[i]++ == 0) {
+						i = predecessors[i];
+					}
+				}
+			}
+		}
+		if (lineCoverage) {
+			coverage.ensureCapacity(firstLine, lastLine);
+		}
+		for (int i = 0; i < lines.length; i++) {
+			if (ignored[i]) {
+				continue;
+			}
+			final int total = branches[i];
+			final ICounter instrCounter = covered[i] == 0 ? CounterImpl.COUNTER_1_0
+					: CounterImpl.COUNTER_0_1;
+			final ICounter branchCounter = total > 1 ? CounterImpl
+					.getInstance(total - covered[i], covered[i])
+					: CounterImpl.COUNTER_0_0;
+			coverage.increment(instrCounter, branchCounter,
+					lineCoverage ? lines[i] : ISourceNode.UNKNOWN_LINE);
+		}
+		coverage.incrementMethodCounter();
+		return coverage;
+	}
+
+	void write(final CompactDataOutput out) throws IOException {
+		out.writeUTF(name);
+		out.writeUTF(desc);
+		ClassStructure.writeOptionalUTF(out, signature);
+		// Lines are shifted as UNKNOWN_LINE is -1:
+		out.writeVarInt(firstLine + 1);
+		out.writeVarInt(lastLine + 1);
+		out.writeVarInt(lines.length);
+		for (int i = 0; i < lines.length; i++) {
+			out.writeVarInt(lines[i] + 1);
+			out.writeVarInt(branches[i]);
+			out.writeVarInt(predecessors[i] + 1);
+		}
+		out.writeBooleanArray(ignored);
+		out.writeVarInt(probeIds.length);
+		for (int i = 0; i < probeIds.length; i++) {
+			out.writeVarInt(probeIds[i]);
+			out.writeVarInt(probeInsns[i]);
+		}
+	}
+
+	static MethodStructure read(final CompactDataInput in,
+			final StringPool stringPool) throws IOException {
+		final String name = stringPool.get(in.readUTF());
+		final String desc = stringPool.get(in.readUTF());
+		final String signature = stringPool.get(ClassStructure
+				.readOptionalUTF(in));
+		final int firstLine = in.readVarInt() - 1;
+		final int lastLine = in.readVarInt() - 1;
+		final int size = in.readVarInt();
+		final int[] lines = new int[size];
+		final int[] branches = new int[size];
+		final int[] predecessors = new int[size];
+		for (int i = 0; i < size; i++) {
+			lines[i] = in.readVarInt() - 1;
+			branches[i] = in.readVarInt();
+			predecessors[i] = in.readVarInt() - 1;
+			if (predecessors[i] < -1 || predecessors[i] >= size) {
+				throw new IOException("Invalid predecessor index.");
+			}
+		}
+		final boolean[] ignored = in.readBooleanArray();
+		if (ignored.length != size) {
+			throw new IOException("Invalid instruction count.");
+		}
+		final int probeCount = in.readVarInt();
+		final int[] probeIds = new int[probeCount];
+		final int[] probeInsns = new int[probeCount];
+		for (int i = 0; i < probeCount; i++) {
+			probeIds[i] = in.readVarInt();
+			probeInsns[i] = in.readVarInt();
+			if (probeInsns[i] < 0 || probeInsns[i] >= size) {
+				throw new IOException("Invalid instruction index.");
+			}
+		}
+		return new MethodStructure(name, desc, signature, firstLine, lastLine,
+				lines, branches, predecessors, ignored, probeIds, probeInsns);
+	}
+
+}
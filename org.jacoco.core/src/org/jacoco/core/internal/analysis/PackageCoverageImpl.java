@@ -48,8 +48,8 @@ public class PackageCoverageImpl extends CoverageNodeImpl implements
 		for (final IClassCoverage c : classes) {
 			// We need to add only classes without a source file reference.
 			// Classes associated with a source file are already included in the
-			// SourceFileCoverage objects.
-			if (c.getSourceFileName() == null) {
+			// SourceFileCoverage objects, unless source files are omitted.
+			if (c.getSourceFileName() == null || sourceFiles.isEmpty()) {
 				increment(c);
 			}
 		}
@@ -17,13 +17,45 @@ import org.jacoco.core.analysis.ILine;
 import org.jacoco.core.analysis.ISourceNode;
 
 /**
- * Implementation of {@link ISourceNode}.
+ * Implementation of {@link ISourceNode}. The instruction and branch counters
+ * of all lines are packed into a single <code>int</code> array, starting with
+ * 4 bits per value. The array is widened to 8 or 32 bits per value only if a
+ * counter exceeds the current width. {@link LineImpl} instances are created on
+ * demand by {@link #getLine(int)}.
  */
 public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 
-	private LineImpl[] lines;
+	/** Index of the missed instructions value of a line */
+	private static final int IM = 0;
 
-	/** first line number in {@link #lines} */
+	/** Index of the covered instructions value of a line */
+	private static final int IC = 1;
+
+	/** Index of the missed branches value of a line */
+	private static final int BM = 2;
+
+	/** Index of the covered branches value of a line */
+	private static final int BC = 3;
+
+	/** Number of values per line */
+	private static final int VALUES = 4;
+
+	/** Initial shift for 4 bits per value */
+	private static final int MIN_SHIFT = 2;
+
+	/** Shift for 32 bits per value */
+	private static final int MAX_SHIFT = 5;
+
+	/** packed counter values of all lines */
+	private int[] values;
+
+	/** log2 of the number of bits per value in {@link #values} */
+	private int shift;
+
+	/** number of lines in {@link #values} */
+	private int length;
+
+	/** first line number in {@link #values} */
 	private int offset;
 
 	/**
@@ -36,7 +68,9 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 	 */
 	public SourceNodeImpl(final ElementType elementType, final String name) {
 		super(elementType, name);
-		lines = null;
+		values = null;
+		shift = MIN_SHIFT;
+		length = 0;
 		offset = UNKNOWN_LINE;
 	}
 
@@ -54,19 +88,16 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 		if (first == UNKNOWN_LINE || last == UNKNOWN_LINE) {
 			return;
 		}
-		if (lines == null) {
+		if (values == null) {
 			offset = first;
-			lines = new LineImpl[last - first + 1];
+			length = last - first + 1;
+			values = new int[capacity(length, shift)];
 		} else {
 			final int newFirst = Math.min(getFirstLine(), first);
 			final int newLast = Math.max(getLastLine(), last);
 			final int newLength = newLast - newFirst + 1;
-			if (newLength > lines.length) {
-				final LineImpl[] newLines = new LineImpl[newLength];
-				System.arraycopy(lines, 0, newLines, offset - newFirst,
-						lines.length);
-				offset = newFirst;
-				lines = newLines;
+			if (newLength > length) {
+				resize(newFirst, newLength, shift);
 			}
 		}
 	}
@@ -91,10 +122,22 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 		if (firstLine != UNKNOWN_LINE) {
 			final int lastLine = child.getLastLine();
 			ensureCapacity(firstLine, lastLine);
-			for (int i = firstLine; i <= lastLine; i++) {
-				final ILine line = child.getLine(i);
-				incrementLine(line.getInstructionCounter(),
-						line.getBranchCounter(), i);
+			if (child instanceof SourceNodeImpl) {
+				final SourceNodeImpl c = (SourceNodeImpl) child;
+				for (int i = 0; i < c.length; i++) {
+					incrementLine(c.get(i, IM), c.get(i, IC), c.get(i, BM),
+							c.get(i, BC), c.offset + i);
+				}
+			} else {
+				for (int i = firstLine; i <= lastLine; i++) {
+					final ILine line = child.getLine(i);
+					final ICounter instructions = line.getInstructionCounter();
+					final ICounter branches = line.getBranchCounter();
+					incrementLine(instructions.getMissedCount(),
+							instructions.getCoveredCount(),
+							branches.getMissedCount(),
+							branches.getCoveredCount(), i);
+				}
 			}
 		}
 	}
@@ -114,23 +157,30 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 	public void increment(final ICounter instructions, final ICounter branches,
 			final int line) {
 		if (line != UNKNOWN_LINE) {
-			incrementLine(instructions, branches, line);
+			incrementLine(instructions.getMissedCount(),
+					instructions.getCoveredCount(), branches.getMissedCount(),
+					branches.getCoveredCount(), line);
 		}
 		instructionCounter = instructionCounter.increment(instructions);
 		branchCounter = branchCounter.increment(branches);
 	}
 
-	private void incrementLine(final ICounter instructions,
-			final ICounter branches, final int line) {
+	private void incrementLine(final int im, final int ic, final int bm,
+			final int bc, final int line) {
+		if ((im | ic | bm | bc) == 0) {
+			return;
+		}
 		ensureCapacity(line, line);
-		final LineImpl l = getLine(line);
-		final int oldTotal = l.getInstructionCounter().getTotalCount();
-		final int oldCovered = l.getInstructionCounter().getCoveredCount();
-		lines[line - offset] = l.increment(instructions, branches);
+		final int index = line - offset;
+		final int oldMissed = get(index, IM);
+		final int oldCovered = get(index, IC);
+		set(index, oldMissed + im, oldCovered + ic, get(index, BM) + bm,
+				get(index, BC) + bc);
 
 		// Increment line counter:
-		if (instructions.getTotalCount() > 0) {
-			if (instructions.getCoveredCount() == 0) {
+		final int oldTotal = oldMissed + oldCovered;
+		if (im + ic > 0) {
+			if (ic == 0) {
 				if (oldTotal == 0) {
 					lineCounter = lineCounter
 							.increment(CounterImpl.COUNTER_1_0);
@@ -148,6 +198,60 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 		}
 	}
 
+	private int get(final int index, final int value) {
+		return get(values, shift, index, value);
+	}
+
+	private void set(final int index, final int im, final int ic,
+			final int bm, final int bc) {
+		while (((im | ic | bm | bc) & ~mask(shift)) != 0) {
+			resize(offset, length, shift == MIN_SHIFT ? MIN_SHIFT + 1
+					: MAX_SHIFT);
+		}
+		set(values, shift, index, IM, im);
+		set(values, shift, index, IC, ic);
+		set(values, shift, index, BM, bm);
+		set(values, shift, index, BC, bc);
+	}
+
+	private void resize(final int newOffset, final int newLength,
+			final int newShift) {
+		final int[] newValues = new int[capacity(newLength, newShift)];
+		final int delta = offset - newOffset;
+		for (int i = 0; i < length; i++) {
+			for (int v = 0; v < VALUES; v++) {
+				set(newValues, newShift, i + delta, v,
+						get(values, shift, i, v));
+			}
+		}
+		values = newValues;
+		shift = newShift;
+		length = newLength;
+		offset = newOffset;
+	}
+
+	private static int capacity(final int length, final int shift) {
+		return ((length * VALUES << shift) + 31) >>> 5;
+	}
+
+	private static int mask(final int shift) {
+		return -1 >>> (32 - (1 << shift));
+	}
+
+	private static int get(final int[] values, final int shift,
+			final int index, final int value) {
+		final int pos = (index * VALUES + value) << shift;
+		return (values[pos >>> 5] >>> (pos & 31)) & mask(shift);
+	}
+
+	private static void set(final int[] values, final int shift,
+			final int index, final int value, final int v) {
+		final int pos = (index * VALUES + value) << shift;
+		final int bit = pos & 31;
+		values[pos >>> 5] = values[pos >>> 5] & ~(mask(shift) << bit)
+				| v << bit;
+	}
+
 	// === ISourceNode implementation ===
 
 	public int getFirstLine() {
@@ -155,15 +259,16 @@ public class SourceNodeImpl extends CoverageNodeImpl implements ISourceNode {
 	}
 
 	public int getLastLine() {
-		return lines == null ? UNKNOWN_LINE : (offset + lines.length - 1);
+		return values == null ? UNKNOWN_LINE : (offset + length - 1);
 	}
 
 	public LineImpl getLine(final int nr) {
-		if (lines == null || nr < getFirstLine() || nr > getLastLine()) {
+		if (values == null || nr < getFirstLine() || nr > getLastLine()) {
 			return LineImpl.EMPTY;
 		}
-		final LineImpl line = lines[nr - offset];
-		return line == null ? LineImpl.EMPTY : line;
+		final int index = nr - offset;
+		return LineImpl.getInstance(get(index, IM), get(index, IC),
+				get(index, BM), get(index, BC));
 	}
 
 }
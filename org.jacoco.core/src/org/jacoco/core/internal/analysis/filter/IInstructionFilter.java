@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.analysis.filter;
+
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Filter which inspects the instructions of a method. Instead of iterating
+ * the instruction list itself the filter is called for every instruction in a
+ * single pass which is shared with all other filters and the analysis. The
+ * pass is only performed for methods the filter is applicable for.
+ */
+public interface IInstructionFilter extends IFilter {
+
+	/**
+	 * Cheap precondition which is checked once for every method before its
+	 * instructions are visited, e.g. by looking at the name, the access flags
+	 * or the try/catch blocks of the method. Implementations must not iterate
+	 * the instruction list.
+	 *
+	 * @param className
+	 *            class name
+	 * @param superClassName
+	 *            superclass name
+	 * @param methodNode
+	 *            method to inspect
+	 * @return <code>true</code> if
+	 *         {@link #filter(AbstractInsnNode, MethodNode, IFilterOutput)}
+	 *         should be called for the instructions of this method
+	 */
+	boolean isApplicable(String className, String superClassName,
+			MethodNode methodNode);
+
+	/**
+	 * This method is called for every instruction node of an applicable
+	 * method in the order of the instruction list. Ignored sequences reported
+	 * to the given {@link IFilterOutput} must not start before the given
+	 * node.
+	 *
+	 * @param node
+	 *            current instruction node, including labels, line numbers
+	 *            and frames
+	 * @param methodNode
+	 *            method the node belongs to
+	 * @param output
+	 *            callback to report filtering results to
+	 */
+	void filter(AbstractInsnNode node, MethodNode methodNode,
+			IFilterOutput output);
+
+}
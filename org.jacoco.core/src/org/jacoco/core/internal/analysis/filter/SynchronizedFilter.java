@@ -19,25 +19,53 @@ import org.objectweb.asm.tree.TryCatchBlockNode;
 /**
  * Filters code that is generated for synchronized statement.
  */
-public final class SynchronizedFilter implements IFilter {
+public final class SynchronizedFilter implements IInstructionFilter {
 
 	public void filter(final String className, final String superClassName,
 			final MethodNode methodNode, final IFilterOutput output) {
-		for (TryCatchBlockNode tryCatch : methodNode.tryCatchBlocks) {
-			if (tryCatch.type != null) {
-				continue;
-			}
-			if (tryCatch.start == tryCatch.handler) {
-				continue;
+		if (!isApplicable(className, superClassName, methodNode)) {
+			return;
+		}
+		for (AbstractInsnNode node = methodNode.instructions
+				.getFirst(); node != null; node = node.getNext()) {
+			filter(node, methodNode, output);
+		}
+	}
+
+	public boolean isApplicable(final String className,
+			final String superClassName, final MethodNode methodNode) {
+		for (final TryCatchBlockNode tryCatch : methodNode.tryCatchBlocks) {
+			if (isCandidate(tryCatch)) {
+				return true;
 			}
-			final AbstractInsnNode to = new Matcher(tryCatch.handler).match();
-			if (to == null) {
-				continue;
+		}
+		return false;
+	}
+
+	public void filter(final AbstractInsnNode node,
+			final MethodNode methodNode, final IFilterOutput output) {
+		if (node.getType() != AbstractInsnNode.LABEL) {
+			return;
+		}
+		for (final TryCatchBlockNode tryCatch : methodNode.tryCatchBlocks) {
+			if (tryCatch.handler == node && isCandidate(tryCatch)) {
+				final AbstractInsnNode to = new Matcher(node).match();
+				if (to != null) {
+					output.ignore(node, to);
+				}
+				return;
 			}
-			output.ignore(tryCatch.handler, to);
 		}
 	}
 
+	/**
+	 * Handlers for any exception might be the generated code which releases
+	 * the monitor.
+	 */
+	private static boolean isCandidate(final TryCatchBlockNode tryCatch) {
+		return tryCatch.type == null && tryCatch.start != tryCatch.handler;
+	}
+
 	private static class Matcher {
 		private final AbstractInsnNode start;
 		private AbstractInsnNode cursor;
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.data;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Unsynchronized {@link OutputStream} that writes to a {@link ByteBuffer}
+ * starting at its current position. Heap buffers are replaced by a larger copy
+ * if their capacity is exceeded. Direct and memory mapped buffers can not be
+ * relocated, writing beyond their limit results in an {@link IOException}.
+ */
+class ByteBufferOutputStream extends OutputStream {
+
+	private ByteBuffer buffer;
+
+	/**
+	 * Creates a stream that writes to the given buffer.
+	 *
+	 * @param buffer
+	 *            heap, direct or memory mapped buffer
+	 */
+	ByteBufferOutputStream(final ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Returns the buffer which holds the data written so far. As heap buffers
+	 * may be replaced this is not necessarily the instance given in the
+	 * constructor.
+	 *
+	 * @return current buffer
+	 */
+	ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Returns the buffer if at least the given number of bytes can be put into
+	 * it. Heap buffers are enlarged if required.
+	 *
+	 * @param n
+	 *            number of bytes to write next
+	 * @return buffer to write to or <code>null</code> if a direct buffer has
+	 *         not enough remaining capacity
+	 */
+	ByteBuffer reserve(final int n) {
+		if (buffer.remaining() < n) {
+			if (buffer.isDirect()) {
+				return null;
+			}
+			final int capacity = Math.max(buffer.capacity() * 2,
+					buffer.position() + n);
+			final ByteBuffer newBuffer = ByteBuffer.allocate(capacity);
+			buffer.flip();
+			newBuffer.put(buffer);
+			buffer = newBuffer;
+		}
+		return buffer;
+	}
+
+	private ByteBuffer ensureRemaining(final int n) throws IOException {
+		final ByteBuffer b = reserve(n);
+		if (b == null) {
+			throw new IOException("Insufficient buffer capacity.");
+		}
+		return b;
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		ensureRemaining(1).put((byte) b);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len)
+			throws IOException {
+		ensureRemaining(len).put(b, off, len);
+	}
+
+}
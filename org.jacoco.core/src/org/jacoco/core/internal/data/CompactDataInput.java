@@ -12,8 +12,11 @@
 package org.jacoco.core.internal.data;
 
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 
 /**
  * Additional data input methods for compact storage of data structures.
@@ -22,6 +25,15 @@ import java.io.InputStream;
  */
 public class CompactDataInput extends DataInputStream {
 
+	/** Buffer if this input reads from a {@link ByteBuffer} directly */
+	private final ByteBuffer buffer;
+
+	/** Reusable space for packed arrays and encoded strings */
+	private byte[] scratch = new byte[64];
+
+	/** Strings read with {@link #readPooledUTF()}, created on demand */
+	private UTFStringPool stringPool;
+
 	/**
 	 * Creates a new {@link CompactDataInput} that uses the specified underlying
 	 * input stream.
@@ -31,6 +43,21 @@ public class CompactDataInput extends DataInputStream {
 	 */
 	public CompactDataInput(final InputStream in) {
 		super(in);
+		this.buffer = null;
+	}
+
+	/**
+	 * Creates a new {@link CompactDataInput} that reads from the current
+	 * position of the given buffer. Heap, direct and memory mapped buffers are
+	 * supported. Variable length integers and arrays are decoded from the
+	 * buffer directly without going through a stream.
+	 * 
+	 * @param buffer
+	 *            buffer to read from
+	 */
+	public CompactDataInput(final ByteBuffer buffer) {
+		super(new ByteBufferInputStream(buffer));
+		this.buffer = buffer;
 	}
 
 	/**
@@ -41,11 +68,37 @@ public class CompactDataInput extends DataInputStream {
 	 *             if thrown by the underlying stream
 	 */
 	public int readVarInt() throws IOException {
-		final int value = 0xFF & readByte();
-		if ((value & 0x80) == 0) {
-			return value;
+		if (buffer != null) {
+			try {
+				return readVarInt(buffer);
+			} catch (final BufferUnderflowException e) {
+				throw new EOFException();
+			}
 		}
-		return (value & 0x7F) | (readVarInt() << 7);
+		int value = 0;
+		int shift = 0;
+		int b;
+		do {
+			b = readByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	private static int readVarInt(final ByteBuffer buffer) {
+		int b = buffer.get();
+		if (b >= 0) {
+			return b;
+		}
+		int value = b & 0x7F;
+		int shift = 7;
+		do {
+			b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
 	}
 
 	/**
@@ -57,15 +110,84 @@ public class CompactDataInput extends DataInputStream {
 	 */
 	public boolean[] readBooleanArray() throws IOException {
 		final boolean[] value = new boolean[readVarInt()];
-		int buffer = 0;
+		mergeBooleanArray(value);
+		return value;
+	}
+
+	/**
+	 * Reads the elements of a boolean array with the length of the given array
+	 * and sets every slot of the given array to <code>true</code> where the
+	 * read value is <code>true</code>. The length of the array must have been
+	 * read before, e.g. with {@link #readVarInt()}. No intermediate array is
+	 * created.
+	 * 
+	 * @param value
+	 *            array to merge the read values into
+	 * @throws IOException
+	 *             if thrown by the underlying stream
+	 */
+	public void mergeBooleanArray(final boolean[] value) throws IOException {
+		final int size = (value.length + 7) >>> 3;
+		final byte[] packed;
+		int offset = 0;
+		if (buffer == null) {
+			packed = getScratch(size);
+			readFully(packed, 0, size);
+		} else if (buffer.remaining() < size) {
+			throw new EOFException();
+		} else if (buffer.hasArray()) {
+			packed = buffer.array();
+			offset = buffer.arrayOffset() + buffer.position();
+			buffer.position(buffer.position() + size);
+		} else {
+			packed = getScratch(size);
+			buffer.get(packed, 0, size);
+		}
 		for (int i = 0; i < value.length; i++) {
-			if ((i % 8) == 0) {
-				buffer = readByte();
+			if ((packed[offset + (i >>> 3)] & (1 << (i & 7))) != 0) {
+				value[i] = true;
 			}
-			value[i] = (buffer & 0x01) != 0;
-			buffer >>>= 1;
 		}
-		return value;
+	}
+
+	/**
+	 * Reads the elements of a boolean array with the given length and sets the
+	 * corresponding bits in the given words, where bit <code>i</code> is stored
+	 * in word <code>i / 64</code>. The length of the array must have been read
+	 * before, e.g. with {@link #readVarInt()}.
+	 * 
+	 * @param words
+	 *            words to merge the read values into
+	 * @param length
+	 *            number of boolean values
+	 * @throws IOException
+	 *             if thrown by the underlying stream
+	 */
+	public void mergePackedBooleanArray(final long[] words, final int length)
+			throws IOException {
+		final int size = (length + 7) >>> 3;
+		final byte[] packed;
+		int offset = 0;
+		if (buffer == null) {
+			packed = getScratch(size);
+			readFully(packed, 0, size);
+		} else if (buffer.remaining() < size) {
+			throw new EOFException();
+		} else if (buffer.hasArray()) {
+			packed = buffer.array();
+			offset = buffer.arrayOffset() + buffer.position();
+			buffer.position(buffer.position() + size);
+		} else {
+			packed = getScratch(size);
+			buffer.get(packed, 0, size);
+		}
+		for (int i = 0; i < size; i++) {
+			words[i >>> 3] |= (packed[offset + i] & 0xFFL) << ((i & 7) << 3);
+		}
+		if ((length & 63) != 0) {
+			// ignore padding bits of the last byte
+			words[(length - 1) >>> 6] &= -1L >>> (64 - (length & 63));
+		}
 	}
 
 	/**
@@ -77,9 +199,97 @@ public class CompactDataInput extends DataInputStream {
 	 */
 	public int[] readIntArray() throws IOException {
 		final int[] value = new int[readVarInt()];
-		for (int i = 0; i < value.length; i++) {
-			value[i] = readVarInt();
-		}
+		readIntArray(value);
 		return value;
 	}
+
+	/**
+	 * Reads the elements of a int array with the length of the given array
+	 * into the given array. The length of the array must have been read
+	 * before, e.g. with {@link #readVarInt()}.
+	 * 
+	 * @param value
+	 *            array to store the read values in
+	 * @throws IOException
+	 *             if thrown by the underlying stream
+	 */
+	public void readIntArray(final int[] value) throws IOException {
+		if (buffer != null) {
+			try {
+				for (int i = 0; i < value.length; i++) {
+					value[i] = readVarInt(buffer);
+				}
+			} catch (final BufferUnderflowException e) {
+				throw new EOFException();
+			}
+		} else {
+			for (int i = 0; i < value.length; i++) {
+				value[i] = readVarInt();
+			}
+		}
+	}
+
+	/**
+	 * Reads the elements of a int array with the length of the given array and
+	 * adds every positive read value to the corresponding slot of the given
+	 * array. The length of the array must have been read before, e.g. with
+	 * {@link #readVarInt()}. No intermediate array is created.
+	 * 
+	 * @param value
+	 *            array to add the read values to
+	 * @throws IOException
+	 *             if thrown by the underlying stream
+	 */
+	public void mergeIntArray(final int[] value) throws IOException {
+		if (buffer != null) {
+			try {
+				for (int i = 0; i < value.length; i++) {
+					final int v = readVarInt(buffer);
+					if (v > 0) {
+						value[i] += v;
+					}
+				}
+			} catch (final BufferUnderflowException e) {
+				throw new EOFException();
+			}
+		} else {
+			for (int i = 0; i < value.length; i++) {
+				final int v = readVarInt();
+				if (v > 0) {
+					value[i] += v;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reads a string in the format of {@link #readUTF()}. Equal strings read
+	 * from this input are represented by the same instance. Strings which have
+	 * been read before are looked up by their encoded bytes, i.e. no new
+	 * instance is created for them.
+	 * 
+	 * @return string instance
+	 * @throws IOException
+	 *             if thrown by the underlying stream or in case of a malformed
+	 *             encoding
+	 */
+	public String readPooledUTF() throws IOException {
+		final int length = readUnsignedShort();
+		final byte[] encoded = getScratch(length + 2);
+		encoded[0] = (byte) (length >>> 8);
+		encoded[1] = (byte) length;
+		readFully(encoded, 2, length);
+		if (stringPool == null) {
+			stringPool = new UTFStringPool();
+		}
+		return stringPool.get(encoded, length + 2);
+	}
+
+	private byte[] getScratch(final int size) {
+		if (scratch.length < size) {
+			scratch = new byte[Math.max(size, scratch.length * 2)];
+		}
+		return scratch;
+	}
+
 }
@@ -14,6 +14,7 @@ package org.jacoco.core.internal.data;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Additional data output methods for compact storage of data structures.
@@ -22,6 +23,15 @@ import java.io.OutputStream;
  */
 public class CompactDataOutput extends DataOutputStream {
 
+	/** Maximum number of bytes of a variable length integer */
+	private static final int MAX_VARINT_SIZE = 5;
+
+	/** Buffer stream if this output writes to a {@link ByteBuffer} directly */
+	private final ByteBufferOutputStream bufferOut;
+
+	/** Scratch space to encode variable length integers in one chunk */
+	private final byte[] varIntBytes = new byte[MAX_VARINT_SIZE];
+
 	/**
 	 * Creates a new {@link CompactDataOutput} instance that writes data to the
 	 * specified underlying output stream
@@ -31,6 +41,38 @@ public class CompactDataOutput extends DataOutputStream {
 	 */
 	public CompactDataOutput(final OutputStream out) {
 		super(out);
+		this.bufferOut = null;
+	}
+
+	/**
+	 * Creates a new {@link CompactDataOutput} instance that writes data to the
+	 * given buffer starting at its current position. Heap buffers are replaced
+	 * by a larger copy if required, see {@link #getBuffer()}. Direct and memory
+	 * mapped buffers must provide sufficient capacity, otherwise an
+	 * {@link IOException} is thrown on write. Note that {@link #size()} does
+	 * not reflect the number of bytes written in this mode.
+	 * 
+	 * @param buffer
+	 *            buffer to write to
+	 */
+	public CompactDataOutput(final ByteBuffer buffer) {
+		this(new ByteBufferOutputStream(buffer));
+	}
+
+	private CompactDataOutput(final ByteBufferOutputStream bufferOut) {
+		super(bufferOut);
+		this.bufferOut = bufferOut;
+	}
+
+	/**
+	 * Returns the buffer this output writes to. The position of the buffer
+	 * marks the end of the data written so far.
+	 * 
+	 * @return current buffer or <code>null</code> if this output writes to a
+	 *         stream
+	 */
+	public ByteBuffer getBuffer() {
+		return bufferOut == null ? null : bufferOut.getBuffer();
 	}
 
 	/**
@@ -44,12 +86,34 @@ public class CompactDataOutput extends DataOutputStream {
 	 *             if thrown by the underlying stream
 	 */
 	public void writeVarInt(final int value) throws IOException {
+		if (bufferOut != null) {
+			final ByteBuffer buffer = bufferOut.reserve(MAX_VARINT_SIZE);
+			if (buffer != null) {
+				writeVarInt(buffer, value);
+				return;
+			}
+		}
 		if ((value & 0xFFFFFF80) == 0) {
 			writeByte(value);
-		} else {
-			writeByte(0x80 | (value & 0x7F));
-			writeVarInt(value >>> 7);
+			return;
+		}
+		int v = value;
+		int size = 0;
+		while ((v & 0xFFFFFF80) != 0) {
+			varIntBytes[size++] = (byte) (0x80 | (v & 0x7F));
+			v >>>= 7;
 		}
+		varIntBytes[size++] = (byte) v;
+		write(varIntBytes, 0, size);
+	}
+
+	private static void writeVarInt(final ByteBuffer buffer, final int value) {
+		int v = value;
+		while ((v & 0xFFFFFF80) != 0) {
+			buffer.put((byte) (0x80 | (v & 0x7F)));
+			v >>>= 7;
+		}
+		buffer.put((byte) v);
 	}
 
 	/**
@@ -63,21 +127,62 @@ public class CompactDataOutput extends DataOutputStream {
 	 */
 	public void writeBooleanArray(final boolean[] value) throws IOException {
 		writeVarInt(value.length);
-		int buffer = 0;
-		int bufferSize = 0;
-		for (final boolean b : value) {
-			if (b) {
-				buffer |= 0x01 << bufferSize;
+		final int size = (value.length + 7) >>> 3;
+		final ByteBuffer buffer = bufferOut == null ? null : bufferOut
+				.reserve(size);
+		if (buffer != null) {
+			for (int i = 0; i < size; i++) {
+				buffer.put(pack(value, i << 3));
 			}
-			if (++bufferSize == 8) {
-				writeByte(buffer);
-				buffer = 0;
-				bufferSize = 0;
+			return;
+		}
+		final byte[] packed = new byte[size];
+		for (int i = 0; i < size; i++) {
+			packed[i] = pack(value, i << 3);
+		}
+		write(packed, 0, size);
+	}
+
+	/**
+	 * Writes a boolean array given as bits of words, where bit <code>i</code>
+	 * is stored in word <code>i / 64</code>. The format is the same as for
+	 * {@link #writeBooleanArray(boolean[])}.
+	 * 
+	 * @param words
+	 *            words holding the boolean values
+	 * @param length
+	 *            number of boolean values
+	 * @throws IOException
+	 *             if thrown by the underlying stream
+	 */
+	public void writePackedBooleanArray(final long[] words, final int length)
+			throws IOException {
+		writeVarInt(length);
+		final int size = (length + 7) >>> 3;
+		final ByteBuffer buffer = bufferOut == null ? null : bufferOut
+				.reserve(size);
+		if (buffer != null) {
+			for (int i = 0; i < size; i++) {
+				buffer.put((byte) (words[i >>> 3] >>> ((i & 7) << 3)));
 			}
+			return;
 		}
-		if (bufferSize > 0) {
-			writeByte(buffer);
+		final byte[] packed = new byte[size];
+		for (int i = 0; i < size; i++) {
+			packed[i] = (byte) (words[i >>> 3] >>> ((i & 7) << 3));
 		}
+		write(packed, 0, size);
+	}
+
+	private static byte pack(final boolean[] value, final int offset) {
+		final int end = Math.min(offset + 8, value.length);
+		int b = 0;
+		for (int i = offset; i < end; i++) {
+			if (value[i]) {
+				b |= 1 << (i - offset);
+			}
+		}
+		return (byte) b;
 	}
 
 	/**
@@ -90,6 +195,14 @@ public class CompactDataOutput extends DataOutputStream {
 	 */
 	public void writeIntArray(final int[] value) throws IOException {
 		writeVarInt(value.length);
+		final ByteBuffer buffer = bufferOut == null ? null
+				: bufferOut.reserve(value.length * MAX_VARINT_SIZE);
+		if (buffer != null) {
+			for (final int b : value) {
+				writeVarInt(buffer, b);
+			}
+			return;
+		}
 		for (final int b : value) {
 			writeVarInt(b);
 		}
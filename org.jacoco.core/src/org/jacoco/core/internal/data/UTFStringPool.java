@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Pool of {@link String} instances keyed by their encoded representation as
+ * written by {@link java.io.DataOutput#writeUTF(String)}. Lookup works on the
+ * raw bytes, so a string which has been decoded before is returned without
+ * allocating a new instance. This implementation is not thread safe.
+ */
+final class UTFStringPool {
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	private byte[][] keys = new byte[INITIAL_CAPACITY][];
+
+	private int[] hashes = new int[INITIAL_CAPACITY];
+
+	private String[] values = new String[INITIAL_CAPACITY];
+
+	private int size;
+
+	/**
+	 * Returns the string for the given encoded representation.
+	 *
+	 * @param buffer
+	 *            encoded string including the two length bytes
+	 * @param length
+	 *            number of valid bytes in the buffer
+	 * @return pooled instance
+	 * @throws IOException
+	 *             if the bytes are not a valid encoding
+	 */
+	String get(final byte[] buffer, final int length) throws IOException {
+		final int hash = hash(buffer, length);
+		int i = hash & (keys.length - 1);
+		while (keys[i] != null) {
+			if (hashes[i] == hash && equals(keys[i], buffer, length)) {
+				return values[i];
+			}
+			i = (i + 1) & (keys.length - 1);
+		}
+		final String value = decode(buffer, length);
+		final byte[] key = new byte[length];
+		System.arraycopy(buffer, 0, key, 0, length);
+		keys[i] = key;
+		hashes[i] = hash;
+		values[i] = value;
+		if (++size * 2 > keys.length) {
+			rehash();
+		}
+		return value;
+	}
+
+	private void rehash() {
+		final byte[][] oldKeys = keys;
+		final int[] oldHashes = hashes;
+		final String[] oldValues = values;
+		keys = new byte[oldKeys.length * 2][];
+		hashes = new int[keys.length];
+		values = new String[keys.length];
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != null) {
+				int i = oldHashes[j] & (keys.length - 1);
+				while (keys[i] != null) {
+					i = (i + 1) & (keys.length - 1);
+				}
+				keys[i] = oldKeys[j];
+				hashes[i] = oldHashes[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	private static String decode(final byte[] buffer, final int length)
+			throws IOException {
+		final char[] chars = new char[length - 2];
+		for (int i = 2; i < length; i++) {
+			final int b = buffer[i];
+			if (b < 0) {
+				// Multi byte characters are rare in class names:
+				return DataInputStream.readUTF(new DataInputStream(
+						new ByteArrayInputStream(buffer, 0, length)));
+			}
+			chars[i - 2] = (char) b;
+		}
+		return new String(chars);
+	}
+
+	private static int hash(final byte[] buffer, final int length) {
+		int h = 0;
+		for (int i = 0; i < length; i++) {
+			h = 31 * h + buffer[i];
+		}
+		// spread similar keys like "Class1", "Class2" over the table:
+		h *= 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean equals(final byte[] key, final byte[] buffer,
+			final int length) {
+		if (key.length != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (key[i] != buffer[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
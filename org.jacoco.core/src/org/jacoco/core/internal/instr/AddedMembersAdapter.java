@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+
+/**
+ * Adapter which appends the members added by the instrumentation of a class to
+ * its original definition. The result has exactly the fields and methods of
+ * the instrumented class but the original method bodies without probes. It can
+ * therefore replace the instrumented class through retransformation, which
+ * must not add or remove members.
+ */
+public class AddedMembersAdapter extends ClassVisitor {
+
+	private final ClassReader instrumented;
+
+	private final Set<String> fields = new HashSet<String>();
+
+	private final Set<String> methods = new HashSet<String>();
+
+	/**
+	 * Creates a new adapter.
+	 * 
+	 * @param instrumented
+	 *            reader for the instrumented version of the class
+	 * @param cv
+	 *            next delegate in the visitor chain
+	 */
+	public AddedMembersAdapter(final ClassReader instrumented,
+			final ClassVisitor cv) {
+		super(InstrSupport.ASM_API_VERSION, cv);
+		this.instrumented = instrumented;
+	}
+
+	@Override
+	public FieldVisitor visitField(final int access, final String name,
+			final String desc, final String signature, final Object value) {
+		fields.add(name + desc);
+		return super.visitField(access, name, desc, signature, value);
+	}
+
+	@Override
+	public MethodVisitor visitMethod(final int access, final String name,
+			final String desc, final String signature,
+			final String[] exceptions) {
+		methods.add(name + desc);
+		return super.visitMethod(access, name, desc, signature, exceptions);
+	}
+
+	@Override
+	public void visitEnd() {
+		// The instrumentation appends its members after the original ones,
+		// this order is preserved as it is relevant for retransformation.
+		final ClassVisitor target = cv;
+		instrumented.accept(new ClassVisitor(InstrSupport.ASM_API_VERSION) {
+			@Override
+			public FieldVisitor visitField(final int access,
+					final String name, final String desc,
+					final String signature, final Object value) {
+				if (fields.contains(name + desc)) {
+					return null;
+				}
+				return target.visitField(access, name, desc, signature, value);
+			}
+
+			@Override
+			public MethodVisitor visitMethod(final int access,
+					final String name, final String desc,
+					final String signature, final String[] exceptions) {
+				if (methods.contains(name + desc)) {
+					return null;
+				}
+				return target.visitMethod(access, name, desc, signature,
+						exceptions);
+			}
+		}, 0);
+		super.visitEnd();
+	}
+
+}
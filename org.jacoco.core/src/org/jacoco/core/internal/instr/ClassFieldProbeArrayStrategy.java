@@ -24,12 +24,12 @@ import org.objectweb.asm.Opcodes;
  * runtime.
  */
 class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
-	private static final IInstrSupport instrSupport = ExecutionData
+	private final IInstrSupport instrSupport = ExecutionData
 			.getInstrSupport();
 	/**
 	 * Frame stack with a single boolean array.
 	 */
-	private static final Object[] FRAME_STACK_ARRZ = new Object[] {
+	private final Object[] frameStackArrz = new Object[] {
 			instrSupport.getDatafieldDesc() };
 
 	/**
@@ -60,6 +60,12 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 		return 1;
 	}
 
+	public MethodVisitor visitMethod(final ClassVisitor cv, final int access,
+			final String name, final String desc, final String signature,
+			final String[] exceptions) {
+		return cv.visitMethod(access, name, desc, signature, exceptions);
+	}
+
 	public void addMembers(final ClassVisitor cv, final int probeCount) {
 		createDataField(cv);
 		createInitMethod(cv, probeCount);
@@ -100,7 +106,7 @@ class ClassFieldProbeArrayStrategy implements IProbeArrayStrategy {
 		// Return the class' probe array:
 		if (withFrames) {
 			mv.visitFrame(Opcodes.F_NEW, 0, FRAME_LOCALS_EMPTY, 1,
-					FRAME_STACK_ARRZ);
+					frameStackArrz);
 		}
 		mv.visitLabel(alreadyInitialized);
 		mv.visitInsn(Opcodes.ARETURN);
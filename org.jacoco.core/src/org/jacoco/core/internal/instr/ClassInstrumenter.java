@@ -11,6 +11,9 @@
  *******************************************************************************/
 package org.jacoco.core.internal.instr;
 
+import java.util.Collections;
+import java.util.Set;
+
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.internal.flow.ClassProbesVisitor;
 import org.jacoco.core.internal.flow.MethodProbesVisitor;
@@ -25,6 +28,12 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 
 	private final IProbeArrayStrategy probeArrayStrategy;
 
+	private final CounterPlacement counterPlacement;
+
+	private Set<String> compactMethods = Collections.emptySet();
+
+	private boolean hitMethodRequired;
+
 	private String className;
 	private final IInstrSupport instrSupport = ExecutionData.getInstrSupport();
 
@@ -39,8 +48,43 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 	 */
 	public ClassInstrumenter(final IProbeArrayStrategy probeArrayStrategy,
 			final ClassVisitor cv) {
+		this(probeArrayStrategy, null, cv);
+	}
+
+	/**
+	 * Emits a instrumented version of this class to the given class visitor
+	 * where only the probes with a counter of the given placement are
+	 * inserted.
+	 * 
+	 * @param probeArrayStrategy
+	 *            this strategy will be used to access the probe array
+	 * @param counterPlacement
+	 *            counters to insert instead of the probes or
+	 *            <code>null</code> to insert all probes
+	 * @param cv
+	 *            next delegate in the visitor chain will receive the
+	 *            instrumented class
+	 */
+	public ClassInstrumenter(final IProbeArrayStrategy probeArrayStrategy,
+			final CounterPlacement counterPlacement, final ClassVisitor cv) {
 		super(cv);
 		this.probeArrayStrategy = probeArrayStrategy;
+		this.counterPlacement = counterPlacement;
+	}
+
+	/**
+	 * Selects the methods which receive compact probes, i.e. probes which call
+	 * a shared static method of the class instead of accessing the probe array
+	 * through a local variable. Compact probes are only supported for classes
+	 * which store the probe array in a static field, the selection is ignored
+	 * for all other probe array strategies.
+	 * 
+	 * @param methods
+	 *            name and descriptor of every method which should receive
+	 *            compact probes
+	 */
+	public void setCompactMethods(final Set<String> methods) {
+		this.compactMethods = methods;
 	}
 
 	@Override
@@ -64,22 +108,48 @@ public class ClassInstrumenter extends ClassProbesVisitor {
 
 		instrSupport.assertNotInstrumented(name, className);
 
-		final MethodVisitor mv = cv.visitMethod(access, name, desc, signature,
-				exceptions);
+		final MethodVisitor mv = probeArrayStrategy.visitMethod(cv, access,
+				name, desc, signature, exceptions);
 
 		if (mv == null) {
 			return null;
 		}
 		final MethodVisitor frameEliminator = new DuplicateFrameEliminator(mv);
-		final ProbeInserter probeVariableInserter = new ProbeInserter(access,
-				name, desc, frameEliminator, probeArrayStrategy);
-		return new MethodInstrumenter(probeVariableInserter,
-				probeVariableInserter);
+		final MethodProbesVisitor instrumenter;
+		if (isCompact(name, desc)) {
+			hitMethodRequired = true;
+			final CompactProbeInserter compactInserter = new CompactProbeInserter(
+					className, frameEliminator);
+			instrumenter = new MethodInstrumenter(compactInserter,
+					compactInserter);
+		} else {
+			final ProbeInserter probeVariableInserter = new ProbeInserter(
+					access, name, desc, frameEliminator, probeArrayStrategy);
+			instrumenter = new MethodInstrumenter(probeVariableInserter,
+					probeVariableInserter);
+		}
+		if (counterPlacement == null) {
+			return instrumenter;
+		}
+		return new CounterMethodAdapter(instrumenter, counterPlacement);
 	}
 
 	@Override
 	public void visitTotalProbeCount(final int count) {
-		probeArrayStrategy.addMembers(cv, count);
+		if (counterPlacement == null) {
+			probeArrayStrategy.addMembers(cv, count);
+		} else {
+			probeArrayStrategy.addMembers(cv,
+					counterPlacement.getCounterCount());
+		}
+		if (hitMethodRequired) {
+			CompactProbeInserter.createHitMethod(cv, className);
+		}
+	}
+
+	private boolean isCompact(final String name, final String desc) {
+		return probeArrayStrategy instanceof ClassFieldProbeArrayStrategy
+				&& compactMethods.contains(name + desc);
 	}
 
 }
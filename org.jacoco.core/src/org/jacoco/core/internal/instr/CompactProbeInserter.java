@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import org.jacoco.core.data.ExecutionData;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Inserts probes as calls of a shared static method of the class. Unlike
+ * {@link ProbeInserter} no local variable and no method prologue is added,
+ * each probe only requires the probe id and a single method invocation. This
+ * keeps small methods below the inlining thresholds of the JIT compiler.
+ */
+class CompactProbeInserter extends MethodVisitor implements IProbeInserter {
+
+	/** Name of the method which sets a probe. */
+	static final String HITMETHOD_NAME = "$jacocoHit";
+
+	/** Descriptor of the method which sets a probe. */
+	static final String HITMETHOD_DESC = "(I)V";
+
+	/** Access modifiers of the method which sets a probe. */
+	static final int HITMETHOD_ACC = Opcodes.ACC_SYNTHETIC
+			| Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC;
+
+	private final IInstrSupport instrSupport = ExecutionData
+			.getInstrSupport();
+
+	private final String className;
+
+	/**
+	 * Creates a new {@link CompactProbeInserter}.
+	 * 
+	 * @param className
+	 *            VM name of the class declaring the hit method
+	 * @param mv
+	 *            next method visitor in the chain
+	 */
+	CompactProbeInserter(final String className, final MethodVisitor mv) {
+		super(Opcodes.ASM5, mv);
+		this.className = className;
+	}
+
+	public void insertProbe(final int id) {
+		instrSupport.push(mv, id);
+
+		// Stack[0]: I
+
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, className, HITMETHOD_NAME,
+				HITMETHOD_DESC, false);
+	}
+
+	@Override
+	public void visitMaxs(final int maxStack, final int maxLocals) {
+		// Only the probe id is pushed in addition to the original stack
+		mv.visitMaxs(maxStack + 1, maxLocals);
+	}
+
+	/**
+	 * Adds the shared hit method to the given class. The method requests the
+	 * probe array from the init method of the class and sets the probe with
+	 * the id given as the only parameter.
+	 * 
+	 * @param cv
+	 *            visitor of the class
+	 * @param className
+	 *            VM name of the class
+	 */
+	static void createHitMethod(final ClassVisitor cv, final String className) {
+		final IInstrSupport instrSupport = ExecutionData.getInstrSupport();
+		final MethodVisitor mv = cv.visitMethod(HITMETHOD_ACC,
+				HITMETHOD_NAME, HITMETHOD_DESC, null, null);
+		mv.visitCode();
+		mv.visitMethodInsn(Opcodes.INVOKESTATIC, className,
+				instrSupport.getInitmethodName(),
+				instrSupport.getInitmethodDesc(), false);
+		mv.visitVarInsn(Opcodes.ILOAD, 0);
+
+		// Stack[1]: I
+		// Stack[0]: [Z
+
+		instrSupport.storeProbe(mv);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(instrSupport.getInsertProbeStackSize(), 1);
+		mv.visitEnd();
+	}
+
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import org.jacoco.core.internal.flow.IFrame;
+import org.jacoco.core.internal.flow.LabelInfo;
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.objectweb.asm.Label;
+
+/**
+ * Adapter which replaces the probe ids with the counters of a
+ * {@link CounterPlacement}. Probes without counter are removed, so the
+ * delegate only sees the probes which have to be inserted.
+ */
+class CounterMethodAdapter extends MethodProbesVisitor {
+
+	private final MethodProbesVisitor mv;
+
+	private final CounterPlacement placement;
+
+	/**
+	 * Create a new adapter instance.
+	 *
+	 * @param mv
+	 *            visitor to delegate to
+	 * @param placement
+	 *            counter placement of the class
+	 */
+	CounterMethodAdapter(final MethodProbesVisitor mv,
+			final CounterPlacement placement) {
+		super(mv);
+		this.mv = mv;
+		this.placement = placement;
+	}
+
+	@Override
+	public void visitProbe(final int probeId) {
+		final int counter = placement.getCounter(probeId);
+		if (counter != CounterPlacement.NO_COUNTER) {
+			mv.visitProbe(counter);
+		}
+	}
+
+	@Override
+	public void visitInsnWithProbe(final int opcode, final int probeId) {
+		final int counter = placement.getCounter(probeId);
+		if (counter == CounterPlacement.NO_COUNTER) {
+			mv.visitInsn(opcode);
+		} else {
+			mv.visitInsnWithProbe(opcode, counter);
+		}
+	}
+
+	@Override
+	public void visitJumpInsnWithProbe(final int opcode, final Label label,
+			final int probeId, final IFrame frame) {
+		final int counter = placement.getCounter(probeId);
+		if (counter == CounterPlacement.NO_COUNTER) {
+			mv.visitJumpInsn(opcode, label);
+		} else {
+			mv.visitJumpInsnWithProbe(opcode, label, counter, frame);
+		}
+	}
+
+	@Override
+	public void visitTableSwitchInsnWithProbes(final int min, final int max,
+			final Label dflt, final Label[] labels, final IFrame frame) {
+		if (replaceProbes(dflt, labels)) {
+			mv.visitTableSwitchInsnWithProbes(min, max, dflt, labels, frame);
+		} else {
+			mv.visitTableSwitchInsn(min, max, dflt, labels);
+		}
+	}
+
+	@Override
+	public void visitLookupSwitchInsnWithProbes(final Label dflt,
+			final int[] keys, final Label[] labels, final IFrame frame) {
+		if (replaceProbes(dflt, labels)) {
+			mv.visitLookupSwitchInsnWithProbes(dflt, keys, labels, frame);
+		} else {
+			mv.visitLookupSwitchInsn(dflt, keys, labels);
+		}
+	}
+
+	private boolean replaceProbes(final Label dflt, final Label[] labels) {
+		LabelInfo.resetDone(dflt);
+		LabelInfo.resetDone(labels);
+		boolean probe = replaceProbe(dflt);
+		for (final Label l : labels) {
+			probe |= replaceProbe(l);
+		}
+		return probe;
+	}
+
+	private boolean replaceProbe(final Label label) {
+		if (LabelInfo.isDone(label)) {
+			return false;
+		}
+		LabelInfo.setDone(label);
+		final int probeId = LabelInfo.getProbeId(label);
+		if (probeId == LabelInfo.NO_PROBE) {
+			return false;
+		}
+		final int counter = placement.getCounter(probeId);
+		LabelInfo.setProbeId(label, counter == CounterPlacement.NO_COUNTER
+				? LabelInfo.NO_PROBE : counter);
+		return counter != CounterPlacement.NO_COUNTER;
+	}
+
+}
@@ -0,0 +1,708 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.jacoco.core.internal.flow.ClassProbesAdapter;
+import org.jacoco.core.internal.flow.ClassProbesVisitor;
+import org.jacoco.core.internal.flow.IFrame;
+import org.jacoco.core.internal.flow.LabelInfo;
+import org.jacoco.core.internal.flow.MethodProbesVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * Placement of execution counters for the probes of a class. Within a method
+ * the probes are edges between regions of instructions which are always
+ * executed together. As the number of executions of a region is the sum of its
+ * incoming edges as well as the sum of its outgoing edges, the counts of the
+ * edges of a spanning tree can be derived from the counts of all other edges.
+ * Only these other edges get a counter. Edges within loops are preferred for
+ * the spanning tree, so frequently executed edges are typically derived.
+ * <p>
+ * The method entry, the method exits, exception handlers and all regions which
+ * invoke other methods or contain instructions which may throw runtime
+ * exceptions (e.g. array access, field access or division) are combined to a
+ * single root node of the method as exceptions break the balance of these
+ * regions. The derived counts are therefore exact unless a JVM error like
+ * {@link StackOverflowError} or {@link OutOfMemoryError} occurs.
+ */
+public final class CounterPlacement extends ClassProbesVisitor {
+
+	/** Counter index for probes which are derived from other probes. */
+	public static final int NO_COUNTER = -1;
+
+	private static final int UNKNOWN = -2;
+
+	private int probeCount;
+
+	private int[] probeSources = new int[16];
+
+	private int[] probeTargets = new int[16];
+
+	private int[] probeInsns = new int[16];
+
+	private int[] counters = new int[16];
+
+	private int counterCount;
+
+	private int nodeCount;
+
+	private final BitSet roots = new BitSet();
+
+	private int insnCount;
+
+	private int[] insnLines = new int[64];
+
+	private int[] insnPredecessors = new int[64];
+
+	private CounterPlacement() {
+	}
+
+	/**
+	 * Calculates the counter placement for the given class.
+	 *
+	 * @param reader
+	 *            reader for the original class definition
+	 * @return counter placement for the class
+	 */
+	public static CounterPlacement create(final ClassReader reader) {
+		final CounterPlacement placement = new CounterPlacement();
+		reader.accept(new ClassProbesAdapter(placement, false), 0);
+		return placement;
+	}
+
+	@Override
+	public MethodProbesVisitor visitMethod(final int access, final String name,
+			final String desc, final String signature,
+			final String[] exceptions) {
+		return new MethodRecorder();
+	}
+
+	@Override
+	public void visitTotalProbeCount(final int count) {
+		if (count != probeCount) {
+			throw new IllegalStateException();
+		}
+		for (int p = 0; p < probeCount; p++) {
+			if (counters[p] != NO_COUNTER) {
+				counters[p] = counterCount++;
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of probes of the class.
+	 *
+	 * @return number of probes
+	 */
+	public int getProbeCount() {
+		return probeCount;
+	}
+
+	/**
+	 * Returns the number of counters required for the class.
+	 *
+	 * @return number of counters
+	 */
+	public int getCounterCount() {
+		return counterCount;
+	}
+
+	/**
+	 * Returns the counter for the given probe.
+	 *
+	 * @param probeId
+	 *            id of the probe
+	 * @return index of the counter or {@link #NO_COUNTER} if the count of the
+	 *         probe is derived from other probes
+	 */
+	public int getCounter(final int probeId) {
+		return counters[probeId];
+	}
+
+	/**
+	 * Calculates the execution counts of all probes from the values of the
+	 * counters. Counts which would be negative because of JVM errors are
+	 * reported as <code>0</code>.
+	 *
+	 * @param values
+	 *            values of the counters
+	 * @return execution counts of all probes
+	 */
+	public int[] getProbeCounts(final int[] values) {
+		if (values.length != counterCount) {
+			throw new IllegalArgumentException();
+		}
+		final long[] counts = new long[probeCount];
+		final long[] balance = new long[nodeCount];
+		final int[] open = new int[nodeCount];
+		final int[] first = new int[nodeCount + 1];
+		for (int p = 0; p < probeCount; p++) {
+			final int c = counters[p];
+			if (c == NO_COUNTER) {
+				open[probeSources[p]]++;
+				open[probeTargets[p]]++;
+				first[probeSources[p] + 1]++;
+				first[probeTargets[p] + 1]++;
+			} else {
+				counts[p] = values[c];
+				balance[probeSources[p]] -= values[c];
+				balance[probeTargets[p]] += values[c];
+			}
+		}
+
+		// Incident tree edges for every node:
+		for (int n = 0; n < nodeCount; n++) {
+			first[n + 1] += first[n];
+		}
+		final int[] edges = new int[first[nodeCount]];
+		final int[] fill = new int[nodeCount];
+		for (int p = 0; p < probeCount; p++) {
+			if (counters[p] == NO_COUNTER) {
+				final int s = probeSources[p];
+				final int t = probeTargets[p];
+				edges[first[s] + fill[s]++] = p;
+				edges[first[t] + fill[t]++] = p;
+			}
+		}
+
+		// Leaves of the tree have a single edge of unknown count which is
+		// given by the balance of the leaf:
+		final boolean[] known = new boolean[probeCount];
+		final int[] queue = new int[nodeCount];
+		int head = 0;
+		int tail = 0;
+		for (int n = 0; n < nodeCount; n++) {
+			if (open[n] == 1 && !roots.get(n)) {
+				queue[tail++] = n;
+			}
+		}
+		while (head < tail) {
+			final int n = queue[head++];
+			if (open[n] != 1) {
+				continue;
+			}
+			int p = -1;
+			for (int i = first[n]; i < first[n + 1]; i++) {
+				if (!known[edges[i]]) {
+					p = edges[i];
+					break;
+				}
+			}
+			final int s = probeSources[p];
+			final int t = probeTargets[p];
+			final long x = t == n ? -balance[n] : balance[n];
+			counts[p] = x;
+			known[p] = true;
+			balance[s] -= x;
+			balance[t] += x;
+			open[s]--;
+			open[t]--;
+			final int other = t == n ? s : t;
+			if (open[other] == 1 && !roots.get(other)) {
+				queue[tail++] = other;
+			}
+		}
+
+		final int[] result = new int[probeCount];
+		for (int p = 0; p < probeCount; p++) {
+			result[p] = (int) Math.max(0,
+					Math.min(Integer.MAX_VALUE, counts[p]));
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the number of instructions of all methods of the class.
+	 *
+	 * @return number of instructions
+	 */
+	public int getInstructionCount() {
+		return insnCount;
+	}
+
+	/**
+	 * Returns the source line of the given instruction.
+	 *
+	 * @param insn
+	 *            index of the instruction
+	 * @return line number or <code>-1</code> if no line number is available
+	 */
+	public int getLine(final int insn) {
+		return insnLines[insn];
+	}
+
+	/**
+	 * Calculates the execution counts of all instructions from the execution
+	 * counts of the probes. An instruction is executed as often as all probes
+	 * which can be reached from it without a probe in between.
+	 *
+	 * @param probeCounts
+	 *            execution counts of all probes
+	 * @return execution counts of all instructions
+	 */
+	public long[] getInstructionCounts(final int[] probeCounts) {
+		final long[] counts = new long[insnCount];
+		for (int p = 0; p < probeCount; p++) {
+			final int c = probeCounts[p];
+			if (c == 0) {
+				continue;
+			}
+			// The step limit protects against unreachable loops without probes
+			int i = probeInsns[p];
+			for (int steps = 0; i != -1 && steps < insnCount; steps++) {
+				counts[i] += c;
+				i = insnPredecessors[i];
+			}
+		}
+		return counts;
+	}
+
+	private void addProbe(final int probeId, final int insn) {
+		if (probeId != probeCount) {
+			throw new IllegalStateException();
+		}
+		if (probeCount == counters.length) {
+			final int capacity = probeCount * 2;
+			probeSources = copyOf(probeSources, capacity);
+			probeTargets = copyOf(probeTargets, capacity);
+			probeInsns = copyOf(probeInsns, capacity);
+			counters = copyOf(counters, capacity);
+		}
+		probeInsns[probeCount++] = insn;
+	}
+
+	private int addInsn(final int line, final int predecessor) {
+		if (insnCount == insnLines.length) {
+			insnLines = copyOf(insnLines, insnCount * 2);
+			insnPredecessors = copyOf(insnPredecessors, insnCount * 2);
+		}
+		insnLines[insnCount] = line;
+		insnPredecessors[insnCount] = predecessor;
+		return insnCount++;
+	}
+
+	private static int[] copyOf(final int[] array, final int length) {
+		final int[] copy = new int[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+		return copy;
+	}
+
+	private static int find(final int[] parents, final int node) {
+		int n = node;
+		while (parents[n] != n) {
+			parents[n] = parents[parents[n]];
+			n = parents[n];
+		}
+		return n;
+	}
+
+	/**
+	 * Records the instructions and probes of a single method and places the
+	 * counters at its end.
+	 */
+	private class MethodRecorder extends MethodProbesVisitor {
+
+		private final int firstInsn = insnCount;
+
+		private final int firstProbe = probeCount;
+
+		private final List<Label> probeLabels = new ArrayList<Label>();
+
+		private final List<Label> currentLabels = new ArrayList<Label>(2);
+
+		private final List<Label> handlers = new ArrayList<Label>(2);
+
+		private final List<Label> jumpTargets = new ArrayList<Label>();
+
+		private int[] jumpSources = new int[8];
+
+		private final BitSet exceptions = new BitSet();
+
+		private int line = -1;
+
+		private int lastInsn = -1;
+
+		private boolean pendingProbe;
+
+		@Override
+		public void visitLabel(final Label label) {
+			currentLabels.add(label);
+			if (pendingProbe) {
+				probeLabels.set(probeLabels.size() - 1, label);
+				pendingProbe = false;
+			}
+			if (!LabelInfo.isSuccessor(label)) {
+				lastInsn = -1;
+			}
+		}
+
+		@Override
+		public void visitLineNumber(final int line, final Label start) {
+			this.line = line;
+		}
+
+		@Override
+		public void visitTryCatchBlock(final Label start, final Label end,
+				final Label handler, final String type) {
+			handlers.add(handler);
+		}
+
+		private void visitInsn() {
+			final int insn = addInsn(line, lastInsn);
+			for (final Label l : currentLabels) {
+				LabelInfo.setInstruction(l, insn);
+			}
+			currentLabels.clear();
+			lastInsn = insn;
+		}
+
+		private void probe(final int probeId, final Label target) {
+			addProbe(probeId, lastInsn);
+			probeLabels.add(target);
+		}
+
+		private void jump(final Label target) {
+			final int index = jumpTargets.size();
+			if (index == jumpSources.length) {
+				jumpSources = copyOf(jumpSources, index * 2);
+			}
+			jumpSources[index] = lastInsn;
+			jumpTargets.add(target);
+		}
+
+		@Override
+		public void visitProbe(final int probeId) {
+			probe(probeId, null);
+			pendingProbe = true;
+			lastInsn = -1;
+		}
+
+		private void visitThrowingInsn() {
+			visitInsn();
+			exceptions.set(lastInsn - firstInsn);
+		}
+
+		@Override
+		public void visitInsn(final int opcode) {
+			switch (opcode) {
+			case Opcodes.IALOAD:
+			case Opcodes.LALOAD:
+			case Opcodes.FALOAD:
+			case Opcodes.DALOAD:
+			case Opcodes.AALOAD:
+			case Opcodes.BALOAD:
+			case Opcodes.CALOAD:
+			case Opcodes.SALOAD:
+			case Opcodes.IASTORE:
+			case Opcodes.LASTORE:
+			case Opcodes.FASTORE:
+			case Opcodes.DASTORE:
+			case Opcodes.AASTORE:
+			case Opcodes.BASTORE:
+			case Opcodes.CASTORE:
+			case Opcodes.SASTORE:
+			case Opcodes.IDIV:
+			case Opcodes.LDIV:
+			case Opcodes.IREM:
+			case Opcodes.LREM:
+			case Opcodes.ARRAYLENGTH:
+			case Opcodes.MONITORENTER:
+			case Opcodes.MONITOREXIT:
+				visitThrowingInsn();
+				break;
+			default:
+				visitInsn();
+			}
+		}
+
+		@Override
+		public void visitInsnWithProbe(final int opcode, final int probeId) {
+			visitInsn();
+			probe(probeId, null);
+			lastInsn = -1;
+		}
+
+		@Override
+		public void visitIntInsn(final int opcode, final int operand) {
+			if (opcode == Opcodes.NEWARRAY) {
+				visitThrowingInsn();
+			} else {
+				visitInsn();
+			}
+		}
+
+		@Override
+		public void visitVarInsn(final int opcode, final int var) {
+			visitInsn();
+		}
+
+		@Override
+		public void visitTypeInsn(final int opcode, final String type) {
+			if (opcode == Opcodes.CHECKCAST || opcode == Opcodes.ANEWARRAY) {
+				visitThrowingInsn();
+			} else {
+				visitInsn();
+			}
+		}
+
+		@Override
+		public void visitFieldInsn(final int opcode, final String owner,
+				final String name, final String desc) {
+			if (opcode == Opcodes.GETFIELD || opcode == Opcodes.PUTFIELD) {
+				visitThrowingInsn();
+			} else {
+				visitInsn();
+			}
+		}
+
+		@Override
+		public void visitMethodInsn(final int opcode, final String owner,
+				final String name, final String desc, final boolean itf) {
+			visitThrowingInsn();
+		}
+
+		@Override
+		public void visitInvokeDynamicInsn(final String name, final String desc,
+				final Handle bsm, final Object... bsmArgs) {
+			visitThrowingInsn();
+		}
+
+		@Override
+		public void visitJumpInsn(final int opcode, final Label label) {
+			visitInsn();
+			jump(label);
+			if (opcode == Opcodes.GOTO) {
+				lastInsn = -1;
+			}
+		}
+
+		@Override
+		public void visitJumpInsnWithProbe(final int opcode, final Label label,
+				final int probeId, final IFrame frame) {
+			visitInsn();
+			probe(probeId, label);
+			if (opcode == Opcodes.GOTO) {
+				lastInsn = -1;
+			}
+		}
+
+		@Override
+		public void visitLdcInsn(final Object cst) {
+			visitInsn();
+		}
+
+		@Override
+		public void visitIincInsn(final int var, final int increment) {
+			visitInsn();
+		}
+
+		@Override
+		public void visitTableSwitchInsn(final int min, final int max,
+				final Label dflt, final Label... labels) {
+			visitSwitchInsn(dflt, labels);
+		}
+
+		@Override
+		public void visitLookupSwitchInsn(final Label dflt, final int[] keys,
+				final Label[] labels) {
+			visitSwitchInsn(dflt, labels);
+		}
+
+		@Override
+		public void visitTableSwitchInsnWithProbes(final int min,
+				final int max, final Label dflt, final Label[] labels,
+				final IFrame frame) {
+			visitSwitchInsn(dflt, labels);
+		}
+
+		@Override
+		public void visitLookupSwitchInsnWithProbes(final Label dflt,
+				final int[] keys, final Label[] labels, final IFrame frame) {
+			visitSwitchInsn(dflt, labels);
+		}
+
+		private void visitSwitchInsn(final Label dflt, final Label[] labels) {
+			visitInsn();
+			LabelInfo.resetDone(dflt);
+			LabelInfo.resetDone(labels);
+			visitSwitchTarget(dflt);
+			for (final Label l : labels) {
+				visitSwitchTarget(l);
+			}
+			lastInsn = -1;
+		}
+
+		private void visitSwitchTarget(final Label label) {
+			if (!LabelInfo.isDone(label)) {
+				final int probeId = LabelInfo.getProbeId(label);
+				if (probeId == LabelInfo.NO_PROBE) {
+					jump(label);
+				} else {
+					probe(probeId, label);
+				}
+				LabelInfo.setDone(label);
+			}
+		}
+
+		@Override
+		public void visitMultiANewArrayInsn(final String desc, final int dims) {
+			visitThrowingInsn();
+		}
+
+		@Override
+		public void visitEnd() {
+			for (int i = 0; i < jumpTargets.size(); i++) {
+				final int target = LabelInfo.getInstruction(jumpTargets.get(i));
+				if (target != LabelInfo.NO_INSTRUCTION) {
+					insnPredecessors[target] = jumpSources[i];
+				}
+			}
+			final int count = insnCount - firstInsn;
+			final int[] regions = getRegions(count);
+			final int root = count;
+			final int[] nodes = new int[count + 1];
+			for (int n = 0; n <= count; n++) {
+				nodes[n] = n;
+			}
+			if (count > 0) {
+				nodes[regions[0]] = root;
+			}
+			for (final Label h : handlers) {
+				final int insn = LabelInfo.getInstruction(h);
+				if (insn != LabelInfo.NO_INSTRUCTION) {
+					nodes[regions[insn - firstInsn]] = root;
+				}
+			}
+			for (int i = exceptions.nextSetBit(0); i >= 0; i = exceptions
+					.nextSetBit(i + 1)) {
+				nodes[regions[i]] = root;
+			}
+			placeCounters(regions, nodes, root);
+		}
+
+		/**
+		 * Returns for every instruction the first instruction of its region,
+		 * i.e. the root of its predecessor tree.
+		 */
+		private int[] getRegions(final int count) {
+			final int[] regions = new int[count];
+			for (int i = 0; i < count; i++) {
+				regions[i] = UNKNOWN;
+			}
+			final int[] path = new int[count];
+			for (int i = 0; i < count; i++) {
+				int length = 0;
+				int j = i;
+				while (regions[j] == UNKNOWN) {
+					// Mark as visited to stop on unreachable loops
+					regions[j] = j;
+					path[length++] = j;
+					final int p = insnPredecessors[firstInsn + j];
+					if (p == -1) {
+						break;
+					}
+					j = p - firstInsn;
+				}
+				final int r = regions[j];
+				while (length > 0) {
+					regions[path[--length]] = r;
+				}
+			}
+			return regions;
+		}
+
+		private void placeCounters(final int[] regions, final int[] nodes,
+				final int root) {
+			final int probes = probeCount - firstProbe;
+			final int[] sources = new int[probes];
+			final int[] targets = new int[probes];
+			final int[] weights = new int[probes];
+			for (int i = 0; i < probes; i++) {
+				final int insn = probeInsns[firstProbe + i];
+				final Label label = probeLabels.get(i);
+				final int target = label == null ? LabelInfo.NO_INSTRUCTION
+						: LabelInfo.getInstruction(label);
+				sources[i] = insn == -1 ? root : nodes[regions[insn
+						- firstInsn]];
+				targets[i] = target == LabelInfo.NO_INSTRUCTION ? root
+						: nodes[regions[target - firstInsn]];
+				if (target != LabelInfo.NO_INSTRUCTION && target <= insn) {
+					weights[i] = 1;
+					addLoop(weights, target, insn);
+				}
+			}
+			for (int i = 0; i < jumpTargets.size(); i++) {
+				final int target = LabelInfo.getInstruction(jumpTargets.get(i));
+				if (target != LabelInfo.NO_INSTRUCTION
+						&& target <= jumpSources[i]) {
+					addLoop(weights, target, jumpSources[i]);
+				}
+			}
+
+			// Maximum spanning tree, so the most frequent probes are derived:
+			final int[] order = new int[probes];
+			for (int i = 0; i < probes; i++) {
+				int j = i;
+				for (; j > 0 && weights[order[j - 1]] < weights[i]; j--) {
+					order[j] = order[j - 1];
+				}
+				order[j] = i;
+			}
+			final int[] parents = new int[root + 1];
+			for (int n = 0; n <= root; n++) {
+				parents[n] = n;
+			}
+			for (final int i : order) {
+				final int s = find(parents, sources[i]);
+				final int t = find(parents, targets[i]);
+				if (s == t) {
+					counters[firstProbe + i] = 0;
+				} else {
+					parents[s] = t;
+					counters[firstProbe + i] = NO_COUNTER;
+				}
+			}
+
+			final int base = nodeCount;
+			for (int i = 0; i < probes; i++) {
+				probeSources[firstProbe + i] = base + sources[i];
+				probeTargets[firstProbe + i] = base + targets[i];
+			}
+			roots.set(base + root);
+			nodeCount += root + 1;
+		}
+
+		/**
+		 * Estimates the frequency of the probes by their loop nesting depth:
+		 * Every backward jump adds weight to the probes between its target
+		 * and itself.
+		 */
+		private void addLoop(final int[] weights, final int start,
+				final int end) {
+			for (int i = 0; i < weights.length; i++) {
+				final int insn = probeInsns[firstProbe + i];
+				if (start <= insn && insn <= end) {
+					weights[i] += 2;
+				}
+			}
+		}
+
+	}
+
+}
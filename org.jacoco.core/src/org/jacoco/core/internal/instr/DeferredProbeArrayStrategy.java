@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.MethodNode;
+
+/**
+ * Strategy for interfaces and classes without additional members. The actual
+ * strategy depends on the number of probes which is only known at the end of
+ * the class. Therefore the instrumented methods are buffered and the code to
+ * obtain the probe array is inserted when the members are added. This avoids
+ * a separate pass over the class to count the probes.
+ */
+class DeferredProbeArrayStrategy implements IProbeArrayStrategy {
+
+	private final String className;
+	private final long classId;
+	private final int version;
+	private final boolean withoutMembers;
+	private final IExecutionDataAccessorGenerator accessorGenerator;
+
+	private final List<BufferedMethod> methods = new ArrayList<BufferedMethod>();
+
+	private boolean hasMethods;
+
+	private IProbeArrayStrategy strategy;
+
+	DeferredProbeArrayStrategy(final String className, final long classId,
+			final int version, final boolean withoutMembers,
+			final IExecutionDataAccessorGenerator accessorGenerator) {
+		this.className = className;
+		this.classId = classId;
+		this.version = version;
+		this.withoutMembers = withoutMembers;
+		this.accessorGenerator = accessorGenerator;
+	}
+
+	public MethodVisitor visitMethod(final ClassVisitor cv, final int access,
+			final String name, final String desc, final String signature,
+			final String[] exceptions) {
+		// Methods are buffered and emitted in the same order when the members
+		// are added:
+		if ((access & Opcodes.ACC_ABSTRACT) == 0 && !"<clinit>".equals(name)) {
+			hasMethods = true;
+		}
+		final BufferedMethod method = new BufferedMethod(access, name, desc,
+				signature, exceptions);
+		methods.add(method);
+		return method;
+	}
+
+	/**
+	 * Returns the actual strategy which has been selected when the members
+	 * have been added.
+	 * 
+	 * @return actual strategy or <code>null</code> if members have not been
+	 *         added yet
+	 */
+	IProbeArrayStrategy getStrategy() {
+		return strategy;
+	}
+
+	public int storeInstance(final MethodVisitor mv, final boolean clinit,
+			final int variable) {
+		// Methods are visited one after another, so the call belongs to the
+		// last buffered method. The code is inserted at its beginning later.
+		final BufferedMethod method = methods.get(methods.size() - 1);
+		method.accessor = true;
+		method.clinit = clinit;
+		method.variable = variable;
+		return 0;
+	}
+
+	public void addMembers(final ClassVisitor cv, final int probeCount) {
+		strategy = createStrategy(probeCount);
+		for (final BufferedMethod method : methods) {
+			if (method.accessor) {
+				final MethodNode accessor = new MethodNode(
+						InstrSupport.ASM_API_VERSION);
+				final int maxStack = strategy.storeInstance(accessor,
+						method.clinit, method.variable);
+				method.instructions.insert(accessor.instructions);
+				method.maxStack = Math.max(method.maxStack, maxStack);
+			}
+			method.accept(cv);
+		}
+		methods.clear();
+		strategy.addMembers(cv, probeCount);
+	}
+
+	private IProbeArrayStrategy createStrategy(final int probeCount) {
+		if (probeCount == 0) {
+			return new NoneProbeArrayStrategy();
+		}
+		if (!withoutMembers && version >= Opcodes.V1_8 && hasMethods) {
+			return new InterfaceFieldProbeArrayStrategy(className, classId,
+					probeCount, accessorGenerator);
+		}
+		return new LocalProbeArrayStrategy(className, classId, probeCount,
+				accessorGenerator);
+	}
+
+	private static class BufferedMethod extends MethodNode {
+
+		boolean accessor;
+
+		boolean clinit;
+
+		int variable;
+
+		BufferedMethod(final int access, final String name, final String desc,
+				final String signature, final String[] exceptions) {
+			super(InstrSupport.ASM_API_VERSION, access, name, desc, signature,
+					exceptions);
+		}
+
+	}
+
+}
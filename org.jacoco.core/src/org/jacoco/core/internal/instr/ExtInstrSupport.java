@@ -43,23 +43,10 @@ public class ExtInstrSupport extends InstrSupport implements IInstrSupport {
 	}
 
 	/**
-	 * @param id
-	 *            probeId
-	 * @param variable
-	 *            order of probe array variable
+	 * Increases the value at the probe index by one.
 	 */
 	@Override
-	public void insertProbe(final MethodVisitor mv, final int id,
-			final int variable) {
-		/*
-		 * For a probe we increase 1 for the value at corresponding position in
-		 * the int[] array
-		 */
-		mv.visitVarInsn(Opcodes.ALOAD, variable);
-
-		// Stack[0]: [I
-
-		push(mv, id);
+	public void storeProbe(final MethodVisitor mv) {
 
 		// Stack[1]: I
 		// Stack[0]: [I
@@ -106,6 +106,13 @@ public interface IInstrSupport {
 	 */
 	public void insertProbe(MethodVisitor mv, int id, int variable);
 
+	/**
+	 * Generate instructions to update a probe where the probe array and the
+	 * probe index are already on the stack.
+	 * @param mv  visitor to emit the instruction
+	 */
+	public void storeProbe(MethodVisitor mv);
+
 	/**
 	 * @return Stack usage of code to modify probe array 
 	 */
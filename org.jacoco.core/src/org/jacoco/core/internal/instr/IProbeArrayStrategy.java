@@ -34,6 +34,30 @@ public interface IProbeArrayStrategy {
 	 */
 	int storeInstance(MethodVisitor mv, boolean clinit, int variable);
 
+	/**
+	 * Returns the visitor for a method of the class. Strategies which need
+	 * the complete class before emitting its methods may return a buffer
+	 * instead of the method visitor of the given class visitor.
+	 * 
+	 * @param cv
+	 *            visitor of the instrumented class
+	 * @param access
+	 *            the method's access flags
+	 * @param name
+	 *            the method's name
+	 * @param desc
+	 *            the method's descriptor
+	 * @param signature
+	 *            the method's signature, may be <code>null</code>
+	 * @param exceptions
+	 *            the internal names of the method's exceptions, may be
+	 *            <code>null</code>
+	 * @return visitor for the method or <code>null</code> if the method
+	 *         should be skipped
+	 */
+	MethodVisitor visitMethod(ClassVisitor cv, int access, String name,
+			String desc, String signature, String[] exceptions);
+
 	/**
 	 * Adds additional class members required by this strategy. This method is
 	 * called after all original members of the class has been processed.
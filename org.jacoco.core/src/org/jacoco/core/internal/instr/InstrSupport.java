@@ -216,6 +216,19 @@ public class InstrSupport implements IInstrSupport {
 		// Stack[1]: I
 		// Stack[0]: [Z
 
+		storeProbe(mv);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see org.jacoco.core.internal.instr.IInstrSupport#storeProbe(MethodVisitor)
+	 */
+	public void storeProbe(final MethodVisitor mv) {
+
+		// Stack[1]: I
+		// Stack[0]: [Z
+
 		mv.visitInsn(Opcodes.ICONST_1);
 
 		// Stack[2]: I
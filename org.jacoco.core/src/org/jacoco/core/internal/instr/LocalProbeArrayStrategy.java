@@ -46,6 +46,12 @@ class LocalProbeArrayStrategy implements IProbeArrayStrategy {
 		return maxStack;
 	}
 
+	public MethodVisitor visitMethod(final ClassVisitor cv, final int access,
+			final String name, final String desc, final String signature,
+			final String[] exceptions) {
+		return cv.visitMethod(access, name, desc, signature, exceptions);
+	}
+
 	public void addMembers(final ClassVisitor delegate, final int probeCount) {
 		// nothing to do
 	}
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.internal.instr;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.objectweb.asm.ClassReader;
+
+/**
+ * Reads the exact byte code sizes of the methods of a class definition. The
+ * sizes are taken from the <code>code_length</code> items of the
+ * <code>Code</code> attributes, i.e. without a pass over the instructions.
+ */
+public final class MethodSizes {
+
+	private MethodSizes() {
+	}
+
+	/**
+	 * Returns the byte code size of every method with code.
+	 * 
+	 * @param reader
+	 *            reader for the class definition
+	 * @return map from method name and descriptor to the size in bytes, in the
+	 *         order of the class file
+	 */
+	public static Map<String, Integer> read(final ClassReader reader) {
+		final Map<String, Integer> sizes = new LinkedHashMap<String, Integer>();
+		final char[] buffer = new char[reader.getMaxStringLength()];
+		// access_flags, this_class, super_class
+		int u = reader.header + 6;
+		u += 2 + 2 * reader.readUnsignedShort(u);
+		u = skipMembers(reader, u);
+		int methodCount = reader.readUnsignedShort(u);
+		u += 2;
+		while (methodCount-- > 0) {
+			final String name = reader.readUTF8(u + 2, buffer);
+			final String desc = reader.readUTF8(u + 4, buffer);
+			int attributeCount = reader.readUnsignedShort(u + 6);
+			u += 8;
+			while (attributeCount-- > 0) {
+				if ("Code".equals(reader.readUTF8(u, buffer))) {
+					// max_stack, max_locals, code_length
+					sizes.put(name + desc,
+							Integer.valueOf(reader.readInt(u + 10)));
+				}
+				u += 6 + reader.readInt(u + 2);
+			}
+		}
+		return sizes;
+	}
+
+	private static int skipMembers(final ClassReader reader, int u) {
+		int memberCount = reader.readUnsignedShort(u);
+		u += 2;
+		while (memberCount-- > 0) {
+			int attributeCount = reader.readUnsignedShort(u + 6);
+			u += 8;
+			while (attributeCount-- > 0) {
+				u += 6 + reader.readInt(u + 2);
+			}
+		}
+		return u;
+	}
+
+}
@@ -12,7 +12,6 @@
 package org.jacoco.core.internal.instr;
 
 import org.jacoco.core.internal.data.CRC64;
-import org.jacoco.core.internal.flow.ClassProbesAdapter;
 import org.jacoco.core.runtime.IExecutionDataAccessorGenerator;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Opcodes;
@@ -39,24 +38,34 @@ public final class ProbeArrayStrategyFactory {
 	 */
 	public static IProbeArrayStrategy createFor(final ClassReader reader,
 			final IExecutionDataAccessorGenerator accessorGenerator) {
+		return createFor(reader, accessorGenerator, false);
+	}
+
+	/**
+	 * Creates a suitable strategy instance for the class described by the given
+	 * reader. Optionally the strategy does not add any members to the class,
+	 * i.e. every method obtains the probe array from the runtime.
+	 * 
+	 * @param reader
+	 *            reader to get information about the class
+	 * @param accessorGenerator
+	 *            accessor to the coverage runtime
+	 * @param withoutMembers
+	 *            <code>true</code> if no members must be added to the class
+	 * @return strategy instance
+	 */
+	public static IProbeArrayStrategy createFor(final ClassReader reader,
+			final IExecutionDataAccessorGenerator accessorGenerator,
+			final boolean withoutMembers) {
 
 		final String className = reader.getClassName();
 		final int version = getVersion(reader);
 		final long classId = CRC64.checksum(reader.b);
 		final boolean withFrames = version >= Opcodes.V1_6;
 
-		if (isInterface(reader)) {
-			final ProbeCounter counter = getProbeCounter(reader);
-			if (counter.getCount() == 0) {
-				return new NoneProbeArrayStrategy();
-			}
-			if (version >= Opcodes.V1_8 && counter.hasMethods()) {
-				return new InterfaceFieldProbeArrayStrategy(className, classId,
-						counter.getCount(), accessorGenerator);
-			} else {
-				return new LocalProbeArrayStrategy(className, classId,
-						counter.getCount(), accessorGenerator);
-			}
+		if (isInterface(reader) || withoutMembers) {
+			return new DeferredProbeArrayStrategy(className, classId, version,
+					withoutMembers, accessorGenerator);
 		} else {
 			return new ClassFieldProbeArrayStrategy(className, classId,
 					withFrames, accessorGenerator);
@@ -71,10 +80,4 @@ public final class ProbeArrayStrategyFactory {
 		return reader.readShort(6);
 	}
 
-	private static ProbeCounter getProbeCounter(final ClassReader reader) {
-		final ProbeCounter counter = new ProbeCounter();
-		reader.accept(new ClassProbesAdapter(counter, false), 0);
-		return counter;
-	}
-
 }
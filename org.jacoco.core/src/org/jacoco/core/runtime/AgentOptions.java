@@ -189,11 +189,89 @@ public final class AgentOptions {
 	 * name "org.jacoco:type=Runtime". Default is <code>false</code>.
 	 */
 	public static final String JMX = "jmx";
+
+	/**
+	 * Specifies whether the agent writes a probe map for every instrumented
+	 * class to the {@link #CLASSDUMPDIR}. Default is <code>false</code>.
+	 */
+	public static final String PROBEMAP = "probemap";
 	
 	/**
 	 * Specifies the strategy to collect probes (whether only marking covered or count covered frequency)
 	 */
 	public static final String PROBESTYPE = "probestype";
+
+	/**
+	 * Specifies a directory where the agent caches instrumented class files
+	 * across JVM runs. Several JVMs may share the same directory. Default is
+	 * <code>null</code> (no cache).
+	 */
+	public static final String CACHEDIR = "cachedir";
+
+	/**
+	 * Specifies the maximum size of the {@link #CACHEDIR} in megabytes. If the
+	 * size is exceeded the least recently used entries are removed.
+	 * 
+	 * @see #DEFAULT_CACHESIZE
+	 */
+	public static final String CACHESIZE = "cachesize";
+
+	/**
+	 * Default maximum size of the cache directory in megabytes: 256
+	 */
+	public static final int DEFAULT_CACHESIZE = 256;
+
+	/**
+	 * Specifies whether small methods are instrumented with compact probes
+	 * which keep them below the inlining threshold of the JIT compiler.
+	 * Default is <code>false</code>.
+	 */
+	public static final String COMPACTPROBES = "compactprobes";
+
+	/**
+	 * Specifies a file where the agent reports every method which exceeds an
+	 * inlining threshold of the JIT compiler because of its instrumentation.
+	 * Default is <code>null</code> (no report).
+	 */
+	public static final String INLININGREPORT = "inliningreport";
+
+	/**
+	 * Specifies whether the agent replaces fully covered classes by versions
+	 * without probes at runtime. This is only supported for the probes type
+	 * {@link ProbesType#BOOLEAN}. Default is <code>false</code>.
+	 */
+	public static final String DEINSTRUMENT = "deinstrument";
+
+	/**
+	 * Specifies the number of minutes after which classes with unchanged
+	 * coverage are replaced by versions without probes if {@link #DEINSTRUMENT}
+	 * is enabled, even if they are not fully covered. Default is
+	 * <code>0</code>, i.e. only fully covered classes are replaced.
+	 */
+	public static final String DEINSTRUMENTSTABLE = "deinstrumentstable";
+
+	/**
+	 * Specifies the number of seconds the agent collects execution data when
+	 * it is attached to a running JVM. At the end of this time window the
+	 * execution data is dumped and the agent detaches. Default is
+	 * <code>0</code>, i.e. execution data is collected until the JVM
+	 * terminates.
+	 */
+	public static final String ATTACHDURATION = "attachduration";
+
+	/**
+	 * Specifies whether the original class definitions are restored when an
+	 * attached agent detaches. Otherwise the instrumented classes keep
+	 * recording execution data. Default is <code>false</code>.
+	 */
+	public static final String ATTACHRESTORE = "attachrestore";
+
+	/**
+	 * Specifies a shard in the form <code>k/n</code>. Only classes belonging
+	 * to shard <code>k</code> of <code>n</code> shards are instrumented, see
+	 * {@link ClassShard}. Default is <code>0/1</code>, i.e. all classes.
+	 */
+	public static final String SHARD = "shard";
 	
 	/**
 	 * SavMock is a module allow to separate testcases manually in main program,
@@ -209,7 +287,9 @@ public final class AgentOptions {
 	private static final Collection<String> VALID_OPTIONS = Arrays.asList(
 			DESTFILE, APPEND, INCLUDES, EXCLUDES, EXCLCLASSLOADER,
 			INCLBOOTSTRAPCLASSES, INCLNOLOCATIONCLASSES, SESSIONID, DUMPONEXIT,
-			OUTPUT, ADDRESS, PORT, CLASSDUMPDIR, JMX, PROBESTYPE, SAVMOCKCLASSNAME, SAVLOGFILE);
+			OUTPUT, ADDRESS, PORT, CLASSDUMPDIR, JMX, PROBEMAP, PROBESTYPE, SAVMOCKCLASSNAME, SAVLOGFILE,
+			CACHEDIR, CACHESIZE, COMPACTPROBES, INLININGREPORT, DEINSTRUMENT,
+			DEINSTRUMENTSTABLE, ATTACHDURATION, ATTACHRESTORE, SHARD);
 
 	private final Map<String, String> options;
 
@@ -267,6 +347,10 @@ public final class AgentOptions {
 
 	private void validateAll() {
 		validatePort(getPort());
+		validateCacheSize(getCacheSize());
+		validateDeinstrumentStable(getDeinstrumentStable());
+		validateAttachDuration(getAttachDuration());
+		getShard();
 		getOutput();
 	}
 
@@ -276,6 +360,26 @@ public final class AgentOptions {
 		}
 	}
 
+	private void validateCacheSize(final int size) {
+		if (size < 0) {
+			throw new IllegalArgumentException("cachesize must be positive");
+		}
+	}
+
+	private void validateDeinstrumentStable(final int minutes) {
+		if (minutes < 0) {
+			throw new IllegalArgumentException(
+					"deinstrumentstable must be positive");
+		}
+	}
+
+	private void validateAttachDuration(final int seconds) {
+		if (seconds < 0) {
+			throw new IllegalArgumentException(
+					"attachduration must be positive");
+		}
+	}
+
 	/**
 	 * Returns the output file location.
 	 * 
@@ -574,12 +678,38 @@ public final class AgentOptions {
 		setOption(JMX, jmx);
 	}
 
+	/**
+	 * Returns whether the agent writes probe maps to the class dump directory.
+	 * 
+	 * @return <code>true</code>, when probe maps are written
+	 */
+	public boolean getProbeMap() {
+		return getOption(PROBEMAP, false);
+	}
+
+	/**
+	 * Sets whether the agent should write probe maps to the class dump
+	 * directory.
+	 * 
+	 * @param probeMap
+	 *            <code>true</code> if probe maps should be written
+	 */
+	public void setProbeMap(final boolean probeMap) {
+		setOption(PROBEMAP, probeMap);
+	}
+
 	/**
 	 * Return which Probes type will be used in ExecutionData (whether boolean or integer array).
 	 * @return {@link ProbesType}
 	 */
 	public ProbesType getProbesType() {
-		return ProbesType.valueOf(getOption(PROBESTYPE, ProbesType.BOOLEAN.name()));
+		final ProbesType type = ProbesType.valueOf(getOption(PROBESTYPE,
+				ProbesType.BOOLEAN.name()));
+		if (type == ProbesType.PACKED) {
+			throw new IllegalArgumentException(format(
+					"Probes type %s is not supported at runtime.", type));
+		}
+		return type;
 	}
 	
 	/**
@@ -590,6 +720,194 @@ public final class AgentOptions {
 		setOption(PROBESTYPE, type.name());
 	}
 	
+	/**
+	 * Returns the directory where instrumented class files are cached.
+	 * 
+	 * @return cache location or <code>null</code> (no cache)
+	 */
+	public String getCacheDir() {
+		return getOption(CACHEDIR, null);
+	}
+
+	/**
+	 * Sets the directory where instrumented class files are cached.
+	 * 
+	 * @param location
+	 *            cache location or <code>null</code> (no cache)
+	 */
+	public void setCacheDir(final String location) {
+		setOption(CACHEDIR, location);
+	}
+
+	/**
+	 * Returns the maximum size of the cache directory in megabytes.
+	 * 
+	 * @return maximum cache size in megabytes
+	 */
+	public int getCacheSize() {
+		return getOption(CACHESIZE, DEFAULT_CACHESIZE);
+	}
+
+	/**
+	 * Sets the maximum size of the cache directory in megabytes.
+	 * 
+	 * @param size
+	 *            maximum cache size in megabytes
+	 */
+	public void setCacheSize(final int size) {
+		validateCacheSize(size);
+		setOption(CACHESIZE, size);
+	}
+
+	/**
+	 * Returns whether small methods are instrumented with compact probes.
+	 * 
+	 * @return <code>true</code>, when compact probes are used
+	 */
+	public boolean getCompactProbes() {
+		return getOption(COMPACTPROBES, false);
+	}
+
+	/**
+	 * Sets whether small methods should be instrumented with compact probes.
+	 * 
+	 * @param compactProbes
+	 *            <code>true</code> if compact probes should be used
+	 */
+	public void setCompactProbes(final boolean compactProbes) {
+		setOption(COMPACTPROBES, compactProbes);
+	}
+
+	/**
+	 * Returns the file where methods exceeding an inlining threshold are
+	 * reported.
+	 * 
+	 * @return report location or <code>null</code> (no report)
+	 */
+	public String getInliningReport() {
+		return getOption(INLININGREPORT, null);
+	}
+
+	/**
+	 * Sets the file where methods exceeding an inlining threshold are
+	 * reported.
+	 * 
+	 * @param location
+	 *            report location or <code>null</code> (no report)
+	 */
+	public void setInliningReport(final String location) {
+		setOption(INLININGREPORT, location);
+	}
+
+	/**
+	 * Returns whether fully covered classes are replaced by versions without
+	 * probes.
+	 * 
+	 * @return <code>true</code>, when classes are de-instrumented
+	 */
+	public boolean getDeinstrument() {
+		return getOption(DEINSTRUMENT, false);
+	}
+
+	/**
+	 * Sets whether fully covered classes should be replaced by versions
+	 * without probes.
+	 * 
+	 * @param deinstrument
+	 *            <code>true</code> if classes should be de-instrumented
+	 */
+	public void setDeinstrument(final boolean deinstrument) {
+		setOption(DEINSTRUMENT, deinstrument);
+	}
+
+	/**
+	 * Returns the number of minutes after which classes with unchanged
+	 * coverage are de-instrumented.
+	 * 
+	 * @return minutes or <code>0</code> if only fully covered classes are
+	 *         de-instrumented
+	 */
+	public int getDeinstrumentStable() {
+		return getOption(DEINSTRUMENTSTABLE, 0);
+	}
+
+	/**
+	 * Sets the number of minutes after which classes with unchanged coverage
+	 * are de-instrumented.
+	 * 
+	 * @param minutes
+	 *            minutes or <code>0</code> if only fully covered classes
+	 *            should be de-instrumented
+	 */
+	public void setDeinstrumentStable(final int minutes) {
+		validateDeinstrumentStable(minutes);
+		setOption(DEINSTRUMENTSTABLE, minutes);
+	}
+
+	/**
+	 * Returns the number of seconds an attached agent collects execution
+	 * data.
+	 * 
+	 * @return seconds or <code>0</code> if execution data is collected until
+	 *         the JVM terminates
+	 */
+	public int getAttachDuration() {
+		return getOption(ATTACHDURATION, 0);
+	}
+
+	/**
+	 * Sets the number of seconds an attached agent collects execution data.
+	 * 
+	 * @param seconds
+	 *            seconds or <code>0</code> if execution data should be
+	 *            collected until the JVM terminates
+	 */
+	public void setAttachDuration(final int seconds) {
+		validateAttachDuration(seconds);
+		setOption(ATTACHDURATION, seconds);
+	}
+
+	/**
+	 * Returns whether the original class definitions are restored when an
+	 * attached agent detaches.
+	 * 
+	 * @return <code>true</code>, when classes are restored
+	 */
+	public boolean getAttachRestore() {
+		return getOption(ATTACHRESTORE, false);
+	}
+
+	/**
+	 * Sets whether the original class definitions should be restored when an
+	 * attached agent detaches.
+	 * 
+	 * @param restore
+	 *            <code>true</code> if classes should be restored
+	 */
+	public void setAttachRestore(final boolean restore) {
+		setOption(ATTACHRESTORE, restore);
+	}
+
+	/**
+	 * Returns the shard of classes which are instrumented.
+	 * 
+	 * @return shard of instrumented classes
+	 */
+	public ClassShard getShard() {
+		final String shard = getOption(SHARD, null);
+		return shard == null ? ClassShard.ALL : ClassShard.parse(shard);
+	}
+
+	/**
+	 * Sets the shard of classes which should be instrumented.
+	 * 
+	 * @param shard
+	 *            shard of instrumented classes
+	 */
+	public void setShard(final ClassShard shard) {
+		setOption(SHARD, shard.toString());
+	}
+
 	/**
 	 * @return the savmock
 	 */
@@ -0,0 +1,151 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.runtime;
+
+import static java.lang.String.format;
+
+/**
+ * A deterministic partition of all classes into a given number of shards. The
+ * shard of a class only depends on its VM name and the number of shards, so
+ * agents in different JVMs instrument disjoint sets of classes and tools can
+ * tell which classes were instrumented by which agent.
+ */
+public final class ClassShard {
+
+	/** The single shard containing all classes. */
+	public static final ClassShard ALL = new ClassShard(0, 1);
+
+	private final int index;
+
+	private final int count;
+
+	/**
+	 * Creates a new shard.
+	 * 
+	 * @param index
+	 *            index of the shard from <code>0</code> to
+	 *            <code>count - 1</code>
+	 * @param count
+	 *            total number of shards
+	 * @throws IllegalArgumentException
+	 *             if the index or the number of shards are invalid
+	 */
+	public ClassShard(final int index, final int count) {
+		if (count < 1 || index < 0 || index >= count) {
+			throw new IllegalArgumentException(format(
+					"Invalid shard %s/%s.", Integer.valueOf(index),
+					Integer.valueOf(count)));
+		}
+		this.index = index;
+		this.count = count;
+	}
+
+	/**
+	 * Parses a shard specification in the form <code>k/n</code>, where
+	 * <code>k</code> is the index of the shard from <code>0</code> to
+	 * <code>n - 1</code>.
+	 * 
+	 * @param spec
+	 *            shard specification
+	 * @return parsed shard
+	 * @throws IllegalArgumentException
+	 *             if the specification is invalid
+	 */
+	public static ClassShard parse(final String spec) {
+		final int pos = spec.indexOf('/');
+		if (pos == -1) {
+			throw new IllegalArgumentException(format(
+					"Invalid shard \"%s\", expected k/n.", spec));
+		}
+		try {
+			return new ClassShard(Integer.parseInt(spec.substring(0, pos)
+					.trim()), Integer.parseInt(spec.substring(pos + 1).trim()));
+		} catch (final NumberFormatException e) {
+			throw new IllegalArgumentException(format(
+					"Invalid shard \"%s\", expected k/n.", spec));
+		}
+	}
+
+	/**
+	 * Calculates the index of the shard the given class belongs to.
+	 * 
+	 * @param classname
+	 *            VM name of the class
+	 * @param count
+	 *            total number of shards
+	 * @return index of the shard from <code>0</code> to
+	 *         <code>count - 1</code>
+	 */
+	public static int getIndex(final String classname, final int count) {
+		// String.hashCode() is specified, the final mixing step of Murmur3
+		// spreads similar names like inner classes across shards:
+		int h = classname.hashCode();
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return (h & 0x7fffffff) % count;
+	}
+
+	/**
+	 * Checks whether the given class belongs to this shard.
+	 * 
+	 * @param classname
+	 *            VM name of the class
+	 * @return <code>true</code> if the class belongs to this shard
+	 */
+	public boolean contains(final String classname) {
+		return count == 1 || getIndex(classname, count) == index;
+	}
+
+	/**
+	 * Returns the index of this shard.
+	 * 
+	 * @return index from <code>0</code> to <code>count - 1</code>
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * Returns the total number of shards.
+	 * 
+	 * @return number of shards
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (!(obj instanceof ClassShard)) {
+			return false;
+		}
+		final ClassShard other = (ClassShard) obj;
+		return index == other.index && count == other.count;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * count + index;
+	}
+
+	/**
+	 * Returns the shard in the form <code>k/n</code>.
+	 */
+	@Override
+	public String toString() {
+		return index + "/" + count;
+	}
+
+}
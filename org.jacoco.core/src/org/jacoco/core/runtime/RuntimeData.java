@@ -16,7 +16,6 @@ import org.jacoco.core.data.ExecutionDataStore;
 import org.jacoco.core.data.IExecutionDataVisitor;
 import org.jacoco.core.data.ISessionInfoVisitor;
 import org.jacoco.core.data.SessionInfo;
-import org.jacoco.core.internal.instr.IInstrSupport;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 
@@ -26,8 +25,6 @@ import org.objectweb.asm.Opcodes;
  */
 public class RuntimeData {
 
-	private final static IInstrSupport instrSupport = ExecutionData
-			.getInstrSupport();
 	/** store for execution data */
 	protected final ExecutionDataStore store;
 
@@ -202,7 +199,7 @@ public class RuntimeData {
 		// Probe Count:
 		mv.visitInsn(Opcodes.DUP);
 		mv.visitInsn(Opcodes.ICONST_2);
-		instrSupport.push(mv, probecount);
+		ExecutionData.getInstrSupport().push(mv, probecount);
 		mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/Integer", "valueOf",
 				"(I)Ljava/lang/Integer;", false);
 		mv.visitInsn(Opcodes.AASTORE);
@@ -250,7 +247,8 @@ public class RuntimeData {
 
 		// stack[0]: [Z
 
-		mv.visitTypeInsn(Opcodes.CHECKCAST, instrSupport.getDatafieldDesc());
+		mv.visitTypeInsn(Opcodes.CHECKCAST, ExecutionData.getInstrSupport()
+				.getDatafieldDesc());
 	}
 
 }
@@ -11,16 +11,23 @@
  *******************************************************************************/
 package org.jacoco.core.runtime;
 
-import java.util.regex.Pattern;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Matches strings against <code>?</code>/<code>*</code> wildcard expressions.
  * Multiple expressions can be separated with a colon (:). In this case the
  * expression matches if at least one part matches.
+ * 
+ * All expressions are compiled into a single trie, so common prefixes of the
+ * expressions are compared only once. Wildcards are matched by tracking the
+ * set of active trie nodes, therefore the matching time grows linearly with
+ * the length of the string and does not depend on the number of expressions
+ * with distinct prefixes.
  */
 public class WildcardMatcher {
 
-	private final Pattern pattern;
+	private final Node root;
 
 	/**
 	 * Creates a new matcher with the given expression.
@@ -29,35 +36,48 @@ public class WildcardMatcher {
 	 *            wildcard expressions
 	 */
 	public WildcardMatcher(final String expression) {
+		root = new Node();
 		final String[] parts = expression.split("\\:");
-		final StringBuilder regex = new StringBuilder(expression.length() * 2);
-		boolean next = false;
 		for (final String part : parts) {
-			if (next) {
-				regex.append('|');
-			}
-			regex.append('(').append(toRegex(part)).append(')');
-			next = true;
+			add(part);
+		}
+		if (parts.length == 0) {
+			// only separators, which is the same as an empty expression
+			add("");
+		}
+		final List<Node> nodes = new ArrayList<Node>();
+		root.collect(nodes);
+		for (final Node node : nodes) {
+			node.initClosure();
+		}
+		for (final Node node : nodes) {
+			node.initAcceptsAll();
 		}
-		pattern = Pattern.compile(regex.toString());
 	}
 
-	private static CharSequence toRegex(final String expression) {
-		final StringBuilder regex = new StringBuilder(expression.length() * 2);
+	private void add(final String expression) {
+		Node node = root;
 		for (final char c : expression.toCharArray()) {
 			switch (c) {
 			case '?':
-				regex.append(".?");
+				if (node.optional == null) {
+					node.optional = new Node();
+				}
+				node = node.optional;
 				break;
 			case '*':
-				regex.append(".*");
+				if (node.star == null) {
+					node.star = new Node();
+					node.star.loop = true;
+				}
+				node = node.star;
 				break;
 			default:
-				regex.append(Pattern.quote(String.valueOf(c)));
+				node = node.getOrCreateChild(c);
 				break;
 			}
 		}
-		return regex;
+		node.terminal = true;
 	}
 
 	/**
@@ -68,7 +88,191 @@ public class WildcardMatcher {
 	 * @return <code>true</code>, if the expression matches
 	 */
 	public boolean matches(final String s) {
-		return pattern.matcher(s).matches();
+		NodeSet active = new NodeSet(root.closure);
+		NodeSet next = new NodeSet(active.nodes.length);
+		final int length = s.length();
+		for (int i = 0; i < length; i++) {
+			final char c = s.charAt(i);
+			for (int j = 0; j < active.size; j++) {
+				final Node node = active.nodes[j];
+				if (node.acceptsAll) {
+					return true;
+				}
+				final Node child = node.getChild(c);
+				if (child != null) {
+					next.addAll(child.closure);
+				}
+				if (node.optional != null) {
+					next.addAll(node.optional.closure);
+				}
+				if (node.loop) {
+					next.addAll(node.closure);
+				}
+			}
+			if (next.size == 0) {
+				return false;
+			}
+			final NodeSet swap = active;
+			active = next;
+			next = swap;
+			next.size = 0;
+		}
+		for (int j = 0; j < active.size; j++) {
+			if (active.nodes[j].terminal) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Node of the trie. The position after a <code>*</code> wildcard is a
+	 * node which consumes arbitrary characters, the position after a
+	 * <code>?</code> wildcard is reached with or without consuming a
+	 * character.
+	 */
+	private static class Node {
+
+		private static final char[] NO_CHARS = new char[0];
+
+		private static final Node[] NO_NODES = new Node[0];
+
+		char[] chars = NO_CHARS;
+
+		Node[] children = NO_NODES;
+
+		Node optional;
+
+		Node star;
+
+		boolean loop;
+
+		boolean terminal;
+
+		/** Nodes reachable without consuming a character, including this. */
+		Node[] closure;
+
+		/** Whether every string is accepted once this node is active. */
+		boolean acceptsAll;
+
+		Node getChild(final char c) {
+			final char[] chars = this.chars;
+			for (int i = 0; i < chars.length; i++) {
+				if (chars[i] == c) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		Node getOrCreateChild(final char c) {
+			Node child = getChild(c);
+			if (child == null) {
+				child = new Node();
+				final int length = chars.length;
+				final char[] newChars = new char[length + 1];
+				System.arraycopy(chars, 0, newChars, 0, length);
+				newChars[length] = c;
+				final Node[] newChildren = new Node[length + 1];
+				System.arraycopy(children, 0, newChildren, 0, length);
+				newChildren[length] = child;
+				chars = newChars;
+				children = newChildren;
+			}
+			return child;
+		}
+
+		void collect(final List<Node> nodes) {
+			nodes.add(this);
+			for (final Node child : children) {
+				child.collect(nodes);
+			}
+			if (optional != null) {
+				optional.collect(nodes);
+			}
+			if (star != null) {
+				star.collect(nodes);
+			}
+		}
+
+		void initClosure() {
+			final NodeSet set = new NodeSet(4);
+			addClosure(set);
+			closure = new Node[set.size];
+			System.arraycopy(set.nodes, 0, closure, 0, set.size);
+		}
+
+		private void addClosure(final NodeSet set) {
+			if (set.add(this)) {
+				if (optional != null) {
+					optional.addClosure(set);
+				}
+				if (star != null) {
+					star.addClosure(set);
+				}
+			}
+		}
+
+		void initAcceptsAll() {
+			for (final Node node : closure) {
+				if (node.loop && node.acceptsEmpty()) {
+					acceptsAll = true;
+					return;
+				}
+			}
+		}
+
+		private boolean acceptsEmpty() {
+			for (final Node node : closure) {
+				if (node.terminal) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+	}
+
+	/**
+	 * Set of nodes without duplicates. Sets are small as only few nodes are
+	 * active at the same time, therefore a linear search is sufficient.
+	 */
+	private static class NodeSet {
+
+		Node[] nodes;
+
+		int size;
+
+		NodeSet(final int capacity) {
+			nodes = new Node[capacity];
+		}
+
+		NodeSet(final Node[] nodes) {
+			this(Math.max(8, nodes.length));
+			addAll(nodes);
+		}
+
+		boolean add(final Node node) {
+			for (int i = 0; i < size; i++) {
+				if (nodes[i] == node) {
+					return false;
+				}
+			}
+			if (size == nodes.length) {
+				final Node[] newNodes = new Node[size * 2];
+				System.arraycopy(nodes, 0, newNodes, 0, size);
+				nodes = newNodes;
+			}
+			nodes[size++] = node;
+			return true;
+		}
+
+		void addAll(final Node[] nodes) {
+			for (final Node node : nodes) {
+				add(node);
+			}
+		}
+
 	}
 
 }
@@ -119,8 +119,7 @@ public class ExecDumpClient {
 			final RemoteControlReader remoteReader = new RemoteControlReader(
 					socket.getInputStream());
 			remoteReader.setSessionInfoVisitor(loader.getSessionInfoStore());
-			remoteReader
-					.setExecutionDataVisitor(loader.getExecutionDataStore());
+			remoteReader.setExecutionDataStore(loader.getExecutionDataStore());
 
 			remoteWriter.visitDumpCommand(dump, reset);
 			remoteReader.read();
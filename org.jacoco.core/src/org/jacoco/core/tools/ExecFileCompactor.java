@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.jacoco.core.data.ExecutionDataWriter;
+import org.jacoco.core.data.SessionInfo;
+import org.jacoco.core.data.SessionInfoStore;
+
+/**
+ * Rewrites execution data files which have been written in append mode
+ * multiple times. The content is read in a single pass, records for the same
+ * class are merged into a single record and duplicate session infos are
+ * removed. Optionally all sessions can be collapsed into a single session.
+ */
+public class ExecFileCompactor {
+
+	private String sessionId;
+
+	/**
+	 * Sets the identifier of a single session all sessions get collapsed into.
+	 * The session covers the time range of all original sessions. If
+	 * <code>null</code> (default) distinct sessions are preserved.
+	 *
+	 * @param sessionId
+	 *            identifier of the merged session or <code>null</code>
+	 */
+	public void setSessionId(final String sessionId) {
+		this.sessionId = sessionId;
+	}
+
+	/**
+	 * Reads all data from the given input stream and writes the compacted
+	 * content to the given output stream.
+	 *
+	 * @param input
+	 *            stream to read execution data from
+	 * @param output
+	 *            stream to write compacted execution data to
+	 * @throws IOException
+	 *             in case of problems while reading or writing
+	 */
+	public void compact(final InputStream input, final OutputStream output)
+			throws IOException {
+		final ExecFileLoader loader = new ExecFileLoader();
+		loader.load(input);
+		save(loader, output);
+	}
+
+	/**
+	 * Compacts the given execution data file in place. A file system lock is
+	 * held for the whole operation, so concurrent writers which follow the
+	 * same locking convention like the agent's file output or
+	 * {@link ExecFileLoader#save(File, boolean)} are blocked until the
+	 * compacted content has been written. The compacted content is created in
+	 * memory first, so the file is left unchanged if reading or compacting
+	 * fails.
+	 *
+	 * @param file
+	 *            execution data file to compact
+	 * @throws IOException
+	 *             in case of problems while reading or writing the file
+	 */
+	public void compact(final File file) throws IOException {
+		if (!file.isFile()) {
+			throw new FileNotFoundException(file.getAbsolutePath());
+		}
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			final FileChannel channel = raf.getChannel();
+			// Avoid concurrent writes from other processes:
+			channel.lock();
+			final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			compact(Channels.newInputStream(channel), buffer);
+			channel.truncate(0);
+			channel.position(0);
+			final ByteBuffer content = ByteBuffer.wrap(buffer.toByteArray());
+			while (content.hasRemaining()) {
+				channel.write(content);
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	private void save(final ExecFileLoader loader, final OutputStream output)
+			throws IOException {
+		final ExecutionDataWriter writer = new ExecutionDataWriter(output);
+		final SessionInfoStore sessionInfos = loader.getSessionInfoStore();
+		if (sessionId == null) {
+			final Set<String> keys = new HashSet<String>();
+			for (final SessionInfo info : sessionInfos.getInfos()) {
+				if (keys.add(getKey(info))) {
+					writer.visitSessionInfo(info);
+				}
+			}
+		} else if (!sessionInfos.isEmpty()) {
+			writer.visitSessionInfo(sessionInfos.getMerged(sessionId));
+		}
+		loader.getExecutionDataStore().accept(writer);
+		writer.flush();
+	}
+
+	private static String getKey(final SessionInfo info) {
+		return info.getId() + '\u0000' + info.getStartTimeStamp() + '\u0000'
+				+ info.getDumpTimeStamp();
+	}
+
+}
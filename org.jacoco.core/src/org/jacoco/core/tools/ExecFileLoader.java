@@ -19,6 +19,7 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import org.jacoco.core.data.ExecutionDataReader;
 import org.jacoco.core.data.ExecutionDataStore;
@@ -54,7 +55,23 @@ public class ExecFileLoader {
 	public void load(final InputStream stream) throws IOException {
 		final ExecutionDataReader reader = new ExecutionDataReader(
 				new BufferedInputStream(stream));
-		reader.setExecutionDataVisitor(executionData);
+		reader.setExecutionDataStore(executionData);
+		reader.setSessionInfoVisitor(sessionInfos);
+		reader.read();
+	}
+
+	/**
+	 * Reads all data from the current position of the given buffer up to its
+	 * limit. This avoids stream overhead e.g. for memory mapped files.
+	 * 
+	 * @param buffer
+	 *            buffer to read data from
+	 * @throws IOException
+	 *             in case of problems while reading from the buffer
+	 */
+	public void load(final ByteBuffer buffer) throws IOException {
+		final ExecutionDataReader reader = new ExecutionDataReader(buffer);
+		reader.setExecutionDataStore(executionData);
 		reader.setSessionInfoVisitor(sessionInfos);
 		reader.read();
 	}
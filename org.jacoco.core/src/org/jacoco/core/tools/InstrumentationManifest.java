@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.jacoco.core.JaCoCo;
+import org.jacoco.core.internal.data.CRC64;
+
+/**
+ * Records the CRC64 hash of the input and of the instrumented output of every
+ * resource processed by offline instrumentation. With a manifest of the
+ * previous run tools can skip resources which did not change and clean up
+ * resources which have been removed since. A manifest is only valid for the
+ * same JaCoCo version and instrumentation configuration, manifests written
+ * with a different version or configuration are ignored when loaded. All
+ * methods of this class are thread safe.
+ */
+public class InstrumentationManifest {
+
+	private static final String HEADER = "# JaCoCo ";
+
+	private final String configuration;
+
+	private final Map<String, long[]> entries = new TreeMap<String, long[]>();
+
+	/**
+	 * Creates a new empty manifest for the given configuration.
+	 * 
+	 * @param configuration
+	 *            textual description of all settings which have an influence
+	 *            on the instrumented output, must not contain line breaks
+	 */
+	public InstrumentationManifest(final String configuration) {
+		this.configuration = configuration;
+	}
+
+	/**
+	 * Calculates the hash of the given content as recorded in manifests.
+	 * 
+	 * @param content
+	 *            content of a resource
+	 * @return hash of the content
+	 */
+	public static long hash(final byte[] content) {
+		return CRC64.checksum(content);
+	}
+
+	/**
+	 * Reads the entries of a manifest from the given stream. If the manifest
+	 * has been written by a different JaCoCo version or for a different
+	 * configuration no entries are added.
+	 * 
+	 * @param stream
+	 *            stream to read the manifest from
+	 * @throws IOException
+	 *             in case of problems while reading or if the stream does not
+	 *             contain a valid manifest
+	 */
+	public synchronized void load(final InputStream stream) throws IOException {
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(
+				stream, "UTF-8"));
+		if (!getHeader().equals(reader.readLine())) {
+			return;
+		}
+		String line;
+		while ((line = reader.readLine()) != null) {
+			final String[] parts = line.split("\t", 3);
+			if (parts.length != 3) {
+				throw new IOException("Invalid manifest entry: " + line);
+			}
+			try {
+				entries.put(parts[2], new long[] { parseHash(parts[0]),
+						parseHash(parts[1]) });
+			} catch (final NumberFormatException e) {
+				throw new IOException("Invalid manifest entry: " + line);
+			}
+		}
+	}
+
+	/**
+	 * Reads the entries of a manifest from the given file if it exists.
+	 * 
+	 * @param file
+	 *            file to read the manifest from
+	 * @throws IOException
+	 *             in case of problems while reading or if the file does not
+	 *             contain a valid manifest
+	 * @see #load(InputStream)
+	 */
+	public void load(final File file) throws IOException {
+		if (!file.isFile()) {
+			return;
+		}
+		final InputStream stream = new FileInputStream(file);
+		try {
+			load(stream);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Writes all entries of this manifest to the given stream.
+	 * 
+	 * @param stream
+	 *            stream to write the manifest to
+	 * @throws IOException
+	 *             in case of problems while writing
+	 */
+	public synchronized void save(final OutputStream stream)
+			throws IOException {
+		final Writer writer = new OutputStreamWriter(stream, "UTF-8");
+		writer.write(getHeader());
+		writer.write('\n');
+		for (final Map.Entry<String, long[]> e : entries.entrySet()) {
+			writer.write(Long.toHexString(e.getValue()[0]));
+			writer.write('\t');
+			writer.write(Long.toHexString(e.getValue()[1]));
+			writer.write('\t');
+			writer.write(e.getKey());
+			writer.write('\n');
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Writes all entries of this manifest to the given file. Parent
+	 * directories are created if required.
+	 * 
+	 * @param file
+	 *            file to write the manifest to
+	 * @throws IOException
+	 *             in case of problems while writing
+	 */
+	public void save(final File file) throws IOException {
+		final File folder = file.getParentFile();
+		if (folder != null) {
+			folder.mkdirs();
+		}
+		final OutputStream stream = new FileOutputStream(file);
+		try {
+			save(stream);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Records the hashes of a resource.
+	 * 
+	 * @param name
+	 *            name of the resource
+	 * @param input
+	 *            hash of the original content
+	 * @param output
+	 *            hash of the instrumented content
+	 */
+	public synchronized void put(final String name, final long input,
+			final long output) {
+		entries.put(name, new long[] { input, output });
+	}
+
+	/**
+	 * Checks whether a resource with the given original content has been
+	 * recorded, i.e. it did not change since the recorded instrumentation.
+	 * 
+	 * @param name
+	 *            name of the resource
+	 * @param input
+	 *            hash of the current original content
+	 * @return <code>true</code> if the same original content is recorded
+	 */
+	public synchronized boolean isUnchanged(final String name,
+			final long input) {
+		final long[] hashes = entries.get(name);
+		return hashes != null && hashes[0] == input;
+	}
+
+	/**
+	 * Checks whether the given content is the recorded instrumented version
+	 * of a resource.
+	 * 
+	 * @param name
+	 *            name of the resource
+	 * @param output
+	 *            hash of the content to check
+	 * @return <code>true</code> if the content is the recorded instrumented
+	 *         version
+	 */
+	public synchronized boolean isInstrumented(final String name,
+			final long output) {
+		final long[] hashes = entries.get(name);
+		return hashes != null && hashes[1] == output;
+	}
+
+	/**
+	 * Removes all entries except the given names, e.g. the resources of the
+	 * current run.
+	 * 
+	 * @param names
+	 *            names of the resources to keep
+	 * @return names of the removed resources
+	 */
+	public synchronized Set<String> retain(final Collection<String> names) {
+		final Set<String> keep = new HashSet<String>(names);
+		final Set<String> removed = new TreeSet<String>();
+		for (final Iterator<String> i = entries.keySet().iterator(); i
+				.hasNext();) {
+			final String name = i.next();
+			if (!keep.contains(name)) {
+				removed.add(name);
+				i.remove();
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * Returns the names of all recorded resources.
+	 * 
+	 * @return names of all resources
+	 */
+	public synchronized Set<String> getNames() {
+		return new TreeSet<String>(entries.keySet());
+	}
+
+	private String getHeader() {
+		return HEADER + JaCoCo.VERSION + "\t" + configuration;
+	}
+
+	private static long parseHash(final String s) {
+		if (s.length() < 16) {
+			return Long.parseLong(s, 16);
+		}
+		if (s.length() > 16) {
+			throw new NumberFormatException(s);
+		}
+		// parseLong() does not accept the hex representation of negative
+		// values, therefore the last digit is parsed separately:
+		return Long.parseLong(s.substring(0, 15), 16) << 4
+				| Long.parseLong(s.substring(15), 16);
+	}
+
+}
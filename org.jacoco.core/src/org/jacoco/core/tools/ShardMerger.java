@@ -0,0 +1,239 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.core.tools;
+
+import static java.lang.String.format;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICoverageVisitor;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.data.SessionInfoStore;
+import org.jacoco.core.runtime.AgentOptions;
+import org.jacoco.core.runtime.ClassShard;
+
+/**
+ * Merges execution data files of agents which instrumented only a shard of
+ * the classes (see {@link AgentOptions#SHARD}). Besides the merged execution
+ * data it records which shards have been merged and which shard recorded the
+ * data of every class. Classes of shards without execution data were not
+ * instrumented at all and must not be reported as not covered, see
+ * {@link #filter(ICoverageVisitor)}.
+ */
+public class ShardMerger {
+
+	private final ExecFileLoader loader = new ExecFileLoader();
+
+	private final Map<String, Set<String>> classes = new TreeMap<String, Set<String>>();
+
+	private final Set<ClassShard> shards = new LinkedHashSet<ClassShard>();
+
+	private final Set<String> notInstrumented = new TreeSet<String>();
+
+	/**
+	 * Reads all data of an agent with the given shard from the given input
+	 * stream.
+	 * 
+	 * @param stream
+	 *            stream to read data from
+	 * @param shard
+	 *            shard of the agent which recorded the data
+	 * @throws IOException
+	 *             in case of problems while reading from the stream or if the
+	 *             stream contains data of classes outside the given shard
+	 */
+	public void load(final InputStream stream, final ClassShard shard)
+			throws IOException {
+		final ExecFileLoader shardLoader = new ExecFileLoader();
+		shardLoader.load(stream);
+		final ExecutionDataStore store = shardLoader.getExecutionDataStore();
+		for (final ExecutionData data : store.getContents()) {
+			if (!shard.contains(data.getName())) {
+				throw new IOException(format(
+						"Class %s does not belong to shard %s.",
+						data.getName(), shard));
+			}
+		}
+		shardLoader.getSessionInfoStore().accept(loader.getSessionInfoStore());
+		for (final ExecutionData data : store.getContents()) {
+			loader.getExecutionDataStore().put(data);
+			Set<String> classShards = classes.get(data.getName());
+			if (classShards == null) {
+				classShards = new TreeSet<String>();
+				classes.put(data.getName(), classShards);
+			}
+			classShards.add(shard.toString());
+		}
+		shards.add(shard);
+	}
+
+	/**
+	 * Reads all data of an agent with the given shard from the given file.
+	 * 
+	 * @param file
+	 *            file to read data from
+	 * @param shard
+	 *            shard of the agent which recorded the data
+	 * @throws IOException
+	 *             in case of problems while reading from the file or if the
+	 *             file contains data of classes outside the given shard
+	 */
+	public void load(final File file, final ClassShard shard)
+			throws IOException {
+		final InputStream stream = new FileInputStream(file);
+		try {
+			load(stream, shard);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Checks whether the given class has been instrumented by at least one of
+	 * the agents whose data has been loaded.
+	 * 
+	 * @param classname
+	 *            VM name of the class
+	 * @return <code>true</code> if the class belongs to a loaded shard
+	 */
+	public boolean isInstrumented(final String classname) {
+		for (final ClassShard shard : shards) {
+			if (shard.contains(classname)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns a visitor which passes the coverage of all instrumented classes
+	 * to the given visitor. Classes of shards without data are dropped and
+	 * recorded, see {@link #getNotInstrumented()}.
+	 * 
+	 * @param delegate
+	 *            visitor to pass the coverage of instrumented classes to
+	 * @return filtering visitor
+	 */
+	public ICoverageVisitor filter(final ICoverageVisitor delegate) {
+		return new ICoverageVisitor() {
+			public void visitCoverage(final IClassCoverage coverage) {
+				if (isInstrumented(coverage.getName())) {
+					delegate.visitCoverage(coverage);
+				} else {
+					notInstrumented.add(coverage.getName());
+				}
+			}
+		};
+	}
+
+	/**
+	 * Returns the names of all classes which have been dropped by a visitor
+	 * returned by {@link #filter(ICoverageVisitor)} as they were not
+	 * instrumented.
+	 * 
+	 * @return VM names of classes which were not instrumented
+	 */
+	public Set<String> getNotInstrumented() {
+		return Collections.unmodifiableSet(notInstrumented);
+	}
+
+	/**
+	 * Writes the merged shards followed by every class with execution data and
+	 * the shards which recorded its data. The first line lists the merged
+	 * shards, every other line contains a tab separated class name and the
+	 * list of its shards.
+	 * 
+	 * @param writer
+	 *            writer for the shard map
+	 * @throws IOException
+	 *             in case of problems while writing
+	 */
+	public void writeShardMap(final Writer writer) throws IOException {
+		writer.write("# shards\t" + join(shards) + "\n");
+		for (final Map.Entry<String, Set<String>> e : classes.entrySet()) {
+			writer.write(e.getKey() + "\t" + join(e.getValue()) + "\n");
+		}
+		writer.flush();
+	}
+
+	private static String join(final Collection<?> values) {
+		final StringBuilder sb = new StringBuilder();
+		for (final Object v : values) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(v);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Saves the merged execution data into the given output stream.
+	 * 
+	 * @param stream
+	 *            stream to save content to
+	 * @throws IOException
+	 *             in case of problems while writing to the stream
+	 */
+	public void save(final OutputStream stream) throws IOException {
+		loader.save(stream);
+	}
+
+	/**
+	 * Saves the merged execution data into the given file, see
+	 * {@link ExecFileLoader#save(File, boolean)}.
+	 * 
+	 * @param file
+	 *            file to save content to
+	 * @param append
+	 *            <code>true</code> if the content should be appended, otherwise
+	 *            the file is overwritten.
+	 * @throws IOException
+	 *             in case of problems while writing to the file
+	 */
+	public void save(final File file, final boolean append) throws IOException {
+		loader.save(file, append);
+	}
+
+	/**
+	 * Returns the session info store with all merged sessions.
+	 * 
+	 * @return session info store
+	 */
+	public SessionInfoStore getSessionInfoStore() {
+		return loader.getSessionInfoStore();
+	}
+
+	/**
+	 * Returns the execution data store with the merged data of all classes.
+	 * 
+	 * @return execution data store
+	 */
+	public ExecutionDataStore getExecutionDataStore() {
+		return loader.getExecutionDataStore();
+	}
+
+}
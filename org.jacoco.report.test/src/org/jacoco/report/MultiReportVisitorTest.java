@@ -22,10 +22,13 @@ import java.util.Collections;
 import java.util.List;
 
 import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.core.analysis.ISourceFileCoverage;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.core.internal.analysis.BundleCoverageImpl;
+import org.jacoco.core.internal.analysis.PackageCoverageImpl;
 import org.junit.Test;
 
 /**
@@ -33,31 +36,67 @@ import org.junit.Test;
  */
 public class MultiReportVisitorTest {
 
-	private static class MockVisitor extends MockGroupVisitor implements
-			IReportVisitor {
+	private static class MockVisitor extends MockStreamingGroupVisitor
+			implements IReportVisitor {
+
+		private final MockReport report = new MockReport();
 
 		MockVisitor() {
 			super("Report");
 		}
 
-		private boolean visitInfosCalled = false;
+		public void visitInfo(List<SessionInfo> sessionInfos,
+				Collection<ExecutionData> executionData) throws IOException {
+			report.visitInfosCalled = true;
+		}
 
-		private boolean visitEndCalled = false;
+		public void visitEnd() throws IOException {
+			report.visitEndCalled = true;
+		}
+
+		@Override
+		public String toString() {
+			report.assertCompleted();
+			return super.toString();
+		}
+
+	}
+
+	private static class MockNonStreamingVisitor extends MockGroupVisitor
+			implements IReportVisitor {
+
+		private final MockReport report = new MockReport();
+
+		MockNonStreamingVisitor() {
+			super("Report");
+		}
 
 		public void visitInfo(List<SessionInfo> sessionInfos,
 				Collection<ExecutionData> executionData) throws IOException {
-			visitInfosCalled = true;
+			report.visitInfosCalled = true;
 		}
 
 		public void visitEnd() throws IOException {
-			visitEndCalled = true;
+			report.visitEndCalled = true;
 		}
 
 		@Override
 		public String toString() {
+			report.assertCompleted();
+			return super.toString();
+		}
+
+	}
+
+	private static class MockReport {
+
+		private boolean visitInfosCalled = false;
+
+		private boolean visitEndCalled = false;
+
+		void assertCompleted() {
 			assertTrue("visitInfos() has not been called", visitInfosCalled);
 			assertTrue("visitEnd() has not been called", visitEndCalled);
-			return super.toString();
 		}
 
 	}
@@ -66,7 +105,7 @@ public class MultiReportVisitorTest {
 
 		private final String name;
 
-		private final List<MockGroupVisitor> children = new ArrayList<MockGroupVisitor>();
+		final List<MockGroupVisitor> children = new ArrayList<MockGroupVisitor>();
 
 		MockGroupVisitor(String name) {
 			this.name = name;
@@ -74,27 +113,68 @@ public class MultiReportVisitorTest {
 
 		public void visitBundle(IBundleCoverage bundle,
 				ISourceFileLocator locator) throws IOException {
-			children.add(new MockGroupVisitor(bundle.getName()));
+			final MockGroupVisitor child = new MockGroupVisitor(
+					bundle.getName());
+			children.add(child);
+			for (final IPackageCoverage p : bundle.getPackages()) {
+				child.children.add(new MockGroupVisitor(p.getName()));
+			}
 		}
 
 		public IReportGroupVisitor visitGroup(String name) throws IOException {
-			MockGroupVisitor child = new MockGroupVisitor(name);
+			MockGroupVisitor child = createGroup(name);
 			children.add(child);
 			return child;
 		}
 
+		MockGroupVisitor createGroup(String name) {
+			return new MockGroupVisitor(name);
+		}
+
 		@Override
 		public String toString() {
 			return name + children;
 		}
 	}
 
+	private static class MockStreamingGroupVisitor extends MockGroupVisitor
+			implements IStreamingReportGroupVisitor {
+
+		MockStreamingGroupVisitor(String name) {
+			super(name);
+		}
+
+		public IReportBundleVisitor visitBundle(String name,
+				ISourceFileLocator locator) throws IOException {
+			final MockGroupVisitor child = new MockGroupVisitor(name);
+			children.add(child);
+			return new IReportBundleVisitor() {
+				public void visitPackage(IPackageCoverage pkg)
+						throws IOException {
+					child.children.add(new MockGroupVisitor(pkg.getName()));
+				}
+			};
+		}
+
+		@Override
+		MockGroupVisitor createGroup(String name) {
+			return new MockStreamingGroupVisitor(name);
+		}
+	}
+
 	private IBundleCoverage createBundle(String name) {
 		final Collection<IPackageCoverage> packages = Collections.emptyList();
 		return new BundleCoverageImpl(name, packages);
 	}
 
-	private static final String MOCK_REPORT = "Report[g1[b1[], b2[]], g2[]]";
+	private IPackageCoverage createPackage(String name) {
+		final Collection<IClassCoverage> classes = Collections.emptyList();
+		final Collection<ISourceFileCoverage> sourcefiles = Collections
+				.emptyList();
+		return new PackageCoverageImpl(name, classes, sourcefiles);
+	}
+
+	private static final String MOCK_REPORT = "Report[g1[b1[], b2[]], g2[b3[p1[], p2[]]]]";
 
 	private void createMockReport(IReportVisitor visitor) throws IOException {
 		final List<SessionInfo> sessions = Collections.emptyList();
@@ -103,7 +183,10 @@ public class MultiReportVisitorTest {
 		IReportGroupVisitor g1 = visitor.visitGroup("g1");
 		g1.visitBundle(createBundle("b1"), null);
 		g1.visitBundle(createBundle("b2"), null);
-		visitor.visitGroup("g2");
+		IReportBundleVisitor b3 = ((IStreamingReportGroupVisitor) visitor
+				.visitGroup("g2")).visitBundle("b3", null);
+		b3.visitPackage(createPackage("p1"));
+		b3.visitPackage(createPackage("p2"));
 		visitor.visitEnd();
 	}
 
@@ -126,4 +209,15 @@ public class MultiReportVisitorTest {
 		assertEquals(MOCK_REPORT, mock2.toString());
 		assertEquals(MOCK_REPORT, mock3.toString());
 	}
+
+	@Test
+	public void testMultiFormatterWithoutStreaming() throws IOException {
+		IReportVisitor mock1 = new MockVisitor();
+		IReportVisitor mock2 = new MockNonStreamingVisitor();
+		List<IReportVisitor> visitors = Arrays.asList(mock1, mock2);
+		MultiReportVisitor multi = new MultiReportVisitor(visitors);
+		createMockReport(multi);
+		assertEquals(MOCK_REPORT, mock1.toString());
+		assertEquals(MOCK_REPORT, mock2.toString());
+	}
 }
@@ -123,4 +123,26 @@ public class ReportStructureTestDriver {
 		groupVisitor.visitBundle(bundleCoverage, sourceFileLocator);
 	}
 
+	public void sendStreamingGroup(IReportVisitor reportVisitor)
+			throws IOException {
+		reportVisitor.visitInfo(sessions, executionData);
+		final IReportGroupVisitor group = reportVisitor.visitGroup("group");
+		sendStreamingBundle(group);
+		reportVisitor.visitEnd();
+	}
+
+	public void sendStreamingBundle(IReportVisitor reportVisitor)
+			throws IOException {
+		reportVisitor.visitInfo(sessions, executionData);
+		sendStreamingBundle((IReportGroupVisitor) reportVisitor);
+		reportVisitor.visitEnd();
+	}
+
+	public void sendStreamingBundle(IReportGroupVisitor groupVisitor)
+			throws IOException {
+		final IReportBundleVisitor bundleVisitor = ((IStreamingReportGroupVisitor) groupVisitor)
+				.visitBundle("bundle", sourceFileLocator);
+		bundleVisitor.visitPackage(packageCoverage);
+	}
+
 }
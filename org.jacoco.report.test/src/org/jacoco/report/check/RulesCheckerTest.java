@@ -12,6 +12,8 @@
 package org.jacoco.report.check;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -20,6 +22,7 @@ import java.util.List;
 
 import org.jacoco.core.analysis.ICounter.CounterValue;
 import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
 import org.jacoco.core.analysis.ICoverageNode.ElementType;
 import org.jacoco.report.ILanguageNames;
 import org.jacoco.report.ReportStructureTestDriver;
@@ -95,6 +98,53 @@ public class RulesCheckerTest implements IViolationsOutput {
 				messages);
 	}
 
+	@Test
+	public void testStreamingBundle() throws IOException {
+		Rule bundleRule = new Rule();
+		Limit limit = bundleRule.createLimit();
+		limit.setValue(CounterValue.MISSEDCOUNT.name());
+		limit.setMaximum("5");
+		Rule classRule = new Rule();
+		classRule.setElement(ElementType.CLASS);
+		limit = classRule.createLimit();
+		limit.setValue(CounterValue.MISSEDCOUNT.name());
+		limit.setMaximum("5");
+		checker.setRules(Arrays.asList(bundleRule, classRule));
+		driver.sendStreamingGroup(checker.createVisitor(this));
+		assertEquals(
+				Arrays.asList(
+						"Rule violated for class org.jacoco.example.FooClass: instructions missed count is 10, but expected maximum is 5",
+						"Rule violated for bundle bundle: instructions missed count is 10, but expected maximum is 5"),
+				messages);
+	}
+
+	@Test
+	public void testIsLineCoverageRequired() {
+		Rule rule = new Rule();
+		rule.createLimit();
+		checker.setRules(Arrays.asList(rule));
+		assertFalse(checker.isLineCoverageRequired());
+
+		rule.createLimit().setCounter(CounterEntity.LINE.name());
+		assertTrue(checker.isLineCoverageRequired());
+	}
+
+	@Test
+	public void testIsSourceFileCoverageRequired() {
+		Rule rule = new Rule();
+		rule.createLimit();
+		rule.setElement(ElementType.CLASS);
+		checker.setRules(Arrays.asList(rule));
+		assertFalse(checker.isSourceFileCoverageRequired());
+
+		rule.setElement(ElementType.SOURCEFILE);
+		assertTrue(checker.isSourceFileCoverageRequired());
+
+		rule.setElement(ElementType.CLASS);
+		rule.createLimit().setCounter(CounterEntity.LINE.name());
+		assertTrue(checker.isSourceFileCoverageRequired());
+	}
+
 	public void onViolation(ICoverageNode node, Rule rule, Limit limit,
 			String message) {
 		messages.add(message);
@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.jacoco.report.html;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
@@ -77,6 +78,28 @@ public class HTMLFormatterTest {
 		output.assertFile("org.jacoco.example/FooClass.html");
 	}
 
+	@Test
+	public void testStructureWithStreamingGroup() throws IOException {
+		driver.sendStreamingGroup(formatter.createVisitor(output));
+		output.assertFile("index.html");
+		output.assertFile("bundle/index.html");
+		output.assertFile("bundle/org.jacoco.example/index.html");
+		output.assertFile("bundle/org.jacoco.example/FooClass.html");
+	}
+
+	@Test
+	public void testStructureWithStreamingBundle() throws IOException {
+		driver.sendBundle(formatter.createVisitor(output));
+		final MemoryMultiReportOutput streamed = new MemoryMultiReportOutput();
+		driver.sendStreamingBundle(formatter.createVisitor(streamed));
+		streamed.assertAllClosed();
+		for (final String file : new String[] { "index.html",
+				"org.jacoco.example/index.html",
+				"org.jacoco.example/FooClass.html" }) {
+			assertArrayEquals(output.getFile(file), streamed.getFile(file));
+		}
+	}
+
 	@Test
 	public void testDefaultEncoding() throws Exception {
 		driver.sendBundle(formatter.createVisitor(output));
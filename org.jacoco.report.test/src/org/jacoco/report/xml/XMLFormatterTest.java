@@ -162,6 +162,24 @@ public class XMLFormatterTest {
 		assertPathMatches("1", "report/counter[@type='CLASS']/@covered");
 	}
 
+	@Test
+	public void testStructureWithStreamingBundle() throws Exception {
+		driver.sendBundle(formatter.createVisitor(output));
+		final MemoryOutput streamed = new MemoryOutput();
+		driver.sendStreamingBundle(formatter.createVisitor(streamed));
+		streamed.assertClosed();
+		assertEquals(output.toString("UTF-8"), streamed.toString("UTF-8"));
+	}
+
+	@Test
+	public void testStructureWithStreamingGroup() throws Exception {
+		driver.sendGroup(formatter.createVisitor(output));
+		final MemoryOutput streamed = new MemoryOutput();
+		driver.sendStreamingGroup(formatter.createVisitor(streamed));
+		streamed.assertClosed();
+		assertEquals(output.toString("UTF-8"), streamed.toString("UTF-8"));
+	}
+
 	@Test
 	public void testDefaultEncoding() throws Exception {
 		final IReportVisitor visitor = formatter.createVisitor(output);
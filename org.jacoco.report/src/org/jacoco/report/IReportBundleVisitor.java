@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.report;
+
+import java.io.IOException;
+
+import org.jacoco.core.analysis.IPackageCoverage;
+
+/**
+ * Output-Interface for a bundle whose packages are emitted one after the
+ * other. Only the package currently emitted has to be kept in memory, the
+ * counters of the bundle are calculated from its packages. This allows to
+ * create reports for bundles which do not fit into memory as a whole.
+ * 
+ * Every package of the bundle must be emitted only once. The bundle is
+ * completed when its parent visitor is used again or the report ends.
+ */
+public interface IReportBundleVisitor {
+
+	/**
+	 * Called to add a package to the bundle.
+	 * 
+	 * @param pkg
+	 *            package to include in the bundle
+	 * @throws IOException
+	 *             in case of IO problems with the report writer
+	 */
+	void visitPackage(IPackageCoverage pkg) throws IOException;
+
+}
@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.report;
+
+import java.io.IOException;
+
+import org.jacoco.core.analysis.IBundleCoverage;
+
+/**
+ * Optional extension of {@link IReportGroupVisitor} for visitors which accept
+ * bundles whose packages are emitted one after the other. Report drivers check
+ * whether a visitor implements this interface and otherwise emit complete
+ * bundles with {@link #visitBundle(IBundleCoverage, ISourceFileLocator)}.
+ * Group visitors created by {@link #visitGroup(String)} should implement this
+ * interface as well.
+ * 
+ * The constraints of {@link IReportGroupVisitor} also apply to streamed
+ * bundles: A visitor instance can be used to either submit bundles or groups
+ * and the hierarchy has to be processed in a "deep first" manner.
+ */
+public interface IStreamingReportGroupVisitor extends IReportGroupVisitor {
+
+	/**
+	 * Called to add a bundle to the report whose packages are emitted one
+	 * after the other with the returned {@link IReportBundleVisitor}. The
+	 * content of the bundle has to be completed before this or any parent
+	 * visitor can be used again ("deep first").
+	 * 
+	 * @param name
+	 *            name of the bundle
+	 * @param locator
+	 *            source locator for this bundle
+	 * @return visitor for the bundle's packages
+	 * @throws IOException
+	 *             in case of IO problems with the report writer
+	 */
+	IReportBundleVisitor visitBundle(String name, ISourceFileLocator locator)
+			throws IOException;
+
+}
@@ -16,7 +16,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.IPackageCoverage;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
 
@@ -48,6 +51,7 @@ public class MultiReportVisitor extends MultiGroupVisitor implements
 	}
 
 	public void visitEnd() throws IOException {
+		finish();
 		for (final IReportVisitor v : visitors) {
 			v.visitEnd();
 		}
@@ -55,27 +59,121 @@ public class MultiReportVisitor extends MultiGroupVisitor implements
 
 }
 
-class MultiGroupVisitor implements IReportGroupVisitor {
+class MultiGroupVisitor implements IStreamingReportGroupVisitor {
 
 	private final List<? extends IReportGroupVisitor> visitors;
 
+	private final List<BufferedBundle> bufferedBundles = new ArrayList<BufferedBundle>();
+
+	private MultiGroupVisitor lastChild;
+
 	MultiGroupVisitor(final List<? extends IReportGroupVisitor> visitors) {
 		this.visitors = visitors;
 	}
 
 	public void visitBundle(final IBundleCoverage bundle,
 			final ISourceFileLocator locator) throws IOException {
+		finish();
 		for (final IReportGroupVisitor v : visitors) {
 			v.visitBundle(bundle, locator);
 		}
 	}
 
+	public IReportBundleVisitor visitBundle(final String name,
+			final ISourceFileLocator locator) throws IOException {
+		finish();
+		final List<IReportBundleVisitor> children = new ArrayList<IReportBundleVisitor>();
+		for (final IReportGroupVisitor v : visitors) {
+			if (v instanceof IStreamingReportGroupVisitor) {
+				children.add(((IStreamingReportGroupVisitor) v).visitBundle(
+						name, locator));
+			} else {
+				final BufferedBundle bundle = new BufferedBundle(v, name,
+						locator);
+				bufferedBundles.add(bundle);
+				children.add(bundle);
+			}
+		}
+		return new MultiBundleVisitor(children);
+	}
+
 	public IReportGroupVisitor visitGroup(final String name) throws IOException {
+		finish();
 		final List<IReportGroupVisitor> children = new ArrayList<IReportGroupVisitor>();
 		for (final IReportGroupVisitor v : visitors) {
 			children.add(v.visitGroup(name));
 		}
-		return new MultiGroupVisitor(children);
+		lastChild = new MultiGroupVisitor(children);
+		return lastChild;
+	}
+
+	/**
+	 * Completes the content of the last child group and emits the bundles
+	 * buffered for visitors which do not support streamed bundles.
+	 * 
+	 * @throws IOException
+	 *             in case of IO problems with the report writer
+	 */
+	void finish() throws IOException {
+		if (lastChild != null) {
+			lastChild.finish();
+			lastChild = null;
+		}
+		for (final BufferedBundle bundle : bufferedBundles) {
+			bundle.visitEnd();
+		}
+		bufferedBundles.clear();
+	}
+
+}
+
+class MultiBundleVisitor implements IReportBundleVisitor {
+
+	private final List<IReportBundleVisitor> visitors;
+
+	MultiBundleVisitor(final List<IReportBundleVisitor> visitors) {
+		this.visitors = visitors;
+	}
+
+	public void visitPackage(final IPackageCoverage pkg) throws IOException {
+		for (final IReportBundleVisitor v : visitors) {
+			v.visitPackage(pkg);
+		}
+	}
+
+}
+
+/**
+ * Collects the packages of a streamed bundle for a visitor which only accepts
+ * complete bundles.
+ */
+class BufferedBundle extends CoverageNodeImpl implements IBundleCoverage,
+		IReportBundleVisitor {
+
+	private final IReportGroupVisitor visitor;
+
+	private final ISourceFileLocator locator;
+
+	private final List<IPackageCoverage> packages = new ArrayList<IPackageCoverage>();
+
+	BufferedBundle(final IReportGroupVisitor visitor, final String name,
+			final ISourceFileLocator locator) {
+		super(ElementType.BUNDLE, name);
+		this.visitor = visitor;
+		this.locator = locator;
+	}
+
+	public void visitPackage(final IPackageCoverage pkg) {
+		increment(pkg);
+		packages.add(pkg);
+	}
+
+	public Collection<IPackageCoverage> getPackages() {
+		return packages;
+	}
+
+	void visitEnd() throws IOException {
+		visitor.visitBundle(this, locator);
 	}
 
 }
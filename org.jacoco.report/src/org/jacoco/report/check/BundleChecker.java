@@ -78,12 +78,32 @@ class BundleChecker {
 	}
 
 	public void checkBundle(final IBundleCoverage bundleCoverage) {
-		final String name = bundleCoverage.getName();
-		checkRules(bundleCoverage, bundleRules, "bundle", name);
+		checkBundleCounters(bundleCoverage);
+		for (final IPackageCoverage p : bundleCoverage.getPackages()) {
+			checkPackage(p);
+		}
+	}
+
+	/**
+	 * Checks the rules for the bundle element only.
+	 * 
+	 * @param bundle
+	 *            counters of the bundle
+	 */
+	public void checkBundleCounters(final ICoverageNode bundle) {
+		checkRules(bundle, bundleRules, "bundle", bundle.getName());
+	}
+
+	/**
+	 * Checks the rules for the given package and its classes, source files
+	 * and methods.
+	 * 
+	 * @param packageCoverage
+	 *            package of the bundle
+	 */
+	public void checkPackage(final IPackageCoverage packageCoverage) {
 		if (traversePackages) {
-			for (final IPackageCoverage p : bundleCoverage.getPackages()) {
-				check(p);
-			}
+			check(packageCoverage);
 		}
 	}
 
@@ -17,13 +17,19 @@ import java.util.Collection;
 import java.util.List;
 
 import org.jacoco.core.analysis.IBundleCoverage;
+import org.jacoco.core.analysis.ICoverageNode.CounterEntity;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.IPackageCoverage;
 import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.report.ILanguageNames;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.IStreamingReportGroupVisitor;
 import org.jacoco.report.JavaNames;
+import org.jacoco.report.internal.AbstractBundleVisitor;
 
 /**
  * Formatter which checks a set of given rules and reports violations to a
@@ -63,6 +69,44 @@ public class RulesChecker {
 		this.languageNames = languageNames;
 	}
 
+	/**
+	 * Checks whether the configured rules have limits on the line counter.
+	 * If not, the coverage data can be calculated without line coverage.
+	 * 
+	 * @return <code>true</code> if line coverage is required
+	 * @see org.jacoco.core.analysis.Analyzer#setLineCoverage(boolean)
+	 */
+	public boolean isLineCoverageRequired() {
+		for (final Rule rule : rules) {
+			for (final Limit limit : rule.getLimits()) {
+				if (limit.getEntity() == CounterEntity.LINE) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks whether the configured rules apply to source files or require
+	 * line counters, which are calculated per source file. If not, the
+	 * coverage data can be calculated without source file nodes.
+	 * 
+	 * @return <code>true</code> if source file nodes are required
+	 * @see org.jacoco.core.analysis.CoverageBuilder#setSourceFileCoverage(boolean)
+	 */
+	public boolean isSourceFileCoverageRequired() {
+		if (isLineCoverageRequired()) {
+			return true;
+		}
+		for (final Rule rule : rules) {
+			if (rule.getElement() == ElementType.SOURCEFILE) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Creates a new visitor to process the configured checks.
 	 * 
@@ -73,26 +117,56 @@ public class RulesChecker {
 	public IReportVisitor createVisitor(final IViolationsOutput output) {
 		final BundleChecker bundleChecker = new BundleChecker(rules,
 				languageNames, output);
-		return new IReportVisitor() {
+		class Visitor implements IReportVisitor, IStreamingReportGroupVisitor {
+
+			private AbstractBundleVisitor lastBundle;
 
 			public IReportGroupVisitor visitGroup(final String name)
 					throws IOException {
+				finalizeLastBundle();
 				return this;
 			}
 
 			public void visitBundle(final IBundleCoverage bundle,
 					final ISourceFileLocator locator) throws IOException {
+				finalizeLastBundle();
 				bundleChecker.checkBundle(bundle);
 			}
 
+			public IReportBundleVisitor visitBundle(final String name,
+					final ISourceFileLocator locator) throws IOException {
+				finalizeLastBundle();
+				lastBundle = new AbstractBundleVisitor(name) {
+					@Override
+					protected void handlePackage(final IPackageCoverage pkg) {
+						bundleChecker.checkPackage(pkg);
+					}
+
+					@Override
+					protected void handleEnd() {
+						bundleChecker.checkBundleCounters(total);
+					}
+				};
+				return lastBundle;
+			}
+
+			private void finalizeLastBundle() throws IOException {
+				if (lastBundle != null) {
+					lastBundle.visitEnd();
+					lastBundle = null;
+				}
+			}
+
 			public void visitInfo(final List<SessionInfo> sessionInfos,
 					final Collection<ExecutionData> executionData)
 					throws IOException {
 			}
 
 			public void visitEnd() throws IOException {
+				finalizeLastBundle();
 			}
-		};
+		}
+		return new Visitor();
 	}
 
 }
@@ -16,13 +16,15 @@ import java.io.IOException;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.IClassCoverage;
 import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.IStreamingReportGroupVisitor;
 
 /**
  * Report visitor that handles coverage information for groups.
  */
-class CSVGroupHandler implements IReportGroupVisitor {
+class CSVGroupHandler implements IStreamingReportGroupVisitor {
 
 	private final ClassRowWriter writer;
 
@@ -41,10 +43,26 @@ class CSVGroupHandler implements IReportGroupVisitor {
 			final ISourceFileLocator locator) throws IOException {
 		final String name = appendName(bundle.getName());
 		for (final IPackageCoverage p : bundle.getPackages()) {
-			final String packageName = p.getName();
-			for (final IClassCoverage c : p.getClasses()) {
-				writer.writeRow(name, packageName, c);
+			writePackage(name, p);
+		}
+	}
+
+	public IReportBundleVisitor visitBundle(final String name,
+			final ISourceFileLocator locator) throws IOException {
+		final String bundleName = appendName(name);
+		return new IReportBundleVisitor() {
+			public void visitPackage(final IPackageCoverage pkg)
+					throws IOException {
+				writePackage(bundleName, pkg);
 			}
+		};
+	}
+
+	private void writePackage(final String bundleName,
+			final IPackageCoverage p) throws IOException {
+		final String packageName = p.getName();
+		for (final IClassCoverage c : p.getClasses()) {
+			writer.writeRow(bundleName, packageName, c);
 		}
 	}
 
@@ -22,11 +22,14 @@ import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.report.ILanguageNames;
 import org.jacoco.report.IMultiReportOutput;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.IStreamingReportGroupVisitor;
 import org.jacoco.report.JavaNames;
 import org.jacoco.report.internal.ReportOutputFolder;
+import org.jacoco.report.internal.html.HTMLBundleVisitor;
 import org.jacoco.report.internal.html.HTMLGroupVisitor;
 import org.jacoco.report.internal.html.IHTMLReportContext;
 import org.jacoco.report.internal.html.ILinkable;
@@ -190,13 +193,16 @@ public class HTMLFormatter implements IHTMLReportContext {
 		resources = new Resources(root);
 		resources.copyResources();
 		index = new ElementIndex(root);
-		return new IReportVisitor() {
+		class RootVisitor implements IReportVisitor,
+				IStreamingReportGroupVisitor {
 
 			private List<SessionInfo> sessionInfos;
 			private Collection<ExecutionData> executionData;
 
 			private HTMLGroupVisitor groupHandler;
 
+			private HTMLBundleVisitor bundleHandler;
+
 			public void visitInfo(final List<SessionInfo> sessionInfos,
 					final Collection<ExecutionData> executionData)
 					throws IOException {
@@ -212,6 +218,14 @@ public class HTMLFormatter implements IHTMLReportContext {
 				page.render();
 			}
 
+			public IReportBundleVisitor visitBundle(final String name,
+					final ISourceFileLocator locator) throws IOException {
+				bundleHandler = new HTMLBundleVisitor(null, locator, root,
+						HTMLFormatter.this, name);
+				createSessionsPage(bundleHandler.getPage());
+				return bundleHandler;
+			}
+
 			public IReportGroupVisitor visitGroup(final String name)
 					throws IOException {
 				groupHandler = new HTMLGroupVisitor(null, root,
@@ -230,9 +244,13 @@ public class HTMLFormatter implements IHTMLReportContext {
 				if (groupHandler != null) {
 					groupHandler.visitEnd();
 				}
+				if (bundleHandler != null) {
+					bundleHandler.visitEnd();
+				}
 				sessionsPage.render();
 				output.close();
 			}
-		};
+		}
+		return new RootVisitor();
 	}
 }
@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.report.internal;
+
+import java.io.IOException;
+
+import org.jacoco.core.analysis.CoverageNodeImpl;
+import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.report.IReportBundleVisitor;
+
+/**
+ * Internal base visitor to calculate bundle counter summaries for bundles
+ * which are emitted package by package.
+ */
+public abstract class AbstractBundleVisitor implements IReportBundleVisitor {
+
+	/** coverage node for this bundle to total counters */
+	protected final CoverageNodeImpl total;
+
+	/**
+	 * Creates a new bundle with the given name.
+	 * 
+	 * @param name
+	 *            name for the coverage node created internally
+	 */
+	protected AbstractBundleVisitor(final String name) {
+		total = new CoverageNodeImpl(ElementType.BUNDLE, name);
+	}
+
+	public final void visitPackage(final IPackageCoverage pkg)
+			throws IOException {
+		total.increment(pkg);
+		handlePackage(pkg);
+	}
+
+	/**
+	 * Called to handle the given package in a specific way.
+	 * 
+	 * @param pkg
+	 *            analyzed package
+	 * @throws IOException
+	 *             if the report can't be written
+	 */
+	protected abstract void handlePackage(IPackageCoverage pkg)
+			throws IOException;
+
+	/**
+	 * Must be called at the end of every bundle.
+	 * 
+	 * @throws IOException
+	 *             if the report can't be written
+	 */
+	public final void visitEnd() throws IOException {
+		handleEnd();
+	}
+
+	/**
+	 * Called to handle the end of this bundle in a specific way. The counters
+	 * of {@link #total} are complete at this point.
+	 * 
+	 * @throws IOException
+	 *             if the report can't be written
+	 */
+	protected abstract void handleEnd() throws IOException;
+
+}
@@ -16,20 +16,25 @@ import java.io.IOException;
 import org.jacoco.core.analysis.CoverageNodeImpl;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.ICoverageNode.ElementType;
+import org.jacoco.report.IReportBundleVisitor;
 import org.jacoco.report.IReportGroupVisitor;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.IStreamingReportGroupVisitor;
 
 /**
  * Internal base visitor to calculate group counter summaries for hierarchical
  * reports.
  */
-public abstract class AbstractGroupVisitor implements IReportGroupVisitor {
+public abstract class AbstractGroupVisitor implements
+		IStreamingReportGroupVisitor {
 
 	/** coverage node for this group to total counters */
 	protected final CoverageNodeImpl total;
 
 	private AbstractGroupVisitor lastChild;
 
+	private AbstractBundleVisitor lastBundle;
+
 	/**
 	 * Creates a new group with the given name.
 	 * 
@@ -60,6 +65,28 @@ public abstract class AbstractGroupVisitor implements IReportGroupVisitor {
 	protected abstract void handleBundle(IBundleCoverage bundle,
 			ISourceFileLocator locator) throws IOException;
 
+	public final IReportBundleVisitor visitBundle(final String name,
+			final ISourceFileLocator locator) throws IOException {
+		finalizeLastChild();
+		lastBundle = handleBundle(name, locator);
+		return lastBundle;
+	}
+
+	/**
+	 * Called to handle a bundle with the given name whose packages are
+	 * emitted one after the other in a specific way.
+	 * 
+	 * @param name
+	 *            name of the bundle
+	 * @param locator
+	 *            source locator
+	 * @return created bundle visitor
+	 * @throws IOException
+	 *             if the report can't be written
+	 */
+	protected abstract AbstractBundleVisitor handleBundle(final String name,
+			final ISourceFileLocator locator) throws IOException;
+
 	public final IReportGroupVisitor visitGroup(final String name)
 			throws IOException {
 		finalizeLastChild();
@@ -104,6 +131,11 @@ public abstract class AbstractGroupVisitor implements IReportGroupVisitor {
 			total.increment(lastChild.total);
 			lastChild = null;
 		}
+		if (lastBundle != null) {
+			lastBundle.visitEnd();
+			total.increment(lastBundle.total);
+			lastBundle = null;
+		}
 	}
 
 }
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.report.internal.html;
+
+import java.io.IOException;
+
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.internal.AbstractBundleVisitor;
+import org.jacoco.report.internal.ReportOutputFolder;
+import org.jacoco.report.internal.html.page.BundlePage;
+import org.jacoco.report.internal.html.page.ReportPage;
+
+/**
+ * Bundle visitor for HTML reports. The pages of every package are rendered
+ * immediately, the bundle page is rendered at the end.
+ */
+public class HTMLBundleVisitor extends AbstractBundleVisitor {
+
+	private final BundlePage page;
+
+	/**
+	 * Create a new bundle handler.
+	 * 
+	 * @param parent
+	 *            optional hierarchical parent
+	 * @param locator
+	 *            source locator
+	 * @param folder
+	 *            base folder for this bundle
+	 * @param context
+	 *            settings context
+	 * @param name
+	 *            bundle name
+	 */
+	public HTMLBundleVisitor(final ReportPage parent,
+			final ISourceFileLocator locator, final ReportOutputFolder folder,
+			final IHTMLReportContext context, final String name) {
+		super(name);
+		page = new BundlePage(total, parent, locator, folder, context);
+	}
+
+	/**
+	 * Returns the page rendered for this bundle.
+	 * 
+	 * @return page for this bundle
+	 */
+	public BundlePage getPage() {
+		return page;
+	}
+
+	@Override
+	protected void handlePackage(final IPackageCoverage pkg)
+			throws IOException {
+		page.renderPackage(pkg);
+	}
+
+	@Override
+	protected void handleEnd() throws IOException {
+		page.render();
+	}
+
+}
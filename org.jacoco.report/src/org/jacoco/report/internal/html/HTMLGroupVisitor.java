@@ -16,6 +16,7 @@ import java.io.IOException;
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.core.analysis.ICoverageNode;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.internal.AbstractBundleVisitor;
 import org.jacoco.report.internal.AbstractGroupVisitor;
 import org.jacoco.report.internal.ReportOutputFolder;
 import org.jacoco.report.internal.html.page.BundlePage;
@@ -73,6 +74,15 @@ public class HTMLGroupVisitor extends AbstractGroupVisitor {
 		page.addItem(bundlepage);
 	}
 
+	@Override
+	protected AbstractBundleVisitor handleBundle(final String name,
+			final ISourceFileLocator locator) throws IOException {
+		final HTMLBundleVisitor handler = new HTMLBundleVisitor(page, locator,
+				folder.subFolder(name), context, name);
+		page.addItem(handler.getPage());
+		return handler;
+	}
+
 	@Override
 	protected AbstractGroupVisitor handleGroup(final String name)
 			throws IOException {
@@ -47,14 +47,39 @@ public class BundlePage extends TablePage<ICoverageNode> {
 	public BundlePage(final IBundleCoverage bundle, final ReportPage parent,
 			final ISourceFileLocator locator, final ReportOutputFolder folder,
 			final IHTMLReportContext context) {
-		super(bundle.getPlainCopy(), parent, folder, context);
+		this(bundle.getPlainCopy(), parent, locator, folder, context);
 		this.bundle = bundle;
+	}
+
+	/**
+	 * Creates a new visitor for a bundle whose packages are rendered one
+	 * after the other with {@link #renderPackage(IPackageCoverage)}. The page
+	 * itself is rendered last, when the counters of the given node are
+	 * complete.
+	 * 
+	 * @param node
+	 *            counters of the bundle
+	 * @param parent
+	 *            optional hierarchical parent
+	 * @param locator
+	 *            source locator
+	 * @param folder
+	 *            base folder for this bundle
+	 * @param context
+	 *            settings context
+	 */
+	public BundlePage(final ICoverageNode node, final ReportPage parent,
+			final ISourceFileLocator locator, final ReportOutputFolder folder,
+			final IHTMLReportContext context) {
+		super(node, parent, folder, context);
 		this.locator = locator;
 	}
 
 	@Override
 	public void render() throws IOException {
-		renderPackages();
+		if (bundle != null) {
+			renderPackages();
+		}
 		super.render();
 		// Don't keep the bundle structure in memory
 		bundle = null;
@@ -62,16 +87,29 @@ public class BundlePage extends TablePage<ICoverageNode> {
 
 	private void renderPackages() throws IOException {
 		for (final IPackageCoverage p : bundle.getPackages()) {
-			final String packagename = p.getName();
-			final String foldername = packagename.length() == 0 ? "default"
-					: packagename.replace('/', '.');
-			final PackagePage page = new PackagePage(p, this, locator,
-					folder.subFolder(foldername), context);
-			page.render();
-			addItem(page);
+			renderPackage(p);
 		}
 	}
 
+	/**
+	 * Renders the page of the given package and adds it to the table of this
+	 * page. Only the counters of the package are kept in memory.
+	 * 
+	 * @param p
+	 *            package of this bundle
+	 * @throws IOException
+	 *             if the page can't be written
+	 */
+	public void renderPackage(final IPackageCoverage p) throws IOException {
+		final String packagename = p.getName();
+		final String foldername = packagename.length() == 0 ? "default"
+				: packagename.replace('/', '.');
+		final PackagePage page = new PackagePage(p, this, locator,
+				folder.subFolder(foldername), context);
+		page.render();
+		addItem(new SummaryItem(page));
+	}
+
 	@Override
 	protected String getOnload() {
 		return "initialSort(['breadcrumb', 'coveragetable'])";
@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.report.internal.html.page;
+
+import org.jacoco.core.analysis.ICoverageNode;
+import org.jacoco.report.internal.ReportOutputFolder;
+import org.jacoco.report.internal.html.table.ITableItem;
+
+/**
+ * Table item for a page which has already been rendered. Only the counters
+ * and the link of the page are kept, so that the page and its coverage data
+ * can be released.
+ */
+final class SummaryItem implements ITableItem {
+
+	private final ICoverageNode node;
+
+	private final String linkLabel;
+
+	private final String linkStyle;
+
+	private final ReportOutputFolder folder;
+
+	private final String fileName;
+
+	SummaryItem(final NodePage<?> page) {
+		this.node = page.getNode().getPlainCopy();
+		this.linkLabel = page.getLinkLabel();
+		this.linkStyle = page.getLinkStyle();
+		this.folder = page.folder;
+		this.fileName = page.getFileName();
+	}
+
+	public String getLinkLabel() {
+		return linkLabel;
+	}
+
+	public String getLinkStyle() {
+		return linkStyle;
+	}
+
+	public String getLink(final ReportOutputFolder base) {
+		return folder.getLink(base, fileName);
+	}
+
+	public ICoverageNode getNode() {
+		return node;
+	}
+
+}
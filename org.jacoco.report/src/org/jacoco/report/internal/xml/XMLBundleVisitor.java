@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2009, 2017 Mountainminds GmbH & Co. KG and Contributors
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *    Marc R. Hoffmann - initial API and implementation
+ *    
+ *******************************************************************************/
+package org.jacoco.report.internal.xml;
+
+import java.io.IOException;
+
+import org.jacoco.core.analysis.IPackageCoverage;
+import org.jacoco.report.internal.AbstractBundleVisitor;
+
+/**
+ * Bundle visitor for XML reports. Packages are written immediately, the
+ * counters of the bundle are written at the end.
+ */
+public class XMLBundleVisitor extends AbstractBundleVisitor {
+
+	private final XMLElement element;
+
+	/**
+	 * New handler for a bundle with the given name.
+	 * 
+	 * @param element
+	 *            XML element of the bundle
+	 * @param name
+	 *            bundle name
+	 */
+	public XMLBundleVisitor(final XMLElement element, final String name) {
+		super(name);
+		this.element = element;
+	}
+
+	@Override
+	protected void handlePackage(final IPackageCoverage pkg)
+			throws IOException {
+		XMLCoverageWriter.writePackage(pkg, element);
+	}
+
+	@Override
+	protected void handleEnd() throws IOException {
+		XMLCoverageWriter.writeCounters(total, element);
+	}
+
+}
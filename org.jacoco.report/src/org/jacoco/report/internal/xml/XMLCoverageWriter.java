@@ -68,7 +68,17 @@ public final class XMLCoverageWriter {
 		writeCounters(bundle, element);
 	}
 
-	private static void writePackage(final IPackageCoverage p,
+	/**
+	 * Writes the structure of a given package.
+	 * 
+	 * @param p
+	 *            package coverage data
+	 * @param parent
+	 *            container element for the package data
+	 * @throws IOException
+	 *             if XML can't be written to the underlying output
+	 */
+	public static void writePackage(final IPackageCoverage p,
 			final XMLElement parent) throws IOException {
 		final XMLElement element = createChild(parent, "package", p.getName());
 		for (final IClassCoverage c : p.getClasses()) {
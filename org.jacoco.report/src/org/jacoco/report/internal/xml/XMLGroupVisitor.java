@@ -16,6 +16,7 @@ import java.io.IOException;
 
 import org.jacoco.core.analysis.IBundleCoverage;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.internal.AbstractBundleVisitor;
 import org.jacoco.report.internal.AbstractGroupVisitor;
 
 /**
@@ -51,6 +52,12 @@ public class XMLGroupVisitor extends AbstractGroupVisitor {
 		XMLCoverageWriter.writeBundle(bundle, child);
 	}
 
+	@Override
+	protected AbstractBundleVisitor handleBundle(final String name,
+			final ISourceFileLocator locator) throws IOException {
+		return new XMLBundleVisitor(createChild(name), name);
+	}
+
 	@Override
 	protected AbstractGroupVisitor handleGroup(final String name)
 			throws IOException {
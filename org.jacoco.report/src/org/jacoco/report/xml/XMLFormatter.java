@@ -21,7 +21,9 @@ import org.jacoco.core.data.ExecutionData;
 import org.jacoco.core.data.SessionInfo;
 import org.jacoco.report.IReportVisitor;
 import org.jacoco.report.ISourceFileLocator;
+import org.jacoco.report.internal.AbstractBundleVisitor;
 import org.jacoco.report.internal.AbstractGroupVisitor;
+import org.jacoco.report.internal.xml.XMLBundleVisitor;
 import org.jacoco.report.internal.xml.XMLCoverageWriter;
 import org.jacoco.report.internal.xml.XMLDocument;
 import org.jacoco.report.internal.xml.XMLElement;
@@ -82,6 +84,13 @@ public class XMLFormatter {
 				XMLCoverageWriter.writeBundle(bundle, element);
 			}
 
+			@Override
+			protected AbstractBundleVisitor handleBundle(final String name,
+					final ISourceFileLocator locator) throws IOException {
+				writeHeader(name);
+				return new XMLBundleVisitor(element, name);
+			}
+
 			@Override
 			protected AbstractGroupVisitor handleGroup(final String name)
 					throws IOException {